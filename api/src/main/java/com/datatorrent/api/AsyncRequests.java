@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking requests issued by an operator, for example lookups in an external store. The number of requests in
+ * flight is bounded by {@link Context.OperatorContext#ASYNC_MAX_IN_FLIGHT}; issuing a request when the limit is
+ * reached blocks until a request completes. Callbacks are always invoked on the operator thread, so they can emit
+ * tuples and update operator state without synchronization, and never from within the call that issues a request.
+ * Requests not completed within {@link Context.OperatorContext#ASYNC_TIMEOUT_MILLIS} fail.
+ * <p>
+ * Requests are to be issued within a window. The engine does not end the window, and therefore does not checkpoint
+ * the operator, until all requests issued in the window have completed and their callbacks have run. Tuples emitted
+ * by callbacks belong to the window in which the request was issued.
+ *
+ * @see Operator.AsyncRequester
+ * @since 3.5.0
+ */
+public interface AsyncRequests
+{
+  /**
+   * Receives the outcome of a request on the operator thread.
+   *
+   * @param <V> result type
+   */
+  interface Callback<V>
+  {
+    void completed(V result);
+
+    void failed(Throwable cause);
+  }
+
+  /**
+   * Handle through which the client of an external system reports the outcome of a request, from any thread. Only the
+   * first call has an effect.
+   *
+   * @param <V> result type
+   */
+  interface Completion<V>
+  {
+    void complete(V result);
+
+    void fail(Throwable cause);
+  }
+
+  /**
+   * Start a request that is executed by a non-blocking client. The client reports the outcome through the returned
+   * handle.
+   *
+   * @param callback invoked on the operator thread once the request completes
+   * @param <V> result type
+   * @return handle to report the outcome
+   */
+  <V> Completion<V> begin(Callback<V> callback);
+
+  /**
+   * Execute a blocking call on a thread managed by the engine.
+   *
+   * @param request the call
+   * @param callback invoked on the operator thread with the result of the call
+   * @param <V> result type
+   */
+  <V> void submit(Callable<V> request, Callback<V> callback);
+
+  /**
+   * @return number of requests counted against the in flight limit, that is requests whose callback has not run yet
+   * less those the engine already knows to be complete
+   */
+  int getInFlightCount();
+
+}
@@ -72,6 +72,19 @@ public @interface AutoMetric
     Map<String, Object> aggregate(long windowId, Collection<PhysicalMetricsContext> physicalMetrics);
   }
 
+  /**
+   * Marker for an {@link Aggregator} whose result can be aggregated again. The logical metrics it returns have the
+   * same names and meaning as the physical metrics, and aggregating the partial results of disjoint groups of
+   * partitions gives the same result as aggregating all partitions at once. Sums, minimums and maximums are
+   * associative, averages are not.<br/>
+   * Only associative aggregators can be used to pre-aggregate the metrics of partitions in the same container.
+   *
+   * @since 3.5.0
+   */
+  public static interface AssociativeAggregator extends Aggregator
+  {
+  }
+
   /**
    * Provides information of dimension aggregations and time-buckets which are sent to Application data tracker.<br/>
    * Application data tracker by default does certain aggregations for 1m, 1h,& 1d time buckets unless it overridden by
@@ -0,0 +1,39 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import java.util.List;
+
+/**
+ * Sink that accepts a batch of data tuples in one call. Engine streams and {@link DefaultBatchInputPort} implement
+ * this in addition to {@link Sink}. A batch never contains control tuples, so it never spans a window boundary.
+ *
+ * @param <T> type of the tuples
+ * @since 3.5.0
+ */
+public interface BatchSink<T>
+{
+  /**
+   * Process the tuples in order. The list is only valid for the duration of the call, the caller may reuse it.
+   *
+   * @param tuples data tuples
+   */
+  void putBatch(List<? extends T> tuples);
+
+}
@@ -282,6 +282,26 @@ public interface Context
      * blocking operator logic, etc.
      */
     Attribute<Integer> TIMEOUT_WINDOW_COUNT = new Attribute<Integer>(120);
+    /**
+     * Maximum number of asynchronous requests an operator implementing {@link Operator.AsyncRequester} can have in
+     * flight. Issuing a request when the limit is reached blocks the operator until an outstanding request completes.
+     * This also is the number of threads used to execute blocking calls submitted through {@link AsyncRequests}.
+     */
+    Attribute<Integer> ASYNC_MAX_IN_FLIGHT = new Attribute<Integer>(64);
+    /**
+     * Time in milliseconds after which an asynchronous request issued through {@link AsyncRequests} that has not
+     * completed is failed with a {@link java.util.concurrent.TimeoutException}, so that a lost response cannot block
+     * the operator forever. 0 disables the timeout.
+     */
+    Attribute<Long> ASYNC_TIMEOUT_MILLIS = new Attribute<Long>(60000L);
+    /**
+     * Number of key groups the state of an operator implementing {@link Operator.KeyGroupedState} is divided into.
+     * Must be a power of two and at least the number of partitions the operator will be scaled to. Key group state
+     * is checkpointed separately and moved to the new owners when the operator is repartitioned, instead of being
+     * redistributed by the partitioner. Each key group must be owned by exactly one partition, so an operator with
+     * more than one partition must be partitioned by key. 0 disables key groups.
+     */
+    Attribute<Integer> KEY_GROUPS = new Attribute<Integer>(0);
     /**
      * Whether or not to auto record the tuples
      */
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input port that processes tuples in batches. The engine delivers the data tuples that are available between
+ * control tuples as one batch, so a batch never spans a window boundary. Batches are split at the maximum batch size
+ * and the list passed to {@link #processBatch(List)} is reused, it must not be retained after the call. Tuples
+ * received individually are processed as a batch of one.
+ *
+ * @param <T>
+ * @since 3.5.0
+ */
+public abstract class DefaultBatchInputPort<T> extends DefaultInputPort<T> implements BatchSink<T>
+{
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+  private final int maxBatchSize;
+  private final ArrayList<T> batch;
+
+  public DefaultBatchInputPort()
+  {
+    this(DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  /**
+   * @param maxBatchSize maximum number of tuples passed to {@link #processBatch(List)}
+   */
+  public DefaultBatchInputPort(int maxBatchSize)
+  {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Invalid batch size " + maxBatchSize);
+    }
+    this.maxBatchSize = maxBatchSize;
+    this.batch = new ArrayList<>(Math.min(maxBatchSize, DEFAULT_MAX_BATCH_SIZE));
+  }
+
+  public int getMaxBatchSize()
+  {
+    return maxBatchSize;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void putBatch(List<? extends T> tuples)
+  {
+    final int size = tuples.size();
+    count += size;
+    for (int i = 0; i < size; i++) {
+      batch.add(tuples.get(i));
+      if (batch.size() == maxBatchSize) {
+        flush();
+      }
+    }
+    flush();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void process(T tuple)
+  {
+    batch.add(tuple);
+    flush();
+  }
+
+  private void flush()
+  {
+    if (!batch.isEmpty()) {
+      try {
+        processBatch(batch);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Process the tuples of a batch in order.
+   *
+   * @param tuples batch of at most the maximum batch size, reused after the call returns
+   */
+  public abstract void processBatch(List<T> tuples);
+
+}
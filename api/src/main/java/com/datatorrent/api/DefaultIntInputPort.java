@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import com.datatorrent.api.Context.PortContext;
+
+/**
+ * Input port for int values. Values received from streams that support primitives are passed to
+ * {@link #process(int)} without boxing, boxed values received from other streams are unboxed. When the stream goes
+ * through the buffer server, {@link PrimitiveStreamCodec.OfInt} is used unless a codec is set
+ * through the {@link PortContext#STREAM_CODEC} attribute.
+ *
+ * @since 3.5.0
+ */
+public abstract class DefaultIntInputPort extends DefaultInputPort<Integer> implements PrimitiveSink.OfInt
+{
+  private PortContext context;
+
+  /**
+   * Returns the codec set through {@link PortContext#STREAM_CODEC} once the port is set up, otherwise
+   * {@link PrimitiveStreamCodec.OfInt}.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public StreamCodec<Integer> getStreamCodec()
+  {
+    if (context != null) {
+      StreamCodec<?> codec = context.getValue(PortContext.STREAM_CODEC);
+      if (codec != null) {
+        return (StreamCodec<Integer>)codec;
+      }
+    }
+    return new PrimitiveStreamCodec.OfInt();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setup(PortContext context)
+  {
+    super.setup(context);
+    this.context = context;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void putInt(int value)
+  {
+    count++;
+    process(value);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void process(Integer tuple)
+  {
+    process(tuple.intValue());
+  }
+
+  /**
+   * Process the value.
+   *
+   * @param value
+   */
+  public abstract void process(int value);
+
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import com.datatorrent.api.Context.PortContext;
+
+/**
+ * Input port for long values. Values received from streams that support primitives are passed to
+ * {@link #process(long)} without boxing, boxed values received from other streams are unboxed. When the stream goes
+ * through the buffer server, {@link PrimitiveStreamCodec.OfLong} is used unless a codec is set
+ * through the {@link PortContext#STREAM_CODEC} attribute.
+ *
+ * @since 3.5.0
+ */
+public abstract class DefaultLongInputPort extends DefaultInputPort<Long> implements PrimitiveSink.OfLong
+{
+  private PortContext context;
+
+  /**
+   * Returns the codec set through {@link PortContext#STREAM_CODEC} once the port is set up, otherwise
+   * {@link PrimitiveStreamCodec.OfLong}.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public StreamCodec<Long> getStreamCodec()
+  {
+    if (context != null) {
+      StreamCodec<?> codec = context.getValue(PortContext.STREAM_CODEC);
+      if (codec != null) {
+        return (StreamCodec<Long>)codec;
+      }
+    }
+    return new PrimitiveStreamCodec.OfLong();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setup(PortContext context)
+  {
+    super.setup(context);
+    this.context = context;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void putLong(long value)
+  {
+    count++;
+    process(value);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void process(Long tuple)
+  {
+    process(tuple.longValue());
+  }
+
+  /**
+   * Process the value.
+   *
+   * @param value
+   */
+  public abstract void process(long value);
+
+}
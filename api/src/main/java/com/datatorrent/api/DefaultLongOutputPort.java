@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+/**
+ * Output port for long values. {@link #emit(long)} passes the value to the connected stream without boxing when the
+ * stream supports it, as is the case for thread local and container local streams.
+ *
+ * @since 3.5.0
+ */
+public class DefaultLongOutputPort extends DefaultOutputPort<Long>
+{
+  /**
+   * Emit the given value to downstream operators interested in this port.
+   *
+   * @param value payload which needs to be emitted.
+   */
+  public void emit(long value)
+  {
+    Sink<Object> sink = getSink();
+    if (sink instanceof PrimitiveSink.OfLong) {
+      ((PrimitiveSink.OfLong)sink).putLong(value);
+    } else {
+      sink.put(value);
+    }
+  }
+
+}
@@ -18,6 +18,8 @@
  */
 package com.datatorrent.api;
 
+import java.util.List;
+
 import com.datatorrent.api.Context.PortContext;
 import com.datatorrent.api.Operator.Unifier;
 
@@ -51,6 +53,26 @@ public class DefaultOutputPort<T> implements Operator.OutputPort<T>
     sink.put(tuple);
   }
 
+  /**
+   * Emit the given tuples in order. Streams that support batches pass them on in one call, other streams receive
+   * them one at a time. The list can be reused by the caller after the method returns.
+   *
+   * @param tuples payloads which need to be emitted.
+   */
+  @SuppressWarnings("unchecked")
+  public void emitBatch(List<? extends T> tuples)
+  {
+    if (sink instanceof BatchSink) {
+      if (!tuples.isEmpty()) {
+        ((BatchSink<Object>)sink).putBatch(tuples);
+      }
+    } else {
+      for (int i = 0, size = tuples.size(); i < size; i++) {
+        sink.put(tuples.get(i));
+      }
+    }
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -62,6 +84,11 @@ public class DefaultOutputPort<T> implements Operator.OutputPort<T>
     this.sink = s == null ? Sink.BLACKHOLE : s;
   }
 
+  Sink<Object> getSink()
+  {
+    return sink;
+  }
+
   /**
    * Opportunity for user code to check whether the port is connected, if
    * optional.
@@ -0,0 +1,352 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Fixed memory histogram of non-negative long values with log-linear buckets, in the style of HdrHistogram. Every
+ * power of two range is divided into 2<sup>precisionBits</sup> buckets, which bounds the relative error of reported
+ * values to 2<sup>-precisionBits</sup>. Recording does not allocate. Histograms with the same layout are merged by
+ * adding the bucket counts, which makes them suitable as {@link AutoMetric} values aggregated across partitions.
+ * <p>
+ * Values above the maximum value are counted in the last bucket, negative values are counted as 0. The histogram is
+ * not thread safe.
+ *
+ * @since 3.5.0
+ */
+public class Histogram implements Serializable
+{
+  public static final int DEFAULT_PRECISION_BITS = 5;
+  public static final long DEFAULT_MAX_VALUE = 1L << 40;
+
+  private final int precisionBits;
+  private final long maxValue;
+  private transient long[] counts;
+  private transient long totalCount;
+  private transient long min;
+  private transient long max;
+  private transient double sum;
+
+  /**
+   * Histogram with 32 buckets per power of two and values up to 2<sup>40</sup>.
+   */
+  public Histogram()
+  {
+    this(DEFAULT_PRECISION_BITS, DEFAULT_MAX_VALUE);
+  }
+
+  /**
+   * @param precisionBits number of bits that determine the buckets per power of two, between 1 and 10
+   * @param maxValue highest value tracked with the given precision
+   */
+  public Histogram(int precisionBits, long maxValue)
+  {
+    if (precisionBits < 1 || precisionBits > 10) {
+      throw new IllegalArgumentException("precisionBits " + precisionBits);
+    }
+    if (maxValue < 1) {
+      throw new IllegalArgumentException("maxValue " + maxValue);
+    }
+    this.precisionBits = precisionBits;
+    this.maxValue = maxValue;
+    init();
+  }
+
+  private void init()
+  {
+    counts = new long[indexOf(maxValue) + 1];
+    reset();
+  }
+
+  private int indexOf(long value)
+  {
+    if (value < (1L << precisionBits)) {
+      return (int)value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - precisionBits;
+    return ((shift + 1) << precisionBits) + (int)((value >>> shift) & ((1L << precisionBits) - 1));
+  }
+
+  /**
+   * @param index bucket index
+   * @return highest value counted in the bucket
+   */
+  private long highestValueOf(int index)
+  {
+    int group = index >>> precisionBits;
+    if (group == 0) {
+      return index;
+    }
+    int shift = group - 1;
+    long lowest = ((1L << precisionBits) + (index & ((1 << precisionBits) - 1))) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  public void recordValue(long value)
+  {
+    recordValueWithCount(value, 1);
+  }
+
+  /**
+   * Record a value that occurred multiple times.
+   *
+   * @param value the value
+   * @param count number of occurrences
+   */
+  public void recordValueWithCount(long value, long count)
+  {
+    if (value < 0) {
+      value = 0;
+    }
+    counts[value > maxValue ? counts.length - 1 : indexOf(value)] += count;
+    if (totalCount == 0 || value < min) {
+      min = value;
+    }
+    if (totalCount == 0 || value > max) {
+      max = value;
+    }
+    totalCount += count;
+    sum += (double)value * count;
+  }
+
+  /**
+   * Add the values recorded in another histogram. When the layouts differ, the values of the other histogram are
+   * added with the precision of this histogram.
+   *
+   * @param other histogram to add
+   */
+  public void add(Histogram other)
+  {
+    if (other.totalCount == 0) {
+      return;
+    }
+    if (other.precisionBits == precisionBits && other.counts.length == counts.length) {
+      for (int i = counts.length; i-- > 0;) {
+        counts[i] += other.counts[i];
+      }
+    } else {
+      for (int i = 0; i < other.counts.length; i++) {
+        if (other.counts[i] != 0) {
+          long value = Math.min(other.highestValueOf(i), other.max);
+          counts[value > maxValue ? counts.length - 1 : indexOf(value)] += other.counts[i];
+        }
+      }
+    }
+    if (totalCount == 0 || other.min < min) {
+      min = other.min;
+    }
+    if (totalCount == 0 || other.max > max) {
+      max = other.max;
+    }
+    totalCount += other.totalCount;
+    sum += other.sum;
+  }
+
+  public void reset()
+  {
+    Arrays.fill(counts, 0);
+    totalCount = 0;
+    min = 0;
+    max = 0;
+    sum = 0;
+  }
+
+  public Histogram copy()
+  {
+    Histogram copy = new Histogram(precisionBits, maxValue);
+    copy.add(this);
+    return copy;
+  }
+
+  public long getTotalCount()
+  {
+    return totalCount;
+  }
+
+  /**
+   * @return lowest recorded value, 0 when empty
+   */
+  public long getMin()
+  {
+    return min;
+  }
+
+  /**
+   * @return highest recorded value, 0 when empty
+   */
+  public long getMax()
+  {
+    return max;
+  }
+
+  /**
+   * @return mean of the recorded values, 0 when empty
+   */
+  public double getMean()
+  {
+    return totalCount == 0 ? 0 : sum / totalCount;
+  }
+
+  /**
+   * The value at or below which the given percentage of recorded values fall, within the precision of the histogram.
+   *
+   * @param percentile between 0 and 100
+   * @return value at the percentile, 0 when empty
+   */
+  public long getValueAtPercentile(double percentile)
+  {
+    if (totalCount == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long)Math.ceil(Math.min(percentile, 100) / 100 * totalCount));
+    long cumulative = 0;
+    for (int i = 0; i < counts.length; i++) {
+      cumulative += counts[i];
+      if (cumulative >= target) {
+        return Math.max(min, Math.min(highestValueOf(i), max));
+      }
+    }
+    return max;
+  }
+
+  public int getPrecisionBits()
+  {
+    return precisionBits;
+  }
+
+  public long getMaxValue()
+  {
+    return maxValue;
+  }
+
+  /**
+   * Write the histogram with only the non empty buckets.
+   *
+   * @param out destination
+   * @throws IOException
+   */
+  public void write(DataOutput out) throws IOException
+  {
+    out.writeByte(precisionBits);
+    out.writeLong(maxValue);
+    writeCounts(out);
+  }
+
+  /**
+   * Read a histogram written with {@link #write(DataOutput)}.
+   *
+   * @param in source
+   * @return the histogram
+   * @throws IOException
+   */
+  public static Histogram read(DataInput in) throws IOException
+  {
+    Histogram h = new Histogram(in.readByte(), in.readLong());
+    h.readCounts(in);
+    return h;
+  }
+
+  private void writeCounts(DataOutput out) throws IOException
+  {
+    out.writeLong(totalCount);
+    if (totalCount == 0) {
+      return;
+    }
+    out.writeLong(min);
+    out.writeLong(max);
+    out.writeDouble(sum);
+    int buckets = 0;
+    for (long count : counts) {
+      if (count != 0) {
+        buckets++;
+      }
+    }
+    out.writeInt(buckets);
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        out.writeInt(i);
+        out.writeLong(counts[i]);
+      }
+    }
+  }
+
+  private void readCounts(DataInput in) throws IOException
+  {
+    totalCount = in.readLong();
+    if (totalCount == 0) {
+      return;
+    }
+    min = in.readLong();
+    max = in.readLong();
+    sum = in.readDouble();
+    for (int buckets = in.readInt(); buckets-- > 0;) {
+      int index = in.readInt();
+      counts[index] = in.readLong();
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException
+  {
+    out.defaultWriteObject();
+    writeCounts(out);
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    init();
+    readCounts(in);
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    Histogram h = (Histogram)o;
+    return precisionBits == h.precisionBits && maxValue == h.maxValue && totalCount == h.totalCount && min == h.min &&
+        max == h.max && Arrays.equals(counts, h.counts);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return 31 * Arrays.hashCode(counts) + (int)(totalCount ^ (totalCount >>> 32));
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Histogram{count=" + totalCount + ", min=" + min + ", p50=" + getValueAtPercentile(50) + ", p99=" +
+        getValueAtPercentile(99) + ", max=" + max + '}';
+  }
+
+  private static final long serialVersionUID = 201610190001L;
+}
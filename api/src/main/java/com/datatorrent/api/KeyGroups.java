@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import java.util.Collection;
+
+import com.datatorrent.api.Partitioner.PartitionKeys;
+
+/**
+ * Mapping of keys to key groups and of key groups to partitions, see {@link Operator.KeyGroupedState}.
+ * <p>
+ * The key group of a key consists of the low bits of the partition code of the key. A partition with the partition
+ * keys (mask, partitions) owns the key groups whose bits selected by the mask match one of its partitions. Partition
+ * keys therefore map onto whole key groups as long as the mask does not exceed the number of key groups.
+ *
+ * @since 3.5.0
+ */
+public final class KeyGroups
+{
+  private KeyGroups()
+  {
+  }
+
+  /**
+   * @param keyGroupCount number of key groups
+   * @throws IllegalArgumentException when the count is not a power of two
+   */
+  public static void checkKeyGroupCount(int keyGroupCount)
+  {
+    if (keyGroupCount <= 0 || (keyGroupCount & (keyGroupCount - 1)) != 0) {
+      throw new IllegalArgumentException("Number of key groups must be a power of two: " + keyGroupCount);
+    }
+  }
+
+  /**
+   * @param partitionCode partition code computed by the stream codec for the key
+   * @param keyGroupCount number of key groups
+   * @return key group of the key
+   */
+  public static int getKeyGroup(int partitionCode, int keyGroupCount)
+  {
+    return partitionCode & (keyGroupCount - 1);
+  }
+
+  /**
+   * @param mask partition mask or 0 when the operator is not partitioned
+   * @param partitions partition keys, ignored when the mask is 0
+   * @param keyGroupCount number of key groups
+   * @return the key groups owned by the partition, in ascending order
+   * @throws IllegalArgumentException when the mask selects bits beyond the key groups
+   */
+  public static int[] getKeyGroups(int mask, Collection<Integer> partitions, int keyGroupCount)
+  {
+    checkKeyGroupCount(keyGroupCount);
+    if ((mask & ~(keyGroupCount - 1)) != 0) {
+      throw new IllegalArgumentException("Partition mask " + Integer.toBinaryString(mask) + " exceeds " +
+          keyGroupCount + " key groups");
+    }
+    int count = 0;
+    int[] keyGroups = new int[keyGroupCount];
+    for (int keyGroup = 0; keyGroup < keyGroupCount; keyGroup++) {
+      if (mask == 0 || partitions.contains(keyGroup & mask)) {
+        keyGroups[count++] = keyGroup;
+      }
+    }
+    if (count < keyGroupCount) {
+      int[] owned = new int[count];
+      System.arraycopy(keyGroups, 0, owned, 0, count);
+      return owned;
+    }
+    return keyGroups;
+  }
+
+  /**
+   * @param keys partition keys of the partitioned input port or null when the operator is not partitioned
+   * @param keyGroupCount number of key groups
+   * @return the key groups owned by the partition, in ascending order
+   * @throws IllegalArgumentException when the mask selects bits beyond the key groups
+   */
+  public static int[] getKeyGroups(PartitionKeys keys, int keyGroupCount)
+  {
+    return keys == null ? getKeyGroups(0, null, keyGroupCount) : getKeyGroups(keys.mask, keys.partitions,
+        keyGroupCount);
+  }
+}
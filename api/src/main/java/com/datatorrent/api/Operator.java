@@ -99,6 +99,74 @@ public interface Operator extends Component<OperatorContext>, GenericOperator
 
   }
 
+  /**
+   * Unifier of which the result over a sliding window ({@link OperatorContext#SLIDE_BY_WINDOW_COUNT}) can be
+   * computed from partial aggregates of the individual windows with an associative merge. The engine keeps one
+   * aggregate per window instead of the tuples and combines the aggregates with a two stack queue, so the cost per
+   * slide does not depend on the number of windows in the sliding window.
+   * <p>
+   * When used for a sliding window, {@link #process(Object)}, {@link #beginWindow(long)} and {@link #endWindow()} are
+   * not called, the result is emitted by {@link #emitAggregate(Object)} instead.
+   *
+   * @param <T> Type of the tuple emitted by the output port which is being unified
+   * @param <A> Type of the partial aggregate
+   * @since 3.5.0
+   */
+  interface SlidingUnifier<T, A> extends Unifier<T>
+  {
+    /**
+     * @return new empty aggregate, the identity of {@link #merge(Object, Object)}
+     */
+    A createAggregate();
+
+    /**
+     * Add a tuple to the aggregate of the current window.
+     *
+     * @param aggregate aggregate created by {@link #createAggregate()}, may be modified
+     * @param tuple
+     * @return the aggregate including the tuple
+     */
+    A accumulate(A aggregate, T tuple);
+
+    /**
+     * Combine two aggregates, with a1 covering the earlier windows. Must be associative and must not modify the
+     * arguments.
+     *
+     * @param a1
+     * @param a2
+     * @return the combined aggregate
+     */
+    A merge(A a1, A a2);
+
+    /**
+     * Emit the result for the given aggregate of the sliding window.
+     *
+     * @param aggregate
+     */
+    void emitAggregate(A aggregate);
+  }
+
+  /**
+   * Sliding unifier with an inverse of {@link #merge(Object, Object)}. The engine maintains a single running aggregate
+   * for the sliding window, adding the aggregate of the latest window and subtracting the aggregates of evicted
+   * windows.
+   *
+   * @param <T> Type of the tuple emitted by the output port which is being unified
+   * @param <A> Type of the partial aggregate
+   * @since 3.5.0
+   */
+  interface InvertibleUnifier<T, A> extends SlidingUnifier<T, A>
+  {
+    /**
+     * Remove an aggregate that was previously merged. Must not modify the arguments.
+     *
+     * @param aggregate
+     * @param evicted
+     * @return the aggregate without evicted
+     */
+    A subtract(A aggregate, A evicted);
+  }
+
   /**
    * DelayOperator is an operator of which the outgoing streaming window id is incremented by *one* by the
    * engine, thus allowing loops in the "DAG". The output ports of a DelayOperator, if connected, *must*
@@ -316,4 +384,49 @@ public interface Operator extends Component<OperatorContext>, GenericOperator
     void beforeCheckpoint(long windowId);
   }
 
+  /**
+   * Operators that issue asynchronous requests, such as lookups in external stores, instead of blocking the operator
+   * thread for every tuple should implement this interface. The engine provides the {@link AsyncRequests} before
+   * {@link Component#setup} is called.
+   *
+   * @since 3.5.0
+   */
+  interface AsyncRequester
+  {
+    /**
+     * @param requests facility to issue requests with
+     */
+    void setAsyncRequests(AsyncRequests requests);
+  }
+
+  /**
+   * Operators with keyed state that is divided into {@link Context.OperatorContext#KEY_GROUPS} key groups. The
+   * state of each key group is checkpointed separately from the operator, which therefore should hold it in transient
+   * fields. When the operator is repartitioned, the key groups are reassigned to the new partitions according to
+   * their partition keys, see {@link KeyGroups}, and the partitioner does not need to redistribute state.
+   * <p>
+   * The key group of a key is {@link KeyGroups#getKeyGroup(int, int)} of the partition code the stream codec of the
+   * partitioned input port computes for the key.
+   *
+   * @since 3.5.0
+   */
+  interface KeyGroupedState
+  {
+    /**
+     * Called on checkpoint for every key group owned by the partition.
+     *
+     * @param keyGroup the key group
+     * @return state of the key group or null when empty
+     */
+    Object getKeyGroupState(int keyGroup);
+
+    /**
+     * Called before {@link Component#setup} for every key group owned by the partition that has state.
+     *
+     * @param keyGroup the key group
+     * @param state state returned by {@link #getKeyGroupState(int)} at the checkpoint
+     */
+    void setKeyGroupState(int keyGroup, Object state);
+  }
+
 }
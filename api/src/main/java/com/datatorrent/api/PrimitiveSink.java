@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+/**
+ * Sinks that accept numeric tuples without boxing. Engine streams and the primitive input ports implement these in
+ * addition to {@link Sink}, the primitive output ports use them when the connected sink supports the type and fall
+ * back to {@link Sink#put(Object)} with the boxed value otherwise.
+ *
+ * @since 3.5.0
+ */
+public interface PrimitiveSink
+{
+  interface OfLong
+  {
+    /**
+     * Process the long value.
+     *
+     * @param value
+     */
+    void putLong(long value);
+  }
+
+  interface OfInt
+  {
+    /**
+     * Process the int value.
+     *
+     * @param value
+     */
+    void putInt(int value);
+  }
+
+  interface OfDouble
+  {
+    /**
+     * Process the double value.
+     *
+     * @param value
+     */
+    void putDouble(double value);
+  }
+}
@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import java.io.Serializable;
+
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ * Fixed size big endian encoding of numeric tuples, used by the primitive input ports for streams that go through
+ * the buffer server. The partition of a value matches the hash code of the boxed value, so partitioning is the same
+ * as with the default codec.
+ *
+ * @param <T> boxed type
+ * @since 3.5.0
+ */
+public abstract class PrimitiveStreamCodec<T> implements StreamCodec<T>, Serializable
+{
+  /**
+   * @return number of bytes of a serialized value
+   */
+  public abstract int getSize();
+
+  protected static void writeLong(long value, byte[] buffer, int offset)
+  {
+    for (int i = 7; i >= 0; i--) {
+      buffer[offset + i] = (byte)value;
+      value >>>= 8;
+    }
+  }
+
+  protected static long readLong(byte[] buffer, int offset)
+  {
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (buffer[offset + i] & 0xff);
+    }
+    return value;
+  }
+
+  protected static void writeInt(int value, byte[] buffer, int offset)
+  {
+    buffer[offset] = (byte)(value >>> 24);
+    buffer[offset + 1] = (byte)(value >>> 16);
+    buffer[offset + 2] = (byte)(value >>> 8);
+    buffer[offset + 3] = (byte)value;
+  }
+
+  protected static int readInt(byte[] buffer, int offset)
+  {
+    return (buffer[offset] << 24) | ((buffer[offset + 1] & 0xff) << 16) | ((buffer[offset + 2] & 0xff) << 8) |
+        (buffer[offset + 3] & 0xff);
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    return o != null && o.getClass() == getClass();
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return getClass().getName().hashCode();
+  }
+
+  public static class OfLong extends PrimitiveStreamCodec<Long>
+  {
+    @Override
+    public int getSize()
+    {
+      return 8;
+    }
+
+    public void write(long value, byte[] buffer, int offset)
+    {
+      writeLong(value, buffer, offset);
+    }
+
+    public int getPartition(long value)
+    {
+      return (int)(value ^ (value >>> 32));
+    }
+
+    @Override
+    public Object fromByteArray(Slice fragment)
+    {
+      return readLong(fragment.buffer, fragment.offset);
+    }
+
+    @Override
+    public Slice toByteArray(Long o)
+    {
+      byte[] buffer = new byte[8];
+      writeLong(o, buffer, 0);
+      return new Slice(buffer);
+    }
+
+    @Override
+    public int getPartition(Long o)
+    {
+      return getPartition(o.longValue());
+    }
+
+    private static final long serialVersionUID = 201610190001L;
+  }
+
+  public static class OfInt extends PrimitiveStreamCodec<Integer>
+  {
+    @Override
+    public int getSize()
+    {
+      return 4;
+    }
+
+    public void write(int value, byte[] buffer, int offset)
+    {
+      writeInt(value, buffer, offset);
+    }
+
+    public int getPartition(int value)
+    {
+      return value;
+    }
+
+    @Override
+    public Object fromByteArray(Slice fragment)
+    {
+      return readInt(fragment.buffer, fragment.offset);
+    }
+
+    @Override
+    public Slice toByteArray(Integer o)
+    {
+      byte[] buffer = new byte[4];
+      writeInt(o, buffer, 0);
+      return new Slice(buffer);
+    }
+
+    @Override
+    public int getPartition(Integer o)
+    {
+      return o;
+    }
+
+    private static final long serialVersionUID = 201610190002L;
+  }
+
+  public static class OfDouble extends PrimitiveStreamCodec<Double>
+  {
+    @Override
+    public int getSize()
+    {
+      return 8;
+    }
+
+    public void write(double value, byte[] buffer, int offset)
+    {
+      writeLong(Double.doubleToRawLongBits(value), buffer, offset);
+    }
+
+    public int getPartition(double value)
+    {
+      long bits = Double.doubleToLongBits(value);
+      return (int)(bits ^ (bits >>> 32));
+    }
+
+    @Override
+    public Object fromByteArray(Slice fragment)
+    {
+      return Double.longBitsToDouble(readLong(fragment.buffer, fragment.offset));
+    }
+
+    @Override
+    public Slice toByteArray(Double o)
+    {
+      byte[] buffer = new byte[8];
+      write(o, buffer, 0);
+      return new Slice(buffer);
+    }
+
+    @Override
+    public int getPartition(Double o)
+    {
+      return getPartition(o.doubleValue());
+    }
+
+    private static final long serialVersionUID = 201610190003L;
+  }
+
+  private static final long serialVersionUID = 201610190000L;
+}
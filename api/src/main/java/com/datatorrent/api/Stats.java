@@ -80,6 +80,15 @@ public interface Stats extends Serializable
        * If there is a recording on the port, this contains the recording id, otherwise null
        */
       public String recordingId;
+      /**
+       * Distribution of the input queue size over the window, null unless port histograms are enabled.
+       */
+      public Histogram queueSizeHistogram;
+      /**
+       * Distribution of the processing time per tuple in nanoseconds over the window, null unless port histograms are
+       * enabled.
+       */
+      public Histogram processingTimeHistogram;
 
       public PortStats(String id)
       {
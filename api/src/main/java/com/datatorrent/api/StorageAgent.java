@@ -19,6 +19,7 @@
 package com.datatorrent.api;
 
 import java.io.IOException;
+import java.util.Collection;
 
 import com.datatorrent.api.Attribute.AttributeMap;
 
@@ -95,4 +96,68 @@ public interface StorageAgent
     public void setApplicationAttributes(AttributeMap map);
   }
 
+  /**
+   * Storage agent that stores the key groups of operators implementing {@link Operator.KeyGroupedState} separately
+   * from the operator. Key groups saved for an operator and window are removed by {@link #delete(int, long)}.
+   *
+   * @since 3.5.0
+   */
+  public interface KeyGroupStorageAgent extends StorageAgent
+  {
+    /**
+     * Save the state of a key group.
+     *
+     * @param state state of the key group
+     * @param operatorId identifier of the operator
+     * @param keyGroup the key group
+     * @param windowId identifier of the checkpoint
+     * @throws IOException
+     */
+    public void saveKeyGroup(Object state, int operatorId, int keyGroup, long windowId) throws IOException;
+
+    /**
+     * Load the state of a key group.
+     *
+     * @param operatorId identifier of the operator
+     * @param keyGroup the key group
+     * @param windowId identifier of the checkpoint
+     * @return the state or null when no state was saved for the key group
+     * @throws IOException
+     */
+    public Object loadKeyGroup(int operatorId, int keyGroup, long windowId) throws IOException;
+
+    /**
+     * Reassign the saved state of a key group to another operator and checkpoint, without reading it. Nothing is
+     * moved when no state was saved for the key group.
+     *
+     * @param keyGroup the key group
+     * @param fromOperatorId operator that saved the state
+     * @param fromWindowId checkpoint the state was saved for
+     * @param toOperatorId operator that loads the state
+     * @param toWindowId checkpoint the operator loads the state for
+     * @throws IOException
+     */
+    public void moveKeyGroup(int keyGroup, int fromOperatorId, long fromWindowId, int toOperatorId, long toWindowId)
+        throws IOException;
+  }
+
+  /**
+   * Storage agent that deletes several checkpoints of an operator in one call, so that the storage can remove them
+   * together instead of one request per window.
+   *
+   * @since 3.5.0
+   */
+  public interface BatchDeleteStorageAgent extends StorageAgent
+  {
+    /**
+     * Delete the checkpoints of the operator for the given windows. Same as calling {@link #delete(int, long)} for
+     * each of the windows.
+     *
+     * @param operatorId identifier of the operator
+     * @param windowIds identifiers of the checkpoints
+     * @throws IOException
+     */
+    public void delete(int operatorId, Collection<Long> windowIds) throws IOException;
+  }
+
 }
@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest
+{
+  private static void assertRelative(String message, long expected, long actual, double precision)
+  {
+    Assert.assertEquals(message, expected, actual, expected * precision);
+  }
+
+  @Test
+  public void testPercentiles()
+  {
+    Histogram h = new Histogram();
+    for (int i = 1; i <= 10000; i++) {
+      h.recordValue(i);
+    }
+    Assert.assertEquals("count", 10000, h.getTotalCount());
+    Assert.assertEquals("min", 1, h.getMin());
+    Assert.assertEquals("max", 10000, h.getMax());
+    Assert.assertEquals("mean", 5000.5, h.getMean(), 0.001);
+    double precision = 1.0 / (1 << Histogram.DEFAULT_PRECISION_BITS);
+    assertRelative("p50", 5000, h.getValueAtPercentile(50), precision);
+    assertRelative("p90", 9000, h.getValueAtPercentile(90), precision);
+    assertRelative("p99", 9900, h.getValueAtPercentile(99), precision);
+    Assert.assertEquals("p100", 10000, h.getValueAtPercentile(100));
+    Assert.assertEquals("p0", 1, h.getValueAtPercentile(0));
+
+    h.reset();
+    Assert.assertEquals("empty", 0, h.getTotalCount());
+    Assert.assertEquals("empty percentile", 0, h.getValueAtPercentile(50));
+  }
+
+  @Test
+  public void testSmallValuesExact()
+  {
+    Histogram h = new Histogram(3, 1000);
+    h.recordValueWithCount(3, 5);
+    h.recordValueWithCount(7, 5);
+    Assert.assertEquals("p50", 3, h.getValueAtPercentile(50));
+    Assert.assertEquals("p51", 7, h.getValueAtPercentile(51));
+  }
+
+  @Test
+  public void testMerge()
+  {
+    Histogram h1 = new Histogram();
+    Histogram h2 = new Histogram();
+    Histogram all = new Histogram();
+    for (int i = 0; i < 1000; i++) {
+      h1.recordValue(i);
+      h2.recordValue(i * 1000);
+      all.recordValue(i);
+      all.recordValue(i * 1000);
+    }
+    Histogram merged = h1.copy();
+    merged.add(h2);
+    Assert.assertEquals("merged", all, merged);
+    Assert.assertEquals("source unchanged", 1000, h1.getTotalCount());
+
+    // different bucket layout
+    Histogram coarse = new Histogram(2, 1 << 20);
+    coarse.add(h2);
+    Assert.assertEquals("count", h2.getTotalCount(), coarse.getTotalCount());
+    Assert.assertEquals("max", h2.getMax(), coarse.getMax());
+    assertRelative("p50", h2.getValueAtPercentile(50), coarse.getValueAtPercentile(50), 0.3);
+  }
+
+  @Test
+  public void testSerialization() throws Exception
+  {
+    Histogram h = new Histogram();
+    for (int i = 0; i < 100; i++) {
+      h.recordValue(i * i);
+    }
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    h.write(new DataOutputStream(bos));
+    Histogram copy = Histogram.read(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+    Assert.assertEquals("write/read", h, copy);
+    Assert.assertTrue("sparse", bos.size() < 100 * 12 + 64);
+
+    bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(h);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+      copy = (Histogram)ois.readObject();
+    }
+    Assert.assertEquals("java serialization", h, copy);
+    Assert.assertEquals("p99", h.getValueAtPercentile(99), copy.getValueAtPercentile(99));
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import com.datatorrent.api.Partitioner.PartitionKeys;
+
+public class KeyGroupsTest
+{
+  @Test
+  public void testKeyGroups()
+  {
+    Assert.assertArrayEquals("not partitioned", new int[]{0, 1, 2, 3}, KeyGroups.getKeyGroups(null, 4));
+    Assert.assertArrayEquals("one bit", new int[]{1, 3, 5, 7},
+        KeyGroups.getKeyGroups(new PartitionKeys(1, Sets.newHashSet(1)), 8));
+    Assert.assertArrayEquals("two bits", new int[]{2, 6},
+        KeyGroups.getKeyGroups(new PartitionKeys(3, Sets.newHashSet(2)), 8));
+    Assert.assertArrayEquals("two keys", new int[]{0, 2, 4, 6},
+        KeyGroups.getKeyGroups(new PartitionKeys(3, Sets.newHashSet(0, 2)), 8));
+
+    // every key group is owned by exactly one partition
+    HashSet<Integer> owned = new HashSet<>();
+    for (int key = 0; key < 4; key++) {
+      for (int keyGroup : KeyGroups.getKeyGroups(new PartitionKeys(3, Sets.newHashSet(key)), 16)) {
+        Assert.assertTrue("unique " + keyGroup, owned.add(keyGroup));
+        Assert.assertEquals("partition of key group", key, KeyGroups.getKeyGroup(keyGroup, 16) & 3);
+      }
+    }
+    Assert.assertEquals("all key groups", 16, owned.size());
+  }
+
+  @Test
+  public void testKeyGroupOfKey()
+  {
+    for (int code : Arrays.asList(0, 5, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, "key".hashCode())) {
+      int keyGroup = KeyGroups.getKeyGroup(code, 32);
+      Assert.assertTrue("range " + code, keyGroup >= 0 && keyGroup < 32);
+      // the key is routed to the partition that owns the key group
+      for (int mask : new int[]{1, 3, 7, 15, 31}) {
+        int[] keyGroups = KeyGroups.getKeyGroups(new PartitionKeys(mask, Sets.newHashSet(code & mask)), 32);
+        Assert.assertTrue("owner " + code + " " + mask, Arrays.binarySearch(keyGroups, keyGroup) >= 0);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaskExceedsKeyGroups()
+  {
+    KeyGroups.getKeyGroups(new PartitionKeys(7, Sets.newHashSet(1)), 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCount()
+  {
+    KeyGroups.checkKeyGroupCount(12);
+  }
+}
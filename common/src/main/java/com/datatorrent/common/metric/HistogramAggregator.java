@@ -0,0 +1,52 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.metric;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+import com.datatorrent.api.Histogram;
+import com.datatorrent.api.annotation.Name;
+
+/**
+ * Merges the {@link Histogram}s of all partitions into one.
+ *
+ * @since 3.5.0
+ */
+@Name("merge")
+public class HistogramAggregator implements SingleMetricAggregator.Associative, Serializable
+{
+  @Override
+  public Object aggregate(Collection<Object> metricValues)
+  {
+    Histogram merged = null;
+    for (Object value : metricValues) {
+      if (value instanceof Histogram) {
+        if (merged == null) {
+          merged = ((Histogram)value).copy();
+        } else {
+          merged.add((Histogram)value);
+        }
+      }
+    }
+    return merged;
+  }
+
+  private static final long serialVersionUID = 201610190002L;
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.metric;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.SerializerProvider;
+import org.codehaus.jackson.map.ser.std.SerializerBase;
+
+import com.datatorrent.api.Histogram;
+
+/**
+ * Writes a {@link Histogram} as summary of count, mean, min, max and common percentiles.
+ *
+ * @since 3.5.0
+ */
+public class HistogramSerializer extends SerializerBase<Histogram>
+{
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+  private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+  public HistogramSerializer()
+  {
+    super(Histogram.class);
+  }
+
+  /**
+   * @param histogram the histogram
+   * @return summary of the recorded values
+   */
+  public static Map<String, Object> summarize(Histogram histogram)
+  {
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("count", histogram.getTotalCount());
+    summary.put("mean", histogram.getMean());
+    summary.put("min", histogram.getMin());
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      summary.put(PERCENTILE_NAMES[i], histogram.getValueAtPercentile(PERCENTILES[i]));
+    }
+    summary.put("max", histogram.getMax());
+    return summary;
+  }
+
+  @Override
+  public void serialize(Histogram value, JsonGenerator jgen, SerializerProvider provider) throws IOException
+  {
+    jgen.writeStartObject();
+    for (Map.Entry<String, Object> entry : summarize(value).entrySet()) {
+      jgen.writeFieldName(entry.getKey());
+      if (entry.getValue() instanceof Double) {
+        jgen.writeNumber((Double)entry.getValue());
+      } else {
+        jgen.writeNumber((Long)entry.getValue());
+      }
+    }
+    jgen.writeEndObject();
+  }
+}
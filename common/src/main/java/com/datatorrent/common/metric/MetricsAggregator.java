@@ -154,6 +154,26 @@ public class MetricsAggregator implements AutoMetric.Aggregator, Serializable
     }
   }
 
+  /**
+   * The aggregation is associative when every metric has a single associative aggregator whose result keeps the name
+   * of the metric, see {@link AutoMetric.AssociativeAggregator}.
+   *
+   * @return whether partial aggregates can be aggregated again
+   */
+  public boolean isAssociative()
+  {
+    for (Map.Entry<String, List<LogicalMetricMeta>> entry : metricLogicalAggregates.entrySet()) {
+      if (entry.getValue().size() != 1) {
+        return false;
+      }
+      LogicalMetricMeta lmm = entry.getValue().get(0);
+      if (!(lmm.aggregator instanceof SingleMetricAggregator.Associative) || !entry.getKey().equals(lmm.name)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public String getAggregatorMetricSeparator()
   {
     return aggregatorMetricSeparator;
@@ -28,4 +28,14 @@ import java.util.Collection;
 public interface SingleMetricAggregator
 {
   Object aggregate(Collection<Object> metricValues);
+
+  /**
+   * Marker for an aggregator that gives the same result when applied to partial aggregates of the values as when
+   * applied to all values.
+   *
+   * @since 3.5.0
+   */
+  interface Associative extends SingleMetricAggregator
+  {
+  }
 }
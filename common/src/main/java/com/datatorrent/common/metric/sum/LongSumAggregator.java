@@ -31,7 +31,7 @@ import com.datatorrent.common.metric.SingleMetricAggregator;
  * @since 3.2.0
  */
 @Name("sum")
-public class LongSumAggregator implements SingleMetricAggregator, Serializable
+public class LongSumAggregator implements SingleMetricAggregator.Associative, Serializable
 {
   @Override
   public Object aggregate(Collection<Object> metricValues)
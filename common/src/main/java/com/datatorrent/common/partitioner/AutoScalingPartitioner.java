@@ -0,0 +1,573 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.partitioner;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import com.datatorrent.api.DefaultPartition;
+import com.datatorrent.api.Operator;
+import com.datatorrent.api.Operator.InputPort;
+import com.datatorrent.api.Partitioner;
+import com.datatorrent.api.StatsListener;
+
+/**
+ * Partitioner that scales the number of partitions of an operator with the observed load. The same instance needs to
+ * be set as {@link com.datatorrent.api.Context.OperatorContext#PARTITIONER} and added to
+ * {@link com.datatorrent.api.Context.OperatorContext#STATS_LISTENERS} of the operator.
+ * <p>
+ * The load is measured as the moving average of tuples processed per second (tuples emitted for input operators) and
+ * the moving average of the latency of the partitions. The required number of partitions is computed from the
+ * configured target tuples per second and/or target latency per partition. With both targets set, the operator is
+ * scaled up when either target is exceeded and scaled down only when both targets permit it.
+ * <p>
+ * Decisions are damped in three ways:
+ * <ul>
+ * <li>the load has to leave the tolerance band around the target before the partition count changes,</li>
+ * <li>the change has to be indicated continuously for the stabilization period before repartitioning is requested,</li>
+ * <li>no further change is requested during the cooldown period after a repartition.</li>
+ * </ul>
+ * The partition count is kept between the configured minimum and maximum.
+ * <p>
+ * For partitions with partition keys, the busiest partitions are split and the least loaded partitions are merged,
+ * other partitions are left unchanged. Downstream operators continue to receive the output of all partitions through
+ * the unifier. Input operators are scaled by adding clones of the busiest partitions or removing the least loaded ones.
+ * When used for an operator that is parallel partitioned with its upstream operator, the partition count follows the
+ * upstream operator. Like {@link StatelessPartitioner}, state is not redistributed unless the operator uses key groups.
+ *
+ * @param <T> The type of the operator
+ * @since 3.5.0
+ */
+public class AutoScalingPartitioner<T extends Operator> implements Partitioner<T>, StatsListener, Serializable
+{
+  private static final Logger logger = LoggerFactory.getLogger(AutoScalingPartitioner.class);
+  private static final long serialVersionUID = 201610190003L;
+
+  @Min(1)
+  private int minPartitions = 1;
+  @Min(1)
+  private int maxPartitions = 16;
+  /**
+   * Target tuples per second for each partition, 0 to not scale on throughput.
+   */
+  @Min(0)
+  private long targetTuplesPerSecond;
+  /**
+   * Target latency in milliseconds for each partition, 0 to not scale on latency.
+   */
+  @Min(0)
+  private long targetLatencyMillis;
+  @Min(0)
+  @Max(100)
+  private int tolerancePercent = 20;
+  @Min(0)
+  private long stabilizationMillis = 30000;
+  @Min(0)
+  private long cooldownMillis = 60000;
+
+  private Set<Integer> partitionIds = new HashSet<>();
+  private long cooldownUntilMillis;
+  private int requestedPartitionCount;
+  private transient Map<Integer, Sample> samples;
+  private transient int pendingPartitionCount;
+  private transient long pendingSinceMillis;
+
+  private static class Sample
+  {
+    final long tuplesPerSecond;
+    final long latencyMillis;
+
+    Sample(long tuplesPerSecond, long latencyMillis)
+    {
+      this.tuplesPerSecond = tuplesPerSecond;
+      this.latencyMillis = latencyMillis;
+    }
+  }
+
+  public AutoScalingPartitioner()
+  {
+  }
+
+  /**
+   * @param minPartitions minimum and initial number of partitions
+   * @param maxPartitions maximum number of partitions
+   */
+  public AutoScalingPartitioner(int minPartitions, int maxPartitions)
+  {
+    this.minPartitions = minPartitions;
+    this.maxPartitions = maxPartitions;
+  }
+
+  @Override
+  public synchronized Response processStats(BatchedOperatorStats stats)
+  {
+    Response response = new Response();
+    response.repartitionRequired = false;
+    if (!partitionIds.isEmpty() && !partitionIds.contains(stats.getOperatorId())) {
+      // report of a partition that was removed
+      return response;
+    }
+
+    long tuplesPerSecond = getTuplesPerSecond(stats);
+    if (samples == null) {
+      samples = new HashMap<>();
+    }
+    samples.put(stats.getOperatorId(), new Sample(tuplesPerSecond, stats.getLatencyMA()));
+    response.loadIndicator = getLoadIndicator(tuplesPerSecond, stats.getLatencyMA());
+
+    int partitionCount = partitionIds.isEmpty() ? samples.size() : partitionIds.size();
+    long now = currentTimeMillis();
+    if (samples.size() < partitionCount || now < cooldownUntilMillis) {
+      return response;
+    }
+
+    int newPartitionCount = getRequiredPartitionCount(partitionCount);
+    if (newPartitionCount == partitionCount) {
+      pendingPartitionCount = 0;
+      return response;
+    }
+    if (pendingPartitionCount == 0 ||
+        Integer.signum(newPartitionCount - partitionCount) != Integer.signum(pendingPartitionCount - partitionCount)) {
+      pendingSinceMillis = now;
+    }
+    pendingPartitionCount = newPartitionCount;
+
+    if (now - pendingSinceMillis >= stabilizationMillis) {
+      response.repartitionRequired = true;
+      response.repartitionNote = "Scaling from " + partitionCount + " to " + newPartitionCount + " partitions";
+      logger.info("{} for operator {}", response.repartitionNote, stats.getOperatorId());
+      requestedPartitionCount = newPartitionCount;
+      cooldownUntilMillis = now + cooldownMillis;
+      pendingPartitionCount = 0;
+    }
+    return response;
+  }
+
+  /**
+   * Compute the number of partitions for the load reported by all partitions, within the configured bounds.
+   *
+   * @param partitionCount current number of partitions
+   * @return the required number of partitions
+   */
+  int getRequiredPartitionCount(int partitionCount)
+  {
+    long totalTuplesPerSecond = 0;
+    long totalLatencyMillis = 0;
+    for (Sample s : samples.values()) {
+      totalTuplesPerSecond += s.tuplesPerSecond;
+      totalLatencyMillis += s.latencyMillis;
+    }
+    double upper = 1 + tolerancePercent / 100.0;
+    double lower = 1 - tolerancePercent / 100.0;
+
+    double required = -1;
+    if (targetTuplesPerSecond > 0) {
+      double capacity = (double)partitionCount * targetTuplesPerSecond;
+      if (totalTuplesPerSecond > capacity * upper || totalTuplesPerSecond < capacity * lower) {
+        required = Math.ceil((double)totalTuplesPerSecond / targetTuplesPerSecond);
+      } else {
+        required = partitionCount;
+      }
+    }
+    if (targetLatencyMillis > 0) {
+      double latencyMillis = (double)totalLatencyMillis / samples.size();
+      if (latencyMillis > targetLatencyMillis * upper || latencyMillis < targetLatencyMillis * lower) {
+        required = Math.max(required, Math.ceil(partitionCount * latencyMillis / targetLatencyMillis));
+      } else {
+        required = Math.max(required, partitionCount);
+      }
+    }
+    if (required < 0) {
+      return partitionCount;
+    }
+    return (int)Math.max(minPartitions, Math.min(maxPartitions, required));
+  }
+
+  private int getLoadIndicator(long tuplesPerSecond, long latencyMillis)
+  {
+    double upper = 1 + tolerancePercent / 100.0;
+    double lower = 1 - tolerancePercent / 100.0;
+    int load = -1;
+    if (targetTuplesPerSecond > 0) {
+      if (tuplesPerSecond > targetTuplesPerSecond * upper) {
+        return 1;
+      } else if (tuplesPerSecond >= targetTuplesPerSecond * lower) {
+        load = 0;
+      }
+    }
+    if (targetLatencyMillis > 0) {
+      if (latencyMillis > targetLatencyMillis * upper) {
+        return 1;
+      } else if (latencyMillis >= targetLatencyMillis * lower) {
+        load = 0;
+      }
+    }
+    return targetTuplesPerSecond > 0 || targetLatencyMillis > 0 ? load : 0;
+  }
+
+  private static long getTuplesPerSecond(BatchedOperatorStats stats)
+  {
+    if (stats == null) {
+      return 0;
+    }
+    long tuplesPerSecond = stats.getTuplesProcessedPSMA();
+    return tuplesPerSecond != 0 ? tuplesPerSecond : stats.getTuplesEmittedPSMA();
+  }
+
+  long currentTimeMillis()
+  {
+    return System.currentTimeMillis();
+  }
+
+  @Override
+  public synchronized Collection<Partition<T>> definePartitions(Collection<Partition<T>> partitions,
+      PartitioningContext context)
+  {
+    Partition<T> partition = partitions.iterator().next();
+    Collection<Partition<T>> newPartitions;
+
+    if (partition.getStats() == null) {
+      // first call to define partitions
+      int partitionCount = DefaultPartition.getRequiredPartitionCount(context, minPartitions);
+      newPartitions = Lists.newArrayList();
+      for (int i = 0; i < partitionCount; i++) {
+        newPartitions.add(new DefaultPartition<T>(partition.getPartitionedInstance()));
+      }
+      List<InputPort<?>> inputPortList = context.getInputPorts();
+      if (inputPortList != null && !inputPortList.isEmpty()) {
+        DefaultPartition.assignPartitionKeys(newPartitions, inputPortList.iterator().next());
+      }
+    } else if (context.getParallelPartitionCount() != 0) {
+      newPartitions = StatelessPartitioner.repartitionParallel(partitions, context);
+    } else {
+      int partitionCount = requestedPartitionCount > 0 ? requestedPartitionCount : partitions.size();
+      partitionCount = Math.max(minPartitions, Math.min(maxPartitions, partitionCount));
+      requestedPartitionCount = 0;
+      if (partition.getPartitionKeys().isEmpty()) {
+        newPartitions = resizeInputOperator(partitions, partitionCount);
+      } else {
+        newPartitions = resize(partitions, partitionCount);
+      }
+    }
+
+    logger.debug("define partitions, partition count current {} new {}", partitions.size(), newPartitions.size());
+    return newPartitions;
+  }
+
+  @Override
+  public synchronized void partitioned(Map<Integer, Partition<T>> partitions)
+  {
+    partitionIds = new HashSet<>(partitions.keySet());
+    if (samples != null) {
+      samples.keySet().retainAll(partitionIds);
+    }
+    pendingPartitionCount = 0;
+  }
+
+  private static final Comparator<Slot<?>> LOAD_DESCENDING = new Comparator<Slot<?>>()
+  {
+    @Override
+    public int compare(Slot<?> s1, Slot<?> s2)
+    {
+      return Double.compare(s2.load, s1.load);
+    }
+  };
+
+  /**
+   * Partition keys of a partition under construction.
+   */
+  private static class Slot<T>
+  {
+    final Partition<T> partition;
+    int mask;
+    Set<Integer> keys;
+    double load;
+    boolean modified;
+
+    Slot(Partition<T> partition, int mask, Set<Integer> keys, double load)
+    {
+      this.partition = partition;
+      this.mask = mask;
+      this.keys = keys;
+      this.load = load;
+    }
+  }
+
+  /**
+   * Adjust the number of partitions of an operator with partitioned input stream. The busiest partitions are split
+   * and the least loaded partitions merged.
+   *
+   * @param <T> The operator type
+   * @param partitions existing partitions
+   * @param partitionCount the required number of partitions
+   * @return The new partitions.
+   */
+  public static <T extends Operator> Collection<Partition<T>> resize(Collection<Partition<T>> partitions,
+      int partitionCount)
+  {
+    InputPort<?> port = partitions.iterator().next().getPartitionKeys().keySet().iterator().next();
+    List<Slot<T>> slots = new ArrayList<>(partitions.size());
+    for (Partition<T> p : partitions) {
+      PartitionKeys pks = p.getPartitionKeys().get(port);
+      slots.add(new Slot<>(p, pks.mask, new TreeSet<>(pks.partitions), getTuplesPerSecond(p.getStats())));
+    }
+
+    while (slots.size() < partitionCount) {
+      Collections.sort(slots, LOAD_DESCENDING);
+      Slot<T> slot = slots.remove(0);
+      List<Integer> keys = new ArrayList<>(slot.keys);
+      if (keys.size() == 1) {
+        // split single key
+        int newMask = (slot.mask << 1) | 1;
+        int key = keys.get(0);
+        keys.add((newMask ^ slot.mask) | key);
+        slot.mask = newMask;
+      }
+      int half = keys.size() / 2;
+      Slot<T> s1 = new Slot<>(slot.partition, slot.mask, new TreeSet<>(keys.subList(0, half)), slot.load / 2);
+      Slot<T> s2 = new Slot<>(slot.partition, slot.mask, new TreeSet<>(keys.subList(half, keys.size())), slot.load / 2);
+      s1.modified = s2.modified = true;
+      slots.add(s1);
+      slots.add(s2);
+    }
+
+    while (slots.size() > partitionCount && slots.size() > 1) {
+      Collections.sort(slots, LOAD_DESCENDING);
+      Slot<T> s1 = slots.remove(slots.size() - 1);
+      Slot<T> s2 = slots.remove(slots.size() - 1);
+      // the busier partition provides the operator state
+      Slot<T> merged = new Slot<>(s2.partition, Math.max(s1.mask, s2.mask), new TreeSet<Integer>(), s1.load + s2.load);
+      merged.keys.addAll(expandKeys(s1.mask, s1.keys, merged.mask));
+      merged.keys.addAll(expandKeys(s2.mask, s2.keys, merged.mask));
+      compactKeys(merged);
+      merged.modified = true;
+      slots.add(merged);
+    }
+
+    List<Partition<T>> newPartitions = new ArrayList<>(slots.size());
+    for (Slot<T> slot : slots) {
+      if (slot.modified) {
+        Partition<T> p = new DefaultPartition<>(slot.partition.getPartitionedInstance());
+        p.getPartitionKeys().put(port, new PartitionKeys(slot.mask, slot.keys));
+        newPartitions.add(p);
+      } else {
+        newPartitions.add(slot.partition);
+      }
+    }
+    return newPartitions;
+  }
+
+  /**
+   * Express keys under a wider mask.
+   */
+  private static Set<Integer> expandKeys(int mask, Set<Integer> keys, int newMask)
+  {
+    Set<Integer> expanded = new HashSet<>(keys);
+    int bits = newMask & ~mask;
+    while (bits != 0) {
+      int bit = Integer.lowestOneBit(bits);
+      bits &= ~bit;
+      for (Integer key : new ArrayList<>(expanded)) {
+        expanded.add(key | bit);
+      }
+    }
+    return expanded;
+  }
+
+  /**
+   * Narrow the mask while the keys cover both values of the leading bit.
+   */
+  private static void compactKeys(Slot<?> slot)
+  {
+    while (slot.mask != 0) {
+      int leadingBit = Integer.highestOneBit(slot.mask);
+      for (int key : slot.keys) {
+        if (!slot.keys.contains(key ^ leadingBit)) {
+          return;
+        }
+      }
+      Set<Integer> keys = new TreeSet<>();
+      for (int key : slot.keys) {
+        keys.add(key & ~leadingBit);
+      }
+      slot.keys = keys;
+      slot.mask &= ~leadingBit;
+    }
+  }
+
+  /**
+   * Adjust the number of partitions of an input operator by cloning the busiest or removing the least loaded
+   * partitions.
+   *
+   * @param <T> The operator type
+   * @param partitions existing partitions
+   * @param partitionCount the required number of partitions
+   * @return The new partitions.
+   */
+  public static <T extends Operator> Collection<Partition<T>> resizeInputOperator(Collection<Partition<T>> partitions,
+      int partitionCount)
+  {
+    List<Partition<T>> newPartitions = new ArrayList<>(partitions);
+    Collections.sort(newPartitions, new Comparator<Partition<T>>()
+    {
+      @Override
+      public int compare(Partition<T> p1, Partition<T> p2)
+      {
+        return Long.compare(getTuplesPerSecond(p2.getStats()), getTuplesPerSecond(p1.getStats()));
+      }
+    });
+    int existing = newPartitions.size();
+    for (int i = 0; newPartitions.size() < partitionCount; i++) {
+      newPartitions.add(new DefaultPartition<>(newPartitions.get(i % existing).getPartitionedInstance()));
+    }
+    while (newPartitions.size() > partitionCount && newPartitions.size() > 1) {
+      newPartitions.remove(newPartitions.size() - 1);
+    }
+    return newPartitions;
+  }
+
+  /**
+   * @return the minimum and initial number of partitions
+   */
+  public int getMinPartitions()
+  {
+    return minPartitions;
+  }
+
+  /**
+   * @param minPartitions the minimum and initial number of partitions
+   */
+  public void setMinPartitions(int minPartitions)
+  {
+    this.minPartitions = minPartitions;
+  }
+
+  /**
+   * @return the maximum number of partitions
+   */
+  public int getMaxPartitions()
+  {
+    return maxPartitions;
+  }
+
+  /**
+   * @param maxPartitions the maximum number of partitions
+   */
+  public void setMaxPartitions(int maxPartitions)
+  {
+    this.maxPartitions = maxPartitions;
+  }
+
+  /**
+   * @return the target tuples per second for each partition, 0 to not scale on throughput
+   */
+  public long getTargetTuplesPerSecond()
+  {
+    return targetTuplesPerSecond;
+  }
+
+  /**
+   * @param targetTuplesPerSecond the target tuples per second for each partition, 0 to not scale on throughput
+   */
+  public void setTargetTuplesPerSecond(long targetTuplesPerSecond)
+  {
+    this.targetTuplesPerSecond = targetTuplesPerSecond;
+  }
+
+  /**
+   * @return the target latency in milliseconds for each partition, 0 to not scale on latency
+   */
+  public long getTargetLatencyMillis()
+  {
+    return targetLatencyMillis;
+  }
+
+  /**
+   * @param targetLatencyMillis the target latency in milliseconds for each partition, 0 to not scale on latency
+   */
+  public void setTargetLatencyMillis(long targetLatencyMillis)
+  {
+    this.targetLatencyMillis = targetLatencyMillis;
+  }
+
+  /**
+   * @return the allowed deviation from the targets in percent
+   */
+  public int getTolerancePercent()
+  {
+    return tolerancePercent;
+  }
+
+  /**
+   * @param tolerancePercent the allowed deviation from the targets in percent
+   */
+  public void setTolerancePercent(int tolerancePercent)
+  {
+    this.tolerancePercent = tolerancePercent;
+  }
+
+  /**
+   * @return how long a change of the partition count needs to be indicated before repartitioning
+   */
+  public long getStabilizationMillis()
+  {
+    return stabilizationMillis;
+  }
+
+  /**
+   * @param stabilizationMillis how long a change of the partition count needs to be indicated before repartitioning
+   */
+  public void setStabilizationMillis(long stabilizationMillis)
+  {
+    this.stabilizationMillis = stabilizationMillis;
+  }
+
+  /**
+   * @return the time after a repartitioning request during which no further change is requested
+   */
+  public long getCooldownMillis()
+  {
+    return cooldownMillis;
+  }
+
+  /**
+   * @param cooldownMillis the time after a repartitioning request during which no further change is requested
+   */
+  public void setCooldownMillis(long cooldownMillis)
+  {
+    this.cooldownMillis = cooldownMillis;
+  }
+}
@@ -25,7 +25,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectStreamException;
 import java.nio.file.Files;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,10 +50,24 @@ import com.google.common.base.Throwables;
  */
 public class AsyncFSStorageAgent extends FSStorageAgent
 {
+  public static final long DEFAULT_LOCAL_CACHE_SIZE = 1024L * 1024 * 1024;
+
   private final transient Configuration conf;
   private transient volatile String localBasePath;
+  private transient volatile LocalCheckpointCache localCache;
 
   private boolean syncCheckpoint = false;
+  /*
+   * Node-local directory shared by the containers of the node, which retains checkpoints after they have been copied
+   * to the file system so that recovery on the same node can skip the remote read. Disabled when null.
+   */
+  private String localCachePath;
+  private long localCacheSize = DEFAULT_LOCAL_CACHE_SIZE;
+  /*
+   * Subdirectory of the local cache that keeps the checkpoints of the application apart from other applications on the
+   * node. Derived from the storage path unless set, carried over when the application is relaunched.
+   */
+  private String localCacheKey;
 
   @SuppressWarnings("unused")
   private AsyncFSStorageAgent()
@@ -113,12 +130,13 @@ public class AsyncFSStorageAgent extends FSStorageAgent
     File srcFile = new File(directory, String.valueOf(windowId));
     FSDataOutputStream stream = null;
     boolean stateSaved = false;
+    CRC32 checksum = new CRC32();
     try {
       // Create the temporary file with OverWrite option to avoid dangling lease issue and avoid exception if file already exists
       stream = fileContext.create(lPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE), Options.CreateOpts.CreateParent.createParent());
       InputStream in = null;
       try {
-        in = new FileInputStream(srcFile);
+        in = new CheckedInputStream(new FileInputStream(srcFile), checksum);
         IOUtils.copyBytes(in, stream, conf, false);
       } finally {
         IOUtils.closeStream(in);
@@ -139,17 +157,68 @@ public class AsyncFSStorageAgent extends FSStorageAgent
       } finally {
         if (stateSaved) {
           fileContext.rename(lPath, new Path(path + Path.SEPARATOR + operatorIdStr + Path.SEPARATOR + window), Options.Rename.OVERWRITE);
+          if (catalog != null) {
+            catalog.recordSave(operatorId, windowId);
+            catalog.flush();
+          }
+          if (localCachePath != null) {
+            try {
+              getLocalCache().put(operatorId, windowId, srcFile, checksum.getValue());
+            } catch (IOException e) {
+              logger.warn("Failed to retain checkpoint {} {} in local cache", operatorId, window, e);
+            }
+          }
         }
         FileUtil.fullyDelete(srcFile);
       }
     }
   }
 
+  @Override
+  public Object load(int operatorId, long windowId) throws IOException
+  {
+    if (localCachePath != null) {
+      Object object = getLocalCache().load(operatorId, windowId);
+      if (object != null) {
+        return object;
+      }
+    }
+    return super.load(operatorId, windowId);
+  }
+
+  @Override
+  public void delete(int operatorId, Collection<Long> windowIds) throws IOException
+  {
+    super.delete(operatorId, windowIds);
+    if (localCachePath != null && localCache != null) {
+      for (long windowId : windowIds) {
+        localCache.remove(operatorId, windowId);
+      }
+    }
+  }
+
+  private LocalCheckpointCache getLocalCache()
+  {
+    if (localCache == null) {
+      synchronized (this) {
+        if (localCache == null) {
+          File cacheDir = new File(localCachePath, getLocalCacheKey());
+          localCache = new LocalCheckpointCache(cacheDir, localCacheSize);
+          logger.info("using {} as the local checkpoint cache.", cacheDir);
+        }
+      }
+    }
+    return localCache;
+  }
+
   @Override
   public Object readResolve() throws ObjectStreamException
   {
     AsyncFSStorageAgent asyncFSStorageAgent = new AsyncFSStorageAgent(this.path, null);
     asyncFSStorageAgent.setSyncCheckpoint(syncCheckpoint);
+    asyncFSStorageAgent.setLocalCachePath(localCachePath);
+    asyncFSStorageAgent.setLocalCacheSize(localCacheSize);
+    asyncFSStorageAgent.setLocalCacheKey(localCacheKey);
     return asyncFSStorageAgent;
   }
 
@@ -163,6 +232,53 @@ public class AsyncFSStorageAgent extends FSStorageAgent
     this.syncCheckpoint = syncCheckpoint;
   }
 
+  public String getLocalCachePath()
+  {
+    return localCachePath;
+  }
+
+  /**
+   * Set the node-local directory in which checkpoints are retained for fast recovery. The directory needs to survive
+   * container restarts, hence it should not be inside the container working directory.
+   *
+   * @param localCachePath local directory or null to disable the cache
+   */
+  public void setLocalCachePath(String localCachePath)
+  {
+    this.localCachePath = localCachePath;
+  }
+
+  public long getLocalCacheSize()
+  {
+    return localCacheSize;
+  }
+
+  /**
+   * Set the maximum number of bytes retained in the local cache, least recently used checkpoints are evicted first.
+   *
+   * @param localCacheSize size limit in bytes
+   */
+  public void setLocalCacheSize(long localCacheSize)
+  {
+    this.localCacheSize = localCacheSize;
+  }
+
+  public String getLocalCacheKey()
+  {
+    return localCacheKey != null ? localCacheKey : Integer.toHexString(path.hashCode());
+  }
+
+  /**
+   * Set the subdirectory of the local cache used for the checkpoints of this application. The key needs to stay the
+   * same when the application is relaunched with a new storage path, so that the cached checkpoints remain usable.
+   *
+   * @param localCacheKey subdirectory name or null to derive it from the storage path
+   */
+  public void setLocalCacheKey(String localCacheKey)
+  {
+    this.localCacheKey = localCacheKey;
+  }
+
   private static final long serialVersionUID = 201507241610L;
   private static final Logger logger = LoggerFactory.getLogger(AsyncFSStorageAgent.class);
 }
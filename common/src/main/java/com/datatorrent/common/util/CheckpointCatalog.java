@@ -0,0 +1,309 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hadoop.fs.CreateFlag;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Index of the checkpoints held by a storage agent, kept as a snapshot plus an append-only log of saves and deletes.
+ * <p>
+ * The catalog is maintained by a single writer (the application master), which records checkpoints reported by the
+ * containers as well as the ones it saves and purges itself. Lookups are answered from memory, which avoids a
+ * directory listing per operator during recovery. A window that was saved but not yet recorded is absent from the
+ * catalog, so it can be used where an older consistent checkpoint is acceptable, but not where the most recently
+ * written checkpoint is required.
+ * <p>
+ * Records are made durable with {@link #flush()} before the writer acts on them: saves before the checkpoint is used
+ * to advance the committed window, deletes before the files are removed. The log is written in order, so a recovered
+ * catalog may miss the most recent checkpoints but never lists a window that was purged, and never misses a window
+ * whose predecessors were purged.
+ *
+ * @since 3.5.0
+ */
+public class CheckpointCatalog
+{
+  public static final String DIRECTORY_CATALOG = "_catalog";
+  public static final String FILE_SNAPSHOT = "snapshot";
+  public static final String FILE_LOG = "log";
+  private static final String FILE_SNAPSHOT_TMP = "snapshot.tmp";
+  private static final byte OP_SAVE = 1;
+  private static final byte OP_DELETE = 2;
+  private static final int DEFAULT_COMPACTION_THRESHOLD = 100000;
+
+  private final FileContext fileContext;
+  private final Path basePath;
+  private final Map<Integer, TreeSet<Long>> windowIds = new HashMap<>();
+  private DataOutputStream log;
+  private FSDataOutputStream logStream;
+  private int logRecordCount;
+  private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+  private boolean dirty;
+
+  /**
+   * @param fileContext file context of the storage agent
+   * @param checkpointPath base path of the storage agent, the catalog is kept in a sub directory
+   */
+  public CheckpointCatalog(FileContext fileContext, String checkpointPath)
+  {
+    this.fileContext = fileContext;
+    this.basePath = new Path(checkpointPath, DIRECTORY_CATALOG);
+  }
+
+  /**
+   * Read the existing snapshot and log, then start a new log on top of a fresh snapshot. A corrupt catalog is
+   * discarded and, like a missing one, rebuilt from directory listings as operators are looked up.
+   *
+   * @return whether an existing, readable catalog was found
+   * @throws IOException
+   */
+  public synchronized boolean open() throws IOException
+  {
+    boolean exists;
+    try {
+      exists = read();
+    } catch (IOException e) {
+      // the lookups fall back to directory listings for operators that are not in the catalog
+      logger.warn("Discarding corrupt checkpoint catalog {}", basePath, e);
+      windowIds.clear();
+      exists = false;
+    }
+    compact();
+    return exists;
+  }
+
+  private boolean read() throws IOException
+  {
+    boolean exists = false;
+    Path snapshotPath = new Path(basePath, FILE_SNAPSHOT);
+    if (fileContext.util().exists(snapshotPath)) {
+      try (DataInputStream in = fileContext.open(snapshotPath)) {
+        int operatorCount = in.readInt();
+        for (int i = 0; i < operatorCount; i++) {
+          int operatorId = in.readInt();
+          int count = in.readInt();
+          TreeSet<Long> set = new TreeSet<>();
+          for (int j = 0; j < count; j++) {
+            set.add(in.readLong());
+          }
+          windowIds.put(operatorId, set);
+        }
+      }
+      exists = true;
+    }
+    Path logPath = new Path(basePath, FILE_LOG);
+    if (fileContext.util().exists(logPath)) {
+      int records = 0;
+      try (DataInputStream in = fileContext.open(logPath)) {
+        while (true) {
+          byte op;
+          int operatorId;
+          long windowId;
+          try {
+            op = in.readByte();
+            operatorId = in.readInt();
+            windowId = in.readLong();
+          } catch (EOFException e) {
+            // the last record may be incomplete when the writer failed
+            break;
+          }
+          if (op != OP_SAVE && op != OP_DELETE) {
+            throw new IOException("Invalid record type " + op + " at record " + records + " of " + logPath);
+          }
+          apply(op, operatorId, windowId);
+          records++;
+        }
+      }
+      logger.debug("Replayed {} catalog records from {}", records, logPath);
+      exists = true;
+    }
+    return exists;
+  }
+
+  /**
+   * @param operatorId
+   * @return window ids of the recorded checkpoints in ascending order or null if the operator is not in the catalog
+   */
+  public synchronized long[] getWindowIds(int operatorId)
+  {
+    TreeSet<Long> set = windowIds.get(operatorId);
+    if (set == null) {
+      return null;
+    }
+    long[] result = new long[set.size()];
+    int i = 0;
+    for (Long windowId : set) {
+      result[i++] = windowId;
+    }
+    return result;
+  }
+
+  public synchronized void recordSave(int operatorId, long windowId) throws IOException
+  {
+    TreeSet<Long> set = windowIds.get(operatorId);
+    if (set == null || !set.contains(windowId)) {
+      append(OP_SAVE, operatorId, windowId);
+    }
+  }
+
+  public synchronized void recordDelete(int operatorId, long windowId) throws IOException
+  {
+    TreeSet<Long> set = windowIds.get(operatorId);
+    if (set != null && set.contains(windowId)) {
+      append(OP_DELETE, operatorId, windowId);
+    }
+  }
+
+  /**
+   * Seed the catalog for an operator from a directory listing.
+   *
+   * @param operatorId
+   * @param listedWindowIds
+   * @throws IOException
+   */
+  public synchronized void recordAll(int operatorId, long[] listedWindowIds) throws IOException
+  {
+    for (long windowId : listedWindowIds) {
+      recordSave(operatorId, windowId);
+    }
+  }
+
+  /**
+   * Make recorded changes durable. Records are buffered until flush, so that callers can batch many changes into a
+   * single file system round trip.
+   *
+   * @throws IOException
+   */
+  public synchronized void flush() throws IOException
+  {
+    if (!dirty) {
+      return;
+    }
+    log.flush();
+    logStream.hflush();
+    dirty = false;
+    if (logRecordCount >= compactionThreshold) {
+      compact();
+    }
+  }
+
+  public synchronized void close() throws IOException
+  {
+    if (log != null) {
+      flush();
+      log.close();
+      log = null;
+    }
+  }
+
+  public int getCompactionThreshold()
+  {
+    return compactionThreshold;
+  }
+
+  public void setCompactionThreshold(int compactionThreshold)
+  {
+    this.compactionThreshold = compactionThreshold;
+  }
+
+  private void append(byte op, int operatorId, long windowId) throws IOException
+  {
+    if (log == null) {
+      throw new IllegalStateException("Catalog " + basePath + " is not open");
+    }
+    log.writeByte(op);
+    log.writeInt(operatorId);
+    log.writeLong(windowId);
+    apply(op, operatorId, windowId);
+    logRecordCount++;
+    dirty = true;
+  }
+
+  private void apply(byte op, int operatorId, long windowId)
+  {
+    TreeSet<Long> set = windowIds.get(operatorId);
+    if (op == OP_SAVE) {
+      if (set == null) {
+        set = new TreeSet<>();
+        windowIds.put(operatorId, set);
+      }
+      set.add(windowId);
+    } else if (set != null) {
+      set.remove(windowId);
+    }
+  }
+
+  /**
+   * Write the current state as snapshot and start an empty log. Replaying an old log on top of the new snapshot
+   * yields the same state, hence a failure between the two steps is harmless.
+   */
+  private void compact() throws IOException
+  {
+    if (log != null) {
+      log.close();
+      log = null;
+    }
+    Path tmpPath = new Path(basePath, FILE_SNAPSHOT_TMP);
+    try (DataOutputStream out = fileContext.create(tmpPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE),
+        Options.CreateOpts.CreateParent.createParent())) {
+      out.writeInt(windowIds.size());
+      for (Map.Entry<Integer, TreeSet<Long>> entry : windowIds.entrySet()) {
+        out.writeInt(entry.getKey());
+        out.writeInt(entry.getValue().size());
+        for (Long windowId : entry.getValue()) {
+          out.writeLong(windowId);
+        }
+      }
+    }
+    fileContext.rename(tmpPath, new Path(basePath, FILE_SNAPSHOT), Options.Rename.OVERWRITE);
+
+    Path logPath = new Path(basePath, FILE_LOG);
+    if ("file".equals(fileContext.getDefaultFileSystem().getUri().getScheme())
+        || "file".equals(logPath.toUri().getScheme())) {
+      // local FS does not support hflush and does not flush native stream
+      logStream = new FSDataOutputStream(new FileOutputStream(Path.getPathWithoutSchemeAndAuthority(logPath).toString()),
+          null);
+    } else {
+      logStream = fileContext.create(logPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE));
+    }
+    log = new DataOutputStream(new BufferedOutputStream(logStream));
+    logRecordCount = 0;
+    dirty = false;
+    logger.debug("Compacted checkpoint catalog {} with {} operators", basePath, windowIds.size());
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(CheckpointCatalog.class);
+}
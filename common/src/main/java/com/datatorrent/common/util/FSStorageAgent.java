@@ -18,6 +18,7 @@
  */
 package com.datatorrent.common.util;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectStreamException;
@@ -25,8 +26,12 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +45,7 @@ import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Options;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.hadoop.fs.permission.FsPermission;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
@@ -51,16 +57,34 @@ import com.datatorrent.api.annotation.Stateless;
 
 /**
  * FSStorageAgent
+ * <p>
+ * Key groups are stored in the {@link #KEY_GROUPS_DIR} directory of the operator, one directory per window with a
+ * file per key group, so that they can be moved to another operator by renaming.
  *
  * @since 0.3.2
  */
-public class FSStorageAgent implements StorageAgent, Serializable
+public class FSStorageAgent implements StorageAgent.KeyGroupStorageAgent, StorageAgent.BatchDeleteStorageAgent,
+    Serializable
 {
   public static final String TMP_FILE = "_tmp";
+  public static final String KEY_GROUPS_DIR = "_keygroups";
   protected static final String STATELESS_CHECKPOINT_WINDOW_ID = Long.toHexString(Stateless.WINDOW_ID);
   public final String path;
   protected final transient FileContext fileContext;
+  protected transient volatile CheckpointCatalog catalog;
   protected static final transient Kryo kryo;
+  /**
+   * Kryo instances are not thread safe, each thread gets its own so that operator state can be stored and retrieved
+   * concurrently, as done by the state loaders of the container.
+   */
+  private static final ThreadLocal<Kryo> threadKryo = new ThreadLocal<Kryo>()
+  {
+    @Override
+    protected Kryo initialValue()
+    {
+      return new Kryo();
+    }
+  };
 
   static {
     kryo = new Kryo();
@@ -121,6 +145,10 @@ public class FSStorageAgent implements StorageAgent, Serializable
           logger.debug("Saving {}: {}", operatorId, window);
           fileContext.rename(lPath, new Path(path + Path.SEPARATOR + operatorIdStr + Path.SEPARATOR + window),
               Options.Rename.OVERWRITE);
+          if (catalog != null) {
+            catalog.recordSave(operatorId, windowId);
+            catalog.flush();
+          }
         }
       }
     }
@@ -143,14 +171,122 @@ public class FSStorageAgent implements StorageAgent, Serializable
   @Override
   public void delete(int operatorId, long windowId) throws IOException
   {
-    Path lPath = new Path(path + Path.SEPARATOR + String.valueOf(operatorId) + Path.SEPARATOR + Long.toHexString(windowId));
-    logger.debug("Deleting: {}", lPath);
+    delete(operatorId, Collections.singletonList(windowId));
+  }
+
+  @Override
+  public void delete(int operatorId, Collection<Long> windowIds) throws IOException
+  {
+    // record first, the catalog must not list a window that may already be gone
+    if (catalog != null) {
+      for (long windowId : windowIds) {
+        catalog.recordDelete(operatorId, windowId);
+      }
+      catalog.flush();
+    }
+    Path operatorPath = new Path(path + Path.SEPARATOR + String.valueOf(operatorId));
+    Set<String> names = new HashSet<>();
+    for (long windowId : windowIds) {
+      String name = Long.toHexString(windowId);
+      names.add(name);
+      Path lPath = new Path(operatorPath, name);
+      logger.debug("Deleting: {}", lPath);
+      fileContext.delete(lPath, false);
+    }
+    // key groups are removed only where they were saved, one listing instead of a recursive delete per window
+    RemoteIterator<FileStatus> it;
+    try {
+      it = fileContext.listStatus(new Path(operatorPath, KEY_GROUPS_DIR));
+    } catch (FileNotFoundException e) {
+      return;
+    }
+    while (it.hasNext()) {
+      Path keyGroupsPath = it.next().getPath();
+      if (names.contains(keyGroupsPath.getName())) {
+        fileContext.delete(keyGroupsPath, true);
+      }
+    }
+  }
 
-    fileContext.delete(lPath, false);
+  private Path getKeyGroupsPath(int operatorId, long windowId)
+  {
+    return new Path(path + Path.SEPARATOR + String.valueOf(operatorId) + Path.SEPARATOR + KEY_GROUPS_DIR +
+        Path.SEPARATOR + Long.toHexString(windowId));
   }
 
+  @Override
+  public void saveKeyGroup(Object state, int operatorId, int keyGroup, long windowId) throws IOException
+  {
+    Path keyGroupsPath = getKeyGroupsPath(operatorId, windowId);
+    Path tmpPath = new Path(keyGroupsPath, keyGroup + TMP_FILE);
+    try (FSDataOutputStream stream = fileContext.create(tmpPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE),
+        Options.CreateOpts.CreateParent.createParent())) {
+      store(stream, state);
+    }
+    fileContext.rename(tmpPath, new Path(keyGroupsPath, String.valueOf(keyGroup)), Options.Rename.OVERWRITE);
+  }
+
+  @Override
+  public Object loadKeyGroup(int operatorId, int keyGroup, long windowId) throws IOException
+  {
+    Path lPath = new Path(getKeyGroupsPath(operatorId, windowId), String.valueOf(keyGroup));
+    FSDataInputStream stream;
+    try {
+      stream = fileContext.open(lPath);
+    } catch (FileNotFoundException e) {
+      return null;
+    }
+    try {
+      return retrieve(stream);
+    } finally {
+      stream.close();
+    }
+  }
+
+  @Override
+  public void moveKeyGroup(int keyGroup, int fromOperatorId, long fromWindowId, int toOperatorId, long toWindowId)
+      throws IOException
+  {
+    Path toPath = getKeyGroupsPath(toOperatorId, toWindowId);
+    Path fromFile = new Path(getKeyGroupsPath(fromOperatorId, fromWindowId), String.valueOf(keyGroup));
+    fileContext.mkdir(toPath, FsPermission.getDefault(), true);
+    try {
+      fileContext.rename(fromFile, new Path(toPath, String.valueOf(keyGroup)), Options.Rename.OVERWRITE);
+      logger.debug("Moved key group {} from {} to {}", keyGroup, fromFile, toPath);
+    } catch (FileNotFoundException e) {
+      logger.debug("No state for key group {} in {}", keyGroup, fromFile);
+    }
+  }
+
+  /**
+   * Return the window ids from the checkpoint catalog, when present, and from a listing of the operator directory
+   * otherwise.
+   */
   @Override
   public long[] getWindowIds(int operatorId) throws IOException
+  {
+    CheckpointCatalog catalog = this.catalog;
+    if (catalog != null) {
+      long[] windowIds = catalog.getWindowIds(operatorId);
+      if (windowIds != null && windowIds.length > 0) {
+        return windowIds;
+      }
+      windowIds = listWindowIds(operatorId);
+      catalog.recordAll(operatorId, windowIds);
+      return windowIds;
+    }
+    return listWindowIds(operatorId);
+  }
+
+  /**
+   * Return the window ids of the checkpoints found in the operator directory, bypassing the catalog. To be used where
+   * the most recently written checkpoint is required.
+   *
+   * @param operatorId
+   * @return window ids of the available checkpoints
+   * @throws IOException
+   */
+  public long[] listWindowIds(int operatorId) throws IOException
   {
     Path lPath = new Path(path + Path.SEPARATOR + String.valueOf(operatorId));
 
@@ -162,7 +298,7 @@ public class FSStorageAgent implements StorageAgent, Serializable
     do {
       FileStatus fileStatus = fileStatusRemoteIterator.next();
       String name = fileStatus.getPath().getName();
-      if (name.equals(TMP_FILE)) {
+      if (name.equals(TMP_FILE) || name.equals(KEY_GROUPS_DIR)) {
         continue;
       }
       lwindows.add(STATELESS_CHECKPOINT_WINDOW_ID.equals(name) ? Stateless.WINDOW_ID : Long.parseLong(name, 16));
@@ -174,23 +310,36 @@ public class FSStorageAgent implements StorageAgent, Serializable
     return windowIds;
   }
 
+  public CheckpointCatalog getCheckpointCatalog()
+  {
+    return catalog;
+  }
+
+  /**
+   * Set the catalog that records saved and deleted checkpoints. The catalog has a single writer, it is therefore
+   * only set in the application master.
+   *
+   * @param catalog open catalog for the path of this agent or null
+   */
+  public void setCheckpointCatalog(CheckpointCatalog catalog)
+  {
+    this.catalog = catalog;
+  }
+
   public static void store(OutputStream stream, Object operator)
   {
-    synchronized (kryo) {
-      Output output = new Output(4096, Integer.MAX_VALUE);
-      output.setOutputStream(stream);
-      kryo.writeClassAndObject(output, operator);
-      output.flush();
-    }
+    Output output = new Output(4096, Integer.MAX_VALUE);
+    output.setOutputStream(stream);
+    threadKryo.get().writeClassAndObject(output, operator);
+    output.flush();
   }
 
   public static Object retrieve(InputStream stream)
   {
-    synchronized (kryo) {
-      kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
-      Input input = new Input(stream);
-      return kryo.readClassAndObject(input);
-    }
+    Kryo kryo = threadKryo.get();
+    kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
+    Input input = new Input(stream);
+    return kryo.readClassAndObject(input);
   }
 
   public Object readResolve() throws ObjectStreamException
@@ -35,6 +35,9 @@ import org.codehaus.jackson.map.ser.std.RawSerializer;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
 
+import com.datatorrent.api.Histogram;
+import com.datatorrent.common.metric.HistogramSerializer;
+
 /**
  * <p>JacksonObjectMapperProvider class.</p>
  *
@@ -58,6 +61,7 @@ public class JacksonObjectMapperProvider implements ContextResolver<ObjectMapper
     module.addSerializer(ObjectMapperString.class, new RawSerializer<Object>(Object.class));
     module.addSerializer(JSONObject.class, new RawSerializer<Object>(Object.class));
     module.addSerializer(JSONArray.class, new RawSerializer<Object>(Object.class));
+    module.addSerializer(Histogram.class, new HistogramSerializer());
     objectMapper.registerModule(module);
   }
 
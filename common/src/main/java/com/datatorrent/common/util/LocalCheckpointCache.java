@@ -0,0 +1,267 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Node-local cache of serialized operator checkpoints.
+ * <p>
+ * Checkpoint files are kept under {@code baseDir/<operatorId>/<windowId in hex>} along with a file holding the CRC32
+ * checksum and length of the data, so that an operator redeployed on the node that wrote its state can recover from local disk instead of the
+ * remote file system. Entries are evicted in least recently used order once the total size exceeds the configured
+ * limit. Several containers on the same node may share a cache directory; files added or evicted by other processes
+ * are picked up on lookup.
+ *
+ * @since 3.5.0
+ */
+public class LocalCheckpointCache
+{
+  public static final String CHECKSUM_SUFFIX = ".crc";
+  private static final String TMP_SUFFIX = ".tmp";
+
+  private final File baseDir;
+  private final long maxBytes;
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes;
+
+  public LocalCheckpointCache(File baseDir, long maxBytes)
+  {
+    this.baseDir = baseDir;
+    this.maxBytes = maxBytes;
+    scan();
+  }
+
+  /**
+   * Move the given checkpoint file into the cache.
+   *
+   * @param operatorId operator the checkpoint belongs to
+   * @param windowId checkpoint window
+   * @param file serialized state, moved (not copied) into the cache
+   * @param checksum CRC32 of the file contents
+   * @throws IOException
+   */
+  public synchronized void put(int operatorId, long windowId, File file, long checksum) throws IOException
+  {
+    File dataFile = getFile(operatorId, windowId);
+    File checksumFile = new File(dataFile.getPath() + CHECKSUM_SUFFIX);
+    File dir = dataFile.getParentFile();
+    if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+      throw new IOException("Failed to create cache directory " + dir);
+    }
+    // the checksum file is written last so that readers never see data without a matching checksum
+    Files.deleteIfExists(checksumFile.toPath());
+    Files.move(file.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    File tmpChecksumFile = new File(checksumFile.getPath() + TMP_SUFFIX);
+    String metadata = Long.toHexString(checksum) + ' ' + dataFile.length();
+    Files.write(tmpChecksumFile.toPath(), metadata.getBytes(StandardCharsets.UTF_8));
+    Files.move(tmpChecksumFile.toPath(), checksumFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    String key = getKey(operatorId, windowId);
+    Long previous = entries.put(key, dataFile.length());
+    if (previous != null) {
+      totalBytes -= previous;
+    }
+    totalBytes += dataFile.length();
+    evict();
+  }
+
+  /**
+   * Load the cached checkpoint, verifying its checksum.
+   *
+   * @param operatorId operator the checkpoint belongs to
+   * @param windowId checkpoint window
+   * @return the deserialized object or null when the checkpoint is not cached or fails verification
+   */
+  public Object load(int operatorId, long windowId)
+  {
+    File dataFile = getFile(operatorId, windowId);
+    File checksumFile = new File(dataFile.getPath() + CHECKSUM_SUFFIX);
+    String key = getKey(operatorId, windowId);
+    synchronized (this) {
+      if (!dataFile.exists() || !checksumFile.exists()) {
+        removeEntry(key);
+        return null;
+      }
+      if (!entries.containsKey(key)) {
+        // written by another container on this node
+        entries.put(key, dataFile.length());
+        totalBytes += dataFile.length();
+      } else {
+        entries.get(key);
+      }
+    }
+
+    try {
+      String[] metadata = new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.UTF_8).trim()
+          .split(" ");
+      long expected = Long.parseLong(metadata[0], 16);
+      // a truncated or replaced file is rejected without reading it, entries of earlier versions carry no length
+      if (metadata.length > 1 && Long.parseLong(metadata[1]) != dataFile.length()) {
+        logger.warn("Length mismatch for cached checkpoint {}, discarding.", dataFile);
+        remove(operatorId, windowId);
+        return null;
+      }
+      CRC32 crc = new CRC32();
+      Object object;
+      try (InputStream is = new CheckedInputStream(new BufferedInputStream(new FileInputStream(dataFile)), crc)) {
+        object = FSStorageAgent.retrieve(is);
+        // the deserializer may stop short of the end of the stream
+        byte[] buffer = new byte[4096];
+        while (is.read(buffer) != -1) {
+          // consume the remaining bytes for the checksum
+        }
+      }
+      if (crc.getValue() != expected) {
+        logger.warn("Checksum mismatch for cached checkpoint {}, discarding.", dataFile);
+        remove(operatorId, windowId);
+        return null;
+      }
+      logger.debug("Loaded {} from local cache", dataFile);
+      return object;
+    } catch (Exception e) {
+      logger.warn("Failed to load cached checkpoint {}, discarding.", dataFile, e);
+      remove(operatorId, windowId);
+      return null;
+    }
+  }
+
+  public boolean contains(int operatorId, long windowId)
+  {
+    File dataFile = getFile(operatorId, windowId);
+    return dataFile.exists() && new File(dataFile.getPath() + CHECKSUM_SUFFIX).exists();
+  }
+
+  public synchronized void remove(int operatorId, long windowId)
+  {
+    File dataFile = getFile(operatorId, windowId);
+    removeEntry(getKey(operatorId, windowId));
+    deleteFiles(dataFile);
+  }
+
+  public synchronized long getSize()
+  {
+    return totalBytes;
+  }
+
+  public long getMaxSize()
+  {
+    return maxBytes;
+  }
+
+  private void evict()
+  {
+    Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      Map.Entry<String, Long> entry = it.next();
+      totalBytes -= entry.getValue();
+      it.remove();
+      File dataFile = new File(baseDir, entry.getKey());
+      logger.debug("Evicting {} from local checkpoint cache", dataFile);
+      deleteFiles(dataFile);
+    }
+  }
+
+  private void removeEntry(String key)
+  {
+    Long size = entries.remove(key);
+    if (size != null) {
+      totalBytes -= size;
+    }
+  }
+
+  private static void deleteFiles(File dataFile)
+  {
+    try {
+      Files.deleteIfExists(new File(dataFile.getPath() + CHECKSUM_SUFFIX).toPath());
+      Files.deleteIfExists(dataFile.toPath());
+    } catch (IOException e) {
+      logger.warn("Failed to delete cached checkpoint {}", dataFile, e);
+    }
+  }
+
+  /**
+   * Build the index from files left behind by earlier containers, oldest first.
+   */
+  private void scan()
+  {
+    File[] operatorDirs = baseDir.listFiles();
+    if (operatorDirs == null) {
+      return;
+    }
+    List<File> files = new ArrayList<>();
+    for (File operatorDir : operatorDirs) {
+      File[] windowFiles = operatorDir.listFiles();
+      if (windowFiles == null) {
+        continue;
+      }
+      for (File f : windowFiles) {
+        String name = f.getName();
+        if (!name.endsWith(CHECKSUM_SUFFIX) && !name.endsWith(TMP_SUFFIX)) {
+          files.add(f);
+        }
+      }
+    }
+    Collections.sort(files, new Comparator<File>()
+    {
+      @Override
+      public int compare(File o1, File o2)
+      {
+        return Long.compare(o1.lastModified(), o2.lastModified());
+      }
+    });
+    for (File f : files) {
+      long length = f.length();
+      entries.put(f.getParentFile().getName() + File.separator + f.getName(), length);
+      totalBytes += length;
+    }
+    evict();
+  }
+
+  private File getFile(int operatorId, long windowId)
+  {
+    return new File(baseDir, getKey(operatorId, windowId));
+  }
+
+  private static String getKey(int operatorId, long windowId)
+  {
+    return String.valueOf(operatorId) + File.separator + Long.toHexString(windowId);
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(LocalCheckpointCache.class);
+}
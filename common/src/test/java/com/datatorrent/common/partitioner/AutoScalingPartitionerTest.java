@@ -0,0 +1,333 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.partitioner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultPartition;
+import com.datatorrent.api.Operator.InputPort;
+import com.datatorrent.api.Partitioner.Partition;
+import com.datatorrent.api.Partitioner.PartitionKeys;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.StatsListener.BatchedOperatorStats;
+import com.datatorrent.api.StatsListener.OperatorResponse;
+import com.datatorrent.api.StatsListener.Response;
+import com.datatorrent.common.partitioner.StatelessPartitionerTest.PartitioningContextImpl;
+import com.datatorrent.common.util.BaseOperator;
+
+public class AutoScalingPartitionerTest
+{
+  public static class TestOperator extends BaseOperator
+  {
+    public final transient DefaultInputPort<Integer> input = new DefaultInputPort<Integer>()
+    {
+      @Override
+      public void process(Integer tuple)
+      {
+      }
+    };
+  }
+
+  private static class TestStats implements BatchedOperatorStats
+  {
+    final int operatorId;
+    long tuplesPerSecond;
+    long latencyMillis;
+
+    TestStats(int operatorId)
+    {
+      this.operatorId = operatorId;
+    }
+
+    @Override
+    public List<OperatorStats> getLastWindowedStats()
+    {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public int getOperatorId()
+    {
+      return operatorId;
+    }
+
+    @Override
+    public long getCurrentWindowId()
+    {
+      return 0;
+    }
+
+    @Override
+    public long getTuplesProcessedPSMA()
+    {
+      return tuplesPerSecond;
+    }
+
+    @Override
+    public long getTuplesEmittedPSMA()
+    {
+      return tuplesPerSecond;
+    }
+
+    @Override
+    public double getCpuPercentageMA()
+    {
+      return 0;
+    }
+
+    @Override
+    public long getLatencyMA()
+    {
+      return latencyMillis;
+    }
+
+    @Override
+    public List<OperatorResponse> getOperatorResponse()
+    {
+      return null;
+    }
+  }
+
+  private static class TestPartitioner extends AutoScalingPartitioner<TestOperator>
+  {
+    private static final long serialVersionUID = 201610190004L;
+    long timeMillis;
+
+    @Override
+    long currentTimeMillis()
+    {
+      return timeMillis;
+    }
+  }
+
+  /**
+   * Deployed partitions with the stats that are reported for them.
+   */
+  private final Map<Integer, Partition<TestOperator>> deployed = new HashMap<>();
+  private final Map<Integer, TestStats> stats = new HashMap<>();
+  private int nextOperatorId = 1;
+
+  private void deploy(TestPartitioner partitioner, Collection<Partition<TestOperator>> partitions)
+  {
+    deployed.clear();
+    stats.clear();
+    for (Partition<TestOperator> p : partitions) {
+      TestStats s = new TestStats(nextOperatorId++);
+      deployed.put(s.operatorId, new DefaultPartition<>(p.getPartitionedInstance(), p.getPartitionKeys(), 0, s));
+      stats.put(s.operatorId, s);
+    }
+    partitioner.partitioned(deployed);
+  }
+
+  private Collection<Partition<TestOperator>> repartition(TestPartitioner partitioner)
+  {
+    return partitioner.definePartitions(new ArrayList<>(deployed.values()), new PartitioningContextImpl(null, 0));
+  }
+
+  /**
+   * Report the given throughput for every partition.
+   *
+   * @return whether repartitioning was requested
+   */
+  private boolean report(TestPartitioner partitioner, long tuplesPerSecond, long latencyMillis)
+  {
+    boolean repartitionRequired = false;
+    for (TestStats s : stats.values()) {
+      s.tuplesPerSecond = tuplesPerSecond;
+      s.latencyMillis = latencyMillis;
+      Response rsp = partitioner.processStats(s);
+      repartitionRequired |= rsp.repartitionRequired;
+    }
+    return repartitionRequired;
+  }
+
+  private static void assertKeysComplete(Collection<Partition<TestOperator>> partitions, InputPort<?> port)
+  {
+    int mask = 0;
+    for (Partition<TestOperator> p : partitions) {
+      mask = Math.max(mask, p.getPartitionKeys().get(port).mask);
+    }
+    Set<Integer> keys = new HashSet<>();
+    for (Partition<TestOperator> p : partitions) {
+      PartitionKeys pks = p.getPartitionKeys().get(port);
+      for (int key = 0; key <= mask; key++) {
+        if (pks.partitions.contains(key & pks.mask)) {
+          Assert.assertTrue("key " + key + " assigned once", keys.add(key));
+        }
+      }
+    }
+    Assert.assertEquals("all keys assigned " + partitions, mask + 1, keys.size());
+  }
+
+  private Collection<Partition<TestOperator>> initialPartitions(TestPartitioner partitioner, TestOperator operator)
+  {
+    Collection<Partition<TestOperator>> partitions = Lists.newArrayList();
+    partitions.add(new DefaultPartition<>(operator));
+    List<InputPort<?>> ports = Collections.<InputPort<?>>singletonList(operator.input);
+    return partitioner.definePartitions(partitions, new PartitioningContextImpl(ports, 0));
+  }
+
+  @Test
+  public void testThroughputScaling()
+  {
+    TestOperator operator = new TestOperator();
+    TestPartitioner partitioner = new TestPartitioner();
+    partitioner.setMinPartitions(2);
+    partitioner.setMaxPartitions(6);
+    partitioner.setTargetTuplesPerSecond(1000);
+    partitioner.setStabilizationMillis(1000);
+    partitioner.setCooldownMillis(10000);
+
+    Collection<Partition<TestOperator>> partitions = initialPartitions(partitioner, operator);
+    Assert.assertEquals("initial partitions", 2, partitions.size());
+    deploy(partitioner, partitions);
+
+    Assert.assertFalse("within tolerance", report(partitioner, 1100, 0));
+    Assert.assertFalse("stabilization", report(partitioner, 2000, 0));
+    partitioner.timeMillis = 500;
+    Assert.assertFalse("stabilization", report(partitioner, 2000, 0));
+    partitioner.timeMillis = 1000;
+    Assert.assertTrue("scale up", report(partitioner, 2000, 0));
+
+    partitions = repartition(partitioner);
+    Assert.assertEquals("partitions after scale up", 4, partitions.size());
+    assertKeysComplete(partitions, operator.input);
+    deploy(partitioner, partitions);
+
+    partitioner.timeMillis = 5000;
+    Assert.assertFalse("cooldown", report(partitioner, 2000, 0));
+    partitioner.timeMillis = 11000;
+    Assert.assertFalse("stabilization", report(partitioner, 2000, 0));
+    partitioner.timeMillis = 12000;
+    Assert.assertTrue("scale up to max", report(partitioner, 2000, 0));
+    partitions = repartition(partitioner);
+    Assert.assertEquals("max partitions", 6, partitions.size());
+    assertKeysComplete(partitions, operator.input);
+    deploy(partitioner, partitions);
+
+    partitioner.timeMillis = 30000;
+    Assert.assertFalse("stabilization", report(partitioner, 100, 0));
+    partitioner.timeMillis = 31000;
+    Assert.assertTrue("scale down", report(partitioner, 100, 0));
+    partitions = repartition(partitioner);
+    Assert.assertEquals("min partitions", 2, partitions.size());
+    assertKeysComplete(partitions, operator.input);
+  }
+
+  @Test
+  public void testHysteresis()
+  {
+    TestOperator operator = new TestOperator();
+    TestPartitioner partitioner = new TestPartitioner();
+    partitioner.setMaxPartitions(8);
+    partitioner.setTargetTuplesPerSecond(1000);
+    partitioner.setStabilizationMillis(1000);
+    deploy(partitioner, initialPartitions(partitioner, operator));
+
+    for (int i = 0; i < 10; i++) {
+      partitioner.timeMillis += 600;
+      // alternating load never persists for the stabilization period
+      Assert.assertFalse("alternating load " + i, report(partitioner, i % 2 == 0 ? 3000 : 1000, 0));
+    }
+    partitioner.timeMillis += 600;
+    Assert.assertFalse(report(partitioner, 3000, 0));
+    partitioner.timeMillis += 600;
+    Assert.assertFalse("estimate updated", report(partitioner, 2500, 0));
+    partitioner.timeMillis += 600;
+    Assert.assertTrue("sustained load", report(partitioner, 3000, 0));
+    Assert.assertEquals("partitions", 3, repartition(partitioner).size());
+  }
+
+  @Test
+  public void testLatencyScaling()
+  {
+    TestOperator operator = new TestOperator();
+    TestPartitioner partitioner = new TestPartitioner();
+    partitioner.setMaxPartitions(8);
+    partitioner.setTargetTuplesPerSecond(1000);
+    partitioner.setTargetLatencyMillis(100);
+    partitioner.setStabilizationMillis(0);
+    partitioner.setCooldownMillis(0);
+    deploy(partitioner, initialPartitions(partitioner, operator));
+
+    Assert.assertTrue("latency exceeded", report(partitioner, 1000, 250));
+    Collection<Partition<TestOperator>> partitions = repartition(partitioner);
+    Assert.assertEquals("partitions", 3, partitions.size());
+    assertKeysComplete(partitions, operator.input);
+    deploy(partitioner, partitions);
+
+    Assert.assertFalse("latency within target prevents scale down", report(partitioner, 100, 100));
+    Assert.assertTrue("scale down", report(partitioner, 100, 10));
+    Assert.assertEquals("partitions", 1, repartition(partitioner).size());
+  }
+
+  @Test
+  public void testInputOperator()
+  {
+    TestOperator operator = new TestOperator();
+    TestPartitioner partitioner = new TestPartitioner();
+    partitioner.setMaxPartitions(8);
+    partitioner.setTargetTuplesPerSecond(1000);
+    partitioner.setStabilizationMillis(0);
+    partitioner.setCooldownMillis(0);
+    Collection<Partition<TestOperator>> partitions = Lists.newArrayList();
+    partitions.add(new DefaultPartition<>(operator));
+    deploy(partitioner, partitioner.definePartitions(partitions, new PartitioningContextImpl(null, 0)));
+
+    Assert.assertTrue("scale up", report(partitioner, 3000, 0));
+    partitions = repartition(partitioner);
+    Assert.assertEquals("partitions", 3, partitions.size());
+    for (Partition<TestOperator> p : partitions) {
+      Assert.assertTrue("no partition keys", p.getPartitionKeys().isEmpty());
+    }
+    deploy(partitioner, partitions);
+
+    Assert.assertTrue("scale down", report(partitioner, 300, 0));
+    Assert.assertEquals("partitions", 1, repartition(partitioner).size());
+  }
+
+  @Test
+  public void testParallelPartition()
+  {
+    TestOperator operator = new TestOperator();
+    TestPartitioner partitioner = new TestPartitioner();
+    partitioner.setMaxPartitions(2);
+    Collection<Partition<TestOperator>> partitions = Lists.newArrayList();
+    partitions.add(new DefaultPartition<>(operator));
+    partitions = partitioner.definePartitions(partitions, new PartitioningContextImpl(null, 3));
+    Assert.assertEquals("initial partitions follow upstream", 3, partitions.size());
+    deploy(partitioner, partitions);
+
+    partitions = partitioner.definePartitions(new ArrayList<>(deployed.values()), new PartitioningContextImpl(null, 5));
+    Assert.assertEquals("partitions follow upstream", 5, partitions.size());
+  }
+}
@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.Path;
+
+public class CheckpointCatalogTest
+{
+  private static class TestMeta extends TestWatcher
+  {
+    String applicationPath;
+
+    @Override
+    protected void starting(Description description)
+    {
+      super.starting(description);
+      applicationPath = "target/" + description.getClassName() + "/" + description.getMethodName() + "/app";
+      try {
+        FileUtils.forceMkdir(new File(applicationPath));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    protected void finished(Description description)
+    {
+      try {
+        FileUtils.deleteDirectory(new File("target/" + description.getClassName()));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  @Test
+  public void testRecordAndReopen() throws IOException
+  {
+    CheckpointCatalog catalog = new CheckpointCatalog(FileContext.getFileContext(), testMeta.applicationPath);
+    Assert.assertFalse("new catalog", catalog.open());
+    Assert.assertNull("unknown operator", catalog.getWindowIds(1));
+    catalog.recordSave(1, 3);
+    catalog.recordSave(1, 1);
+    catalog.recordSave(1, 2);
+    catalog.recordSave(2, 1);
+    catalog.recordDelete(1, 2);
+    catalog.flush();
+    Assert.assertArrayEquals("operator 1", new long[]{1, 3}, catalog.getWindowIds(1));
+
+    // replay the log without a close
+    CheckpointCatalog restored = new CheckpointCatalog(FileContext.getFileContext(), testMeta.applicationPath);
+    Assert.assertTrue("existing catalog", restored.open());
+    Assert.assertArrayEquals("operator 1", new long[]{1, 3}, restored.getWindowIds(1));
+    Assert.assertArrayEquals("operator 2", new long[]{1}, restored.getWindowIds(2));
+    restored.close();
+    catalog.close();
+  }
+
+  @Test
+  public void testCompaction() throws IOException
+  {
+    CheckpointCatalog catalog = new CheckpointCatalog(FileContext.getFileContext(), testMeta.applicationPath);
+    catalog.setCompactionThreshold(10);
+    catalog.open();
+    for (int i = 0; i < 100; i++) {
+      catalog.recordSave(1, i);
+      if (i > 0) {
+        catalog.recordDelete(1, i - 1);
+      }
+      catalog.flush();
+    }
+    catalog.close();
+
+    File log = new File(testMeta.applicationPath, CheckpointCatalog.DIRECTORY_CATALOG + "/" + CheckpointCatalog.FILE_LOG);
+    Assert.assertTrue("log compacted " + log.length(), log.length() < 10 * 13);
+    catalog = new CheckpointCatalog(FileContext.getFileContext(), testMeta.applicationPath);
+    catalog.open();
+    Assert.assertArrayEquals("operator 1", new long[]{99}, catalog.getWindowIds(1));
+    catalog.close();
+  }
+
+  @Test
+  public void testDurableRecords() throws IOException
+  {
+    FSStorageAgent storageAgent = new FSStorageAgent(testMeta.applicationPath, null);
+    storageAgent.save("one", 1, 1);
+
+    CheckpointCatalog catalog = new CheckpointCatalog(FileContext.getFileContext(), testMeta.applicationPath);
+    catalog.open();
+    storageAgent.setCheckpointCatalog(catalog);
+    Assert.assertArrayEquals("listed", new long[]{1}, storageAgent.getWindowIds(1));
+    // saves and deletes made by the writer are durable without an explicit flush
+    storageAgent.save("two", 1, 2);
+    storageAgent.delete(1, 1);
+
+    CheckpointCatalog restored = new CheckpointCatalog(FileContext.getFileContext(), testMeta.applicationPath);
+    Assert.assertTrue("existing catalog", restored.open());
+    Assert.assertArrayEquals("replayed", new long[]{2}, restored.getWindowIds(1));
+    restored.close();
+  }
+
+  @Test
+  public void testCorruptCatalog() throws IOException
+  {
+    CheckpointCatalog catalog = new CheckpointCatalog(FileContext.getFileContext(), testMeta.applicationPath);
+    catalog.open();
+    catalog.recordSave(1, 1);
+    catalog.close();
+    FileUtils.writeByteArrayToFile(new File(testMeta.applicationPath, CheckpointCatalog.DIRECTORY_CATALOG + "/" +
+        CheckpointCatalog.FILE_LOG), new byte[]{9, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 2});
+
+    FSStorageAgent storageAgent = new FSStorageAgent(testMeta.applicationPath, null);
+    storageAgent.save("two", 1, 2);
+    catalog = new CheckpointCatalog(FileContext.getFileContext(), testMeta.applicationPath);
+    Assert.assertFalse("corrupt catalog discarded", catalog.open());
+    Assert.assertNull("unknown operator", catalog.getWindowIds(1));
+    storageAgent.setCheckpointCatalog(catalog);
+    Assert.assertArrayEquals("listed", new long[]{2}, storageAgent.getWindowIds(1));
+    catalog.close();
+  }
+
+  @Test
+  public void testStorageAgent() throws IOException
+  {
+    FSStorageAgent storageAgent = new FSStorageAgent(testMeta.applicationPath, null);
+    storageAgent.save("one", 1, 1);
+
+    CheckpointCatalog catalog = new CheckpointCatalog(FileContext.getFileContext(), testMeta.applicationPath);
+    catalog.open();
+    storageAgent.setCheckpointCatalog(catalog);
+    // operator not in catalog, seeded from listing
+    Assert.assertArrayEquals("listed", new long[]{1}, storageAgent.getWindowIds(1));
+
+    storageAgent.save("two", 1, 2);
+    storageAgent.delete(1, 1);
+    // remove the file behind the back of the catalog, the lookup does not list the directory
+    FileContext.getFileContext().delete(new Path(testMeta.applicationPath + "/1/2"), false);
+    Assert.assertArrayEquals("from catalog", new long[]{2}, storageAgent.getWindowIds(1));
+    try {
+      storageAgent.listWindowIds(1);
+      Assert.fail("directory should be empty");
+    } catch (IOException e) {
+      // expected
+    }
+    catalog.close();
+  }
+}
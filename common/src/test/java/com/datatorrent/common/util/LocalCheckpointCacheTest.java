@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.collect.Maps;
+
+public class LocalCheckpointCacheTest
+{
+  private static class TestMeta extends TestWatcher
+  {
+    String basePath;
+    File cacheDir;
+
+    @Override
+    protected void starting(Description description)
+    {
+      super.starting(description);
+      basePath = "target/" + description.getClassName() + "/" + description.getMethodName();
+      cacheDir = new File(basePath, "cache");
+      try {
+        FileUtils.forceMkdir(new File(basePath));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    protected void finished(Description description)
+    {
+      try {
+        FileUtils.deleteDirectory(new File("target/" + description.getClassName()));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  private long writeState(File file, Object state) throws IOException
+  {
+    try (FileOutputStream stream = new FileOutputStream(file)) {
+      FSStorageAgent.store(stream, state);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(Files.readAllBytes(file.toPath()));
+    return crc.getValue();
+  }
+
+  @Test
+  public void testPutLoad() throws IOException
+  {
+    LocalCheckpointCache cache = new LocalCheckpointCache(testMeta.cacheDir, Long.MAX_VALUE);
+    File file = new File(testMeta.basePath, "state");
+    long checksum = writeState(file, "one");
+    cache.put(1, 1, file, checksum);
+    Assert.assertFalse("moved into cache", file.exists());
+    Assert.assertEquals("loaded", "one", cache.load(1, 1));
+    Assert.assertNull("not cached", cache.load(1, 2));
+
+    // index rebuilt by a new instance on the same node
+    cache = new LocalCheckpointCache(testMeta.cacheDir, Long.MAX_VALUE);
+    Assert.assertTrue("size", cache.getSize() > 0);
+    Assert.assertEquals("loaded", "one", cache.load(1, 1));
+  }
+
+  @Test
+  public void testChecksumMismatch() throws IOException
+  {
+    LocalCheckpointCache cache = new LocalCheckpointCache(testMeta.cacheDir, Long.MAX_VALUE);
+    File file = new File(testMeta.basePath, "state");
+    long checksum = writeState(file, "one");
+    cache.put(1, 1, file, checksum);
+
+    File cached = new File(testMeta.cacheDir, "1" + File.separator + "1");
+    try (RandomAccessFile raf = new RandomAccessFile(cached, "rw")) {
+      raf.seek(raf.length() - 1);
+      raf.write('x');
+    }
+    Assert.assertNull("corrupt entry", cache.load(1, 1));
+    Assert.assertFalse("corrupt entry removed", cached.exists());
+    Assert.assertEquals("size", 0, cache.getSize());
+  }
+
+  @Test
+  public void testEviction() throws IOException
+  {
+    File file = new File(testMeta.basePath, "state");
+    long checksum = writeState(file, "one");
+    long length = file.length();
+    LocalCheckpointCache cache = new LocalCheckpointCache(testMeta.cacheDir, 2 * length);
+    cache.put(1, 1, file, checksum);
+    cache.put(1, 2, file, writeState(file, "one"));
+    // access window 1 so that window 2 becomes the eldest entry
+    Assert.assertEquals("loaded", "one", cache.load(1, 1));
+    cache.put(2, 1, file, writeState(file, "one"));
+
+    Assert.assertEquals("size", 2 * length, cache.getSize());
+    Assert.assertTrue("retained", cache.contains(1, 1));
+    Assert.assertFalse("evicted", cache.contains(1, 2));
+    Assert.assertTrue("retained", cache.contains(2, 1));
+  }
+
+  @Test
+  public void testStorageAgentRecovery() throws IOException
+  {
+    String applicationPath = testMeta.basePath + "/app";
+    AsyncFSStorageAgent storageAgent = new AsyncFSStorageAgent(applicationPath, null);
+    storageAgent.setLocalCachePath(testMeta.cacheDir.getPath());
+
+    Map<Integer, String> data = Maps.newHashMap();
+    data.put(1, "one");
+    data.put(2, "two");
+    storageAgent.save(data, 1, 1);
+    storageAgent.copyToHDFS(1, 1);
+
+    // remove the remote copy, recovery on the same node is served from the cache
+    FileContext.getFileContext().delete(new Path(applicationPath + "/1/1"), false);
+    AsyncFSStorageAgent recovered = (AsyncFSStorageAgent)storageAgent.readResolve();
+    Assert.assertEquals("cache path", storageAgent.getLocalCachePath(), recovered.getLocalCachePath());
+    Assert.assertEquals("data of 1", data, recovered.load(1, 1));
+
+    recovered.delete(1, 1);
+    try {
+      recovered.load(1, 1);
+      Assert.fail("checkpoint should be deleted");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testLengthMismatch() throws IOException
+  {
+    LocalCheckpointCache cache = new LocalCheckpointCache(testMeta.cacheDir, Long.MAX_VALUE);
+    File file = new File(testMeta.basePath, "state");
+    cache.put(1, 1, file, writeState(file, "one"));
+
+    File cached = new File(testMeta.cacheDir, "1" + File.separator + "1");
+    try (RandomAccessFile raf = new RandomAccessFile(cached, "rw")) {
+      raf.setLength(raf.length() - 1);
+    }
+    Assert.assertNull("truncated entry", cache.load(1, 1));
+    Assert.assertFalse("truncated entry removed", cached.exists());
+  }
+
+  @Test
+  public void testStorageAgentRelaunch() throws IOException
+  {
+    AsyncFSStorageAgent storageAgent = new AsyncFSStorageAgent(testMeta.basePath + "/app1", null);
+    storageAgent.setLocalCachePath(testMeta.cacheDir.getPath());
+    storageAgent.save("one", 1, 1);
+    storageAgent.copyToHDFS(1, 1);
+
+    // the relaunched application has a new storage path and keeps the cache key of the original
+    AsyncFSStorageAgent relaunched = new AsyncFSStorageAgent(testMeta.basePath + "/app2", null);
+    relaunched.setLocalCachePath(storageAgent.getLocalCachePath());
+    relaunched.setLocalCacheKey(storageAgent.getLocalCacheKey());
+    relaunched = (AsyncFSStorageAgent)relaunched.readResolve();
+    Assert.assertEquals("cache key", storageAgent.getLocalCacheKey(), relaunched.getLocalCacheKey());
+    Assert.assertEquals("loaded from cache", "one", relaunched.load(1, 1));
+  }
+}
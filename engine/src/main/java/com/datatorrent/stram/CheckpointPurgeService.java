@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.StorageAgent;
+import com.datatorrent.common.util.NameableThreadFactory;
+
+/**
+ * Deletes obsolete operator checkpoints in the background.
+ * <p>
+ * Purge requests are queued per operator and returned immediately, so that heartbeat and event processing never wait
+ * for the file system. All windows pending for an operator are deleted in one batch by a bounded pool of threads, and
+ * the overall delete rate is limited to protect the name node. The service reports the backlog and throughput as
+ * application stats.
+ *
+ * @since 3.5.0
+ */
+public class CheckpointPurgeService
+{
+  private static final Logger LOG = LoggerFactory.getLogger(CheckpointPurgeService.class);
+
+  private final ExecutorService executor;
+  private final long nanosPerDelete;
+  private final Map<Integer, Batch> pending = new HashMap<>();
+  private long nextDeleteNanos;
+
+  private final AtomicLong pendingCount = new AtomicLong();
+  private final AtomicLong purgedCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private final AtomicLong batchCount = new AtomicLong();
+  private volatile long lastBatchMillis;
+
+  private static class Batch
+  {
+    final StorageAgent agent;
+    final int operatorId;
+    TreeSet<Long> windowIds = new TreeSet<>();
+    boolean scheduled;
+
+    Batch(StorageAgent agent, int operatorId)
+    {
+      this.agent = agent;
+      this.operatorId = operatorId;
+    }
+  }
+
+  /**
+   * @param threads number of threads deleting checkpoints
+   * @param maxDeletesPerSecond upper bound for the rate of delete calls, 0 for no limit
+   */
+  public CheckpointPurgeService(int threads, int maxDeletesPerSecond)
+  {
+    this.executor = Executors.newFixedThreadPool(threads, new NameableThreadFactory("CheckpointPurge", true));
+    this.nanosPerDelete = maxDeletesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxDeletesPerSecond : 0;
+  }
+
+  /**
+   * Queue the checkpoint for deletion. Does not block.
+   *
+   * @param agent storage agent of the operator
+   * @param operatorId physical operator id
+   * @param windowId checkpoint window
+   */
+  public void purge(StorageAgent agent, int operatorId, long windowId)
+  {
+    final Batch batch;
+    synchronized (pending) {
+      Batch b = pending.get(operatorId);
+      if (b == null || b.agent != agent) {
+        // a batch for a different agent is already scheduled and will complete independently
+        b = new Batch(agent, operatorId);
+        pending.put(operatorId, b);
+      }
+      if (!b.windowIds.add(windowId)) {
+        return;
+      }
+      pendingCount.incrementAndGet();
+      if (b.scheduled) {
+        return;
+      }
+      b.scheduled = true;
+      batch = b;
+    }
+    submit(batch);
+  }
+
+  private void submit(final Batch batch)
+  {
+    executor.submit(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        TreeSet<Long> windowIds;
+        synchronized (pending) {
+          windowIds = batch.windowIds;
+          batch.windowIds = new TreeSet<>();
+          batch.scheduled = false;
+          if (pending.get(batch.operatorId) == batch) {
+            pending.remove(batch.operatorId);
+          }
+        }
+        delete(batch.agent, batch.operatorId, windowIds);
+      }
+    });
+  }
+
+  private void delete(StorageAgent agent, int operatorId, TreeSet<Long> windowIds)
+  {
+    long start = System.currentTimeMillis();
+    if (agent instanceof StorageAgent.BatchDeleteStorageAgent) {
+      try {
+        acquire(windowIds.size());
+        ((StorageAgent.BatchDeleteStorageAgent)agent).delete(operatorId, windowIds);
+        purgedCount.addAndGet(windowIds.size());
+      } catch (IOException ex) {
+        failedCount.addAndGet(windowIds.size());
+        LOG.error("Failed to purge checkpoints for operator {} for windowIds {}", operatorId, windowIds, ex);
+      } catch (InterruptedException ex) {
+        LOG.debug("Interrupted while purging checkpoints of operator {}", operatorId);
+        Thread.currentThread().interrupt();
+        pendingCount.addAndGet(-windowIds.size());
+        return;
+      }
+      pendingCount.addAndGet(-windowIds.size());
+    } else {
+      int remaining = windowIds.size();
+      for (Long windowId : windowIds) {
+        try {
+          acquire(1);
+          agent.delete(operatorId, windowId);
+          purgedCount.incrementAndGet();
+        } catch (IOException ex) {
+          failedCount.incrementAndGet();
+          LOG.error("Failed to purge checkpoint for operator {} for windowId {}", operatorId, windowId, ex);
+        } catch (InterruptedException ex) {
+          LOG.debug("Interrupted while purging checkpoints of operator {}", operatorId);
+          Thread.currentThread().interrupt();
+          pendingCount.addAndGet(-remaining);
+          return;
+        }
+        pendingCount.decrementAndGet();
+        remaining--;
+      }
+    }
+    batchCount.incrementAndGet();
+    lastBatchMillis = System.currentTimeMillis() - start;
+    LOG.debug("Purged {} checkpoints of operator {} in {}ms", windowIds.size(), operatorId, lastBatchMillis);
+  }
+
+  /**
+   * Wait for the given number of delete permits.
+   */
+  private void acquire(int permits) throws InterruptedException
+  {
+    if (nanosPerDelete == 0) {
+      return;
+    }
+    long waitNanos;
+    synchronized (this) {
+      long now = System.nanoTime();
+      if (nextDeleteNanos < now) {
+        nextDeleteNanos = now;
+      }
+      waitNanos = nextDeleteNanos - now;
+      nextDeleteNanos += nanosPerDelete * permits;
+    }
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  /**
+   * @return number of checkpoints waiting to be deleted
+   */
+  public long getPendingCount()
+  {
+    return pendingCount.get();
+  }
+
+  /**
+   * @return number of checkpoints deleted since start
+   */
+  public long getPurgedCount()
+  {
+    return purgedCount.get();
+  }
+
+  public long getFailedCount()
+  {
+    return failedCount.get();
+  }
+
+  public long getBatchCount()
+  {
+    return batchCount.get();
+  }
+
+  /**
+   * @return duration of the most recent batch in milliseconds
+   */
+  public long getLastBatchMillis()
+  {
+    return lastBatchMillis;
+  }
+
+  /**
+   * Stop accepting work. Queued batches are still processed.
+   */
+  public void shutdown()
+  {
+    executor.shutdown();
+  }
+
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+  {
+    return executor.awaitTermination(timeout, unit);
+  }
+}
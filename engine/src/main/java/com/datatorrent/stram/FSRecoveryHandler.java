@@ -18,6 +18,8 @@
  */
 package com.datatorrent.stram;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -27,7 +29,11 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
 import java.util.EnumSet;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,6 +52,9 @@ import com.datatorrent.stram.util.FSUtil;
 
 /**
  * <p>FSRecoveryHandler class.</p>
+ * <p>
+ * The snapshot is written as a header followed by the deflate compressed serialized state. Snapshots written without
+ * the header, as plain serialized state, can still be restored.</p>
  *
  * @since 0.9.2
  */
@@ -66,6 +75,12 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
   public static final String FILE_SNAPSHOT_BACKUP = "snapshot0";
   private static final String DIRECTORY_RECOVERY = "recovery";
   private static final String FILE_HEARTBEATURI = "heartbeatUri";
+  /**
+   * Marks a compressed snapshot, does not collide with the stream magic of plain serialized snapshots.
+   */
+  private static final short SNAPSHOT_MAGIC = 0x4453;
+  private static final byte SNAPSHOT_VERSION = 1;
+  private static final int BUFFER_SIZE = 64 * 1024;
 
   public FSRecoveryHandler(String appDir, Configuration conf) throws IOException
   {
@@ -168,10 +183,19 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
     }
 
     LOG.debug("Writing checkpoint to {}", snapshotPath);
-    try (FSDataOutputStream fsOutputStream = fs.create(snapshotPath);
-        ObjectOutputStream oos = new ObjectOutputStream(fsOutputStream)) {
-      oos.writeObject(state);
+    long start = System.currentTimeMillis();
+    try (FSDataOutputStream fsOutputStream = fs.create(snapshotPath)) {
+      fsOutputStream.writeShort(SNAPSHOT_MAGIC);
+      fsOutputStream.writeByte(SNAPSHOT_VERSION);
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(
+          new DeflaterOutputStream(fsOutputStream, deflater, BUFFER_SIZE), BUFFER_SIZE))) {
+        oos.writeObject(state);
+      } finally {
+        deflater.end();
+      }
     }
+    LOG.debug("Wrote checkpoint in {}ms", System.currentTimeMillis() - start);
     // remove snapshot backup
     if (fs.exists(snapshotBackupPath) && !fs.delete(snapshotBackupPath, false)) {
       throw new IOException("Failed to remove " + snapshotBackupPath);
@@ -224,7 +248,25 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
     }
 
     LOG.debug("Reading checkpoint {}", snapshotPath);
-    InputStream is = fc.open(snapshotPath);
+    long start = System.currentTimeMillis();
+    DataInputStream dis = new DataInputStream(new BufferedInputStream(fc.open(snapshotPath), BUFFER_SIZE));
+    InputStream is;
+    dis.mark(2);
+    short magic = dis.readShort();
+    if (magic == SNAPSHOT_MAGIC) {
+      byte version = dis.readByte();
+      if (version != SNAPSHOT_VERSION) {
+        dis.close();
+        throw new IOException("Unsupported snapshot version " + version);
+      }
+      is = new BufferedInputStream(new InflaterInputStream(dis), BUFFER_SIZE);
+    } else if (magic == ObjectStreamConstants.STREAM_MAGIC) {
+      dis.reset();
+      is = dis;
+    } else {
+      dis.close();
+      throw new IOException("Unknown snapshot format " + snapshotPath);
+    }
     // indeterministic class loading behavior
     // http://stackoverflow.com/questions/9110677/readresolve-not-working-an-instance-of-guavas-serializedform-appears
     final ClassLoader loader = Thread.currentThread().getContextClassLoader();
@@ -237,7 +279,9 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
         return Class.forName(objectStreamClass.getName(), true, loader);
       }
     }) {
-      return ois.readObject();
+      Object state = ois.readObject();
+      LOG.debug("Read checkpoint in {}ms", System.currentTimeMillis() - start);
+      return state;
     } catch (ClassNotFoundException cnfe) {
       throw new IOException("Failed to read checkpointed state", cnfe);
     }
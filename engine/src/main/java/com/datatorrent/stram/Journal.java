@@ -21,8 +21,17 @@ package com.datatorrent.stram;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nullable;
@@ -30,11 +39,17 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.commons.io.IOUtils;
+
 import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 
+import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.stram.plan.physical.PTContainer;
 import com.datatorrent.stram.plan.physical.PTOperator;
 
@@ -42,6 +57,10 @@ import com.datatorrent.stram.plan.physical.PTOperator;
  * Write ahead log for DAG changes.
  * Operations need to be registered with the journal instance before writing.
  * Registered prototype instances will be used to apply changes on read.
+ * <p>
+ * By default every write is flushed to the output stream before it returns. With group commit enabled, writes are
+ * appended to a buffer and all writes that arrive within the commit interval are flushed together. The future returned
+ * by {@link #write(Recoverable)} completes once the operation is flushed.
  *
  * @since 0.9.2
  */
@@ -54,7 +73,8 @@ public final class Journal
     OPERATOR_STATE(PTOperator.SET_OPERATOR_STATE),
     CONTAINER_STATE(PTContainer.SET_CONTAINER_STATE),
     OPERATOR_PROPERTY(StreamingContainerManager.SET_OPERATOR_PROPERTY),
-    PHYSICAL_OPERATOR_PROPERTY(StreamingContainerManager.SET_PHYSICAL_OPERATOR_PROPERTY);
+    PHYSICAL_OPERATOR_PROPERTY(StreamingContainerManager.SET_PHYSICAL_OPERATOR_PROPERTY),
+    CONTAINER_OPERATORS(PTContainer.SET_CONTAINER_OPERATORS);
 
     private static final Map<Class<? extends Recoverable>, Integer> classToId;
 
@@ -89,11 +109,61 @@ public final class Journal
     void read(Object object, Input in) throws KryoException;
 
     void write(Output out) throws KryoException;
+
+    /**
+     * Read the operation without applying it.
+     *
+     * @param in
+     * @return key of what the operation changes, a later operation with the same key supersedes this one on replay;
+     * null when the operation is never superseded
+     * @throws KryoException
+     */
+    Object readKey(Input in) throws KryoException;
+  }
+
+  /**
+   * Output to the journal stream. With group commit, operations are first written to the buffer, which is guarded by
+   * its own lock so that writers are not blocked while a batch is flushed to the stream.
+   */
+  private static class JournalOutput extends Output
+  {
+    private final Output buffer = new Output(4096, -1);
+    private List<SettableFuture<Void>> pending = new ArrayList<>();
+    private boolean flushScheduled;
+    private boolean closed;
+    private volatile long drainedBytes;
+
+    JournalOutput(OutputStream out)
+    {
+      super(4096, -1);
+      setOutputStream(out);
+    }
+
+    @Override
+    public void flush() throws KryoException
+    {
+      super.flush();
+      // Kryo does not flush internal output stream during flush. We need to flush it explicitly.
+      try {
+        getOutputStream().flush();
+      } catch (IOException e) {
+        throw new KryoException(e);
+      }
+    }
   }
 
   private final StreamingContainerManager scm;
-  private final AtomicReference<Output> output;
+  private final AtomicReference<JournalOutput> output;
   private final AtomicBoolean replayMode;
+  private volatile int groupCommitMillis;
+  private ScheduledExecutorService flusher;
+
+  private final AtomicLong writeCount = new AtomicLong();
+  private final AtomicLong batchCount = new AtomicLong();
+  private volatile int lastBatchSize;
+  private volatile int maxBatchSize;
+  private volatile long lastFlushNanos;
+  private volatile long maxFlushNanos;
 
   public Journal(StreamingContainerManager scm)
   {
@@ -102,38 +172,57 @@ public final class Journal
     replayMode = new AtomicBoolean(false);
   }
 
-  public void setOutputStream(@Nullable final OutputStream out) throws IOException
+  /**
+   * Set the interval within which writes are collected into one flush, 0 flushes every write.
+   *
+   * @param groupCommitMillis
+   */
+  public synchronized void setGroupCommitMillis(int groupCommitMillis)
   {
-    final Output output;
-    if (out != null) {
-      output = new Output(4096, -1)
-      {
-        @Override
-        public void flush() throws KryoException
-        {
-          super.flush();
-          // Kryo does not flush internal output stream during flush. We need to flush it explicitly.
-          try {
-            getOutputStream().flush();
-          } catch (IOException e) {
-            throw new KryoException(e);
-          }
-        }
-      };
-      output.setOutputStream(out);
-    } else {
-      output = null;
+    this.groupCommitMillis = groupCommitMillis;
+    if (groupCommitMillis > 0 && flusher == null) {
+      flusher = Executors.newSingleThreadScheduledExecutor(new NameableThreadFactory("JournalFlush", true));
     }
+  }
+
+  public int getGroupCommitMillis()
+  {
+    return groupCommitMillis;
+  }
+
+  public void setOutputStream(@Nullable final OutputStream out) throws IOException
+  {
+    final JournalOutput output = out != null ? new JournalOutput(out) : null;
 
-    final Output oldOut = this.output.getAndSet(output);
+    final JournalOutput oldOut = this.output.getAndSet(output);
     if (oldOut != null && oldOut.getOutputStream() != out) {
       synchronized (oldOut) {
-        oldOut.close();
+        // operations written before the switch still go to the old stream
+        List<SettableFuture<Void>> batch = drain(oldOut, true);
+        KryoException failure = null;
+        try {
+          if (batch != null) {
+            oldOut.flush();
+          }
+          oldOut.close();
+        } catch (KryoException e) {
+          failure = e;
+        }
+        complete(batch, failure);
+        if (failure != null) {
+          throw failure;
+        }
       }
     }
   }
 
-  final void write(Recoverable op)
+  /**
+   * Write the operation to the journal.
+   *
+   * @param op
+   * @return future that completes when the operation was flushed to the journal stream
+   */
+  final ListenableFuture<Void> write(Recoverable op)
   {
     if (replayMode.get()) {
       throw new IllegalStateException("Request to write while journal is replaying operations");
@@ -143,16 +232,45 @@ public final class Journal
       throw new IllegalArgumentException("Class not registered " + op.getClass());
     }
     while (true) {
-      final Output out = output.get();
-      if (out != null) {
+      final JournalOutput out = output.get();
+      if (out != null && groupCommitMillis > 0) {
+        synchronized (out.buffer) {
+          if (!out.closed) {
+            LOG.debug("WAL write {}", RecoverableOperation.get(classId));
+            int position = out.buffer.position();
+            try {
+              out.buffer.writeInt(classId);
+              op.write(out.buffer);
+            } catch (KryoException e) {
+              // do not leave a partial record in the journal
+              out.buffer.setPosition(position);
+              throw e;
+            }
+            writeCount.incrementAndGet();
+            SettableFuture<Void> future = SettableFuture.create();
+            out.pending.add(future);
+            if (!out.flushScheduled) {
+              out.flushScheduled = true;
+              scheduleFlush(out);
+            }
+            return future;
+          }
+        }
+      } else if (out != null) {
         // need to atomically write id, operation and flush the output stream
         synchronized (out) {
           try {
             LOG.debug("WAL write {}", RecoverableOperation.get(classId));
+            long start = System.nanoTime();
+            // operations buffered before group commit was turned off go first
+            List<SettableFuture<Void>> batch = drain(out, false);
             out.writeInt(classId);
             op.write(out);
             out.flush();
-            break;
+            writeCount.incrementAndGet();
+            complete(batch, null);
+            recordBatch(batch == null ? 1 : batch.size() + 1, System.nanoTime() - start);
+            return Futures.immediateFuture(null);
           } catch (KryoException e) {
             // check that no other threads sneaked between get() and synchronized block and set output stream to a new
             // stream or null leading to the current stream being closed
@@ -163,37 +281,253 @@ public final class Journal
         }
       } else {
         LOG.warn("Journal output stream is null. Skipping write to the WAL.");
-        break;
+        return Futures.immediateFuture(null);
+      }
+    }
+  }
+
+  /**
+   * @return future that completes when all operations written so far were flushed
+   */
+  public ListenableFuture<Void> sync()
+  {
+    final JournalOutput out = output.get();
+    if (out != null) {
+      synchronized (out.buffer) {
+        if (!out.pending.isEmpty()) {
+          return out.pending.get(out.pending.size() - 1);
+        }
+      }
+    }
+    return Futures.immediateFuture(null);
+  }
+
+  private void scheduleFlush(final JournalOutput out)
+  {
+    ScheduledExecutorService executor;
+    synchronized (this) {
+      executor = flusher;
+    }
+    try {
+      if (executor != null) {
+        executor.schedule(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            flush(out);
+          }
+        }, groupCommitMillis, TimeUnit.MILLISECONDS);
+        return;
+      }
+    } catch (RejectedExecutionException e) {
+      LOG.debug("Journal flush not scheduled after shutdown");
+    }
+    // pending operations will be flushed by the next write or the close of the output
+    out.flushScheduled = false;
+  }
+
+  private void flush(JournalOutput out)
+  {
+    synchronized (out) {
+      long start = System.nanoTime();
+      List<SettableFuture<Void>> batch = drain(out, false);
+      if (batch == null) {
+        return;
+      }
+      KryoException failure = null;
+      try {
+        out.flush();
+      } catch (KryoException e) {
+        LOG.error("Failed to flush {} journal entries", batch.size(), e);
+        failure = e;
+      }
+      recordBatch(batch.size(), System.nanoTime() - start);
+      complete(batch, failure);
+    }
+  }
+
+  /**
+   * Move the buffered operations to the stream. The caller holds the lock of the output. When the stream cannot be
+   * written, the futures of the operations fail right away.
+   *
+   * @return the futures of the moved operations or null when there were none to be flushed
+   */
+  private static List<SettableFuture<Void>> drain(JournalOutput out, boolean close)
+  {
+    synchronized (out.buffer) {
+      out.flushScheduled = false;
+      out.closed |= close;
+      if (out.pending.isEmpty()) {
+        return null;
+      }
+      List<SettableFuture<Void>> batch = out.pending;
+      out.pending = new ArrayList<>();
+      try {
+        // the output itself holds no data between writes, pass the batch directly to the stream
+        out.getOutputStream().write(out.buffer.getBuffer(), 0, out.buffer.position());
+        out.drainedBytes += out.buffer.position();
+      } catch (IOException e) {
+        LOG.error("Failed to write {} journal entries", batch.size(), e);
+        complete(batch, e);
+        return null;
+      } finally {
+        out.buffer.clear();
+      }
+      return batch;
+    }
+  }
+
+  private static void complete(List<SettableFuture<Void>> batch, Throwable failure)
+  {
+    if (batch != null) {
+      for (SettableFuture<Void> future : batch) {
+        if (failure == null) {
+          future.set(null);
+        } else {
+          future.setException(failure);
+        }
+      }
+    }
+  }
+
+  private void recordBatch(int size, long nanos)
+  {
+    batchCount.incrementAndGet();
+    lastBatchSize = size;
+    lastFlushNanos = nanos;
+    if (size > maxBatchSize) {
+      maxBatchSize = size;
+    }
+    if (nanos > maxFlushNanos) {
+      maxFlushNanos = nanos;
+    }
+  }
+
+  /**
+   * Flush pending operations and stop the group commit thread.
+   */
+  public void shutdown()
+  {
+    groupCommitMillis = 0;
+    JournalOutput out = output.get();
+    if (out != null) {
+      flush(out);
+    }
+    synchronized (this) {
+      if (flusher != null) {
+        flusher.shutdown();
+        flusher = null;
       }
     }
   }
 
+  /**
+   * @return number of bytes written to the current journal stream
+   */
+  public long getLogSize()
+  {
+    JournalOutput out = output.get();
+    return out == null ? 0 : out.total() + out.drainedBytes;
+  }
+
+  /**
+   * @return number of operations written to the journal stream
+   */
+  public long getWriteCount()
+  {
+    return writeCount.get();
+  }
+
+  /**
+   * @return number of flushes of the journal stream
+   */
+  public long getBatchCount()
+  {
+    return batchCount.get();
+  }
+
+  public int getLastBatchSize()
+  {
+    return lastBatchSize;
+  }
+
+  public int getMaxBatchSize()
+  {
+    return maxBatchSize;
+  }
+
+  public long getLastFlushMillis()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(lastFlushNanos);
+  }
+
+  public long getMaxFlushMillis()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(maxFlushNanos);
+  }
+
+  /**
+   * Apply the operations of the log. The log is read completely before operations are applied, an operation that is
+   * followed by an operation of the same type with the same key is skipped, as its effect would be overwritten.
+   *
+   * @param input log
+   */
   final void replay(final InputStream input)
   {
     if (replayMode.compareAndSet(false, true)) {
-      Input in = new Input(input);
       try {
         LOG.debug("Start replaying WAL");
+        final byte[] log;
+        try {
+          log = IOUtils.toByteArray(input);
+        } catch (IOException e) {
+          throw new KryoException(e);
+        }
+        // operation id and offsets of each record, superseded records are set to null
+        final List<int[]> records = new ArrayList<>();
+        final Map<List<Object>, Integer> lastByKey = new HashMap<>();
+        final Input in = new Input(log);
         while (!in.eof()) {
           final int opId = in.readInt();
           final RecoverableOperation recoverableOperation = RecoverableOperation.get(opId);
           if (recoverableOperation == null) {
             throw new IllegalArgumentException("No reader registered for id " + opId);
           }
+          final int start = in.position();
+          final Object key = recoverableOperation.operation.readKey(in);
+          if (key != null) {
+            Integer previous = lastByKey.put(Arrays.asList(opId, key), records.size());
+            if (previous != null) {
+              records.set(previous, null);
+            }
+          }
+          records.add(new int[]{opId, start, in.position()});
+        }
+
+        int skipped = 0;
+        for (int[] record : records) {
+          if (record == null) {
+            skipped++;
+            continue;
+          }
+          final RecoverableOperation recoverableOperation = RecoverableOperation.get(record[0]);
+          final Input recordInput = new Input(log, record[1], record[2] - record[1]);
           LOG.debug("Replaying {}", recoverableOperation);
           switch (recoverableOperation) {
             case OPERATOR_STATE:
             case CONTAINER_STATE:
-              recoverableOperation.operation.read(scm.getPhysicalPlan(), in);
+              recoverableOperation.operation.read(scm.getPhysicalPlan(), recordInput);
               break;
             case OPERATOR_PROPERTY:
             case PHYSICAL_OPERATOR_PROPERTY:
-              recoverableOperation.operation.read(scm, in);
+              recoverableOperation.operation.read(scm, recordInput);
               break;
             default:
               throw new IllegalArgumentException("Unsupported recoverable operation " + recoverableOperation);
           }
         }
+        LOG.info("Replayed {} journal entries, skipped {} superseded entries", records.size() - skipped, skipped);
       } finally {
         LOG.debug("Done replaying WAL");
         replayMode.set(false);
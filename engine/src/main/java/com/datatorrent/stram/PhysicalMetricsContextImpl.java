@@ -32,7 +32,7 @@ public class PhysicalMetricsContextImpl implements AutoMetric.PhysicalMetricsCon
   private final int operatorId;
   private final Map<String, Object> metrics;
 
-  PhysicalMetricsContextImpl(int operatorId, Map<String, Object> metrics)
+  public PhysicalMetricsContextImpl(int operatorId, Map<String, Object> metrics)
   {
     this.operatorId = operatorId;
     this.metrics = metrics;
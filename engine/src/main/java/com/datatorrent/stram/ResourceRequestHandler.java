@@ -39,6 +39,10 @@ import org.apache.hadoop.yarn.util.Records;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.StorageAgent;
+import com.datatorrent.api.annotation.Stateless;
+import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.stram.StreamingContainerAgent.ContainerStartRequest;
 import com.datatorrent.stram.plan.physical.PTContainer;
 import com.datatorrent.stram.plan.physical.PTOperator;
@@ -131,6 +135,14 @@ public class ResourceRequestHandler
        */
       return new ContainerRequest(capability, nodes, racks, Priority.newInstance(priority), false);
     }
+    if (first) {
+      // soft preference for the node that holds local copies of the checkpoints to recover from
+      String cacheHost = getCheckpointCacheHost(csr.container);
+      if (cacheHost != null) {
+        LOG.info("Requesting host {} with local checkpoint copies for {}", cacheHost, csr.container.toIdStateString());
+        nodes = new String[]{cacheHost};
+      }
+    }
     // For now, only memory is supported so we set memory requirements
     return new ContainerRequest(capability, nodes, racks, Priority.newInstance(priority));
   }
@@ -273,6 +285,43 @@ public class ResourceRequestHandler
     return host;
   }
 
+  /**
+   * Get the host on which the container previously ran, if its operators have state that can be recovered from the
+   * node-local checkpoint cache and the node has the resources available.
+   * @param c container
+   * @return host or null if there is no preference
+   */
+  public String getCheckpointCacheHost(PTContainer c)
+  {
+    if (c.host == null || c.getState() != PTContainer.State.KILLED) {
+      return null;
+    }
+    boolean cached = false;
+    for (PTOperator oper : c.getOperators()) {
+      StorageAgent agent = oper.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT);
+      if (agent instanceof AsyncFSStorageAgent && ((AsyncFSStorageAgent)agent).getLocalCachePath() != null
+          && !oper.isOperatorStateLess() && oper.getRecoveryCheckpoint().windowId != Stateless.WINDOW_ID) {
+        cached = true;
+        break;
+      }
+    }
+    if (!cached) {
+      return null;
+    }
+    // container host is recorded as node id
+    String host = c.host.split(":")[0];
+    NodeReport report = nodeReportMap.get(host);
+    if (report == null || report.getNodeState() != NodeState.RUNNING) {
+      return null;
+    }
+    int memAvailable = report.getCapability().getMemory() - report.getUsed().getMemory();
+    int vCoresAvailable = report.getCapability().getVirtualCores() - report.getUsed().getVirtualCores();
+    if (memAvailable < c.getRequiredMemoryMB() || vCoresAvailable < c.getRequiredVCores()) {
+      return null;
+    }
+    return host;
+  }
+
   /**
    * Populate list of nodes where container cannot be allocated due to anti-affinity constraints
    * @param c container
@@ -106,6 +106,7 @@ import com.datatorrent.stram.security.StramDelegationTokenManager;
 import com.datatorrent.stram.security.StramUserLogin;
 import com.datatorrent.stram.security.StramWSFilterInitializer;
 import com.datatorrent.stram.util.SecurityUtils;
+import com.datatorrent.stram.util.ShardedExecutor;
 import com.datatorrent.stram.webapp.AppInfo;
 import com.datatorrent.stram.webapp.StramWebApp;
 
@@ -351,6 +352,42 @@ public class StreamingAppMasterService extends CompositeService
       return result;
     }
 
+    @AutoMetric
+    @Override
+    public long getPendingCheckpointPurges()
+    {
+      return dnmgr.getCheckpointPurgeService().getPendingCount();
+    }
+
+    @AutoMetric
+    @Override
+    public long getPurgedCheckpoints()
+    {
+      return dnmgr.getCheckpointPurgeService().getPurgedCount();
+    }
+
+    @AutoMetric
+    @Override
+    public long getQueuedHeartbeatStats()
+    {
+      ShardedExecutor statsAggregator = dnmgr.getStatsAggregator();
+      return statsAggregator == null ? 0 : statsAggregator.getQueueDepth();
+    }
+
+    @AutoMetric
+    @Override
+    public int getJournalBatchSize()
+    {
+      return dnmgr.getJournal().getLastBatchSize();
+    }
+
+    @AutoMetric
+    @Override
+    public long getJournalFlushMillis()
+    {
+      return dnmgr.getJournal().getLastFlushMillis();
+    }
+
     @Override
     public List<Integer> getCriticalPath()
     {
@@ -358,6 +395,12 @@ public class StreamingAppMasterService extends CompositeService
       return (criticalPathInfo == null) ? null : criticalPathInfo.path;
     }
 
+    @Override
+    public Map<String, StreamingContainerManager.PathLatencyInfo> getPathLatencies()
+    {
+      return dnmgr.getPathLatencies();
+    }
+
     @AutoMetric
     @Override
     public long getLatency()
@@ -44,7 +44,9 @@ import com.datatorrent.api.Operator.ProcessingMode;
 import com.datatorrent.api.StorageAgent;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.api.annotation.Stateless;
+import com.datatorrent.common.util.FSStorageAgent;
 import com.datatorrent.stram.api.Checkpoint;
+import com.datatorrent.stram.api.HeartbeatStatsCodec;
 import com.datatorrent.stram.api.OperatorDeployInfo;
 import com.datatorrent.stram.api.OperatorDeployInfo.InputDeployInfo;
 import com.datatorrent.stram.api.OperatorDeployInfo.OperatorType;
@@ -411,7 +413,9 @@ public class StreamingContainerAgent
       }
       // pick checkpoint most recently written
       try {
-        long[] windowIds = agent.getWindowIds(oper.getId());
+        // the catalog may not yet contain the most recent checkpoint
+        long[] windowIds = agent instanceof FSStorageAgent ? ((FSStorageAgent)agent).listWindowIds(oper.getId())
+            : agent.getWindowIds(oper.getId());
         long checkpointId = Stateless.WINDOW_ID;
         for (long windowId : windowIds) {
           if (windowId > checkpointId) {
@@ -439,6 +443,13 @@ public class StreamingContainerAgent
     if (oper.isOperatorStateLess()) {
       ndi.contextAttributes.put(OperatorContext.STATELESS, true);
     }
+    if (!oper.isUnifier() && oper.getOperatorMeta().getValue(LogicalPlan.METRICS_CONTAINER_AGGREGATION) &&
+        oper.getOperatorMeta().getMetricAggregatorMeta() != null) {
+      ndi.metricsAggregator = oper.getOperatorMeta().getMetricAggregatorMeta().getAssociativeAggregator();
+      if (ndi.metricsAggregator == null) {
+        LOG.warn("Metrics of {} are aggregated by the master, the aggregator is not associative", oper);
+      }
+    }
     return ndi;
   }
 
@@ -477,4 +488,9 @@ public class StreamingContainerAgent
   }
 
   public volatile String containerStackTrace = null;
+
+  /**
+   * State for the delta encoded operator stats sent by the container.
+   */
+  final HeartbeatStatsCodec.Decoder statsDecoder = new HeartbeatStatsCodec.Decoder();
 }
@@ -29,6 +29,7 @@ import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -41,7 +42,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
@@ -50,9 +50,9 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -116,6 +116,7 @@ import com.datatorrent.bufferserver.auth.AuthManager;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.common.experimental.AppData;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
+import com.datatorrent.common.util.CheckpointCatalog;
 import com.datatorrent.common.util.FSStorageAgent;
 import com.datatorrent.common.util.NumberAggregate;
 import com.datatorrent.common.util.Pair;
@@ -149,6 +150,7 @@ import com.datatorrent.stram.plan.logical.LogicalPlanConfiguration;
 import com.datatorrent.stram.plan.logical.Operators;
 import com.datatorrent.stram.plan.logical.Operators.PortContextPair;
 import com.datatorrent.stram.plan.logical.requests.LogicalPlanRequest;
+import com.datatorrent.stram.plan.physical.ContainerPacking;
 import com.datatorrent.stram.plan.physical.OperatorStatus;
 import com.datatorrent.stram.plan.physical.OperatorStatus.PortStatus;
 import com.datatorrent.stram.plan.physical.PTContainer;
@@ -162,8 +164,11 @@ import com.datatorrent.stram.plan.physical.PlanModifier;
 import com.datatorrent.stram.util.ConfigUtils;
 import com.datatorrent.stram.util.FSJsonLineFile;
 import com.datatorrent.stram.util.MovingAverage.MovingAverageLong;
+import com.datatorrent.stram.util.MovingPercentile;
+import com.datatorrent.stram.util.ShardedExecutor;
 import com.datatorrent.stram.util.SharedPubSubWebSocketClient;
 import com.datatorrent.stram.util.WebServicesClient;
+import com.datatorrent.stram.util.WindowMetricsBuffer;
 import com.datatorrent.stram.webapp.ContainerInfo;
 import com.datatorrent.stram.webapp.LogicalOperatorInfo;
 import com.datatorrent.stram.webapp.OperatorAggregationInfo;
@@ -188,6 +193,7 @@ import net.engio.mbassy.bus.config.BusConfiguration;
 public class StreamingContainerManager implements PlanContext
 {
   private static final Logger LOG = LoggerFactory.getLogger(StreamingContainerManager.class);
+  private static final int PATH_LATENCY_SAMPLES = 256;
   public static final String GATEWAY_LOGIN_URL_PATH = "/ws/v2/login";
   public static final String BUILTIN_APPDATA_URL = "builtin";
   public static final String CONTAINERS_INFO_FILENAME_FORMAT = "containers_%d.json";
@@ -218,8 +224,17 @@ public class StreamingContainerManager implements PlanContext
   private final Map<String, StreamingContainerAgent> containers = new ConcurrentHashMap<>();
   private final List<Pair<PTOperator, Long>> purgeCheckpoints = new ArrayList<>();
   private Map<OperatorMeta, Set<OperatorMeta>> checkpointGroups;
+  // state, checkpoints and recovery checkpoint of each operator as of the last checkpoint update
+  private final Map<PTOperator, long[]> checkpointSignatures = new HashMap<>();
+  private int checkpointSignaturesDeployCnt = -1;
   private final Map<Long, Set<PTOperator>> shutdownOperators = new HashMap<>();
-  private CriticalPathInfo criticalPathInfo;
+  private volatile CriticalPathInfo criticalPathInfo;
+  private final AtomicBoolean criticalPathStale = new AtomicBoolean();
+  // end-to-end latency samples of complete windows by logical path, accessed by the heartbeat monitor only
+  private final Map<String, MovingPercentile> pathLatencySamples = new HashMap<>();
+  private final Map<String, Long> pathLatencyLastSample = new HashMap<>();
+  private long pathLatencyWindowCount;
+  private volatile Map<String, PathLatencyInfo> pathLatencies = Collections.emptyMap();
   private final ConcurrentMap<PTOperator, PTOperator> reportStats = new ConcurrentHashMap<>();
   private final AtomicBoolean deployChangeInProgress = new AtomicBoolean();
   private int deployChangeCnt;
@@ -233,19 +248,23 @@ public class StreamingContainerManager implements PlanContext
   // (operator id, port name) to timestamp
   private final Map<Pair<Integer, String>, Long> operatorPortLastEndWindowTimestamps = Maps.newConcurrentMap();
   private final Map<Integer, Long> operatorLastEndWindowTimestamps = Maps.newConcurrentMap();
-  private long lastStatsTimestamp = System.currentTimeMillis();
+  // advanced by the stats threads, see HEARTBEAT_STATS_THREADS
+  private final AtomicLong lastStatsTimestamp = new AtomicLong(System.currentTimeMillis());
   private long currentEndWindowStatsWindowId;
-  private long completeEndWindowStatsWindowId;
+  private final AtomicLong completeEndWindowStatsWindowId = new AtomicLong();
   private final ConcurrentHashMap<String, MovingAverageLong> rpcLatencies = new ConcurrentHashMap<>();
   private final AtomicLong nodeToStramRequestIds = new AtomicLong(1);
   private int allocatedMemoryMB = 0;
   private List<AppDataSource> appDataSources = null;
   private final Cache<Long, Object> commandResponse = CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.MINUTES).build();
   private transient ExecutorService poolExecutor;
+  private transient CheckpointPurgeService purgeService;
+  private transient ShardedExecutor statsAggregator;
   private FileContext fileContext;
+  private final Map<String, CheckpointCatalog> checkpointCatalogs = Maps.newHashMap();
 
   //logic operator name to a queue of logical metrics. this gets cleared periodically
-  private final Map<String, Queue<Pair<Long, Map<String, Object>>>> logicalMetrics = Maps.newConcurrentMap();
+  private final Map<String, WindowMetricsBuffer> logicalMetrics = Maps.newConcurrentMap();
   //logical operator name to latest logical metrics.
   private final Map<String, Map<String, Object>> latestLogicalMetrics = Maps.newHashMap();
 
@@ -284,26 +303,62 @@ public class StreamingContainerManager implements PlanContext
     Map<String, Object> metrics;
   }
 
+  /**
+   * Published to readers on other threads, the path is an unmodifiable copy.
+   */
   public static class CriticalPathInfo
   {
     long latency;
-    final LinkedList<Integer> path;
+    final List<Integer> path;
 
     public CriticalPathInfo()
     {
-      this.path = new LinkedList<>();
+      this.path = Collections.emptyList();
     }
 
-    private CriticalPathInfo(long latency, LinkedList<Integer> path)
+    private CriticalPathInfo(long latency, List<Integer> path)
     {
       this.latency = latency;
-      this.path = path;
+      this.path = Collections.unmodifiableList(new ArrayList<>(path));
     }
 
     @Override
     protected Object clone() throws CloneNotSupportedException
     {
-      return new CriticalPathInfo(this.latency, (LinkedList<Integer>)this.path.clone());
+      return new CriticalPathInfo(this.latency, this.path);
+    }
+  }
+
+  /**
+   * Percentiles of the end-to-end latency of recent windows along a logical path, from the input operator to the
+   * output operator following the slowest upstream operators.
+   */
+  public static class PathLatencyInfo
+  {
+    private final long p50;
+    private final long p99;
+    private final int samples;
+
+    private PathLatencyInfo(long p50, long p99, int samples)
+    {
+      this.p50 = p50;
+      this.p99 = p99;
+      this.samples = samples;
+    }
+
+    public long getP50()
+    {
+      return p50;
+    }
+
+    public long getP99()
+    {
+      return p99;
+    }
+
+    public int getSamples()
+    {
+      return samples;
     }
   }
 
@@ -342,6 +397,15 @@ public class StreamingContainerManager implements PlanContext
       scm.setOperatorProperty(logicalOperator, propertyName, propertyValue);
     }
 
+    @Override
+    public Object readKey(final Input in) throws KryoException
+    {
+      final String operatorName = in.readString();
+      final String propertyName = in.readString();
+      in.readString();
+      return Arrays.asList(operatorName, propertyName);
+    }
+
     @Override
     public void write(final Output out) throws KryoException
     {
@@ -386,6 +450,15 @@ public class StreamingContainerManager implements PlanContext
       scm.setPhysicalOperatorProperty(o, propertyName, propertyValue);
     }
 
+    @Override
+    public Object readKey(final Input in) throws KryoException
+    {
+      final int operatorId = in.readInt();
+      final String propertyName = in.readString();
+      in.readString();
+      return Arrays.asList(operatorId, propertyName);
+    }
+
     @Override
     public void write(final Output out) throws KryoException
     {
@@ -418,6 +491,7 @@ public class StreamingContainerManager implements PlanContext
     this.plan = new PhysicalPlan(dag, this);
     this.journal = new Journal(this);
     init(enableEventRecording);
+    setupCheckpointCatalogs(true);
   }
 
   private StreamingContainerManager(CheckpointState checkpointedState, boolean enableEventRecording)
@@ -429,6 +503,7 @@ public class StreamingContainerManager implements PlanContext
     this.eventBus = new MBassador<>(BusConfiguration.Default(1, 1, 1));
     this.journal = new Journal(this);
     init(enableEventRecording);
+    setupCheckpointCatalogs(false);
   }
 
   private void init(boolean enableEventRecording)
@@ -436,6 +511,14 @@ public class StreamingContainerManager implements PlanContext
     setupWsClient();
     setupRecording(enableEventRecording);
     setupStringCodecs();
+    purgeService = new CheckpointPurgeService(getLogicalPlan().getValue(LogicalPlan.CHECKPOINT_PURGE_THREADS),
+        getLogicalPlan().getValue(LogicalPlan.CHECKPOINT_PURGE_RATE));
+    int statsThreads = getLogicalPlan().getValue(LogicalPlan.HEARTBEAT_STATS_THREADS);
+    if (statsThreads > 0) {
+      statsAggregator = new ShardedExecutor("HeartbeatStats", statsThreads,
+          getLogicalPlan().getValue(LogicalPlan.HEARTBEAT_STATS_QUEUE_CAPACITY));
+    }
+    journal.setGroupCommitMillis(getLogicalPlan().getValue(LogicalPlan.JOURNAL_GROUP_COMMIT_MILLIS));
 
     try {
       Path file = new Path(this.vars.appPath);
@@ -453,6 +536,65 @@ public class StreamingContainerManager implements PlanContext
     }
   }
 
+  /**
+   * Attach a checkpoint catalog to the file system storage agents, so that the window ids of saved checkpoints can be
+   * looked up without listing the operator directories. Operators that are not in the catalog, because it was missing
+   * or corrupt, are looked up by listing and then recorded.
+   *
+   * @param seed record the checkpoints of the current plan when the catalog does not exist yet
+   */
+  private void setupCheckpointCatalogs(boolean seed)
+  {
+    for (PTOperator oper : plan.getAllOperators().values()) {
+      StorageAgent sa = oper.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT);
+      if (!(sa instanceof FSStorageAgent) || ((FSStorageAgent)sa).getCheckpointCatalog() != null) {
+        continue;
+      }
+      FSStorageAgent fssa = (FSStorageAgent)sa;
+      CheckpointCatalog catalog = checkpointCatalogs.get(fssa.path);
+      try {
+        if (catalog == null) {
+          URI uri = new Path(fssa.path).toUri();
+          Configuration config = new YarnConfiguration();
+          FileContext fc = uri.getScheme() == null ? FileContext.getFileContext(config) : FileContext.getFileContext(uri, config);
+          catalog = new CheckpointCatalog(fc, fssa.path);
+          boolean exists = catalog.open();
+          if (!exists && seed) {
+            // new application, the initial checkpoints were written by the plan before the catalog was available
+            for (PTOperator o : plan.getAllOperators().values()) {
+              if (o.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT) == sa && !o.isOperatorStateLess()) {
+                catalog.recordSave(o.getId(), o.getRecoveryCheckpoint().windowId);
+                for (Checkpoint checkpoint : o.checkpoints) {
+                  catalog.recordSave(o.getId(), checkpoint.windowId);
+                }
+              }
+            }
+            catalog.flush();
+          }
+          checkpointCatalogs.put(fssa.path, catalog);
+        }
+        fssa.setCheckpointCatalog(catalog);
+      } catch (IOException e) {
+        LOG.warn("Failed to open checkpoint catalog for {}, using directory listings", fssa.path, e);
+        fssa.setCheckpointCatalog(null);
+        checkpointCatalogs.put(fssa.path, null);
+      }
+    }
+  }
+
+  private void flushCheckpointCatalogs()
+  {
+    for (Map.Entry<String, CheckpointCatalog> e : checkpointCatalogs.entrySet()) {
+      if (e.getValue() != null) {
+        try {
+          e.getValue().flush();
+        } catch (IOException ex) {
+          LOG.warn("Failed to write checkpoint catalog for {}", e.getKey(), ex);
+        }
+      }
+    }
+  }
+
   public Journal getJournal()
   {
     return journal;
@@ -581,6 +723,29 @@ public class StreamingContainerManager implements PlanContext
     if (poolExecutor != null) {
       poolExecutor.shutdown();
     }
+    if (purgeService != null) {
+      purgeService.shutdown();
+    }
+    if (statsAggregator != null) {
+      statsAggregator.shutdown();
+    }
+    journal.shutdown();
+    for (PTOperator oper : plan.getAllOperators().values()) {
+      StorageAgent sa = oper.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT);
+      if (sa instanceof FSStorageAgent) {
+        ((FSStorageAgent)sa).setCheckpointCatalog(null);
+      }
+    }
+    for (Map.Entry<String, CheckpointCatalog> e : checkpointCatalogs.entrySet()) {
+      if (e.getValue() != null) {
+        try {
+          e.getValue().close();
+        } catch (IOException ex) {
+          LOG.warn("Failed to close checkpoint catalog for {}", e.getKey(), ex);
+        }
+      }
+    }
+    checkpointCatalogs.clear();
   }
 
   public void subscribeToEvents(Object listener)
@@ -797,7 +962,10 @@ public class StreamingContainerManager implements PlanContext
     // events that may modify the plan
     processEvents();
 
-    committedWindowId = updateCheckpoints(false);
+    long committed = updateCheckpoints(false);
+    // the checkpoints that advanced the committed window are durable in the catalog before it is published
+    flushCheckpointCatalogs();
+    committedWindowId = committed;
     calculateEndWindowStats();
     if (this.vars.enableStatsRecording) {
       recordStats(currentTms);
@@ -830,23 +998,25 @@ public class StreamingContainerManager implements PlanContext
       }
       //logicalMetrics.clear();
       int numOperators = allCurrentOperators.size();
+      boolean sampled = false;
       Long windowId = endWindowStatsOperatorMap.firstKey();
       while (windowId != null) {
         Map<Integer, EndWindowStats> endWindowStatsMap = endWindowStatsOperatorMap.get(windowId);
         Set<Integer> endWindowStatsOperators = endWindowStatsMap.keySet();
 
         aggregateMetrics(windowId, endWindowStatsMap);
-        criticalPathInfo = findCriticalPath();
 
         if (allCurrentOperators.containsAll(endWindowStatsOperators)) {
           if (endWindowStatsMap.size() < numOperators) {
-            if (windowId < completeEndWindowStatsWindowId) {
+            if (windowId < completeEndWindowStatsWindowId.get()) {
               LOG.debug("Disregarding stale end window stats for window {}", windowId);
               endWindowStatsOperatorMap.remove(windowId);
             } else {
               break;
             }
           } else {
+            samplePathLatencies(endWindowStatsMap);
+            sampled = true;
             endWindowStatsOperatorMap.remove(windowId);
             currentEndWindowStatsWindowId = windowId;
           }
@@ -858,6 +1028,14 @@ public class StreamingContainerManager implements PlanContext
         }
         windowId = endWindowStatsOperatorMap.higherKey(windowId);
       }
+
+      // latencies are moving averages updated by heartbeats, recompute once per pass when they changed
+      if (criticalPathStale.getAndSet(false)) {
+        criticalPathInfo = findCriticalPath();
+      }
+      if (sampled) {
+        publishPathLatencies();
+      }
     }
   }
 
@@ -909,25 +1087,13 @@ public class StreamingContainerManager implements PlanContext
       Map<String, Object> lm = aggregator.aggregate(windowId, metricPool);
 
       if (lm != null && lm.size() > 0) {
-        Queue<Pair<Long, Map<String, Object>>> windowMetrics = logicalMetrics.get(operatorMeta.getName());
+        WindowMetricsBuffer windowMetrics = logicalMetrics.get(operatorMeta.getName());
         if (windowMetrics == null) {
-          windowMetrics = new LinkedBlockingQueue<Pair<Long, Map<String, Object>>>(METRIC_QUEUE_SIZE)
-          {
-            private static final long serialVersionUID = 1L;
-
-            @Override
-            public boolean add(Pair<Long, Map<String, Object>> longMapPair)
-            {
-              if (remainingCapacity() <= 1) {
-                remove();
-              }
-              return super.add(longMapPair);
-            }
-          };
+          windowMetrics = new WindowMetricsBuffer(METRIC_QUEUE_SIZE);
           logicalMetrics.put(operatorMeta.getName(), windowMetrics);
         }
         LOG.debug("Adding to logical metrics for {}", operatorMeta.getName());
-        windowMetrics.add(new Pair<>(windowId, lm));
+        windowMetrics.add(windowId, lm);
         Map<String, Object> oldValue = latestLogicalMetrics.put(operatorMeta.getName(), lm);
         if (oldValue == null) {
           try {
@@ -967,46 +1133,119 @@ public class StreamingContainerManager implements PlanContext
     fileContext.rename(file, origPath, Options.Rename.OVERWRITE);
   }
 
-  public Queue<Pair<Long, Map<String, Object>>> getWindowMetrics(String operatorName)
+  /**
+   * @return the retained per window logical metrics of the operator, null when none were aggregated yet
+   */
+  public WindowMetricsBuffer getWindowMetrics(String operatorName)
   {
     return logicalMetrics.get(operatorName);
   }
 
+  /**
+   * Find the path with the highest latency. Only the latency of each operator's path is memoized, the path itself is
+   * built for the result only.
+   */
   private CriticalPathInfo findCriticalPath()
   {
-    CriticalPathInfo result = null;
-    List<PTOperator> leafOperators = plan.getLeafOperators();
-    Map<PTOperator, CriticalPathInfo> cache = new HashMap<>();
-    for (PTOperator leafOperator : leafOperators) {
-      CriticalPathInfo cpi = findCriticalPathHelper(leafOperator, cache);
-      if (result == null || result.latency < cpi.latency) {
-        result = cpi;
+    Map<PTOperator, Long> cache = new HashMap<>();
+    PTOperator criticalLeafOperator = null;
+    long criticalLatency = 0;
+    for (PTOperator leafOperator : plan.getLeafOperators()) {
+      long latency = findCriticalPathLatency(leafOperator, cache);
+      if (criticalLeafOperator == null || criticalLatency < latency) {
+        criticalLeafOperator = leafOperator;
+        criticalLatency = latency;
       }
     }
-    return result;
+    if (criticalLeafOperator == null) {
+      return null;
+    }
+    LinkedList<Integer> path = new LinkedList<>();
+    for (PTOperator oper = criticalLeafOperator; oper != null; oper = slowestUpstreamOp.get(oper)) {
+      path.addFirst(oper.getId());
+    }
+    return new CriticalPathInfo(criticalLatency, path);
   }
 
-  private CriticalPathInfo findCriticalPathHelper(PTOperator operator, Map<PTOperator, CriticalPathInfo> cache)
+  private long findCriticalPathLatency(PTOperator operator, Map<PTOperator, Long> cache)
   {
-    CriticalPathInfo cpi = cache.get(operator);
-    if (cpi != null) {
-      return cpi;
+    Long latency = cache.get(operator);
+    if (latency == null) {
+      latency = operator.stats.getLatencyMA();
+      PTOperator slowestUpstreamOperator = slowestUpstreamOp.get(operator);
+      if (slowestUpstreamOperator != null) {
+        latency += findCriticalPathLatency(slowestUpstreamOperator, cache);
+      }
+      cache.put(operator, latency);
     }
-    PTOperator slowestUpstreamOperator = slowestUpstreamOp.get(operator);
-    if (slowestUpstreamOperator != null) {
-      cpi = findCriticalPathHelper(slowestUpstreamOperator, cache);
-      try {
-        cpi = (CriticalPathInfo)cpi.clone();
-      } catch (CloneNotSupportedException ex) {
-        throw new RuntimeException();
+    return latency;
+  }
+
+  /**
+   * Record the end-to-end latency of a window for which all operators reported stats, for each output operator along
+   * the path of slowest upstream operators.
+   */
+  private void samplePathLatencies(Map<Integer, EndWindowStats> endWindowStatsMap)
+  {
+    pathLatencyWindowCount++;
+    LinkedList<String> names = new LinkedList<>();
+    for (PTOperator leafOperator : plan.getLeafOperators()) {
+      EndWindowStats leafStats = endWindowStatsMap.get(leafOperator.getId());
+      if (leafStats == null) {
+        continue;
       }
-    } else {
-      cpi = new CriticalPathInfo();
+      names.clear();
+      PTOperator rootOperator = leafOperator;
+      for (PTOperator oper = leafOperator; oper != null; oper = slowestUpstreamOp.get(oper)) {
+        String name = oper.getOperatorMeta().getName();
+        // unifiers belong to the logical operator upstream
+        if (names.isEmpty() || !name.equals(names.getFirst())) {
+          names.addFirst(name);
+        }
+        rootOperator = oper;
+      }
+      EndWindowStats rootStats = endWindowStatsMap.get(rootOperator.getId());
+      if (rootStats == null) {
+        continue;
+      }
+      long latency = leafStats.emitTimestamp - rootStats.emitTimestamp;
+      MovingAverageLong rpcLatency = rpcLatencies.get(leafOperator.getContainer().getExternalId());
+      if (rpcLatency != null) {
+        latency += rpcLatency.getAvg();
+      }
+      rpcLatency = rpcLatencies.get(rootOperator.getContainer().getExternalId());
+      if (rpcLatency != null) {
+        latency -= rpcLatency.getAvg();
+      }
+      String path = StringUtils.join(names, " -> ");
+      MovingPercentile samples = pathLatencySamples.get(path);
+      if (samples == null) {
+        samples = new MovingPercentile(PATH_LATENCY_SAMPLES);
+        pathLatencySamples.put(path, samples);
+      }
+      samples.add(Math.max(latency, 0));
+      pathLatencyLastSample.put(path, pathLatencyWindowCount);
+    }
+  }
+
+  /**
+   * Publish the path latency percentiles, dropping paths that were not sampled within the retained number of windows.
+   */
+  private void publishPathLatencies()
+  {
+    Map<String, PathLatencyInfo> result = new HashMap<>();
+    Iterator<Map.Entry<String, MovingPercentile>> it = pathLatencySamples.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, MovingPercentile> entry = it.next();
+      if (pathLatencyWindowCount - pathLatencyLastSample.get(entry.getKey()) >= PATH_LATENCY_SAMPLES) {
+        pathLatencyLastSample.remove(entry.getKey());
+        it.remove();
+        continue;
+      }
+      long[] percentiles = entry.getValue().getPercentiles(50, 99);
+      result.put(entry.getKey(), new PathLatencyInfo(percentiles[0], percentiles[1], entry.getValue().getCount()));
     }
-    cpi.latency += operator.stats.getLatencyMA();
-    cpi.path.addLast(operator.getId());
-    cache.put(operator, cpi);
-    return cpi;
+    pathLatencies = Collections.unmodifiableMap(result);
   }
 
   public int processEvents()
@@ -1033,6 +1272,8 @@ public class StreamingContainerManager implements PlanContext
         // call listeners only with non empty window list
         if (o.statsListeners != null) {
           plan.onStatusUpdate(o);
+        } else if (o.isUnifier()) {
+          plan.onUnifierStatusUpdate(o);
         }
       }
       reportStats.remove(o);
@@ -1077,7 +1318,7 @@ public class StreamingContainerManager implements PlanContext
       eventQueueProcessing.set(false);
     }
 
-    if (count > 0) {
+    if (count > 0 || isJournalSnapshotDue()) {
       try {
         checkpoint();
       } catch (Exception e) {
@@ -1388,7 +1629,8 @@ public class StreamingContainerManager implements PlanContext
           oper.setState(PTOperator.State.ACTIVE);
           oper.stats.lastHeartbeat = null; // reset on redeploy
           oper.stats.lastWindowIdChangeTms = clock.getTime();
-          recordEventAsync(new StramEvent.StartOperatorEvent(oper.getName(), oper.getId(), container.getExternalId()));
+          recordEventAsync(new StramEvent.StartOperatorEvent(oper.getName(), oper.getId(), container.getExternalId(),
+              ohb.getStateLoadMillis()));
         }
         break;
       default:
@@ -1491,6 +1733,19 @@ public class StreamingContainerManager implements PlanContext
 
     sca.containerStackTrace = heartbeat.stackTrace;
 
+    boolean statsInSync = true;
+    if (heartbeat.operatorStatsDelta != null) {
+      synchronized (sca.statsDecoder) {
+        try {
+          statsInSync = sca.statsDecoder.decode(heartbeat.statsSequence, heartbeat.operatorStatsDelta,
+              heartbeat.getContainerStats());
+        } catch (IOException e) {
+          LOG.warn("Failed to decode operator stats of container {}", heartbeat.getContainerId(), e);
+          statsInSync = false;
+        }
+      }
+    }
+
     if (heartbeat.restartRequested) {
       LOG.error("Container {} restart request", sca.container.getExternalId());
       containerStopRequests.put(sca.container.getExternalId(), sca.container.getExternalId());
@@ -1509,8 +1764,6 @@ public class StreamingContainerManager implements PlanContext
 
     for (OperatorHeartbeat shb : heartbeat.getContainerStats().operators) {
 
-      long maxEndWindowTimestamp = 0;
-
       reportedOperators.add(shb.nodeId);
       PTOperator oper = this.plan.getAllOperators().get(shb.getNodeId());
 
@@ -1542,30 +1795,10 @@ public class StreamingContainerManager implements PlanContext
       List<ContainerStats.OperatorStats> statsList = shb.getOperatorStatsContainer();
 
       if (!statsList.isEmpty()) {
-        long tuplesProcessed = 0;
-        long tuplesEmitted = 0;
-        long totalCpuTimeUsed = 0;
-        int statCount = 0;
-        long maxDequeueTimestamp = -1;
-        oper.stats.recordingId = null;
-
         final OperatorStatus status = oper.stats;
-        status.statsRevs.checkout();
-
-        for (Map.Entry<String, PortStatus> entry : status.inputPortStatusList.entrySet()) {
-          entry.getValue().recordingId = null;
-        }
-        for (Map.Entry<String, PortStatus> entry : status.outputPortStatusList.entrySet()) {
-          entry.getValue().recordingId = null;
-        }
         for (ContainerStats.OperatorStats stats : statsList) {
-          if (stats == null) {
-            LOG.warn("Operator {} statistics list contains null element", shb.getNodeId());
-            continue;
-          }
-
           /* report checkpoint-ed WindowId status of the operator */
-          if (stats.checkpoint instanceof Checkpoint) {
+          if (stats != null && stats.checkpoint instanceof Checkpoint) {
             if (oper.getRecentCheckpoint() == null || oper.getRecentCheckpoint().windowId < stats.checkpoint.getWindowId()) {
               addCheckpoint(oper, (Checkpoint)stats.checkpoint);
               if (stats.checkpointStats != null) {
@@ -1575,219 +1808,24 @@ public class StreamingContainerManager implements PlanContext
               oper.failureCount = 0;
             }
           }
-
-          oper.stats.recordingId = stats.recordingId;
-
-          /* report all the other stuff */
-
-          // calculate the stats related to end window
-          EndWindowStats endWindowStats = new EndWindowStats(); // end window stats for a particular window id for a particular node
-          Collection<ContainerStats.OperatorStats.PortStats> ports = stats.inputPorts;
-          if (ports != null) {
-            Set<String> currentInputPortSet = Sets.newHashSetWithExpectedSize(ports.size());
-            for (ContainerStats.OperatorStats.PortStats s : ports) {
-              currentInputPortSet.add(s.id);
-              PortStatus ps = status.inputPortStatusList.get(s.id);
-              if (ps == null) {
-                ps = status.new PortStatus();
-                ps.portName = s.id;
-                status.inputPortStatusList.put(s.id, ps);
-              }
-              ps.totalTuples += s.tupleCount;
-              ps.recordingId = s.recordingId;
-
-              tuplesProcessed += s.tupleCount;
-              endWindowStats.dequeueTimestamps.put(s.id, s.endWindowTimestamp);
-
-              Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
-              Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
-              if (lastEndWindowTimestamp == null) {
-                lastEndWindowTimestamp = lastStatsTimestamp;
-              }
-              long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
-              //LOG.debug("=== PROCESSED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
-              ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
-              ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
-              ps.queueSizeMA.add(s.queueSize);
-
-              operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
-              if (maxEndWindowTimestamp < s.endWindowTimestamp) {
-                maxEndWindowTimestamp = s.endWindowTimestamp;
-              }
-              if (s.endWindowTimestamp > maxDequeueTimestamp) {
-                maxDequeueTimestamp = s.endWindowTimestamp;
-              }
-            }
-            // need to remove dead ports, for unifiers
-            Iterator<Map.Entry<String, PortStatus>> it = status.inputPortStatusList.entrySet().iterator();
-            while (it.hasNext()) {
-              Map.Entry<String, PortStatus> entry = it.next();
-              if (!currentInputPortSet.contains(entry.getKey())) {
-                it.remove();
-              }
-            }
-          }
-
-          ports = stats.outputPorts;
-          if (ports != null) {
-            Set<String> currentOutputPortSet = Sets.newHashSetWithExpectedSize(ports.size());
-            for (ContainerStats.OperatorStats.PortStats s : ports) {
-              currentOutputPortSet.add(s.id);
-              PortStatus ps = status.outputPortStatusList.get(s.id);
-              if (ps == null) {
-                ps = status.new PortStatus();
-                ps.portName = s.id;
-                status.outputPortStatusList.put(s.id, ps);
-              }
-              ps.totalTuples += s.tupleCount;
-              ps.recordingId = s.recordingId;
-
-              tuplesEmitted += s.tupleCount;
-              Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
-              Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
-              if (lastEndWindowTimestamp == null) {
-                lastEndWindowTimestamp = lastStatsTimestamp;
-              }
-              long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
-              //LOG.debug("=== EMITTED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
-              ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
-              ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
-
-              operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
-              if (maxEndWindowTimestamp < s.endWindowTimestamp) {
-                maxEndWindowTimestamp = s.endWindowTimestamp;
-              }
-            }
-            if (ports.size() > 0) {
-              endWindowStats.emitTimestamp = ports.iterator().next().endWindowTimestamp;
-            }
-            // need to remove dead ports, for unifiers
-            Iterator<Map.Entry<String, PortStatus>> it = status.outputPortStatusList.entrySet().iterator();
-            while (it.hasNext()) {
-              Map.Entry<String, PortStatus> entry = it.next();
-              if (!currentOutputPortSet.contains(entry.getKey())) {
-                it.remove();
-              }
-            }
-          }
-
-          // for output operator, just take the maximum dequeue time for emit timestamp.
-          // (we don't know the latency for output operators because they don't emit tuples)
-          if (endWindowStats.emitTimestamp < 0) {
-            endWindowStats.emitTimestamp = maxDequeueTimestamp;
-          }
-
-          if (status.currentWindowId.get() != stats.windowId) {
-            status.lastWindowIdChangeTms = currentTimeMillis;
-            status.currentWindowId.set(stats.windowId);
-          }
-          totalCpuTimeUsed += stats.cpuTimeUsed;
-          statCount++;
-
-          if (oper.getOperatorMeta().getValue(OperatorContext.COUNTERS_AGGREGATOR) != null) {
-            endWindowStats.counters = stats.counters;
-          }
-          if (oper.getOperatorMeta().getMetricAggregatorMeta() != null &&
-              oper.getOperatorMeta().getMetricAggregatorMeta().getAggregator() != null) {
-            endWindowStats.metrics = stats.metrics;
-          }
-
-          if (stats.windowId > currentEndWindowStatsWindowId) {
-            Map<Integer, EndWindowStats> endWindowStatsMap = endWindowStatsOperatorMap.get(stats.windowId);
-            if (endWindowStatsMap == null) {
-              endWindowStatsMap = new ConcurrentSkipListMap<>();
-              Map<Integer, EndWindowStats> endWindowStatsMapPrevious =
-                  endWindowStatsOperatorMap.putIfAbsent(stats.windowId, endWindowStatsMap);
-              if (endWindowStatsMapPrevious != null) {
-                endWindowStatsMap = endWindowStatsMapPrevious;
-              }
-            }
-            endWindowStatsMap.put(shb.getNodeId(), endWindowStats);
-
-            if (!oper.getInputs().isEmpty()) {
-              long latency = Long.MAX_VALUE;
-              long adjustedEndWindowEmitTimestamp = endWindowStats.emitTimestamp;
-              MovingAverageLong rpcLatency = rpcLatencies.get(oper.getContainer().getExternalId());
-              if (rpcLatency != null) {
-                adjustedEndWindowEmitTimestamp += rpcLatency.getAvg();
-              }
-              PTOperator slowestUpstream = null;
-              for (PTInput input : oper.getInputs()) {
-                PTOperator upstreamOp = input.source.source;
-                if (upstreamOp.getOperatorMeta().getOperator() instanceof Operator.DelayOperator) {
-                  continue;
-                }
-                EndWindowStats ews = endWindowStatsMap.get(upstreamOp.getId());
-                long portLatency;
-                if (ews == null) {
-                  // This is when the operator is likely to be behind too many windows. We need to give an estimate for
-                  // latency at this point, by looking at the number of windows behind
-                  int widthMillis = plan.getLogicalPlan().getValue(LogicalPlan.STREAMING_WINDOW_SIZE_MILLIS);
-                  portLatency = (upstreamOp.stats.currentWindowId.get() - oper.stats.currentWindowId.get()) * widthMillis;
-                } else {
-                  MovingAverageLong upstreamRPCLatency = rpcLatencies.get(upstreamOp.getContainer().getExternalId());
-                  portLatency = adjustedEndWindowEmitTimestamp - ews.emitTimestamp;
-                  if (upstreamRPCLatency != null) {
-                    portLatency -= upstreamRPCLatency.getAvg();
-                  }
-                }
-                if (portLatency < 0) {
-                  portLatency = 0;
-                }
-                if (latency > portLatency) {
-                  latency = portLatency;
-                  slowestUpstream = upstreamOp;
-                }
-              }
-              status.latencyMA.add(latency);
-              slowestUpstreamOp.put(oper, slowestUpstream);
-            }
-
-            Set<Integer> allCurrentOperators = plan.getAllOperators().keySet();
-            int numOperators = plan.getAllOperators().size();
-            if (allCurrentOperators.containsAll(endWindowStatsMap.keySet()) && endWindowStatsMap.size() == numOperators) {
-              completeEndWindowStatsWindowId = stats.windowId;
-            }
-          }
         }
 
-        status.totalTuplesProcessed.add(tuplesProcessed);
-        status.totalTuplesEmitted.add(tuplesEmitted);
-        OperatorMeta logicalOperator = oper.getOperatorMeta();
-        LogicalOperatorStatus logicalStatus = logicalOperator.getStatus();
-        if (!oper.isUnifier()) {
-          logicalStatus.totalTuplesProcessed += tuplesProcessed;
-          logicalStatus.totalTuplesEmitted += tuplesEmitted;
-        }
-        long lastMaxEndWindowTimestamp = operatorLastEndWindowTimestamps.containsKey(oper.getId()) ? operatorLastEndWindowTimestamps.get(oper.getId()) : lastStatsTimestamp;
-        if (maxEndWindowTimestamp >= lastMaxEndWindowTimestamp) {
-          double tuplesProcessedPMSMA = 0.0;
-          double tuplesEmittedPMSMA = 0.0;
-          if (statCount != 0) {
-            //LOG.debug("CPU for {}: {} / {} - {}", oper.getId(), totalCpuTimeUsed, maxEndWindowTimestamp, lastMaxEndWindowTimestamp);
-            status.cpuNanosPMSMA.add(totalCpuTimeUsed, maxEndWindowTimestamp - lastMaxEndWindowTimestamp);
-          }
-
-          for (PortStatus ps : status.inputPortStatusList.values()) {
-            tuplesProcessedPMSMA += ps.tuplesPMSMA.getAvg();
-          }
-          for (PortStatus ps : status.outputPortStatusList.values()) {
-            tuplesEmittedPMSMA += ps.tuplesPMSMA.getAvg();
-          }
-          status.tuplesProcessedPSMA.set(Math.round(tuplesProcessedPMSMA * 1000));
-          status.tuplesEmittedPSMA.set(Math.round(tuplesEmittedPMSMA * 1000));
+        if (statsAggregator == null) {
+          aggregateOperatorStats(oper, shb, currentTimeMillis);
         } else {
-          //LOG.warn("This timestamp for {} is lower than the previous!! {} < {}", oper.getId(),
-          // maxEndWindowTimestamp, lastMaxEndWindowTimestamp);
+          // fold stats asynchronously, heartbeats of a container are processed in order by the same shard
+          final PTOperator aggregateOper = oper;
+          final OperatorHeartbeat aggregateHeartbeat = shb;
+          final long aggregateTimeMillis = currentTimeMillis;
+          statsAggregator.execute(sca.container.getId(), new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              aggregateOperatorStats(aggregateOper, aggregateHeartbeat, aggregateTimeMillis);
+            }
+          });
         }
-        operatorLastEndWindowTimestamps.put(oper.getId(), maxEndWindowTimestamp);
-        status.listenerStats.add(statsList);
-        this.reportStats.put(oper, oper);
-
-        status.statsRevs.commit();
-      }
-      if (lastStatsTimestamp < maxEndWindowTimestamp) {
-        lastStatsTimestamp = maxEndWindowTimestamp;
       }
     }
 
@@ -1824,10 +1862,278 @@ public class StreamingContainerManager implements PlanContext
     rsp.committedWindowId = committedWindowId;
     rsp.stackTraceRequired = sca.stackTraceRequested;
     sca.stackTraceRequested = false;
+    rsp.statsResync = !statsInSync;
 
     return rsp;
   }
 
+  /**
+   * Fold the window stats of an operator heartbeat into the operator, port and logical operator statistics and the
+   * end window stats used for latency and critical path calculation.
+   */
+  private void aggregateOperatorStats(PTOperator oper, OperatorHeartbeat shb, long currentTimeMillis)
+  {
+    long maxEndWindowTimestamp = 0;
+    List<ContainerStats.OperatorStats> statsList = shb.getOperatorStatsContainer();
+    if (!statsList.isEmpty()) {
+      long tuplesProcessed = 0;
+      long tuplesEmitted = 0;
+      long totalCpuTimeUsed = 0;
+      int statCount = 0;
+      long maxDequeueTimestamp = -1;
+      oper.stats.recordingId = null;
+
+      final OperatorStatus status = oper.stats;
+      status.statsRevs.checkout();
+
+      for (Map.Entry<String, PortStatus> entry : status.inputPortStatusList.entrySet()) {
+        entry.getValue().recordingId = null;
+      }
+      for (Map.Entry<String, PortStatus> entry : status.outputPortStatusList.entrySet()) {
+        entry.getValue().recordingId = null;
+      }
+      for (ContainerStats.OperatorStats stats : statsList) {
+        if (stats == null) {
+          LOG.warn("Operator {} statistics list contains null element", shb.getNodeId());
+          continue;
+        }
+
+        oper.stats.recordingId = stats.recordingId;
+
+        /* report all the other stuff */
+
+        // calculate the stats related to end window
+        EndWindowStats endWindowStats = new EndWindowStats(); // end window stats for a particular window id for a particular node
+        Collection<ContainerStats.OperatorStats.PortStats> ports = stats.inputPorts;
+        if (ports != null) {
+          Set<String> currentInputPortSet = Sets.newHashSetWithExpectedSize(ports.size());
+          for (ContainerStats.OperatorStats.PortStats s : ports) {
+            currentInputPortSet.add(s.id);
+            PortStatus ps = status.inputPortStatusList.get(s.id);
+            if (ps == null) {
+              ps = status.new PortStatus();
+              ps.portName = s.id;
+              status.inputPortStatusList.put(s.id, ps);
+            }
+            ps.totalTuples += s.tupleCount;
+            ps.recordingId = s.recordingId;
+
+            tuplesProcessed += s.tupleCount;
+            endWindowStats.dequeueTimestamps.put(s.id, s.endWindowTimestamp);
+
+            Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
+            Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
+            if (lastEndWindowTimestamp == null) {
+              lastEndWindowTimestamp = lastStatsTimestamp.get();
+            }
+            long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
+            //LOG.debug("=== PROCESSED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
+            ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
+            ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
+            ps.queueSizeMA.add(s.queueSize);
+            if (s.queueSizeHistogram != null) {
+              ps.queueSizeHistogram = s.queueSizeHistogram;
+            }
+            if (s.processingTimeHistogram != null) {
+              ps.processingTimeHistogram = s.processingTimeHistogram;
+            }
+
+            operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
+            if (maxEndWindowTimestamp < s.endWindowTimestamp) {
+              maxEndWindowTimestamp = s.endWindowTimestamp;
+            }
+            if (s.endWindowTimestamp > maxDequeueTimestamp) {
+              maxDequeueTimestamp = s.endWindowTimestamp;
+            }
+          }
+          // need to remove dead ports, for unifiers
+          Iterator<Map.Entry<String, PortStatus>> it = status.inputPortStatusList.entrySet().iterator();
+          while (it.hasNext()) {
+            Map.Entry<String, PortStatus> entry = it.next();
+            if (!currentInputPortSet.contains(entry.getKey())) {
+              it.remove();
+            }
+          }
+        }
+
+        ports = stats.outputPorts;
+        if (ports != null) {
+          Set<String> currentOutputPortSet = Sets.newHashSetWithExpectedSize(ports.size());
+          for (ContainerStats.OperatorStats.PortStats s : ports) {
+            currentOutputPortSet.add(s.id);
+            PortStatus ps = status.outputPortStatusList.get(s.id);
+            if (ps == null) {
+              ps = status.new PortStatus();
+              ps.portName = s.id;
+              status.outputPortStatusList.put(s.id, ps);
+            }
+            ps.totalTuples += s.tupleCount;
+            ps.recordingId = s.recordingId;
+
+            tuplesEmitted += s.tupleCount;
+            Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
+            Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
+            if (lastEndWindowTimestamp == null) {
+              lastEndWindowTimestamp = lastStatsTimestamp.get();
+            }
+            long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
+            //LOG.debug("=== EMITTED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
+            ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
+            ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
+
+            operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
+            if (maxEndWindowTimestamp < s.endWindowTimestamp) {
+              maxEndWindowTimestamp = s.endWindowTimestamp;
+            }
+          }
+          if (ports.size() > 0) {
+            endWindowStats.emitTimestamp = ports.iterator().next().endWindowTimestamp;
+          }
+          // need to remove dead ports, for unifiers
+          Iterator<Map.Entry<String, PortStatus>> it = status.outputPortStatusList.entrySet().iterator();
+          while (it.hasNext()) {
+            Map.Entry<String, PortStatus> entry = it.next();
+            if (!currentOutputPortSet.contains(entry.getKey())) {
+              it.remove();
+            }
+          }
+        }
+
+        // for output operator, just take the maximum dequeue time for emit timestamp.
+        // (we don't know the latency for output operators because they don't emit tuples)
+        if (endWindowStats.emitTimestamp < 0) {
+          endWindowStats.emitTimestamp = maxDequeueTimestamp;
+        }
+
+        if (status.currentWindowId.get() != stats.windowId) {
+          status.lastWindowIdChangeTms = currentTimeMillis;
+          status.currentWindowId.set(stats.windowId);
+        }
+        totalCpuTimeUsed += stats.cpuTimeUsed;
+        statCount++;
+
+        if (oper.getOperatorMeta().getValue(OperatorContext.COUNTERS_AGGREGATOR) != null) {
+          endWindowStats.counters = stats.counters;
+        }
+        if (oper.getOperatorMeta().getMetricAggregatorMeta() != null &&
+            oper.getOperatorMeta().getMetricAggregatorMeta().getAggregator() != null) {
+          endWindowStats.metrics = stats.metrics;
+        }
+
+        if (stats.windowId > currentEndWindowStatsWindowId) {
+          Map<Integer, EndWindowStats> endWindowStatsMap = endWindowStatsOperatorMap.get(stats.windowId);
+          if (endWindowStatsMap == null) {
+            endWindowStatsMap = new ConcurrentSkipListMap<>();
+            Map<Integer, EndWindowStats> endWindowStatsMapPrevious =
+                endWindowStatsOperatorMap.putIfAbsent(stats.windowId, endWindowStatsMap);
+            if (endWindowStatsMapPrevious != null) {
+              endWindowStatsMap = endWindowStatsMapPrevious;
+            }
+          }
+          endWindowStatsMap.put(shb.getNodeId(), endWindowStats);
+
+          if (!oper.getInputs().isEmpty()) {
+            long latency = Long.MAX_VALUE;
+            long adjustedEndWindowEmitTimestamp = endWindowStats.emitTimestamp;
+            MovingAverageLong rpcLatency = rpcLatencies.get(oper.getContainer().getExternalId());
+            if (rpcLatency != null) {
+              adjustedEndWindowEmitTimestamp += rpcLatency.getAvg();
+            }
+            PTOperator slowestUpstream = null;
+            for (PTInput input : oper.getInputs()) {
+              PTOperator upstreamOp = input.source.source;
+              if (upstreamOp.getOperatorMeta().getOperator() instanceof Operator.DelayOperator) {
+                continue;
+              }
+              EndWindowStats ews = endWindowStatsMap.get(upstreamOp.getId());
+              long portLatency;
+              if (ews == null) {
+                // This is when the operator is likely to be behind too many windows. We need to give an estimate for
+                // latency at this point, by looking at the number of windows behind
+                int widthMillis = plan.getLogicalPlan().getValue(LogicalPlan.STREAMING_WINDOW_SIZE_MILLIS);
+                portLatency = (upstreamOp.stats.currentWindowId.get() - oper.stats.currentWindowId.get()) * widthMillis;
+              } else {
+                MovingAverageLong upstreamRPCLatency = rpcLatencies.get(upstreamOp.getContainer().getExternalId());
+                portLatency = adjustedEndWindowEmitTimestamp - ews.emitTimestamp;
+                if (upstreamRPCLatency != null) {
+                  portLatency -= upstreamRPCLatency.getAvg();
+                }
+              }
+              if (portLatency < 0) {
+                portLatency = 0;
+              }
+              if (latency > portLatency) {
+                latency = portLatency;
+                slowestUpstream = upstreamOp;
+              }
+            }
+            status.latencyMA.add(latency);
+            slowestUpstreamOp.put(oper, slowestUpstream);
+            criticalPathStale.set(true);
+          }
+
+          Set<Integer> allCurrentOperators = plan.getAllOperators().keySet();
+          int numOperators = plan.getAllOperators().size();
+          if (allCurrentOperators.containsAll(endWindowStatsMap.keySet()) && endWindowStatsMap.size() == numOperators) {
+            advance(completeEndWindowStatsWindowId, stats.windowId);
+          }
+        }
+      }
+
+      status.totalTuplesProcessed.add(tuplesProcessed);
+      status.totalTuplesEmitted.add(tuplesEmitted);
+      OperatorMeta logicalOperator = oper.getOperatorMeta();
+      LogicalOperatorStatus logicalStatus = logicalOperator.getStatus();
+      if (!oper.isUnifier()) {
+        // partitions of the same logical operator report from different containers concurrently
+        synchronized (logicalStatus) {
+          logicalStatus.totalTuplesProcessed += tuplesProcessed;
+          logicalStatus.totalTuplesEmitted += tuplesEmitted;
+        }
+      }
+      long lastMaxEndWindowTimestamp = operatorLastEndWindowTimestamps.containsKey(oper.getId()) ? operatorLastEndWindowTimestamps.get(oper.getId()) : lastStatsTimestamp.get();
+      if (maxEndWindowTimestamp >= lastMaxEndWindowTimestamp) {
+        double tuplesProcessedPMSMA = 0.0;
+        double tuplesEmittedPMSMA = 0.0;
+        if (statCount != 0) {
+          //LOG.debug("CPU for {}: {} / {} - {}", oper.getId(), totalCpuTimeUsed, maxEndWindowTimestamp, lastMaxEndWindowTimestamp);
+          status.cpuNanosPMSMA.add(totalCpuTimeUsed, maxEndWindowTimestamp - lastMaxEndWindowTimestamp);
+        }
+
+        for (PortStatus ps : status.inputPortStatusList.values()) {
+          tuplesProcessedPMSMA += ps.tuplesPMSMA.getAvg();
+        }
+        for (PortStatus ps : status.outputPortStatusList.values()) {
+          tuplesEmittedPMSMA += ps.tuplesPMSMA.getAvg();
+        }
+        status.tuplesProcessedPSMA.set(Math.round(tuplesProcessedPMSMA * 1000));
+        status.tuplesEmittedPSMA.set(Math.round(tuplesEmittedPMSMA * 1000));
+      } else {
+        //LOG.warn("This timestamp for {} is lower than the previous!! {} < {}", oper.getId(),
+        // maxEndWindowTimestamp, lastMaxEndWindowTimestamp);
+      }
+      operatorLastEndWindowTimestamps.put(oper.getId(), maxEndWindowTimestamp);
+      status.listenerStats.add(statsList);
+      this.reportStats.put(oper, oper);
+
+      status.statsRevs.commit();
+    }
+    advance(lastStatsTimestamp, maxEndWindowTimestamp);
+  }
+
+  /**
+   * Raise the value to the given one unless it is already higher.
+   */
+  private static void advance(AtomicLong value, long newValue)
+  {
+    long current;
+    while ((current = value.get()) < newValue) {
+      if (value.compareAndSet(current, newValue)) {
+        return;
+      }
+    }
+  }
+
   private ContainerHeartbeatResponse getHeartbeatResponse(StreamingContainerAgent sca)
   {
     ContainerHeartbeatResponse rsp = new ContainerHeartbeatResponse();
@@ -1898,6 +2204,17 @@ public class StreamingContainerManager implements PlanContext
   @SuppressWarnings("StatementWithEmptyBody")
   void addCheckpoint(PTOperator node, Checkpoint checkpoint)
   {
+    StorageAgent sa = node.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT);
+    if (sa instanceof FSStorageAgent) {
+      CheckpointCatalog catalog = ((FSStorageAgent)sa).getCheckpointCatalog();
+      if (catalog != null) {
+        try {
+          catalog.recordSave(node.getId(), checkpoint.windowId);
+        } catch (IOException e) {
+          LOG.warn("Failed to record checkpoint {} for {}", checkpoint, node, e);
+        }
+      }
+    }
     synchronized (node.checkpoints) {
       if (!node.checkpoints.isEmpty()) {
         Checkpoint lastCheckpoint = node.checkpoints.getLast();
@@ -1931,6 +2248,10 @@ public class StreamingContainerManager implements PlanContext
     public final long currentTms;
     public final boolean recovery;
     public final Map<OperatorMeta, Set<OperatorMeta>> checkpointGroups;
+    /**
+     * Operators to traverse, all downstream operators when null.
+     */
+    public final Set<PTOperator> affected;
 
     public UpdateCheckpointsContext(Clock clock)
     {
@@ -1938,10 +2259,17 @@ public class StreamingContainerManager implements PlanContext
     }
 
     public UpdateCheckpointsContext(Clock clock, boolean recovery, Map<OperatorMeta, Set<OperatorMeta>> checkpointGroups)
+    {
+      this(clock, recovery, checkpointGroups, null);
+    }
+
+    public UpdateCheckpointsContext(Clock clock, boolean recovery,
+        Map<OperatorMeta, Set<OperatorMeta>> checkpointGroups, Set<PTOperator> affected)
     {
       this.currentTms = clock.getTime();
       this.recovery = recovery;
       this.checkpointGroups = checkpointGroups;
+      this.affected = affected;
     }
   }
 
@@ -2025,8 +2353,8 @@ public class StreamingContainerManager implements PlanContext
           if (groupOpers.contains(sinkOperator)) {
             continue; // downstream operator within group
           }
-          if (!ctx.visited.contains(sinkOperator)) {
-            // downstream traversal
+          if (!ctx.visited.contains(sinkOperator) && (ctx.affected == null || ctx.affected.contains(sinkOperator))) {
+            // downstream traversal, unaffected operators keep their recovery checkpoint
             updateRecoveryCheckpoints(sinkOperator, ctx);
           }
           // recovery window id cannot move backwards
@@ -2114,12 +2442,151 @@ public class StreamingContainerManager implements PlanContext
     return checkpointGroups;
   }
 
+  /**
+   * Update recovery checkpoints of the operators that are affected by changes since the previous update. The recovery
+   * checkpoint of an operator depends on its own checkpoints and the recovery checkpoints downstream, hence only
+   * operators whose state, checkpoints or recovery checkpoint changed and their upstream operators are visited.
+   * Falls back to {@link #updateAllCheckpoints(boolean)} during recovery, after plan changes and when operators may be
+   * blocked.
+   */
+  long updateCheckpoints(boolean recovery)
+  {
+    Collection<PTOperator> operators = plan.getAllOperators().values();
+    if (recovery || checkpointSignaturesDeployCnt != deployChangeCnt ||
+        checkpointSignatures.size() != operators.size()) {
+      return updateAllCheckpoints(recovery);
+    }
+    long currentTms = clock.getTime();
+    long committedWindowId = Long.MAX_VALUE;
+    List<PTOperator> changed = new ArrayList<>();
+    for (PTOperator oper : operators) {
+      long[] signature = checkpointSignatures.get(oper);
+      if (signature == null) {
+        return updateAllCheckpoints(false);
+      }
+      if (oper.getState() == PTOperator.State.ACTIVE &&
+          (currentTms - oper.stats.lastWindowIdChangeTms) > oper.stats.windowProcessingTimeoutMillis) {
+        // blocked operator detection depends on the traversal order of the full update
+        return updateAllCheckpoints(false);
+      }
+      committedWindowId = Math.min(committedWindowId, oper.getRecoveryCheckpoint().windowId);
+      if (updateCheckpointSignature(oper, signature)) {
+        changed.add(oper);
+      }
+    }
+    if (changed.isEmpty()) {
+      return committedWindowId;
+    }
+
+    // changed operators, their upstream operators and the members of their checkpoint groups
+    Map<OperatorMeta, Set<OperatorMeta>> groups = getCheckpointGroups();
+    Set<PTOperator> affected = new HashSet<>();
+    LinkedList<PTOperator> queue = new LinkedList<>(changed);
+    while (!queue.isEmpty()) {
+      PTOperator oper = queue.removeFirst();
+      if (affected.add(oper)) {
+        for (PTOperator.PTInput input : oper.getInputs()) {
+          queue.add(input.source.source);
+        }
+        Set<OperatorMeta> group = groups.get(oper.getOperatorMeta());
+        if (group != null && group.size() > 1) {
+          for (OperatorMeta om : group) {
+            queue.addAll(plan.getAllOperators(om));
+          }
+        }
+      }
+    }
+
+    UpdateCheckpointsContext ctx = new UpdateCheckpointsContext(clock, false, groups, affected);
+    ctx.committedWindowId.setValue(committedWindowId);
+    for (OperatorMeta logicalOperator : plan.getLogicalPlan().getRootOperators()) {
+      List<PTOperator> rootOperators = plan.getOperators(logicalOperator);
+      if (rootOperators != null) {
+        for (PTOperator operator : rootOperators) {
+          if (affected.contains(operator)) {
+            updateRecoveryCheckpoints(operator, ctx);
+          }
+        }
+      }
+    }
+    purgeCheckpoints();
+
+    for (PTOperator oper : affected) {
+      refreshCheckpointSignature(oper, checkpointSignatures.get(oper));
+    }
+    return getCommittedWindowId(operators);
+  }
+
+  /**
+   * The committed window is the minimum recovery window of all operators, taken after the recovery checkpoints were
+   * updated so that checkpoints reported since the previous update are reflected right away.
+   */
+  private static long getCommittedWindowId(Collection<PTOperator> operators)
+  {
+    long committedWindowId = Long.MAX_VALUE;
+    for (PTOperator oper : operators) {
+      committedWindowId = Math.min(committedWindowId, oper.getRecoveryCheckpoint().windowId);
+    }
+    return committedWindowId;
+  }
+
+  /**
+   * Signature of the operator fields the recovery checkpoint is computed from: state, number of checkpoints, hash of
+   * the checkpoint window ids, recovery checkpoint window id and most recent checkpoint window id.
+   *
+   * @return whether the signature changed
+   */
+  private static boolean updateCheckpointSignature(PTOperator oper, long[] signature)
+  {
+    long count;
+    long hash = 1;
+    long recentWindowId;
+    synchronized (oper.checkpoints) {
+      count = oper.checkpoints.size();
+      for (Checkpoint checkpoint : oper.checkpoints) {
+        hash = 31 * hash + checkpoint.windowId;
+      }
+      recentWindowId = oper.getRecentCheckpoint().windowId;
+    }
+    long state = oper.getState().ordinal();
+    long recoveryWindowId = oper.getRecoveryCheckpoint().windowId;
+    boolean changed = signature[0] != state || signature[1] != count || signature[2] != hash ||
+        signature[3] != recoveryWindowId || signature[4] != recentWindowId;
+    signature[0] = state;
+    signature[1] = count;
+    signature[2] = hash;
+    signature[3] = recoveryWindowId;
+    signature[4] = recentWindowId;
+    return changed;
+  }
+
+  /**
+   * Record the changes made by the checkpoint update. Checkpoints added or state changed by heartbeats while the
+   * update was running leave the signature as it was before the update, so that the operator is visited again.
+   */
+  private static void refreshCheckpointSignature(PTOperator oper, long[] signature)
+  {
+    long[] before = signature.clone();
+    updateCheckpointSignature(oper, signature);
+    if (signature[0] != before[0] || signature[4] != before[4]) {
+      System.arraycopy(before, 0, signature, 0, signature.length);
+    }
+  }
+
   /**
    * Visit all operators to update current checkpoint based on updated downstream state.
    * Purge older checkpoints that are no longer needed.
    */
-  private long updateCheckpoints(boolean recovery)
+  long updateAllCheckpoints(boolean recovery)
   {
+    checkpointSignatures.clear();
+    for (PTOperator oper : plan.getAllOperators().values()) {
+      long[] signature = new long[5];
+      updateCheckpointSignature(oper, signature);
+      checkpointSignatures.put(oper, signature);
+    }
+    checkpointSignaturesDeployCnt = this.deployChangeCnt;
+
     UpdateCheckpointsContext ctx = new UpdateCheckpointsContext(clock, recovery, getCheckpointGroups());
     for (OperatorMeta logicalOperator : plan.getLogicalPlan().getRootOperators()) {
       //LOG.debug("Updating checkpoints for operator {}", logicalOperator.getName());
@@ -2139,7 +2606,11 @@ public class StreamingContainerManager implements PlanContext
         this.containerStopRequests.put(containerId, containerId);
       }
     }
-    return ctx.committedWindowId.longValue();
+
+    for (Map.Entry<PTOperator, long[]> e : checkpointSignatures.entrySet()) {
+      refreshCheckpointSignature(e.getKey(), e.getValue());
+    }
+    return getCommittedWindowId(plan.getAllOperators().values());
   }
 
   private BufferServerController getBufferServerClient(PTOperator operator)
@@ -2156,20 +2627,8 @@ public class StreamingContainerManager implements PlanContext
     for (Pair<PTOperator, Long> p : purgeCheckpoints) {
       final PTOperator operator = p.getFirst();
       if (!operator.isOperatorStateLess()) {
-        final long windowId = p.getSecond();
-        Runnable r = new Runnable()
-        {
-          @Override
-          public void run()
-          {
-            try {
-              operator.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT).delete(operator.getId(), windowId);
-            } catch (IOException ex) {
-              LOG.error("Failed to purge checkpoint for operator {} for windowId {}", operator, windowId, ex);
-            }
-          }
-        };
-        poolExecutor.submit(r);
+        purgeCheckpoint(operator.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT), operator.getId(),
+            p.getSecond());
       }
       // delete stream state when using buffer server
       for (PTOperator.PTOutput out : operator.getOutputs()) {
@@ -2458,6 +2917,8 @@ public class StreamingContainerManager implements PlanContext
       pinfo.tuplesPSMA = Math.round(ps.tuplesPMSMA.getAvg() * 1000);
       pinfo.bufferServerBytesPSMA = Math.round(ps.bufferServerBytesPMSMA.getAvg() * 1000);
       pinfo.queueSizeMA = ps.queueSizeMA.getAvg();
+      pinfo.queueSizeHistogram = ps.queueSizeHistogram;
+      pinfo.processingTimeHistogram = ps.processingTimeHistogram;
       pinfo.recordingId = ps.recordingId;
       oi.addPort(pinfo);
     }
@@ -2756,7 +3217,7 @@ public class StreamingContainerManager implements PlanContext
       throw new IllegalArgumentException("Unknown operator " + operatorName);
     }
 
-    writeJournal(new SetOperatorProperty(operatorName, propertyName, propertyValue));
+    writeJournalAndWait(new SetOperatorProperty(operatorName, propertyName, propertyValue));
 
     setOperatorProperty(logicalOperator, propertyName, propertyValue);
   }
@@ -2794,7 +3255,7 @@ public class StreamingContainerManager implements PlanContext
     if (o == null) {
       return;
     }
-    writeJournal(new SetPhysicalOperatorProperty(operatorId, propertyName, propertyValue));
+    writeJournalAndWait(new SetPhysicalOperatorProperty(operatorId, propertyName, propertyValue));
     setPhysicalOperatorProperty(o, propertyName, propertyValue);
   }
 
@@ -2930,6 +3391,25 @@ public class StreamingContainerManager implements PlanContext
     return future;
   }
 
+  /**
+   * Asynchronously combine containers based on stream traffic, see {@link PhysicalPlan#repackContainers()}.
+   *
+   * @return future with the estimated effect, null when container packing is not enabled
+   */
+  public FutureTask<ContainerPacking.Result> repackContainers()
+  {
+    FutureTask<ContainerPacking.Result> future = new FutureTask<>(new Callable<ContainerPacking.Result>()
+    {
+      @Override
+      public ContainerPacking.Result call() throws Exception
+      {
+        return plan.repackContainers();
+      }
+    });
+    dispatch(future);
+    return future;
+  }
+
   private class LogicalPlanChangeRunnable implements java.util.concurrent.Callable<Object>
   {
     final List<LogicalPlanRequest> requests;
@@ -2979,6 +3459,23 @@ public class StreamingContainerManager implements PlanContext
     return criticalPathInfo;
   }
 
+  /**
+   * @return end-to-end latency percentiles by logical path, with operator names separated by " -> "
+   */
+  public Map<String, PathLatencyInfo> getPathLatencies()
+  {
+    return pathLatencies;
+  }
+
+  /**
+   * A snapshot also truncates the journal, taking one when the journal grows large bounds the replay on restart.
+   */
+  private boolean isJournalSnapshotDue()
+  {
+    long limit = getLogicalPlan().getValue(LogicalPlan.JOURNAL_SNAPSHOT_BYTES);
+    return recoveryHandler != null && limit > 0 && journal.getLogSize() >= limit;
+  }
+
   private void checkpoint() throws IOException
   {
     if (recoveryHandler != null) {
@@ -2993,6 +3490,25 @@ public class StreamingContainerManager implements PlanContext
     }
   }
 
+  @Override
+  public void purgeCheckpoint(StorageAgent agent, int operatorId, long windowId)
+  {
+    purgeService.purge(agent, operatorId, windowId);
+  }
+
+  public CheckpointPurgeService getCheckpointPurgeService()
+  {
+    return purgeService;
+  }
+
+  /**
+   * @return executor folding heartbeat stats or null when stats are processed within the heartbeat call
+   */
+  ShardedExecutor getStatsAggregator()
+  {
+    return statsAggregator;
+  }
+
   @Override
   public void writeJournal(Recoverable operation)
   {
@@ -3005,6 +3521,27 @@ public class StreamingContainerManager implements PlanContext
     }
   }
 
+  /**
+   * Write to the journal and wait until the operation is flushed, for changes that are acknowledged to the client.
+   *
+   * @param operation
+   */
+  private void writeJournalAndWait(Recoverable operation)
+  {
+    try {
+      if (journal != null) {
+        journal.write(operation).get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted writing to journal " + operation, e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to write to journal " + operation, e.getCause());
+    } catch (Exception e) {
+      throw new IllegalStateException("Failed to write to journal " + operation, e);
+    }
+  }
+
   /**
    * Get the instance for the given application. If the application directory contains a checkpoint, the state will be restored.
    *
@@ -3145,8 +3682,12 @@ public class StreamingContainerManager implements PlanContext
         // replace the default storage agent, if present
         AsyncFSStorageAgent fssa = (AsyncFSStorageAgent)sa;
         if (fssa.path.contains(oldAppId)) {
-          fssa = new AsyncFSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
-          lp.setAttribute(OperatorContext.STORAGE_AGENT, fssa);
+          AsyncFSStorageAgent newAgent = new AsyncFSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
+          newAgent.setLocalCachePath(fssa.getLocalCachePath());
+          newAgent.setLocalCacheSize(fssa.getLocalCacheSize());
+          // the relaunched application recovers from the checkpoints cached by the original one
+          newAgent.setLocalCacheKey(fssa.getLocalCacheKey());
+          lp.setAttribute(OperatorContext.STORAGE_AGENT, newAgent);
         }
       } else if (sa instanceof FSStorageAgent) {
         // replace the default storage agent, if present
@@ -3228,8 +3769,18 @@ public class StreamingContainerManager implements PlanContext
   @VisibleForTesting
   protected Collection<Pair<Long, Map<String, Object>>> getLogicalMetrics(String operatorName)
   {
-    if (logicalMetrics.get(operatorName) != null) {
-      return Collections.unmodifiableCollection(logicalMetrics.get(operatorName));
+    WindowMetricsBuffer windowMetrics = logicalMetrics.get(operatorName);
+    if (windowMetrics != null) {
+      final List<Pair<Long, Map<String, Object>>> result = new ArrayList<>();
+      windowMetrics.visit(0, new WindowMetricsBuffer.Visitor()
+      {
+        @Override
+        public void visit(long sequence, WindowMetricsBuffer.Window window)
+        {
+          result.add(new Pair<>(window.getWindowId(), window.toMap()));
+        }
+      });
+      return Collections.unmodifiableCollection(result);
     }
     return null;
   }
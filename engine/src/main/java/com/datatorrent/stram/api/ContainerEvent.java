@@ -66,6 +66,14 @@ public interface ContainerEvent
       super(node);
     }
 
+    /**
+     * @return time taken to load the checkpointed state of the node
+     */
+    public long getStateLoadMillis()
+    {
+      return getNode().stateLoadMillis;
+    }
+
   }
 
   /**
@@ -0,0 +1,513 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.Histogram;
+import com.datatorrent.api.Stats.CheckpointStats;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+import com.datatorrent.api.StatsListener;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.OperatorHeartbeat;
+
+/**
+ * Compact encoding of the operator heartbeats of a container.
+ * <p>
+ * The encoder and the decoder keep state across heartbeats: port ids, metric keys and recording ids are sent once and
+ * referenced by number afterwards, and metric values that did not change since the previous window of the operator are
+ * omitted. Numbers are written as variable length integers and window ids and timestamps relative to the previous
+ * value. Every encoded message carries a sequence number, sequence 0 starts a new baseline. The decoder reports a gap
+ * in the sequence or a reference it cannot resolve, upon which the container resets its encoder and the next message
+ * is a full baseline again.
+ *
+ * @since 3.5.0
+ */
+public class HeartbeatStatsCodec
+{
+  private static final Logger LOG = LoggerFactory.getLogger(HeartbeatStatsCodec.class);
+
+  private static final int STRING_NULL = 0;
+  private static final int STRING_NEW = 1;
+  private static final int STRING_OFFSET = 2;
+
+  private static final byte VALUE_UNCHANGED = 0;
+  private static final byte VALUE_NULL = 1;
+  private static final byte VALUE_LONG = 2;
+  private static final byte VALUE_INT = 3;
+  private static final byte VALUE_DOUBLE = 4;
+  private static final byte VALUE_FLOAT = 5;
+  private static final byte VALUE_BOOLEAN = 6;
+  private static final byte VALUE_STRING = 7;
+  private static final byte VALUE_OBJECT = 8;
+  private static final byte VALUE_HISTOGRAM = 9;
+
+  private static final byte CHECKPOINT_NONE = 0;
+  private static final byte CHECKPOINT = 1;
+  private static final byte CHECKPOINT_OBJECT = 2;
+
+  /**
+   * Container side of the codec.
+   */
+  public static class Encoder
+  {
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<Integer, Map<String, Object>> lastMetrics = new HashMap<>();
+    private long sequence;
+
+    /**
+     * @return the sequence number of the next encoded message
+     */
+    public long getSequence()
+    {
+      return sequence;
+    }
+
+    /**
+     * Discard the state, the next message is a baseline.
+     */
+    public void reset()
+    {
+      strings.clear();
+      lastMetrics.clear();
+      sequence = 0;
+    }
+
+    public byte[] encode(List<OperatorHeartbeat> operators) throws IOException
+    {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bos);
+      writeVarLong(out, operators.size());
+      for (OperatorHeartbeat ohb : operators) {
+        writeVarLong(out, ohb.nodeId);
+        out.writeByte(ohb.state == null ? -1 : ohb.state.ordinal());
+        writeVarLong(out, ohb.generatedTms);
+        writeVarLong(out, ohb.intervalMs);
+        writeVarLong(out, ohb.stateLoadMillis);
+        writeObject(out, ohb.requestResponse);
+
+        Map<String, Object> metrics = lastMetrics.get(ohb.nodeId);
+        if (metrics == null) {
+          metrics = new HashMap<>();
+          lastMetrics.put(ohb.nodeId, metrics);
+        }
+        List<OperatorStats> windows = ohb.windowStats;
+        writeVarLong(out, windows.size());
+        long previousWindowId = 0;
+        long previousTimestamp = 0;
+        for (OperatorStats stats : windows) {
+          if (stats == null) {
+            out.writeBoolean(false);
+            continue;
+          }
+          out.writeBoolean(true);
+          writeZigZag(out, stats.windowId - previousWindowId);
+          previousWindowId = stats.windowId;
+          if (stats.checkpoint == null) {
+            out.writeByte(CHECKPOINT_NONE);
+          } else if (stats.checkpoint instanceof Checkpoint) {
+            Checkpoint checkpoint = (Checkpoint)stats.checkpoint;
+            out.writeByte(CHECKPOINT);
+            writeZigZag(out, checkpoint.windowId - stats.windowId);
+            writeVarLong(out, checkpoint.applicationWindowCount);
+            writeVarLong(out, checkpoint.checkpointWindowCount);
+          } else {
+            out.writeByte(CHECKPOINT_OBJECT);
+            writeObject(out, stats.checkpoint);
+          }
+          writeVarLong(out, stats.cpuTimeUsed);
+          out.writeBoolean(stats.checkpointStats != null);
+          if (stats.checkpointStats != null) {
+            writeVarLong(out, stats.checkpointStats.checkpointStartTime);
+            writeVarLong(out, stats.checkpointStats.checkpointTime);
+          }
+          writeString(out, stats.recordingId);
+          previousTimestamp = writePorts(out, stats.inputPorts, previousTimestamp);
+          previousTimestamp = writePorts(out, stats.outputPorts, previousTimestamp);
+          writeObject(out, stats.counters);
+
+          if (stats.metrics == null) {
+            writeVarLong(out, 0);
+          } else {
+            writeVarLong(out, stats.metrics.size() + 1);
+            for (Map.Entry<String, Object> entry : stats.metrics.entrySet()) {
+              writeString(out, entry.getKey());
+              Object value = entry.getValue();
+              if (metrics.containsKey(entry.getKey()) && equals(metrics.get(entry.getKey()), value)) {
+                out.writeByte(VALUE_UNCHANGED);
+              } else {
+                writeValue(out, value);
+                metrics.put(entry.getKey(), value);
+              }
+            }
+          }
+        }
+      }
+      out.flush();
+      sequence++;
+      return bos.toByteArray();
+    }
+
+    private long writePorts(DataOutputStream out, List<PortStats> ports, long previousTimestamp) throws IOException
+    {
+      if (ports == null) {
+        writeVarLong(out, 0);
+        return previousTimestamp;
+      }
+      writeVarLong(out, ports.size() + 1);
+      for (PortStats ps : ports) {
+        writeString(out, ps.id);
+        writeVarLong(out, ps.tupleCount);
+        writeZigZag(out, ps.endWindowTimestamp - previousTimestamp);
+        previousTimestamp = ps.endWindowTimestamp;
+        writeVarLong(out, ps.bufferServerBytes);
+        writeVarLong(out, ps.queueSize);
+        writeString(out, ps.recordingId);
+        writeHistogram(out, ps.queueSizeHistogram);
+        writeHistogram(out, ps.processingTimeHistogram);
+      }
+      return previousTimestamp;
+    }
+
+    private void writeHistogram(DataOutputStream out, Histogram histogram) throws IOException
+    {
+      out.writeBoolean(histogram != null);
+      if (histogram != null) {
+        histogram.write(out);
+      }
+    }
+
+    private void writeString(DataOutputStream out, String s) throws IOException
+    {
+      if (s == null) {
+        writeVarLong(out, STRING_NULL);
+        return;
+      }
+      Integer id = strings.get(s);
+      if (id == null) {
+        writeVarLong(out, STRING_NEW);
+        out.writeUTF(s);
+        strings.put(s, strings.size());
+      } else {
+        writeVarLong(out, id + STRING_OFFSET);
+      }
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException
+    {
+      if (value == null) {
+        out.writeByte(VALUE_NULL);
+      } else if (value instanceof Long) {
+        out.writeByte(VALUE_LONG);
+        writeZigZag(out, (Long)value);
+      } else if (value instanceof Integer) {
+        out.writeByte(VALUE_INT);
+        writeZigZag(out, (Integer)value);
+      } else if (value instanceof Double) {
+        out.writeByte(VALUE_DOUBLE);
+        out.writeDouble((Double)value);
+      } else if (value instanceof Float) {
+        out.writeByte(VALUE_FLOAT);
+        out.writeFloat((Float)value);
+      } else if (value instanceof Boolean) {
+        out.writeByte(VALUE_BOOLEAN);
+        out.writeBoolean((Boolean)value);
+      } else if (value instanceof String) {
+        out.writeByte(VALUE_STRING);
+        out.writeUTF((String)value);
+      } else if (value.getClass() == Histogram.class) {
+        out.writeByte(VALUE_HISTOGRAM);
+        ((Histogram)value).write(out);
+      } else {
+        out.writeByte(VALUE_OBJECT);
+        writeObject(out, value);
+      }
+    }
+
+    private static boolean equals(Object a, Object b)
+    {
+      return a == null ? b == null : a.equals(b);
+    }
+  }
+
+  /**
+   * Application master side of the codec, one instance per container.
+   */
+  public static class Decoder
+  {
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final Map<Integer, Map<String, Object>> lastMetrics = new HashMap<>();
+    private long lastSequence = -1;
+    private boolean inSync;
+
+    /**
+     * Decode the operator heartbeats and add them to the container stats. When the decoder is out of sync with the
+     * encoder, values that cannot be resolved are dropped while the remaining stats are still reported.
+     *
+     * @param sequence sequence number of the message
+     * @param data encoded heartbeats
+     * @param target stats to add the decoded heartbeats to
+     * @return false when the encoder needs to be reset
+     * @throws IOException
+     */
+    public boolean decode(long sequence, byte[] data, ContainerStats target) throws IOException
+    {
+      if (sequence == 0) {
+        strings.clear();
+        stringIds.clear();
+        lastMetrics.clear();
+        inSync = true;
+      } else if (sequence != lastSequence + 1 && sequence != lastSequence) {
+        // the same message is seen twice when the RPC call is retried, it is decoded the same way
+        LOG.debug("Heartbeat sequence {} does not follow {}", sequence, lastSequence);
+        inSync = false;
+      }
+      lastSequence = sequence;
+
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+      int operatorCount = (int)readVarLong(in);
+      for (int i = 0; i < operatorCount; i++) {
+        OperatorHeartbeat ohb = new OperatorHeartbeat();
+        ohb.nodeId = (int)readVarLong(in);
+        byte state = in.readByte();
+        ohb.state = state < 0 ? null : OperatorHeartbeat.DeployState.values()[state];
+        ohb.generatedTms = readVarLong(in);
+        ohb.intervalMs = readVarLong(in);
+        ohb.stateLoadMillis = readVarLong(in);
+        @SuppressWarnings("unchecked")
+        ArrayList<StatsListener.OperatorResponse> responses = (ArrayList<StatsListener.OperatorResponse>)readObject(in);
+        ohb.requestResponse = responses;
+
+        Map<String, Object> metrics = lastMetrics.get(ohb.nodeId);
+        if (metrics == null) {
+          metrics = new HashMap<>();
+          lastMetrics.put(ohb.nodeId, metrics);
+        }
+        int windowCount = (int)readVarLong(in);
+        long previousWindowId = 0;
+        long[] previousTimestamp = new long[1];
+        for (int w = 0; w < windowCount; w++) {
+          if (!in.readBoolean()) {
+            ohb.windowStats.add(null);
+            continue;
+          }
+          OperatorStats stats = new OperatorStats();
+          stats.windowId = previousWindowId + readZigZag(in);
+          previousWindowId = stats.windowId;
+          byte checkpointType = in.readByte();
+          if (checkpointType == CHECKPOINT) {
+            long checkpointWindowId = stats.windowId + readZigZag(in);
+            int applicationWindowCount = (int)readVarLong(in);
+            int checkpointWindowCount = (int)readVarLong(in);
+            stats.checkpoint = new Checkpoint(checkpointWindowId, applicationWindowCount, checkpointWindowCount);
+          } else if (checkpointType == CHECKPOINT_OBJECT) {
+            stats.checkpoint = (com.datatorrent.api.Stats.Checkpoint)readObject(in);
+          }
+          stats.cpuTimeUsed = readVarLong(in);
+          if (in.readBoolean()) {
+            stats.checkpointStats = new CheckpointStats();
+            stats.checkpointStats.checkpointStartTime = readVarLong(in);
+            stats.checkpointStats.checkpointTime = readVarLong(in);
+          }
+          stats.recordingId = readString(in);
+          stats.inputPorts = readPorts(in, previousTimestamp);
+          stats.outputPorts = readPorts(in, previousTimestamp);
+          stats.counters = readObject(in);
+
+          int metricCount = (int)readVarLong(in) - 1;
+          if (metricCount >= 0) {
+            stats.metrics = new LinkedHashMap<>();
+            for (int m = 0; m < metricCount; m++) {
+              String key = readString(in);
+              byte type = in.readByte();
+              if (type == VALUE_UNCHANGED) {
+                if (key != null && metrics.containsKey(key)) {
+                  stats.metrics.put(key, metrics.get(key));
+                } else {
+                  inSync = false;
+                }
+              } else {
+                Object value = readValue(in, type);
+                if (key != null) {
+                  stats.metrics.put(key, value);
+                  metrics.put(key, value);
+                }
+              }
+            }
+          }
+          ohb.windowStats.add(stats);
+        }
+        target.addNodeStats(ohb);
+      }
+      return inSync;
+    }
+
+    private ArrayList<PortStats> readPorts(DataInputStream in, long[] previousTimestamp) throws IOException
+    {
+      int count = (int)readVarLong(in) - 1;
+      if (count < 0) {
+        return null;
+      }
+      ArrayList<PortStats> ports = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        String id = readString(in);
+        PortStats ps = new PortStats(id);
+        ps.tupleCount = (int)readVarLong(in);
+        ps.endWindowTimestamp = previousTimestamp[0] + readZigZag(in);
+        previousTimestamp[0] = ps.endWindowTimestamp;
+        ps.bufferServerBytes = readVarLong(in);
+        ps.queueSize = (int)readVarLong(in);
+        ps.recordingId = readString(in);
+        ps.queueSizeHistogram = in.readBoolean() ? Histogram.read(in) : null;
+        ps.processingTimeHistogram = in.readBoolean() ? Histogram.read(in) : null;
+        if (id != null) {
+          ports.add(ps);
+        }
+      }
+      return ports;
+    }
+
+    private String readString(DataInputStream in) throws IOException
+    {
+      int code = (int)readVarLong(in);
+      if (code == STRING_NULL) {
+        return null;
+      }
+      if (code == STRING_NEW) {
+        String s = in.readUTF();
+        // a retried message defines strings that are already known
+        if (!stringIds.containsKey(s)) {
+          stringIds.put(s, strings.size());
+          strings.add(s);
+        }
+        return s;
+      }
+      int id = code - STRING_OFFSET;
+      if (id < strings.size()) {
+        return strings.get(id);
+      }
+      inSync = false;
+      return null;
+    }
+
+    private static Object readValue(DataInputStream in, byte type) throws IOException
+    {
+      switch (type) {
+        case VALUE_NULL:
+          return null;
+        case VALUE_LONG:
+          return readZigZag(in);
+        case VALUE_INT:
+          return (int)readZigZag(in);
+        case VALUE_DOUBLE:
+          return in.readDouble();
+        case VALUE_FLOAT:
+          return in.readFloat();
+        case VALUE_BOOLEAN:
+          return in.readBoolean();
+        case VALUE_STRING:
+          return in.readUTF();
+        case VALUE_OBJECT:
+          return readObject(in);
+        case VALUE_HISTOGRAM:
+          return Histogram.read(in);
+        default:
+          throw new IOException("Unknown value type " + type);
+      }
+    }
+  }
+
+  private static void writeObject(DataOutputStream out, Object o) throws IOException
+  {
+    if (o == null) {
+      writeVarLong(out, 0);
+      return;
+    }
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(o);
+    }
+    writeVarLong(out, bos.size() + 1);
+    bos.writeTo(out);
+  }
+
+  private static Object readObject(DataInputStream in) throws IOException
+  {
+    int length = (int)readVarLong(in) - 1;
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return ois.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  static void writeVarLong(DataOutputStream out, long value) throws IOException
+  {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int)((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int)value);
+  }
+
+  static long readVarLong(DataInputStream in) throws IOException
+  {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.readByte();
+      value |= (long)(b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable length number");
+  }
+
+  static void writeZigZag(DataOutputStream out, long value) throws IOException
+  {
+    writeVarLong(out, (value << 1) ^ (value >> 63));
+  }
+
+  static long readZigZag(DataInputStream in) throws IOException
+  {
+    long value = readVarLong(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
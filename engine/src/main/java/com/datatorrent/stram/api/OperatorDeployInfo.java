@@ -30,6 +30,7 @@ import org.apache.commons.lang.builder.ToStringStyle;
 
 import com.datatorrent.api.Attribute;
 import com.datatorrent.api.Attribute.AttributeMap;
+import com.datatorrent.api.AutoMetric;
 import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DAG.Locality;
 import com.datatorrent.api.StreamCodec;
@@ -306,6 +307,11 @@ public class OperatorDeployInfo implements Serializable, OperatorContext
    * Context attributes for operator
    */
   public AttributeMap contextAttributes;
+  /**
+   * Associative aggregator used to pre-aggregate the metrics of co-located partitions, null when metrics are
+   * aggregated by the master only.
+   */
+  public AutoMetric.Aggregator metricsAggregator;
 
   /**
    *
@@ -218,6 +218,7 @@ public abstract class StramEvent
   public static class StartOperatorEvent extends PhysicalOperatorEvent
   {
     private String containerId;
+    private long stateLoadMillis;
 
     public StartOperatorEvent(String operatorName, int operatorId, String containerId)
     {
@@ -225,6 +226,12 @@ public abstract class StramEvent
       this.containerId = containerId;
     }
 
+    public StartOperatorEvent(String operatorName, int operatorId, String containerId, long stateLoadMillis)
+    {
+      this(operatorName, operatorId, containerId);
+      this.stateLoadMillis = stateLoadMillis;
+    }
+
     @Override
     public String getType()
     {
@@ -241,6 +248,19 @@ public abstract class StramEvent
       this.containerId = containerId;
     }
 
+    /**
+     * @return time taken by the container to load the checkpointed state of the operator
+     */
+    public long getStateLoadMillis()
+    {
+      return stateLoadMillis;
+    }
+
+    public void setStateLoadMillis(long stateLoadMillis)
+    {
+      this.stateLoadMillis = stateLoadMillis;
+    }
+
   }
 
   public static class StopOperatorEvent extends PhysicalOperatorEvent
@@ -158,6 +158,21 @@ public interface StreamingContainerUmbilicalProtocol extends VersionedProtocol
       this.intervalMs = intervalMs;
     }
 
+    /**
+     * Time taken to load the checkpointed state when the operator was deployed.
+     */
+    public long stateLoadMillis;
+
+    public long getStateLoadMillis()
+    {
+      return stateLoadMillis;
+    }
+
+    public void setStateLoadMillis(long stateLoadMillis)
+    {
+      this.stateLoadMillis = stateLoadMillis;
+    }
+
     /**
      * State of the operator (processing, idle etc).
      */
@@ -254,6 +269,17 @@ public interface StreamingContainerUmbilicalProtocol extends VersionedProtocol
     }
 
     public String stackTrace;
+
+    /**
+     * Operator heartbeats encoded by {@link HeartbeatStatsCodec}, set instead of {@link ContainerStats#operators}
+     * when delta encoding is enabled.
+     */
+    public byte[] operatorStatsDelta;
+
+    /**
+     * Sequence number of {@link #operatorStatsDelta}.
+     */
+    public long statsSequence;
   }
 
   /**
@@ -383,6 +409,11 @@ public interface StreamingContainerUmbilicalProtocol extends VersionedProtocol
     public long committedWindowId = -1;
 
     public boolean stackTraceRequired = false;
+
+    /**
+     * Set when the encoded operator stats could not be fully decoded and the next heartbeat needs to carry a baseline.
+     */
+    public boolean statsResync = false;
   }
 
   /**
@@ -30,7 +30,6 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
@@ -44,13 +43,15 @@ import org.apache.hadoop.service.AbstractService;
 
 import com.datatorrent.api.AutoMetric;
 import com.datatorrent.api.Context.DAGContext;
+import com.datatorrent.api.Histogram;
 import com.datatorrent.common.metric.AutoMetricBuiltInTransport;
-import com.datatorrent.common.util.Pair;
+import com.datatorrent.common.metric.HistogramSerializer;
 import com.datatorrent.stram.PubSubWebSocketMetricTransport;
 import com.datatorrent.stram.StramAppContext;
 import com.datatorrent.stram.StreamingContainerManager;
 import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.logical.MetricAggregatorMeta;
+import com.datatorrent.stram.util.WindowMetricsBuffer;
 import com.datatorrent.stram.webapp.LogicalOperatorInfo;
 
 /**
@@ -73,6 +74,7 @@ public class AppDataPushAgent extends AbstractService
 
   private final Map<String, Long> operatorsSchemaLastSentTime = new HashMap<>();
   private final Map<String, JSONObject> operatorSchemas = new HashMap<>();
+  private final Map<String, Long> operatorsMetricsSequence = new HashMap<>();
 
   public AppDataPushAgent(StreamingContainerManager dnmgr, StramAppContext appContext)
   {
@@ -135,34 +137,27 @@ public class AppDataPushAgent extends AbstractService
       for (LogicalOperatorInfo logicalOperator : logicalOperatorInfoList) {
         JSONObject logicalOperatorJson = extractFields(logicalOperator);
         JSONArray metricsList = new JSONArray();
-        Queue<Pair<Long, Map<String, Object>>> windowMetrics = dnmgr.getWindowMetrics(logicalOperator.name);
+        String operatorName = logicalOperator.name;
+        WindowMetricsBuffer windowMetrics = dnmgr.getWindowMetrics(operatorName);
         if (windowMetrics != null) {
-          while (!windowMetrics.isEmpty()) {
-            Pair<Long, Map<String, Object>> metrics = windowMetrics.remove();
-            long windowId = metrics.first;
-            // metric name, aggregated value
-            Map<String, Object> aggregates = metrics.second;
-            long now = System.currentTimeMillis();
-            if (!operatorsSchemaLastSentTime.containsKey(logicalOperator.name) ||
-                (metricsTransport.getSchemaResendInterval() > 0 && operatorsSchemaLastSentTime.get(logicalOperator.name) < now - metricsTransport.getSchemaResendInterval())) {
-              try {
-                pushMetricsSchema(dnmgr.getLogicalPlan().getOperatorMeta(logicalOperator.name), aggregates);
-                operatorsSchemaLastSentTime.put(logicalOperator.name, now);
-              } catch (IOException ex) {
-                LOG.error("Cannot push metrics schema", ex);
-              }
-            }
-            JSONObject metricsItem = new JSONObject();
-            metricsItem.put("_windowId", windowId);
-            long windowToMillis = dnmgr.windowIdToMillis(windowId);
-            LOG.debug("metric window {} time {}", windowId, windowToMillis);
-            metricsItem.put("_time", windowToMillis);
-            for (Map.Entry<String, Object> entry : aggregates.entrySet()) {
-              String metricName = entry.getKey();
-              Object aggregateValue = entry.getValue();
-              metricsItem.put(metricName, aggregateValue);
-            }
-            metricsList.put(metricsItem);
+          // push each window once, windows replaced in the buffer since the last push are lost
+          Long fromSequence = operatorsMetricsSequence.get(operatorName);
+          // the buffer is locked while visited and blocks metric aggregation, only copy the values under the lock
+          final List<Long> windowIds = new ArrayList<>();
+          final List<Map<String, Object>> windowValues = new ArrayList<>();
+          long nextSequence = windowMetrics.visit(fromSequence == null ? 0 : fromSequence,
+              new WindowMetricsBuffer.Visitor()
+              {
+                @Override
+                public void visit(long sequence, WindowMetricsBuffer.Window window)
+                {
+                  windowIds.add(window.getWindowId());
+                  windowValues.add(window.toMap());
+                }
+              });
+          operatorsMetricsSequence.put(operatorName, nextSequence);
+          for (int i = 0; i < windowIds.size(); i++) {
+            metricsList.put(getMetricsItem(operatorName, windowIds.get(i), windowValues.get(i)));
           }
         }
         logicalOperatorJson.put("metrics", metricsList);
@@ -242,6 +237,42 @@ public class AppDataPushAgent extends AbstractService
     return result;
   }
 
+  /**
+   * Histograms are sent as their percentile summary.
+   */
+  private static Object toJsonValue(Object value)
+  {
+    return value instanceof Histogram ? new JSONObject(HistogramSerializer.summarize((Histogram)value)) : value;
+  }
+
+  private JSONObject getMetricsItem(String operatorName, long windowId, Map<String, Object> values)
+  {
+    long now = System.currentTimeMillis();
+    if (!operatorsSchemaLastSentTime.containsKey(operatorName) ||
+        (metricsTransport.getSchemaResendInterval() > 0 && operatorsSchemaLastSentTime.get(operatorName) < now - metricsTransport.getSchemaResendInterval())) {
+      try {
+        pushMetricsSchema(dnmgr.getLogicalPlan().getOperatorMeta(operatorName), values);
+        operatorsSchemaLastSentTime.put(operatorName, now);
+      } catch (IOException ex) {
+        LOG.error("Cannot push metrics schema", ex);
+      }
+    }
+    JSONObject metricsItem = new JSONObject();
+    try {
+      metricsItem.put("_windowId", windowId);
+      long windowToMillis = dnmgr.windowIdToMillis(windowId);
+      LOG.debug("metric window {} time {}", windowId, windowToMillis);
+      metricsItem.put("_time", windowToMillis);
+      // metric name, aggregated value
+      for (Map.Entry<String, Object> entry : values.entrySet()) {
+        metricsItem.put(entry.getKey(), toJsonValue(entry.getValue()));
+      }
+    } catch (JSONException ex) {
+      throw new RuntimeException(ex);
+    }
+    return metricsItem;
+  }
+
   private JSONObject getMetricsSchemaData(LogicalPlan.OperatorMeta operatorMeta, Map<String, Object> aggregates)
   {
     JSONObject result = new JSONObject();
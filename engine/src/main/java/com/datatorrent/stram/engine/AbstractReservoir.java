@@ -19,8 +19,11 @@
 package com.datatorrent.stram.engine;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -33,6 +36,8 @@ import org.jctools.queues.SpscArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.BatchSink;
+import com.datatorrent.api.PrimitiveSink;
 import com.datatorrent.api.Sink;
 import com.datatorrent.netlet.util.CircularBuffer;
 import com.datatorrent.netlet.util.UnsafeBlockingQueue;
@@ -44,6 +49,14 @@ import static java.lang.Thread.sleep;
  * Abstract Sweepable Reservoir implementation. Implements all methods of {@link SweepableReservoir} except
  * {@link SweepableReservoir#sweep}. Classes that extend {@link AbstractReservoir} must implement
  * {@link BlockingQueue} interface.
+ * <p>
+ * Primitive values are held in a separate ring and represented in the queue by a marker, so that thread boundaries
+ * between operators connected with primitive ports do not box. The values are delivered to the sink by
+ * {@link #sweep()}, they are not returned by the {@link BlockingQueue} methods. Likewise, a batch of data tuples
+ * passed to {@link #putBatch(List)} occupies a single queue entry and is unpacked by {@link #sweep()}.
+ * <p>
+ * When the sink is a {@link BatchSink}, {@link #sweep()} delivers the data tuples found before the next control tuple
+ * in one call.
  *
  * @since 3.4.0
  */
@@ -88,9 +101,35 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     }
   }
 
+  /**
+   * Queue entry for a primitive value in the ring.
+   */
+  private enum Primitive
+  {
+    LONG, INT, DOUBLE
+  }
+
+  /**
+   * Queue entry for a batch of data tuples.
+   */
+  private static final class Batch
+  {
+    private final Object[] tuples;
+
+    private Batch(Object[] tuples)
+    {
+      this.tuples = tuples;
+    }
+  }
+
   private Sink<Object> sink;
+  private BatchSink<Object> batchSink;
+  private final ArrayList<Object> batch = new ArrayList<>();
   private String id;
   protected int count;
+  private long[] primitives;
+  private int primitiveTail;
+  private int primitiveHead;
 
   protected AbstractReservoir(final String id)
   {
@@ -101,12 +140,14 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
    * {@inheritDoc}
    */
   @Override
+  @SuppressWarnings("unchecked")
   public Sink<Object> setSink(Sink<Object> sink)
   {
     try {
       return this.sink;
     } finally {
       this.sink = sink;
+      this.batchSink = sink instanceof BatchSink ? (BatchSink<Object>)sink : null;
     }
   }
 
@@ -151,6 +192,184 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     return sink;
   }
 
+  public void putLong(long value) throws InterruptedException
+  {
+    putPrimitive(value, Primitive.LONG);
+  }
+
+  public void putInt(int value) throws InterruptedException
+  {
+    putPrimitive(value, Primitive.INT);
+  }
+
+  public void putDouble(double value) throws InterruptedException
+  {
+    putPrimitive(Double.doubleToRawLongBits(value), Primitive.DOUBLE);
+  }
+
+  /**
+   * Called by the producer. The value is stored before the marker is queued, so it is visible to the consumer once
+   * the marker is.
+   */
+  private void putPrimitive(long bits, Primitive type) throws InterruptedException
+  {
+    long[] primitives = this.primitives;
+    if (primitives == null) {
+      /*
+       * the queue holds at most capacity markers, one more slot is written while the producer waits for space and one
+       * more is needed as the consumer reads the value after taking the marker off the queue
+       */
+      this.primitives = primitives = new long[capacity() + 2];
+    }
+    primitives[primitiveTail] = bits;
+    primitiveTail = primitiveTail + 1 == primitives.length ? 0 : primitiveTail + 1;
+    put(type);
+  }
+
+  /**
+   * Queue the data tuples as a single entry. The list is copied, the caller can reuse it after the call.
+   *
+   * @param tuples data tuples, no control tuples
+   * @throws InterruptedException
+   */
+  public void putBatch(List<?> tuples) throws InterruptedException
+  {
+    put(new Batch(tuples.toArray()));
+  }
+
+  private long nextPrimitive()
+  {
+    final long[] primitives = this.primitives;
+    final long bits = primitives[primitiveHead];
+    primitiveHead = primitiveHead + 1 == primitives.length ? 0 : primitiveHead + 1;
+    return bits;
+  }
+
+  /**
+   * @param o data tuple taken off the queue
+   * @return the tuple or the boxed primitive value
+   */
+  private Object box(final Object o)
+  {
+    if (!(o instanceof Primitive)) {
+      return o;
+    }
+    final long bits = nextPrimitive();
+    switch ((Primitive)o) {
+      case LONG:
+        return bits;
+      case INT:
+        return (int)bits;
+      default:
+        return Double.longBitsToDouble(bits);
+    }
+  }
+
+  protected boolean hasBatchSink()
+  {
+    return batchSink != null;
+  }
+
+  /**
+   * Sweep for a {@link BatchSink}. The data tuples present before the next control tuple are delivered in one call.
+   *
+   * @return The control tuple encountered or null
+   */
+  protected Tuple sweepBatch()
+  {
+    final Tuple t = drainBatch();
+    deliverBatch();
+    return t;
+  }
+
+  /**
+   * Take the data tuples present before the next control tuple off the queue into the batch.
+   *
+   * @return The control tuple encountered or null
+   */
+  protected final Tuple drainBatch()
+  {
+    final ArrayList<Object> batch = this.batch;
+    Tuple t = null;
+    Object o;
+    for (int i = size(); i-- > 0 && (o = peek()) != null;) {
+      if (o instanceof Tuple) {
+        t = (Tuple)o;
+        break;
+      }
+      o = poll();
+      if (o instanceof Batch) {
+        Collections.addAll(batch, ((Batch)o).tuples);
+      } else {
+        batch.add(box(o));
+      }
+    }
+    return t;
+  }
+
+  /**
+   * Pass the tuples taken off the queue by {@link #drainBatch()} to the {@link BatchSink}.
+   */
+  protected final void deliverBatch()
+  {
+    final ArrayList<Object> batch = this.batch;
+    if (!batch.isEmpty()) {
+      count += batch.size();
+      try {
+        batchSink.putBatch(batch);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Pass a data tuple taken off the queue to the sink, primitive values are taken from the ring and batches are
+   * unpacked. The caller counts the entry as one tuple.
+   *
+   * @param sink
+   * @param o
+   */
+  protected final void deliver(final Sink<Object> sink, final Object o)
+  {
+    if (!(o instanceof Primitive)) {
+      if (o instanceof Batch) {
+        final Object[] tuples = ((Batch)o).tuples;
+        count += tuples.length - 1;
+        for (Object tuple : tuples) {
+          sink.put(tuple);
+        }
+      } else {
+        sink.put(o);
+      }
+      return;
+    }
+    final long bits = nextPrimitive();
+    switch ((Primitive)o) {
+      case LONG:
+        if (sink instanceof PrimitiveSink.OfLong) {
+          ((PrimitiveSink.OfLong)sink).putLong(bits);
+        } else {
+          sink.put(bits);
+        }
+        break;
+      case INT:
+        if (sink instanceof PrimitiveSink.OfInt) {
+          ((PrimitiveSink.OfInt)sink).putInt((int)bits);
+        } else {
+          sink.put((int)bits);
+        }
+        break;
+      default:
+        if (sink instanceof PrimitiveSink.OfDouble) {
+          ((PrimitiveSink.OfDouble)sink).putDouble(Double.longBitsToDouble(bits));
+        } else {
+          sink.put(Double.longBitsToDouble(bits));
+        }
+        break;
+    }
+  }
+
   @Override
   public String toString()
   {
@@ -177,6 +396,9 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public Tuple sweep()
     {
+      if (hasBatchSink()) {
+        return sweepBatch();
+      }
       Object o;
       final SpscArrayQueue<Object> queue = this.queue;
       final Sink<Object> sink = getSink();
@@ -185,7 +407,7 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
           return (Tuple)o;
         }
         count++;
-        sink.put(queue.poll());
+        deliver(sink, queue.poll());
       }
       return null;
     }
@@ -399,6 +621,9 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public Tuple sweep()
     {
+      if (hasBatchSink()) {
+        return sweepBatch();
+      }
       Object o;
       final ReentrantLock lock = this.lock;
       final SpscArrayQueue<Object> queue = getQueue();
@@ -410,7 +635,7 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
             return (Tuple)o;
           }
           count++;
-          sink.put(queue.poll());
+          deliver(sink, queue.poll());
           notFull.signal();
           if (lock.hasQueuedThreads()) {
             return null;
@@ -422,6 +647,23 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
       }
     }
 
+    @Override
+    protected Tuple sweepBatch()
+    {
+      final Tuple t;
+      final ReentrantLock lock = this.lock;
+      lock.lock();
+      try {
+        t = drainBatch();
+      } finally {
+        notFull.signal();
+        lock.unlock();
+      }
+      // the producer is not held up while the sink processes the batch
+      deliverBatch();
+      return t;
+    }
+
     @Override
     public void put(Object o) throws InterruptedException
     {
@@ -477,6 +719,9 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public Tuple sweep()
     {
+      if (hasBatchSink()) {
+        return sweepBatch();
+      }
       Object o;
       final ArrayBlockingQueue<Object> queue = this.queue;
       final Sink<Object> sink = getSink();
@@ -485,7 +730,7 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
           return (Tuple)o;
         }
         count++;
-        sink.put(queue.poll());
+        deliver(sink, queue.poll());
       }
       return null;
     }
@@ -553,7 +798,8 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public int capacity()
     {
-      throw new UnsupportedOperationException();
+      final ArrayBlockingQueue<Object> queue = this.queue;
+      return queue.size() + queue.remainingCapacity();
     }
 
     @Override
@@ -679,6 +925,9 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public Tuple sweep()
     {
+      if (hasBatchSink()) {
+        return sweepBatch();
+      }
       final CircularBuffer<Object> circularBuffer = this.circularBuffer;
       final Sink<Object> sink = getSink();
       final int size = circularBuffer.size();
@@ -687,7 +936,7 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
           count += i;
           return (Tuple)peekUnsafe();
         }
-        sink.put(pollUnsafe());
+        deliver(sink, pollUnsafe());
       }
 
       count += size;
@@ -0,0 +1,296 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.AsyncRequests;
+import com.datatorrent.common.util.NameableThreadFactory;
+
+/**
+ * Engine side of {@link AsyncRequests}. Completed requests are queued and their callbacks are run by the node on the
+ * operator thread, between tuples and before the end of the window. Callbacks are never run from within
+ * {@link #begin}, which only waits for a slot. Requests that do not complete within the timeout are failed with a
+ * {@link TimeoutException}. The in flight count is only modified on the operator thread.
+ *
+ * @since 3.5.0
+ */
+public class AsyncRequestQueue implements AsyncRequests
+{
+  private static final Logger logger = LoggerFactory.getLogger(AsyncRequestQueue.class);
+
+  private final String name;
+  private final int maxInFlight;
+  private final long timeoutMillis;
+  private final BlockingQueue<Request<?>> completed = new LinkedBlockingQueue<>();
+  /**
+   * Completed requests taken off the queue while waiting for a slot, their callbacks have not run yet.
+   */
+  private final ArrayDeque<Request<?>> ready = new ArrayDeque<>();
+  /**
+   * Requests in the order they were issued, for the timeout. Completed ones are dropped lazily.
+   */
+  private final ArrayDeque<Request<?>> issued = new ArrayDeque<>();
+  private int inFlight;
+  private ExecutorService executor;
+
+  private class Request<V> implements Completion<V>
+  {
+    private final Callback<V> callback;
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final long deadlineMillis;
+    private V result;
+    private Throwable cause;
+
+    Request(Callback<V> callback, long deadlineMillis)
+    {
+      this.callback = callback;
+      this.deadlineMillis = deadlineMillis;
+    }
+
+    @Override
+    public void complete(V result)
+    {
+      if (done.compareAndSet(false, true)) {
+        this.result = result;
+        completed.add(this);
+      }
+    }
+
+    @Override
+    public void fail(Throwable cause)
+    {
+      if (done.compareAndSet(false, true)) {
+        this.cause = cause == null ? new NullPointerException("cause") : cause;
+        completed.add(this);
+      }
+    }
+
+    void run()
+    {
+      inFlight--;
+      if (cause == null) {
+        callback.completed(result);
+      } else {
+        callback.failed(cause);
+      }
+    }
+  }
+
+  /**
+   * @param name used to name the threads executing submitted calls
+   * @param maxInFlight limit of requests in flight
+   */
+  public AsyncRequestQueue(String name, int maxInFlight)
+  {
+    this(name, maxInFlight, 0);
+  }
+
+  /**
+   * @param name used to name the threads executing submitted calls
+   * @param maxInFlight limit of requests in flight
+   * @param timeoutMillis time after which a request that has not completed is failed, 0 for no limit
+   */
+  public AsyncRequestQueue(String name, int maxInFlight, long timeoutMillis)
+  {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight " + maxInFlight);
+    }
+    if (timeoutMillis < 0) {
+      throw new IllegalArgumentException("timeoutMillis " + timeoutMillis);
+    }
+    this.name = name;
+    this.maxInFlight = maxInFlight;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  @Override
+  public <V> Completion<V> begin(Callback<V> callback)
+  {
+    // completed requests free their slot, the callbacks are left for processCompletions
+    while (inFlight - ready.size() >= maxInFlight) {
+      Request<?> r = poll(Long.MAX_VALUE);
+      if (r != null) {
+        ready.add(r);
+      }
+    }
+    inFlight++;
+    Request<V> request = new Request<>(callback, timeoutMillis == 0 ? Long.MAX_VALUE :
+        System.currentTimeMillis() + timeoutMillis);
+    if (timeoutMillis != 0) {
+      issued.add(request);
+    }
+    return request;
+  }
+
+  @Override
+  public <V> void submit(final Callable<V> request, Callback<V> callback)
+  {
+    final Completion<V> completion = begin(callback);
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(maxInFlight, new NameableThreadFactory(name + "-async", true));
+    }
+    executor.execute(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try {
+          completion.complete(request.call());
+        } catch (Throwable t) {
+          completion.fail(t);
+        }
+      }
+    });
+  }
+
+  @Override
+  public int getInFlightCount()
+  {
+    // requests set aside by begin have completed, only their callbacks are pending
+    return inFlight - ready.size();
+  }
+
+  public int getMaxInFlight()
+  {
+    return maxInFlight;
+  }
+
+  /**
+   * Run the callbacks of all requests completed so far without blocking.
+   *
+   * @return number of callbacks run
+   */
+  public int processCompletions()
+  {
+    expire();
+    int count = 0;
+    Request<?> r;
+    while ((r = ready.poll()) != null) {
+      r.run();
+      count++;
+    }
+    while ((r = completed.poll()) != null) {
+      r.run();
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Wait for at least one request to complete unless none is in flight and run the callbacks of completed requests.
+   *
+   * @param timeoutMillis maximum time to wait
+   * @return number of callbacks run
+   */
+  public int awaitCompletion(long timeoutMillis)
+  {
+    if (inFlight == 0) {
+      return 0;
+    }
+    if (ready.isEmpty()) {
+      Request<?> r = poll(timeoutMillis);
+      if (r == null) {
+        return 0;
+      }
+      ready.add(r);
+    }
+    return processCompletions();
+  }
+
+  /**
+   * Wait for the next completed request, failing the requests that time out in the meantime.
+   *
+   * @param waitMillis maximum time to wait
+   * @return the completed request or null
+   */
+  private Request<?> poll(long waitMillis)
+  {
+    long nextDeadline = expire();
+    if (nextDeadline != Long.MAX_VALUE) {
+      waitMillis = Math.max(0, Math.min(waitMillis, nextDeadline - System.currentTimeMillis()));
+    }
+    try {
+      return completed.poll(waitMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  /**
+   * Fail the requests that are past their deadline.
+   *
+   * @return deadline of the oldest request still outstanding or Long.MAX_VALUE
+   */
+  private long expire()
+  {
+    if (issued.isEmpty()) {
+      return Long.MAX_VALUE;
+    }
+    long now = System.currentTimeMillis();
+    Request<?> r;
+    while ((r = issued.peek()) != null) {
+      if (!r.done.get()) {
+        if (r.deadlineMillis > now) {
+          return r.deadlineMillis;
+        }
+        r.fail(new TimeoutException("Request not completed within " + timeoutMillis + "ms"));
+      }
+      issued.poll();
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Block until all requests in flight have completed and their callbacks have run.
+   */
+  public void awaitAll()
+  {
+    processCompletions();
+    while (inFlight > 0) {
+      if (awaitCompletion(1000) == 0) {
+        logger.debug("Waiting for {} requests in flight", inFlight);
+      }
+    }
+  }
+
+  public void teardown()
+  {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+    completed.clear();
+    ready.clear();
+    issued.clear();
+    inFlight = 0;
+  }
+
+}
@@ -0,0 +1,289 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.util.ReflectionUtils;
+
+import com.datatorrent.api.AutoMetric;
+import com.datatorrent.api.Histogram;
+
+/**
+ * Collects the {@link AutoMetric} values of an operator. The accessors of the annotated fields and getters are bound
+ * to the operator once. Every window the values are read into a primitive backed {@link Record}, which is only
+ * turned into a map of boxed values when the stats are serialized or read.
+ *
+ * @since 3.5.0
+ */
+public class AutoMetricCollector
+{
+  private static final byte LONG = 0;
+  private static final byte INT = 1;
+  private static final byte SHORT = 2;
+  private static final byte BYTE = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte FLOAT = 5;
+  private static final byte OBJECT = 6;
+
+  private final String[] names;
+  private final MethodHandle[] accessors;
+  private final byte[] kinds;
+  private final int[] slots;
+  private final int longCount;
+  private final int doubleCount;
+  private final int objectCount;
+  private Collection<String> selection;
+  private boolean[] selected;
+  private int selectedCount;
+
+  public AutoMetricCollector(Object operator)
+  {
+    List<String> names = new ArrayList<>();
+    List<MethodHandle> accessors = new ArrayList<>();
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      for (Field field : ReflectionUtils.getDeclaredFieldsIncludingInherited(operator.getClass())) {
+        if (field.isAnnotationPresent(AutoMetric.class)) {
+          field.setAccessible(true);
+          names.add(field.getName());
+          accessors.add(lookup.unreflectGetter(field).bindTo(operator));
+        }
+      }
+      for (PropertyDescriptor pd : Introspector.getBeanInfo(operator.getClass()).getPropertyDescriptors()) {
+        Method readMethod = pd.getReadMethod();
+        if (readMethod != null && readMethod.getAnnotation(AutoMetric.class) != null) {
+          readMethod.setAccessible(true);
+          names.add(pd.getName());
+          accessors.add(lookup.unreflect(readMethod).bindTo(operator));
+        }
+      }
+    } catch (IntrospectionException | IllegalAccessException e) {
+      throw new RuntimeException("introspecting " + operator.getClass(), e);
+    }
+
+    int count = names.size();
+    this.names = names.toArray(new String[count]);
+    this.accessors = new MethodHandle[count];
+    this.kinds = new byte[count];
+    this.slots = new int[count];
+    int longs = 0;
+    int doubles = 0;
+    int objects = 0;
+    for (int i = 0; i < count; i++) {
+      MethodHandle accessor = accessors.get(i);
+      Class<?> type = accessor.type().returnType();
+      if (type == long.class || type == int.class || type == short.class || type == byte.class) {
+        kinds[i] = type == long.class ? LONG : type == int.class ? INT : type == short.class ? SHORT : BYTE;
+        this.accessors[i] = accessor.asType(MethodType.methodType(long.class));
+        slots[i] = longs++;
+      } else if (type == double.class || type == float.class) {
+        kinds[i] = type == double.class ? DOUBLE : FLOAT;
+        this.accessors[i] = accessor.asType(MethodType.methodType(double.class));
+        slots[i] = doubles++;
+      } else {
+        kinds[i] = OBJECT;
+        this.accessors[i] = accessor.asType(MethodType.methodType(Object.class));
+        slots[i] = objects++;
+      }
+    }
+    longCount = longs;
+    doubleCount = doubles;
+    objectCount = objects;
+    select(null);
+  }
+
+  public int getMetricCount()
+  {
+    return names.length;
+  }
+
+  /**
+   * Restrict the metrics collected, the check is done once per change of the requested metrics instead of once per
+   * metric and window.
+   *
+   * @param metricNames metrics to collect, all when null
+   */
+  private void select(Collection<String> metricNames)
+  {
+    boolean[] mask = new boolean[names.length];
+    int count = 0;
+    for (int i = 0; i < names.length; i++) {
+      if (metricNames == null || metricNames.contains(names[i])) {
+        mask[i] = true;
+        count++;
+      }
+    }
+    selection = metricNames;
+    selected = mask;
+    selectedCount = count;
+  }
+
+  /**
+   * Read the current metric values of the operator.
+   *
+   * @param metricNames metrics to collect, all when null
+   * @return the values
+   */
+  public Record collect(Collection<String> metricNames)
+  {
+    if (metricNames != selection) {
+      select(metricNames);
+    }
+    Record record = new Record(this);
+    try {
+      for (int i = 0; i < names.length; i++) {
+        if (!selected[i]) {
+          continue;
+        }
+        switch (kinds[i]) {
+          case OBJECT:
+            Object value = (Object)accessors[i].invokeExact();
+            if (value instanceof Histogram) {
+              // the operator keeps recording into its histogram while the stats are queued
+              value = ((Histogram)value).copy();
+            }
+            record.objects[slots[i]] = value;
+            break;
+          case DOUBLE:
+          case FLOAT:
+            record.doubles[slots[i]] = (double)accessors[i].invokeExact();
+            break;
+          default:
+            record.longs[slots[i]] = (long)accessors[i].invokeExact();
+        }
+      }
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new RuntimeException(t);
+    }
+    return record;
+  }
+
+  /**
+   * Metric values of one window. Values are kept unboxed and the map is materialized on first access. It is
+   * serialized as a plain {@link HashMap}.
+   */
+  public static class Record extends AbstractMap<String, Object> implements Serializable
+  {
+    private final transient AutoMetricCollector collector;
+    private final transient boolean[] selected;
+    private final transient int size;
+    private final transient long[] longs;
+    private final transient double[] doubles;
+    private final transient Object[] objects;
+    private transient Map<String, Object> map;
+
+    private Record(AutoMetricCollector collector)
+    {
+      this.collector = collector;
+      selected = collector.selected;
+      size = collector.selectedCount;
+      longs = collector.longCount == 0 ? null : new long[collector.longCount];
+      doubles = collector.doubleCount == 0 ? null : new double[collector.doubleCount];
+      objects = collector.objectCount == 0 ? null : new Object[collector.objectCount];
+    }
+
+    private Map<String, Object> toMap()
+    {
+      if (map == null) {
+        Map<String, Object> values = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < selected.length; i++) {
+          if (!selected[i]) {
+            continue;
+          }
+          int slot = collector.slots[i];
+          Object value;
+          switch (collector.kinds[i]) {
+            case LONG:
+              value = longs[slot];
+              break;
+            case INT:
+              value = (int)longs[slot];
+              break;
+            case SHORT:
+              value = (short)longs[slot];
+              break;
+            case BYTE:
+              value = (byte)longs[slot];
+              break;
+            case DOUBLE:
+              value = doubles[slot];
+              break;
+            case FLOAT:
+              value = (float)doubles[slot];
+              break;
+            default:
+              value = objects[slot];
+          }
+          values.put(collector.names[i], value);
+        }
+        map = values;
+      }
+      return map;
+    }
+
+    @Override
+    public int size()
+    {
+      return size;
+    }
+
+    @Override
+    public Object get(Object key)
+    {
+      return toMap().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+      return toMap().containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet()
+    {
+      return toMap().entrySet();
+    }
+
+    private Object writeReplace()
+    {
+      return new HashMap<>(toMap());
+    }
+
+    private static final long serialVersionUID = 201610190001L;
+  }
+}
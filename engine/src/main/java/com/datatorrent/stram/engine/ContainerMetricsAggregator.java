@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.AutoMetric;
+import com.datatorrent.stram.PhysicalMetricsContextImpl;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.OperatorHeartbeat;
+
+/**
+ * Pre-aggregates the metrics of co-located partitions of the same logical operator with the associative aggregator
+ * of the operator. The metrics of a window are removed from the stats of the individual partitions and, once all
+ * partitions in the container have reported the window, the partial aggregate is attached to the stats of the
+ * partition that reported last. The application master then aggregates only one partial per container.
+ *
+ * @since 3.5.0
+ */
+public class ContainerMetricsAggregator
+{
+  private static final Logger logger = LoggerFactory.getLogger(ContainerMetricsAggregator.class);
+
+  private static class PendingWindow
+  {
+    final Set<Integer> reported = new HashSet<>();
+    final List<AutoMetric.PhysicalMetricsContext> metrics = new ArrayList<>();
+  }
+
+  private static class LogicalOperator
+  {
+    final AutoMetric.Aggregator aggregator;
+    final Set<Integer> partitions = new HashSet<>();
+    final TreeMap<Long, PendingWindow> pendingWindows = new TreeMap<>();
+
+    LogicalOperator(AutoMetric.Aggregator aggregator)
+    {
+      this.aggregator = aggregator;
+    }
+  }
+
+  private final Map<String, LogicalOperator> logicalOperators = new HashMap<>();
+  private final Map<Integer, LogicalOperator> partitions = new HashMap<>();
+
+  /**
+   * Pre-aggregate the metrics of the given partition.
+   *
+   * @param operatorId physical operator id
+   * @param name logical operator name
+   * @param aggregator associative aggregator of the logical operator
+   */
+  public synchronized void add(int operatorId, String name, AutoMetric.Aggregator aggregator)
+  {
+    LogicalOperator lo = logicalOperators.get(name);
+    if (lo == null) {
+      logicalOperators.put(name, lo = new LogicalOperator(aggregator));
+    }
+    lo.partitions.add(operatorId);
+    partitions.put(operatorId, lo);
+  }
+
+  public synchronized void remove(int operatorId)
+  {
+    LogicalOperator lo = partitions.remove(operatorId);
+    if (lo != null) {
+      lo.partitions.remove(operatorId);
+      // windows the partition did not report cannot complete any more
+      lo.pendingWindows.clear();
+    }
+  }
+
+  /**
+   * Replace the metrics of the registered partitions in the heartbeat with partial aggregates.
+   *
+   * @param stats stats of all operators in the container
+   */
+  public synchronized void process(ContainerStats stats)
+  {
+    if (partitions.isEmpty()) {
+      return;
+    }
+    for (OperatorHeartbeat ohb : stats.operators) {
+      LogicalOperator lo = partitions.get(ohb.nodeId);
+      if (lo == null) {
+        continue;
+      }
+      for (ContainerStats.OperatorStats os : ohb.windowStats) {
+        PendingWindow pw = lo.pendingWindows.get(os.windowId);
+        if (pw == null) {
+          lo.pendingWindows.put(os.windowId, pw = new PendingWindow());
+        }
+        pw.reported.add(ohb.nodeId);
+        if (os.metrics != null) {
+          pw.metrics.add(new PhysicalMetricsContextImpl(ohb.nodeId, os.metrics));
+          os.metrics = null;
+        }
+        if (pw.reported.containsAll(lo.partitions)) {
+          if (!pw.metrics.isEmpty()) {
+            os.metrics = lo.aggregator.aggregate(os.windowId, pw.metrics);
+          }
+          // all partitions passed this window, earlier incomplete windows will not complete
+          Iterator<Long> it = lo.pendingWindows.headMap(os.windowId, true).keySet().iterator();
+          while (it.hasNext()) {
+            long windowId = it.next();
+            if (windowId != os.windowId) {
+              logger.debug("Dropping incomplete metrics of window {}", windowId);
+            }
+            it.remove();
+          }
+        }
+      }
+    }
+  }
+}
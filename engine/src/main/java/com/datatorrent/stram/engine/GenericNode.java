@@ -34,6 +34,7 @@ import org.apache.commons.lang.UnhandledException;
 
 import com.google.common.base.Throwables;
 
+import com.datatorrent.api.Histogram;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.IdleTimeHandler;
 import com.datatorrent.api.Operator.InputPort;
@@ -66,6 +67,7 @@ import com.datatorrent.stram.tuple.Tuple;
 public class GenericNode extends Node<Operator>
 {
   protected final HashMap<String, SweepableReservoir> inputs = new HashMap<>();
+  private HashMap<SweepableReservoir, PortHistograms> portHistograms;
   protected ArrayList<DeferredInputConnection> deferredInputConnections = new ArrayList<>();
 
   @Override
@@ -141,6 +143,9 @@ public class GenericNode extends Node<Operator>
    */
   protected void processEndWindow(Tuple endWindowTuple)
   {
+    if (asyncRequests != null) {
+      asyncRequests.awaitAll();
+    }
     if (++applicationWindowCount == APPLICATION_WINDOW_COUNT) {
       insideWindow = false;
       operator.endWindow();
@@ -225,6 +230,8 @@ public class GenericNode extends Node<Operator>
   public final void run()
   {
     doCheckpoint = false;
+    portHistograms = context.getValue(LogicalPlan.PORT_HISTOGRAMS) ?
+        new HashMap<SweepableReservoir, PortHistograms>() : null;
 
     final long maxSpinMillis = context.getValue(OperatorContext.SPIN_MILLIS);
     long spinMillis = 0;
@@ -256,7 +263,7 @@ public class GenericNode extends Node<Operator>
         while (buffers.hasNext()) {
           Map.Entry<String, SweepableReservoir> activePortEntry = buffers.next();
           SweepableReservoir activePort = activePortEntry.getValue();
-          Tuple t = activePort.sweep();
+          Tuple t = portHistograms == null ? activePort.sweep() : sweepAndRecord(activePort);
           if (t != null) {
             spinMillis = 0;
             boolean delay = (operator instanceof Operator.DelayOperator);
@@ -585,6 +592,9 @@ public class GenericNode extends Node<Operator>
           logger.error("Catastrophic Error: Invalid State - the operator blocked forever!");
           System.exit(2);
         } else {
+          if (asyncRequests != null && asyncRequests.processCompletions() > 0) {
+            spinMillis = 0;
+          }
           boolean need2sleep = true;
           for (Map.Entry<String, SweepableReservoir> cb : activeQueues) {
             need2sleep = cb.getValue().isEmpty();
@@ -595,7 +605,14 @@ public class GenericNode extends Node<Operator>
           }
 
           if (need2sleep) {
-            if (handleIdleTime && insideWindow) {
+            if (asyncRequests != null && asyncRequests.getInFlightCount() > 0) {
+              // wake up as soon as a request completes rather than sleeping
+              if (asyncRequests.awaitCompletion(spinMillis) > 0) {
+                spinMillis = 0;
+              } else {
+                spinMillis = Math.min(maxSpinMillis, spinMillis + 1);
+              }
+            } else if (handleIdleTime && insideWindow) {
               ((IdleTimeHandler)operator).handleIdleTime();
             } else {
               Thread.sleep(spinMillis);
@@ -685,6 +702,27 @@ public class GenericNode extends Node<Operator>
     }
   }
 
+  /**
+   * Sweep the reservoir and record the queue size and the processing time per tuple of the swept data tuples.
+   */
+  private Tuple sweepAndRecord(SweepableReservoir reservoir)
+  {
+    PortHistograms histograms = portHistograms.get(reservoir);
+    if (histograms == null) {
+      portHistograms.put(reservoir, histograms = new PortHistograms());
+    }
+    int queueSize = reservoir.size(false);
+    int count = reservoir.getCount(false);
+    long start = System.nanoTime();
+    Tuple t = reservoir.sweep();
+    int processed = reservoir.getCount(false) - count;
+    if (processed > 0) {
+      histograms.processingNanos.recordValueWithCount((System.nanoTime() - start) / processed, processed);
+      histograms.queueSize.recordValue(queueSize);
+    }
+    return t;
+  }
+
   @Override
   protected void reportStats(ContainerStats.OperatorStats stats, long windowId)
   {
@@ -695,12 +733,28 @@ public class GenericNode extends Node<Operator>
       portStats.queueSize = ar.size(DATA_TUPLE_AWARE);
       portStats.tupleCount = ar.getCount(true);
       portStats.endWindowTimestamp = endWindowDequeueTimes.get(e.getValue());
+      PortHistograms histograms = portHistograms == null ? null : portHistograms.get(ar);
+      if (histograms != null) {
+        portStats.queueSizeHistogram = histograms.queueSize.copy();
+        portStats.processingTimeHistogram = histograms.processingNanos.copy();
+        histograms.queueSize.reset();
+        histograms.processingNanos.reset();
+      }
       ipstats.add(portStats);
     }
     stats.inputPorts = ipstats;
     super.reportStats(stats, windowId);
   }
 
+  /**
+   * Histograms of an input port, recorded when {@link LogicalPlan#PORT_HISTOGRAMS} is set.
+   */
+  private static class PortHistograms
+  {
+    final Histogram queueSize = new Histogram(Histogram.DEFAULT_PRECISION_BITS, 1 << 20);
+    final Histogram processingNanos = new Histogram();
+  }
+
   protected class DeferredInputConnection
   {
     String portname;
@@ -89,13 +89,21 @@ public class InputNode extends Node<InputOperator>
             }
 
             operator.emitTuples();
+            // tuples emitted by the callbacks are counted with the sinks, the callbacks themselves separately
+            int completions = asyncRequests == null ? 0 : asyncRequests.processCompletions();
 
             for (Sink<Object> cs : sinks) {
               generatedTuples += cs.getCount(false);
             }
 
-            if (generatedTuples == 0) {
-              if (handleIdleTime) {
+            if (generatedTuples == 0 && completions == 0) {
+              if (asyncRequests != null && asyncRequests.getInFlightCount() > 0) {
+                if (asyncRequests.awaitCompletion(spinMillis) > 0) {
+                  spinMillis = 0;
+                } else {
+                  spinMillis = Math.min(spinMillis + 1, maxSpinMillis);
+                }
+              } else if (handleIdleTime) {
                 ((IdleTimeHandler)operator).handleIdleTime();
               } else {
                 Thread.sleep(spinMillis);
@@ -126,6 +134,9 @@ public class InputNode extends Node<InputOperator>
               break;
 
             case END_WINDOW:
+              if (asyncRequests != null) {
+                asyncRequests.awaitAll();
+              }
               insideStreamingWindow = false;
               if (++applicationWindowCount == APPLICATION_WINDOW_COUNT) {
                 insideApplicationWindow = false;
@@ -18,16 +18,10 @@
  */
 package com.datatorrent.stram.engine;
 
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -47,18 +41,14 @@ import java.util.concurrent.LinkedBlockingQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.apache.hadoop.util.ReflectionUtils;
-
 import com.google.common.base.Throwables;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.common.math.IntMath;
 
-import com.datatorrent.api.AutoMetric;
 import com.datatorrent.api.Component;
 import com.datatorrent.api.Context;
 import com.datatorrent.api.InputOperator;
 import com.datatorrent.api.Operator;
+import com.datatorrent.api.Operator.AsyncRequester;
 import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.Operator.OutputPort;
 import com.datatorrent.api.Operator.ProcessingMode;
@@ -126,13 +116,21 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
   protected int controlTupleCount;
   public final OperatorContext context;
   public final BlockingQueue<StatsListener.OperatorResponse> commandResponse;
-  private final List<Field> metricFields;
-  private final Map<String, Method> metricMethods;
+  private final AutoMetricCollector metricCollector;
   private ExecutorService executorService;
   private Queue<Pair<FutureTask<Stats.CheckpointStats>, CheckpointWindowInfo>> taskQueue;
   protected Stats.CheckpointStats checkpointStats;
+  protected AsyncRequestQueue asyncRequests;
   public long firstWindowMillis;
   public long windowWidthMillis;
+  /**
+   * Time taken to load the checkpointed state of the operator on deployment.
+   */
+  public long stateLoadMillis;
+  /**
+   * Key groups owned by the operator, null unless the operator has {@link Operator.KeyGroupedState}.
+   */
+  public int[] keyGroups;
 
   public Node(OPERATOR operator, OperatorContext context)
   {
@@ -150,28 +148,7 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     tmb = ManagementFactory.getThreadMXBean();
     commandResponse = new LinkedBlockingQueue<>();
 
-    metricFields = Lists.newArrayList();
-    for (Field field : ReflectionUtils.getDeclaredFieldsIncludingInherited(operator.getClass())) {
-      if (field.isAnnotationPresent(AutoMetric.class)) {
-        metricFields.add(field);
-        field.setAccessible(true);
-      }
-    }
-
-    metricMethods = Maps.newHashMap();
-    try {
-      for (PropertyDescriptor pd : Introspector.getBeanInfo(operator.getClass()).getPropertyDescriptors()) {
-        Method readMethod = pd.getReadMethod();
-        if (readMethod != null) {
-          AutoMetric rfa = readMethod.getAnnotation(AutoMetric.class);
-          if (rfa != null) {
-            metricMethods.put(pd.getName(), readMethod);
-          }
-        }
-      }
-    } catch (IntrospectionException e) {
-      throw new RuntimeException("introspecting {}", e);
-    }
+    metricCollector = new AutoMetricCollector(operator);
   }
 
   public Operator getOperator()
@@ -184,6 +161,12 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
   {
     shutdown = false;
     logger.debug("Operator Context = {}", context);
+    if (operator instanceof AsyncRequester) {
+      asyncRequests = new AsyncRequestQueue("operator-" + context.getId(),
+          context.getValue(OperatorContext.ASYNC_MAX_IN_FLIGHT),
+          context.getValue(OperatorContext.ASYNC_TIMEOUT_MILLIS));
+      ((AsyncRequester)operator).setAsyncRequests(asyncRequests);
+    }
     operator.setup(context);
 //    this is where the ports should be setup but since the
 //    portcontext is not available here, we are doing it in
@@ -211,6 +194,9 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     if (executorService != null) {
       executorService.shutdownNow();
     }
+    if (asyncRequests != null) {
+      asyncRequests.teardown();
+    }
     operator.teardown();
   }
 
@@ -396,27 +382,9 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     if (context.areMetricsListed() && (context.metricsToSend == null || context.metricsToSend.isEmpty())) {
       return null;
     }
-    Map<String, Object> metricValues = Maps.newHashMap();
-    try {
-      for (Field field : metricFields) {
-        if (context.metricsToSend != null && !context.metricsToSend.contains(field.getName())) {
-          continue;
-        }
-        metricValues.put(field.getName(), field.get(operator));
-      }
-
-      for (Map.Entry<String, Method> methodEntry : metricMethods.entrySet()) {
-        if (context.metricsToSend != null && !context.metricsToSend.contains(methodEntry.getKey())) {
-          continue;
-        }
-        metricValues.put(methodEntry.getKey(), methodEntry.getValue().invoke(operator));
-      }
-
-      context.clearMetrics();
-      return metricValues;
-    } catch (IllegalAccessException | InvocationTargetException iae) {
-      throw new RuntimeException(iae);
-    }
+    Map<String, Object> metricValues = metricCollector.collect(context.metricsToSend);
+    context.clearMetrics();
+    return metricValues;
   }
 
   protected void reportStats(ContainerStats.OperatorStats stats, long windowId)
@@ -494,6 +462,9 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
           checkpointStats = new Stats.CheckpointStats();
           checkpointStats.checkpointStartTime = System.currentTimeMillis();
           ba.save(operator, id, windowId);
+          if (keyGroups != null) {
+            saveKeyGroups((StorageAgent.KeyGroupStorageAgent)ba, windowId);
+          }
           if (ba instanceof AsyncFSStorageAgent) {
             AsyncFSStorageAgent asyncFSStorageAgent = (AsyncFSStorageAgent)ba;
             if (!asyncFSStorageAgent.isSyncCheckpoint()) {
@@ -540,6 +511,21 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     }
   }
 
+  /**
+   * Save the key groups of the operator. The state is written on the operator thread, also with an asynchronous
+   * storage agent, as the operator continues to modify it after the checkpoint.
+   */
+  private void saveKeyGroups(StorageAgent.KeyGroupStorageAgent agent, long windowId) throws IOException
+  {
+    Operator.KeyGroupedState keyGroupedState = (Operator.KeyGroupedState)operator;
+    for (int keyGroup : keyGroups) {
+      Object state = keyGroupedState.getKeyGroupState(keyGroup);
+      if (state != null) {
+        agent.saveKeyGroup(state, id, keyGroup, windowId);
+      }
+    }
+  }
+
   protected void calculateNextCheckpointWindow()
   {
     if (PROCESSING_MODE != ProcessingMode.EXACTLY_ONCE) {
@@ -20,18 +20,26 @@ package com.datatorrent.stram.engine;
 
 import java.io.Serializable;
 import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
 import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.api.Operator;
+import com.datatorrent.api.Operator.InvertibleUnifier;
+import com.datatorrent.api.Operator.SlidingUnifier;
 import com.datatorrent.api.Operator.Unifier;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.StatsListener;
 
 /**
  * <p>Slider class.</p>
+ * Computes the result of a unifier over a sliding window. For a plain {@link Unifier} the tuples of the retained
+ * windows are kept and passed to the unifier again on every slide. For a {@link SlidingUnifier} only the partial
+ * aggregate of each window is kept and the aggregate of the sliding window is maintained incrementally, by a running
+ * aggregate for an {@link InvertibleUnifier} and with a two stack queue otherwise.
  *
  * @since 3.2.0
  */
@@ -45,6 +53,108 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   private transient int spinMillis;
   public final transient DefaultOutputPort<Object> outputPort = new DefaultOutputPort<>();
   private transient int cacheSize;
+  /**
+   * Partial aggregates of the retained windows of a sliding unifier, oldest first.
+   */
+  private LinkedList<Object> panes;
+  private transient SlidingUnifier<Object, Object> slidingUnifier;
+  private transient SlidingAggregate slidingAggregate;
+  private transient Object currentPane;
+
+  /**
+   * Aggregate of the retained panes.
+   */
+  private interface SlidingAggregate
+  {
+    void add(Object pane);
+
+    void evict(Object pane);
+
+    Object get();
+  }
+
+  /**
+   * Running aggregate of an invertible unifier, each pane is merged when added and subtracted when evicted.
+   */
+  private static class InvertibleAggregate implements SlidingAggregate
+  {
+    private final InvertibleUnifier<Object, Object> unifier;
+    private Object aggregate;
+
+    InvertibleAggregate(InvertibleUnifier<Object, Object> unifier)
+    {
+      this.unifier = unifier;
+      this.aggregate = unifier.createAggregate();
+    }
+
+    @Override
+    public void add(Object pane)
+    {
+      aggregate = unifier.merge(aggregate, pane);
+    }
+
+    @Override
+    public void evict(Object pane)
+    {
+      aggregate = unifier.subtract(aggregate, pane);
+    }
+
+    @Override
+    public Object get()
+    {
+      return aggregate;
+    }
+  }
+
+  /**
+   * Queue of panes built from two stacks. Panes are added to the back stack, which also tracks the aggregate of its
+   * panes. The front stack holds the aggregates of the older panes from each pane to the last one of the front stack.
+   * When a pane is evicted with an empty front stack, the back stack is moved over. Each pane is merged a constant
+   * number of times, regardless of the number of panes in the window.
+   */
+  private static class TwoStackAggregate implements SlidingAggregate
+  {
+    private final SlidingUnifier<Object, Object> unifier;
+    private final Object identity;
+    private final ArrayDeque<Object> front = new ArrayDeque<>();
+    private final List<Object> back = new ArrayList<>();
+    private Object backAggregate;
+
+    TwoStackAggregate(SlidingUnifier<Object, Object> unifier)
+    {
+      this.unifier = unifier;
+      this.identity = unifier.createAggregate();
+      this.backAggregate = identity;
+    }
+
+    @Override
+    public void add(Object pane)
+    {
+      back.add(pane);
+      backAggregate = unifier.merge(backAggregate, pane);
+    }
+
+    @Override
+    public void evict(Object pane)
+    {
+      if (front.isEmpty()) {
+        Object aggregate = identity;
+        for (int i = back.size(); i-- > 0;) {
+          aggregate = unifier.merge(back.get(i), aggregate);
+          front.push(aggregate);
+        }
+        back.clear();
+        backAggregate = identity;
+      }
+      front.pop();
+    }
+
+    @Override
+    public Object get()
+    {
+      return front.isEmpty() ? backAggregate : unifier.merge(front.peek(), backAggregate);
+    }
+  }
 
   public Unifier<Object> getUnifier()
   {
@@ -62,6 +172,7 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   {
     unifier = uniOperator;
     cache = new LinkedList<>();
+    panes = new LinkedList<>();
     this.numberOfBuckets = buckets;
     this.numberOfSlideBuckets = numberOfSlideBuckets;
   }
@@ -88,6 +199,10 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   @Override
   public void process(Object tuple)
   {
+    if (slidingUnifier != null) {
+      currentPane = slidingUnifier.accumulate(currentPane, tuple);
+      return;
+    }
     if (cacheSize == numberOfBuckets - 1) {
       unifier.process(tuple);
     }
@@ -97,6 +212,10 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   @Override
   public void beginWindow(long windowId)
   {
+    if (slidingUnifier != null) {
+      currentPane = slidingUnifier.createAggregate();
+      return;
+    }
     cacheSize = cache.size();
     unifier.beginWindow(windowId);
     if (cacheSize == numberOfBuckets - 1) {
@@ -112,6 +231,18 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   @Override
   public void endWindow()
   {
+    if (slidingUnifier != null) {
+      panes.add(currentPane);
+      slidingAggregate.add(currentPane);
+      currentPane = null;
+      if (panes.size() == numberOfBuckets) {
+        slidingUnifier.emitAggregate(slidingAggregate.get());
+        for (int i = 0; i < numberOfSlideBuckets; i++) {
+          slidingAggregate.evict(panes.removeFirst());
+        }
+      }
+      return;
+    }
     cache.add(currentList);
     if (cacheSize == numberOfBuckets - 1) {
       for (int i = 0; i < numberOfSlideBuckets; i++) {
@@ -122,6 +253,7 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public void setup(OperatorContext context)
   {
     OutputPort<?> unifierOutputPort = getOutputPort();
@@ -142,6 +274,23 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
         }
     );
     unifier.setup(context);
+    // the aggregate is created after the unifier is set up, as createAggregate may depend on its configuration
+    if (unifier instanceof SlidingUnifier) {
+      slidingUnifier = (SlidingUnifier<Object, Object>)unifier;
+      if (unifier instanceof InvertibleUnifier) {
+        slidingAggregate = new InvertibleAggregate((InvertibleUnifier<Object, Object>)unifier);
+      } else {
+        slidingAggregate = new TwoStackAggregate(slidingUnifier);
+      }
+      if (panes == null) {
+        // checkpoint taken before panes were retained
+        panes = new LinkedList<>();
+      }
+      // panes restored from checkpoint
+      for (Object pane : panes) {
+        slidingAggregate.add(pane);
+      }
+    }
     spinMillis = context.getValue(OperatorContext.SPIN_MILLIS);
   }
 
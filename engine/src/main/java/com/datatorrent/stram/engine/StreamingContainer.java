@@ -19,6 +19,7 @@
 package com.datatorrent.stram.engine;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.Thread.State;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
@@ -38,8 +39,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +67,7 @@ import com.datatorrent.api.Attribute;
 import com.datatorrent.api.Component;
 import com.datatorrent.api.Context;
 import com.datatorrent.api.DAG.Locality;
+import com.datatorrent.api.KeyGroups;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.Operator.OutputPort;
@@ -74,6 +82,7 @@ import com.datatorrent.api.annotation.Stateless;
 import com.datatorrent.bufferserver.server.Server;
 import com.datatorrent.bufferserver.storage.DiskStorage;
 import com.datatorrent.bufferserver.util.Codec;
+import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.common.util.ScheduledThreadPoolExecutor;
 import com.datatorrent.netlet.DefaultEventLoop;
 import com.datatorrent.netlet.util.Slice;
@@ -90,6 +99,7 @@ import com.datatorrent.stram.api.ContainerEvent.NodeActivationEvent;
 import com.datatorrent.stram.api.ContainerEvent.NodeDeactivationEvent;
 import com.datatorrent.stram.api.ContainerEvent.StreamActivationEvent;
 import com.datatorrent.stram.api.ContainerEvent.StreamDeactivationEvent;
+import com.datatorrent.stram.api.HeartbeatStatsCodec;
 import com.datatorrent.stram.api.OperatorDeployInfo;
 import com.datatorrent.stram.api.OperatorDeployInfo.OperatorType;
 import com.datatorrent.stram.api.OperatorDeployInfo.UnifierDeployInfo;
@@ -159,6 +169,10 @@ public class StreamingContainer extends YarnContainerMain
   private com.datatorrent.bufferserver.server.Server bufferServer;
   private int checkpointWindowCount;
   private boolean fastPublisherSubscriber;
+  private int stateLoadThreads;
+  private ExecutorService stateLoadExecutor;
+  private HeartbeatStatsCodec.Encoder statsEncoder;
+  private final ContainerMetricsAggregator metricsAggregator = new ContainerMetricsAggregator();
   private StreamingContainerContext containerContext;
   private List<StramToNodeRequest> nodeRequests;
   private final HashMap<String, Object> singletons;
@@ -202,6 +216,10 @@ public class StreamingContainer extends YarnContainerMain
     checkpointWindowCount = ctx.getValue(Context.DAGContext.CHECKPOINT_WINDOW_COUNT);
 
     fastPublisherSubscriber = ctx.getValue(LogicalPlan.FAST_PUBLISHER_SUBSCRIBER);
+    stateLoadThreads = ctx.getValue(LogicalPlan.CONTAINER_STATE_LOAD_THREADS);
+    if (ctx.getValue(LogicalPlan.HEARTBEAT_STATS_DELTA)) {
+      statsEncoder = new HeartbeatStatsCodec.Encoder();
+    }
 
     Map<Class<?>, Class<? extends StringCodec<?>>> codecs = ctx.getValue(Context.DAGContext.STRING_CODECS);
     StringCodecs.loadConverters(codecs);
@@ -565,6 +583,7 @@ public class StreamingContainer extends YarnContainerMain
 
     for (Integer operatorId : nodeList) {
       nodes.remove(operatorId);
+      metricsAggregator.remove(operatorId);
     }
   }
 
@@ -593,6 +612,11 @@ public class StreamingContainer extends YarnContainerMain
     }
 
     gens.clear();
+
+    if (stateLoadExecutor != null) {
+      stateLoadExecutor.shutdownNow();
+      stateLoadExecutor = null;
+    }
   }
 
   public void triggerHeartbeat()
@@ -659,6 +683,11 @@ public class StreamingContainer extends YarnContainerMain
           hb.setNodeId(e.getKey());
           hb.setGeneratedTms(currentTime);
           hb.setIntervalMs(heartbeatIntervalMillis);
+          if (e.getValue().stateLoadMillis > 0) {
+            // reported once, with the first heartbeat after deploy
+            hb.setStateLoadMillis(e.getValue().stateLoadMillis);
+            e.getValue().stateLoadMillis = 0;
+          }
           if (e.getValue().commandResponse.size() > 0) {
             BlockingQueue<StatsListener.OperatorResponse> commandResponse = e.getValue().commandResponse;
             ArrayList<StatsListener.OperatorResponse> response = new ArrayList<>();
@@ -681,6 +710,7 @@ public class StreamingContainer extends YarnContainerMain
 
           stats.addNodeStats(hb);
         }
+        metricsAggregator.process(stats);
 
         /**
          * Container stats published for whoever is interested in listening.
@@ -688,7 +718,14 @@ public class StreamingContainer extends YarnContainerMain
          */
         eventBus.publish(new ContainerStatsEvent(stats));
 
-        msg.setContainerStats(stats);
+        if (statsEncoder == null) {
+          msg.setContainerStats(stats);
+        } else {
+          // operator stats travel encoded, the master adds the decoded heartbeats to the empty list
+          msg.statsSequence = statsEncoder.getSequence();
+          msg.operatorStatsDelta = statsEncoder.encode(stats.operators);
+          msg.setContainerStats(new ContainerStats(containerId));
+        }
 
         // heartbeat call and follow-up processing
         //logger.debug("Sending heartbeat for {} operators.", msg.getContainerStats().size());
@@ -696,7 +733,18 @@ public class StreamingContainer extends YarnContainerMain
 
         msg.stackTrace = stackTrace;
 
-        rsp = umbilical.processHeartbeat(msg);
+        try {
+          rsp = umbilical.processHeartbeat(msg);
+        } catch (RuntimeException e) {
+          if (statsEncoder != null) {
+            // unknown whether the master has seen the message
+            statsEncoder.reset();
+          }
+          throw e;
+        }
+        if (rsp.statsResync && statsEncoder != null) {
+          statsEncoder.reset();
+        }
 
         if (rsp.stackTraceRequired) {
           stackTrace = StramUtils.getStackTrace().toString();
@@ -886,33 +934,142 @@ public class StreamingContainer extends YarnContainerMain
     }
   }
 
+  /**
+   * Restore the operators of a deployment from their checkpoints. State is loaded concurrently on a bounded pool,
+   * nodes are created and registered in deployment order once all loads have completed.
+   */
   private void deployNodes(List<OperatorDeployInfo> nodeList) throws IOException
   {
-    for (OperatorDeployInfo ndi : nodeList) {
-      StorageAgent backupAgent = getValue(OperatorContext.STORAGE_AGENT, ndi);
-      assert (backupAgent != null);
-
-      Context parentContext;
-      if (ndi instanceof UnifierDeployInfo) {
-        OperatorContext unifiedOperatorContext = new OperatorContext(0, ((UnifierDeployInfo)ndi).operatorAttributes, containerContext);
-        parentContext = new PortContext(ndi.inputs.get(0).contextAttributes, unifiedOperatorContext);
-        massageUnifierDeployInfo(ndi);
-      } else {
-        parentContext = containerContext;
+    List<OperatorContext> contexts = new ArrayList<>(nodeList.size());
+    List<Future<Object>> loads = new ArrayList<>(nodeList.size());
+    final long[] loadMillis = new long[nodeList.size()];
+    final int[][] keyGroups = new int[nodeList.size()][];
+    final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    boolean parallel = nodeList.size() > 1 && stateLoadThreads > 1;
+    if (parallel && stateLoadExecutor == null) {
+      stateLoadExecutor = Executors.newFixedThreadPool(stateLoadThreads, new NameableThreadFactory("StateLoader", true));
+    }
+
+    try {
+      for (int i = 0; i < nodeList.size(); i++) {
+        final OperatorDeployInfo ndi = nodeList.get(i);
+        final StorageAgent backupAgent = getValue(OperatorContext.STORAGE_AGENT, ndi);
+        assert (backupAgent != null);
+
+        Context parentContext;
+        if (ndi instanceof UnifierDeployInfo) {
+          OperatorContext unifiedOperatorContext = new OperatorContext(0, ((UnifierDeployInfo)ndi).operatorAttributes, containerContext);
+          parentContext = new PortContext(ndi.inputs.get(0).contextAttributes, unifiedOperatorContext);
+          massageUnifierDeployInfo(ndi);
+        } else {
+          parentContext = containerContext;
+        }
+
+        OperatorContext ctx = new OperatorContext(ndi.id, ndi.contextAttributes, parentContext);
+        ctx.attributes.put(OperatorContext.ACTIVATION_WINDOW_ID, ndi.checkpoint.windowId);
+        contexts.add(ctx);
+        logger.debug("Restoring operator {} to checkpoint {} stateless={}.", ndi.id, Codec.getStringWindowId(ndi.checkpoint.windowId), ctx.stateless);
+
+        final long windowId = ctx.stateless ? Stateless.WINDOW_ID : ndi.checkpoint.windowId;
+        final int keyGroupCount = ctx.stateless || ndi.type == OperatorDeployInfo.OperatorType.UNIFIER ? 0 :
+            ctx.getValue(OperatorContext.KEY_GROUPS);
+        final int index = i;
+        Callable<Object> load = new Callable<Object>()
+        {
+          @Override
+          public Object call() throws Exception
+          {
+            Thread thread = Thread.currentThread();
+            ClassLoader previous = thread.getContextClassLoader();
+            thread.setContextClassLoader(classLoader);
+            long start = System.currentTimeMillis();
+            try {
+              Object operator = backupAgent.load(ndi.id, windowId);
+              if (keyGroupCount > 0 && operator instanceof Operator.KeyGroupedState) {
+                keyGroups[index] = getKeyGroups(ndi, keyGroupCount);
+                loadKeyGroups((Operator.KeyGroupedState)operator, (StorageAgent.KeyGroupStorageAgent)backupAgent,
+                    ndi.id, windowId, keyGroups[index]);
+              }
+              return operator;
+            } finally {
+              loadMillis[index] = System.currentTimeMillis() - start;
+              thread.setContextClassLoader(previous);
+            }
+          }
+        };
+        if (parallel) {
+          loads.add(stateLoadExecutor.submit(load));
+        } else {
+          FutureTask<Object> task = new FutureTask<>(load);
+          task.run();
+          loads.add(task);
+        }
+      }
+
+      for (int i = 0; i < nodeList.size(); i++) {
+        OperatorDeployInfo ndi = nodeList.get(i);
+        Object operator;
+        try {
+          operator = loads.get(i).get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException)cause;
+          }
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException)cause;
+          }
+          if (cause instanceof Error) {
+            throw (Error)cause;
+          }
+          throw new IOException("Failed to load state of operator " + ndi.id, cause);
+        }
+        Node<?> node = Node.retrieveNode(operator, contexts.get(i), ndi.type);
+        node.currentWindowId = ndi.checkpoint.windowId;
+        node.applicationWindowCount = ndi.checkpoint.applicationWindowCount;
+        node.firstWindowMillis = firstWindowMillis;
+        node.windowWidthMillis = windowWidthMillis;
+        node.stateLoadMillis = loadMillis[i];
+        node.keyGroups = keyGroups[i];
+
+        node.setId(ndi.id);
+        nodes.put(ndi.id, node);
+        if (ndi.metricsAggregator != null) {
+          metricsAggregator.add(ndi.id, ndi.name, ndi.metricsAggregator);
+        }
+        logger.debug("Marking operator {} as deployed, state loaded in {}ms.", node, node.stateLoadMillis);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while loading operator state");
+    } finally {
+      for (Future<Object> f : loads) {
+        f.cancel(true);
       }
+    }
+  }
 
-      OperatorContext ctx = new OperatorContext(ndi.id, ndi.contextAttributes, parentContext);
-      ctx.attributes.put(OperatorContext.ACTIVATION_WINDOW_ID, ndi.checkpoint.windowId);
-      logger.debug("Restoring operator {} to checkpoint {} stateless={}.", ndi.id, Codec.getStringWindowId(ndi.checkpoint.windowId), ctx.stateless);
-      Node<?> node = Node.retrieveNode(backupAgent.load(ndi.id, ctx.stateless ? Stateless.WINDOW_ID : ndi.checkpoint.windowId), ctx, ndi.type);
-      node.currentWindowId = ndi.checkpoint.windowId;
-      node.applicationWindowCount = ndi.checkpoint.applicationWindowCount;
-      node.firstWindowMillis = firstWindowMillis;
-      node.windowWidthMillis = windowWidthMillis;
+  /**
+   * Key groups owned by the operator, determined by the partition keys of the first partitioned input.
+   */
+  private static int[] getKeyGroups(OperatorDeployInfo ndi, int keyGroupCount)
+  {
+    for (OperatorDeployInfo.InputDeployInfo idi : ndi.inputs) {
+      if (idi.partitionKeys != null && !idi.partitionKeys.isEmpty()) {
+        return KeyGroups.getKeyGroups(idi.partitionMask, idi.partitionKeys, keyGroupCount);
+      }
+    }
+    return KeyGroups.getKeyGroups(0, null, keyGroupCount);
+  }
 
-      node.setId(ndi.id);
-      nodes.put(ndi.id, node);
-      logger.debug("Marking operator {} as deployed.", node);
+  private static void loadKeyGroups(Operator.KeyGroupedState operator, StorageAgent.KeyGroupStorageAgent agent,
+      int operatorId, long windowId, int[] keyGroups) throws IOException
+  {
+    for (int keyGroup : keyGroups) {
+      Object state = agent.loadKeyGroup(operatorId, keyGroup, windowId);
+      if (state != null) {
+        operator.setKeyGroupState(keyGroup, state);
+      }
     }
   }
 
@@ -1222,7 +1379,7 @@ public class StreamingContainer extends YarnContainerMain
                * generally speaking we do not have partitions on the inline streams so the control should not
                * come here but if it comes, then we are ready to handle it using the partition aware streams.
                */
-              PartitionAwareSink<Object> pas = new PartitionAwareSink<>(streamCodec == null ? nonSerializingStreamCodec : (StreamCodec<Object>)streamCodec, nidi.partitionKeys, nidi.partitionMask, stream);
+              PartitionAwareSink<Object> pas = new PartitionAwareSink<>(streamCodec == null ? nonSerializingStreamCodec : (StreamCodec<Object>)streamCodec, nidi.partitionKeys, nidi.partitionMask, stream, streamCodecIdentifier);
               ((Stream.MultiSinkCapableStream)pair.component).setSink(sinkIdentifier, pas);
             }
 
@@ -18,17 +18,15 @@
  */
 package com.datatorrent.stram.plan.logical;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import com.google.common.base.Throwables;
+import com.esotericsoftware.kryo.io.UnsafeInput;
+import com.esotericsoftware.kryo.io.UnsafeOutput;
 
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.common.util.SerializableObject;
@@ -37,15 +35,23 @@ import com.datatorrent.netlet.util.Slice;
 /**
  * This codec is used for serializing the objects of class which are Kryo
  * serializable. Used for stream codec wrapper used for persistence
+ * <p>
+ * The codec reuses its Kryo input and output buffers, hence an instance must not be shared between threads. Tuple
+ * classes can be registered up front to avoid writing the class name with every tuple; the writing and the reading
+ * side need to register the same classes in the same order. Kryo's unsafe I/O can be enabled for tuples with large
+ * primitive arrays, note that the resulting format differs from the default one.
  *
  * @since 3.2.0
  */
 public class DefaultKryoStreamCodec<T> extends SerializableObject implements StreamCodec<T>
 {
-  private static final Logger logger = LoggerFactory.getLogger(DefaultKryoStreamCodec.class);
-
   private static final long serialVersionUID = 1L;
+  private static final int INITIAL_BUFFER_SIZE = 4096;
   protected final transient Kryo kryo;
+  private transient Output output;
+  private transient Input input;
+  private List<Class<?>> registeredClasses = new ArrayList<>();
+  private boolean useUnsafe;
 
   public DefaultKryoStreamCodec()
   {
@@ -53,35 +59,35 @@ public class DefaultKryoStreamCodec<T> extends SerializableObject implements Str
     this.kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
   }
 
+  /**
+   * @param tupleClasses classes to register with Kryo, typically the TUPLE_CLASS of the port
+   */
+  public DefaultKryoStreamCodec(Class<?>... tupleClasses)
+  {
+    this();
+    Collections.addAll(registeredClasses, tupleClasses);
+  }
+
   @Override
   public Object fromByteArray(Slice fragment)
   {
-    try {
-      ByteArrayInputStream is = new ByteArrayInputStream(fragment.buffer, fragment.offset, fragment.length);
-      Input input = new Input(is);
-      Object returnObject = kryo.readClassAndObject(input);
-      is.close();
-      return returnObject;
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
+    if (input == null) {
+      initialize();
     }
+    input.setBuffer(fragment.buffer, fragment.offset, fragment.length);
+    return kryo.readClassAndObject(input);
   }
 
   @Override
   public Slice toByteArray(T info)
   {
-    Slice slice = null;
-    try {
-      ByteArrayOutputStream os = new ByteArrayOutputStream();
-      Output output = new Output(os);
-      kryo.writeClassAndObject(output, info);
-      output.flush();
-      slice = new Slice(os.toByteArray(), 0, os.toByteArray().length);
-      os.close();
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
+    if (output == null) {
+      initialize();
     }
-    return slice;
+    output.clear();
+    kryo.writeClassAndObject(output, info);
+    byte[] bytes = output.toBytes();
+    return new Slice(bytes, 0, bytes.length);
   }
 
   @Override
@@ -89,4 +95,55 @@ public class DefaultKryoStreamCodec<T> extends SerializableObject implements Str
   {
     return t.hashCode();
   }
+
+  /**
+   * Register classes and allocate the reusable buffers. Deferred to first use, as the configuration is transferred
+   * after construction when the codec is deserialized.
+   */
+  private void initialize()
+  {
+    for (Class<?> clazz : registeredClasses) {
+      kryo.register(clazz);
+    }
+    if (useUnsafe) {
+      output = new UnsafeOutput(INITIAL_BUFFER_SIZE, -1);
+      input = new UnsafeInput();
+    } else {
+      output = new Output(INITIAL_BUFFER_SIZE, -1);
+      input = new Input();
+    }
+  }
+
+  /**
+   * Register a tuple class. Must be called before the codec is used.
+   *
+   * @param clazz class to register
+   */
+  public void register(Class<?> clazz)
+  {
+    if (output != null) {
+      throw new IllegalStateException("Classes must be registered before first use of the codec");
+    }
+    registeredClasses.add(clazz);
+  }
+
+  public List<Class<?>> getRegisteredClasses()
+  {
+    return Collections.unmodifiableList(registeredClasses);
+  }
+
+  public boolean isUseUnsafe()
+  {
+    return useUnsafe;
+  }
+
+  /**
+   * Use Kryo's unsafe input and output, which are faster for primitive arrays. Must be set before first use.
+   *
+   * @param useUnsafe
+   */
+  public void setUseUnsafe(boolean useUnsafe)
+  {
+    this.useUnsafe = useUnsafe;
+  }
 }
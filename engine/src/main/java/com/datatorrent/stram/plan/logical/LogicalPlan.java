@@ -79,7 +79,9 @@ import com.datatorrent.api.Attribute.AttributeMap;
 import com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap;
 import com.datatorrent.api.AutoMetric;
 import com.datatorrent.api.DAG;
+import com.datatorrent.api.Histogram;
 import com.datatorrent.api.InputOperator;
+import com.datatorrent.api.KeyGroups;
 import com.datatorrent.api.Module;
 import com.datatorrent.api.Module.ProxyInputPort;
 import com.datatorrent.api.Module.ProxyOutputPort;
@@ -88,12 +90,14 @@ import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.Operator.OutputPort;
 import com.datatorrent.api.Operator.Unifier;
 import com.datatorrent.api.Partitioner;
+import com.datatorrent.api.StorageAgent;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.api.StringCodec;
 import com.datatorrent.api.annotation.InputPortFieldAnnotation;
 import com.datatorrent.api.annotation.OperatorAnnotation;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 import com.datatorrent.common.experimental.AppData;
+import com.datatorrent.common.metric.HistogramAggregator;
 import com.datatorrent.common.metric.MetricsAggregator;
 import com.datatorrent.common.metric.SingleMetricAggregator;
 import com.datatorrent.common.metric.sum.DoubleSumAggregator;
@@ -124,6 +128,37 @@ public class LogicalPlan implements Serializable, DAG
    * This is for iterative processing.
    */
   public static final Attribute<Boolean> IS_CONNECTED_TO_DELAY_OPERATOR = new Attribute<>(false);
+  /**
+   * Attribute of output port.
+   * Expected bytes per second of the stream, used by traffic aware container packing instead of the measured rate.
+   */
+  public static final Attribute<Long> TRAFFIC_BYTES_HINT = new Attribute<>(0L);
+  /**
+   * Attribute of output port.
+   * Enables load driven sizing of the unifier tree. Cascading unifier fan-in, bounded by UNIFIER_LIMIT, is reduced
+   * when the cpu or input queue utilization of a unifier exceeds the given percentage and increased again when all
+   * unifiers are below a quarter of it. 0 disables adaptive sizing.
+   */
+  public static final Attribute<Integer> UNIFIER_TARGET_LOAD_PERCENT = new Attribute<>(0);
+  /**
+   * Attribute of output port.
+   * Lower bound for the cascading unifier fan-in chosen with UNIFIER_TARGET_LOAD_PERCENT. Values below 2 are treated
+   * as 2.
+   */
+  public static final Attribute<Integer> UNIFIER_MIN_LIMIT = new Attribute<>(2);
+  /**
+   * Attribute of operator.
+   * Pre-aggregate the metrics of partitions deployed to the same container, so that the application master only
+   * aggregates one partial per container. Requires an associative metrics aggregator, see
+   * {@link AutoMetric.AssociativeAggregator}. Metrics of individual partitions are not reported when enabled.
+   */
+  public static final Attribute<Boolean> METRICS_CONTAINER_AGGREGATION = new Attribute<>(false);
+  /**
+   * Attribute of operator.
+   * Record histograms of the queue size and the processing time per tuple for the input ports of the operator,
+   * reported with the port stats.
+   */
+  public static final Attribute<Boolean> PORT_HISTOGRAMS = new Attribute<>(false);
   @SuppressWarnings("FieldNameHidesFieldInSuperclass")
   private static final long serialVersionUID = -2099729915606048704L;
   private static final Logger LOG = LoggerFactory.getLogger(LogicalPlan.class);
@@ -185,6 +220,63 @@ public class LogicalPlan implements Serializable, DAG
    */
   public static Attribute<Integer> APPLICATION_ATTEMPT_ID = new Attribute<>(1);
 
+  /**
+   * Number of threads in the application master that delete committed checkpoints.
+   */
+  public static Attribute<Integer> CHECKPOINT_PURGE_THREADS = new Attribute<>(2);
+
+  /**
+   * Maximum number of checkpoint deletes per second issued by the application master, 0 for no limit.
+   */
+  public static Attribute<Integer> CHECKPOINT_PURGE_RATE = new Attribute<>(100);
+
+  /**
+   * Number of threads in each container that load checkpointed operator state concurrently during deployment.
+   */
+  public static Attribute<Integer> CONTAINER_STATE_LOAD_THREADS = new Attribute<>(4);
+
+  /**
+   * Number of threads in the application master that fold operator stats from container heartbeats into the operator,
+   * logical and critical path statistics. Heartbeats of the same container are always processed by the same thread.
+   * With 0 the stats are processed by the RPC thread as part of the heartbeat call.
+   */
+  public static Attribute<Integer> HEARTBEAT_STATS_THREADS = new Attribute<>(0);
+
+  /**
+   * Number of heartbeats each stats thread queues before the heartbeat calls wait for the thread to catch up.
+   */
+  public static Attribute<Integer> HEARTBEAT_STATS_QUEUE_CAPACITY = new Attribute<>(1024);
+
+  /**
+   * Whether containers send operator stats in heartbeats delta encoded. Port ids and metric keys are transmitted once
+   * and unchanged metric values are omitted, which reduces the size of heartbeats for containers with many operators.
+   */
+  public static Attribute<Boolean> HEARTBEAT_STATS_DELTA = new Attribute<>(false);
+
+  /**
+   * Interval in milliseconds within which the application master collects writes to the recovery journal into a single
+   * flush. With 0 every state change is flushed before it is applied.
+   */
+  public static Attribute<Integer> JOURNAL_GROUP_COMMIT_MILLIS = new Attribute<>(0);
+
+  /**
+   * Size in bytes of the recovery journal at which the application master writes a new snapshot of the physical plan
+   * and starts a new journal, which limits the number of operations replayed on restart. 0 disables the size trigger,
+   * snapshots are then only written after plan changes.
+   */
+  public static Attribute<Long> JOURNAL_SNAPSHOT_BYTES = new Attribute<>(8L * 1024 * 1024);
+
+  /**
+   * Maximum memory of a container formed by traffic aware packing, which combines the containers of operators
+   * connected by high traffic streams at launch and on request. 0 disables packing.
+   */
+  public static Attribute<Integer> CONTAINER_PACKING_MEMORY_MB = new Attribute<>(0);
+
+  /**
+   * Maximum number of vcores of a container formed by traffic aware packing, 0 for no limit.
+   */
+  public static Attribute<Integer> CONTAINER_PACKING_VCORES = new Attribute<>(0);
+
   static {
     Attribute.AttributeMap.AttributeInitializer.initialize(LogicalPlan.class);
   }
@@ -742,6 +834,14 @@ public class LogicalPlan implements Serializable, DAG
         StreamCodec<Object> specifiedCodecForPersistOperator = (persistOperatorPortMeta.getValue(PortContext.STREAM_CODEC) != null)
             ? (StreamCodec<Object>)persistOperatorPortMeta.getValue(PortContext.STREAM_CODEC)
             : (StreamCodec<Object>)port.getStreamCodec();
+        if (specifiedCodecForPersistOperator == null) {
+          Class<?> tupleClass = persistOperatorPortMeta.getValue(PortContext.TUPLE_CLASS) != null
+              ? persistOperatorPortMeta.getValue(PortContext.TUPLE_CLASS)
+              : sinkToPersistPortMeta.getValue(PortContext.TUPLE_CLASS);
+          if (tupleClass != null) {
+            specifiedCodecForPersistOperator = new DefaultKryoStreamCodec<>(tupleClass);
+          }
+        }
         StreamCodecWrapperForPersistance<Object> codec = new StreamCodecWrapperForPersistance<Object>(codecs, specifiedCodecForPersistOperator);
         setInputPortAttribute(port, PortContext.STREAM_CODEC, codec);
       }
@@ -945,6 +1045,11 @@ public class LogicalPlan implements Serializable, DAG
                 defAggregator = new MetricsAggregator();
               }
               defAggregator.addAggregators(field.getName(), new SingleMetricAggregator[]{new LongSumAggregator()});
+            } else if (Histogram.class.isAssignableFrom(field.getType())) {
+              if (defAggregator == null) {
+                defAggregator = new MetricsAggregator();
+              }
+              defAggregator.addAggregators(field.getName(), new SingleMetricAggregator[]{new HistogramAggregator()});
             } else if (field.getType() == float.class || field.getType() == Float.class ||
                 field.getType() == double.class || field.getType() == Double.class) {
               if (defAggregator == null) {
@@ -981,6 +1086,11 @@ public class LogicalPlan implements Serializable, DAG
                     defAggregator = new MetricsAggregator();
                   }
                   defAggregator.addAggregators(propName, new SingleMetricAggregator[]{new DoubleSumAggregator()});
+                } else if (Histogram.class.isAssignableFrom(readMethod.getReturnType())) {
+                  if (defAggregator == null) {
+                    defAggregator = new MetricsAggregator();
+                  }
+                  defAggregator.addAggregators(propName, new SingleMetricAggregator[]{new HistogramAggregator()});
                 }
               }
             }
@@ -1714,6 +1824,24 @@ public class LogicalPlan implements Serializable, DAG
         }
       }
 
+      int keyGroupCount = n.getValue(OperatorContext.KEY_GROUPS);
+      if (keyGroupCount != 0) {
+        if (!(n.getOperator() instanceof Operator.KeyGroupedState)) {
+          throw new ValidationException("Operator " + n.getName() + " has key groups but does not implement " +
+              Operator.KeyGroupedState.class.getName());
+        }
+        try {
+          KeyGroups.checkKeyGroupCount(keyGroupCount);
+        } catch (IllegalArgumentException e) {
+          throw new ValidationException("Operator " + n.getName() + ": " + e.getMessage());
+        }
+        StorageAgent agent = n.getValue(OperatorContext.STORAGE_AGENT);
+        if (agent != null && !(agent instanceof StorageAgent.KeyGroupStorageAgent)) {
+          throw new ValidationException("Operator " + n.getName() + " has key groups but the storage agent " +
+              agent.getClass().getName() + " does not store key groups");
+        }
+      }
+
       // check that non-optional ports are connected
       for (InputPortMeta pm: portMapping.inPortMap.values()) {
         checkAttributeValueSerializable(pm.getAttributes(), n.getName() + "." + pm.getPortName());
@@ -27,6 +27,7 @@ import javax.validation.constraints.NotNull;
 import com.google.common.base.Preconditions;
 
 import com.datatorrent.api.AutoMetric;
+import com.datatorrent.common.metric.MetricsAggregator;
 
 /**
  * A class that encapsulates {@link AutoMetric.Aggregator} and {@link AutoMetric.DimensionsScheme} of a particular
@@ -50,6 +51,20 @@ public final class MetricAggregatorMeta implements Serializable
     return this.aggregator;
   }
 
+  /**
+   * @return the aggregator when it can aggregate its own partial results, otherwise null
+   */
+  public AutoMetric.Aggregator getAssociativeAggregator()
+  {
+    if (aggregator instanceof AutoMetric.AssociativeAggregator) {
+      return aggregator;
+    }
+    if (aggregator instanceof MetricsAggregator && ((MetricsAggregator)aggregator).isAssociative()) {
+      return aggregator;
+    }
+    return null;
+  }
+
   public String[] getDimensionAggregatorsFor(String logicalMetricName)
   {
     if (dimensionsScheme == null) {
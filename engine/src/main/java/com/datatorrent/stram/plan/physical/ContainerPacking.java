@@ -0,0 +1,314 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.plan.physical;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.datatorrent.api.AffinityRule;
+import com.datatorrent.api.AffinityRule.Type;
+import com.datatorrent.api.AffinityRulesSet;
+import com.datatorrent.api.Context.DAGContext;
+import com.datatorrent.api.DAG.Locality;
+import com.datatorrent.common.util.Pair;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.physical.OperatorStatus.PortStatus;
+import com.datatorrent.stram.plan.physical.PTOperator.PTInput;
+import com.datatorrent.stram.plan.physical.PTOperator.PTOutput;
+
+/**
+ * Traffic aware grouping of containers. Containers connected by the streams with the highest byte rate are combined,
+ * as long as the combined container stays within the memory and vcore limits and no anti-affinity or host locality
+ * constraint is violated. Streams between operators in the same container are served by the local buffer server
+ * instead of crossing the network.
+ * <p>
+ * The byte rate of a stream is taken from {@link LogicalPlan#TRAFFIC_BYTES_HINT} on the source port when set,
+ * otherwise from the buffer server bytes measured for the output port of the upstream operator.
+ *
+ * @since 3.5.0
+ */
+public class ContainerPacking
+{
+  /**
+   * Outcome of a packing pass, with estimated cross container traffic in bytes per second.
+   */
+  public static class Result
+  {
+    private final int containersBefore;
+    private final int containersAfter;
+    private final long crossContainerBytesBefore;
+    private final long crossContainerBytesAfter;
+
+    Result(int containersBefore, int containersAfter, long crossContainerBytesBefore, long crossContainerBytesAfter)
+    {
+      this.containersBefore = containersBefore;
+      this.containersAfter = containersAfter;
+      this.crossContainerBytesBefore = crossContainerBytesBefore;
+      this.crossContainerBytesAfter = crossContainerBytesAfter;
+    }
+
+    public int getContainersBefore()
+    {
+      return containersBefore;
+    }
+
+    public int getContainersAfter()
+    {
+      return containersAfter;
+    }
+
+    public long getCrossContainerBytesBefore()
+    {
+      return crossContainerBytesBefore;
+    }
+
+    public long getCrossContainerBytesAfter()
+    {
+      return crossContainerBytesAfter;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "containers " + containersBefore + " -> " + containersAfter + ", cross container bytes/s " +
+          crossContainerBytesBefore + " -> " + crossContainerBytesAfter;
+    }
+  }
+
+  private static class Edge
+  {
+    final PTContainer c1;
+    final PTContainer c2;
+    long bytes;
+
+    Edge(PTContainer c1, PTContainer c2)
+    {
+      this.c1 = c1;
+      this.c2 = c2;
+    }
+  }
+
+  /**
+   * Set of containers to be combined.
+   */
+  private class Group
+  {
+    final List<PTContainer> containers = new ArrayList<>();
+    final Set<PTOperator> operators = new HashSet<>();
+    final Set<String> logicalNames = new HashSet<>();
+    int memoryMB;
+    String host;
+
+    Group(PTContainer c)
+    {
+      containers.add(c);
+      operators.addAll(c.getOperators());
+      for (PTOperator oper : c.getOperators()) {
+        logicalNames.add(oper.getOperatorMeta().getName());
+        if (host == null) {
+          host = oper.getGrouping(Locality.NODE_LOCAL).getHost();
+        }
+      }
+      memoryMB = c.getRequiredMemoryMB();
+    }
+
+    boolean canMerge(Group other)
+    {
+      if (memoryMB + other.memoryMB > maxMemoryMB) {
+        return false;
+      }
+      if (host != null && other.host != null && !host.equals(other.host)) {
+        return false;
+      }
+      for (String name : logicalNames) {
+        for (String otherName : other.logicalNames) {
+          if (antiAffinity.contains(new Pair<>(name, otherName))) {
+            return false;
+          }
+        }
+      }
+      if (maxVCores > 0) {
+        Set<PTOperator> union = new HashSet<>(operators);
+        union.addAll(other.operators);
+        if (plan.getVCores(union) > maxVCores) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void merge(Group other)
+    {
+      containers.addAll(other.containers);
+      operators.addAll(other.operators);
+      logicalNames.addAll(other.logicalNames);
+      memoryMB += other.memoryMB;
+      if (host == null) {
+        host = other.host;
+      }
+    }
+  }
+
+  private final PhysicalPlan plan;
+  private final int maxMemoryMB;
+  private final int maxVCores;
+  private final Set<Pair<String, String>> antiAffinity = new HashSet<>();
+
+  ContainerPacking(PhysicalPlan plan, int maxMemoryMB, int maxVCores)
+  {
+    this.plan = plan;
+    this.maxMemoryMB = maxMemoryMB;
+    this.maxVCores = maxVCores;
+    AffinityRulesSet rules = plan.getLogicalPlan().getAttributes().get(DAGContext.AFFINITY_RULES_SET);
+    if (rules != null && rules.getAffinityRules() != null) {
+      for (AffinityRule rule : rules.getAffinityRules()) {
+        if (rule.getType() == Type.ANTI_AFFINITY && rule.getOperatorsList() != null) {
+          for (String o1 : rule.getOperatorsList()) {
+            for (String o2 : rule.getOperatorsList()) {
+              if (!o1.equals(o2)) {
+                antiAffinity.add(new Pair<>(o1, o2));
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Estimated bytes per second that the given sink receives from the output.
+   *
+   * @param out
+   * @param sink
+   * @return bytes per second
+   */
+  public static long getTrafficBytes(PTOutput out, PTInput sink)
+  {
+    long bytes = out.logicalStream.getSource().getValue(LogicalPlan.TRAFFIC_BYTES_HINT);
+    if (bytes <= 0) {
+      PortStatus ps = out.source.stats.outputPortStatusList.get(out.portName);
+      bytes = ps == null ? 0 : Math.round(ps.bufferServerBytesPMSMA.getAvg() * 1000);
+    }
+    if (sink.partitions != null && !out.sinks.isEmpty()) {
+      // partitioned stream, each sink receives a share of the data
+      bytes /= out.sinks.size();
+    }
+    return bytes;
+  }
+
+  /**
+   * Estimated bytes per second transferred between different containers.
+   *
+   * @param containers
+   * @return bytes per second
+   */
+  public static long getCrossContainerBytes(Collection<PTContainer> containers)
+  {
+    long bytes = 0;
+    for (PTContainer c : containers) {
+      for (PTOperator oper : c.getOperators()) {
+        for (PTOutput out : oper.getOutputs()) {
+          for (PTInput sink : out.sinks) {
+            if (sink.target.getContainer() != c) {
+              bytes += getTrafficBytes(out, sink);
+            }
+          }
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Determine the containers to combine. Connections are processed by descending byte rate and the containers of
+   * the two ends are combined when within limits.
+   *
+   * @param containers candidates, other containers are left unchanged
+   * @return groups of two or more containers that should be combined
+   */
+  List<List<PTContainer>> pack(Collection<PTContainer> containers)
+  {
+    Map<PTContainer, Group> groups = new LinkedHashMap<>();
+    for (PTContainer c : containers) {
+      groups.put(c, new Group(c));
+    }
+
+    Map<Pair<PTContainer, PTContainer>, Edge> edges = new HashMap<>();
+    for (PTContainer c : containers) {
+      for (PTOperator oper : c.getOperators()) {
+        for (PTOutput out : oper.getOutputs()) {
+          for (PTInput sink : out.sinks) {
+            PTContainer sinkContainer = sink.target.getContainer();
+            if (sinkContainer == c || !groups.containsKey(sinkContainer)) {
+              continue;
+            }
+            Pair<PTContainer, PTContainer> key = c.getId() < sinkContainer.getId() ? new Pair<>(c, sinkContainer) :
+                new Pair<>(sinkContainer, c);
+            Edge e = edges.get(key);
+            if (e == null) {
+              edges.put(key, e = new Edge(key.first, key.second));
+            }
+            e.bytes += getTrafficBytes(out, sink);
+          }
+        }
+      }
+    }
+
+    List<Edge> sortedEdges = new ArrayList<>(edges.values());
+    Collections.sort(sortedEdges, new Comparator<Edge>()
+    {
+      @Override
+      public int compare(Edge e1, Edge e2)
+      {
+        return Long.compare(e2.bytes, e1.bytes);
+      }
+    });
+
+    for (Edge e : sortedEdges) {
+      if (e.bytes <= 0) {
+        break;
+      }
+      Group g1 = groups.get(e.c1);
+      Group g2 = groups.get(e.c2);
+      if (g1 != g2 && g1.canMerge(g2)) {
+        g1.merge(g2);
+        for (PTContainer c : g2.containers) {
+          groups.put(c, g1);
+        }
+      }
+    }
+
+    List<List<PTContainer>> result = new ArrayList<>();
+    for (Group g : new LinkedHashSet<>(groups.values())) {
+      if (g.containers.size() > 1) {
+        result.add(g.containers);
+      }
+    }
+    return result;
+  }
+}
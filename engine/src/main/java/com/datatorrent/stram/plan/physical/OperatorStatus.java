@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import com.datatorrent.api.Histogram;
 import com.datatorrent.api.Stats;
 import com.datatorrent.api.Stats.OperatorStats;
 import com.datatorrent.api.StatsListener;
@@ -54,6 +55,8 @@ public class OperatorStatus implements BatchedOperatorStats, java.io.Serializabl
     public final TimedMovingAverageLong tuplesPMSMA;
     public final TimedMovingAverageLong bufferServerBytesPMSMA;
     public final MovingAverageLong queueSizeMA;
+    public Histogram queueSizeHistogram;
+    public Histogram processingTimeHistogram;
 
     public PortStatus()
     {
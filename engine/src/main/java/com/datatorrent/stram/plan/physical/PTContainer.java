@@ -20,6 +20,7 @@ package com.datatorrent.stram.plan.physical;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -52,6 +53,7 @@ public class PTContainer implements java.io.Serializable
   private final Set<PTContainer> preferredAntiPrefs = new HashSet<>();
 
   public static final Recoverable SET_CONTAINER_STATE = new SetContainerState();
+  public static final Recoverable SET_CONTAINER_OPERATORS = new SetContainerOperators();
 
   public enum State
   {
@@ -112,6 +114,30 @@ public class PTContainer implements java.io.Serializable
       }
     }
 
+    @Override
+    public Object readKey(final Input in) throws KryoException
+    {
+      int containerId = in.readInt();
+      // state, external id, priority, memory and vcores
+      in.readInt();
+      in.readString();
+      in.readInt();
+      in.readInt();
+      in.readInt();
+      in.readInt();
+      in.readInt();
+      if (in.readString() != null) {
+        in.readInt();
+      }
+      in.readString();
+      in.readString();
+      int tokenLength = in.readInt();
+      if (tokenLength != -1) {
+        in.skip(tokenLength);
+      }
+      return containerId;
+    }
+
     @Override
     public void write(final Output out) throws KryoException
     {
@@ -148,6 +174,100 @@ public class PTContainer implements java.io.Serializable
     }
   }
 
+  /**
+   * Operators moved to a container that replaces the containers they were taken from, see
+   * {@link PhysicalPlan#repackContainers()}. On replay the container is created when it is not in the plan yet.
+   */
+  private static class SetContainerOperators implements Recoverable
+  {
+    private final PTContainer container;
+    private final Collection<PTContainer> released;
+
+    private SetContainerOperators()
+    {
+      container = null;
+      released = null;
+    }
+
+    private SetContainerOperators(PTContainer container, Collection<PTContainer> released)
+    {
+      this.container = container;
+      this.released = released;
+    }
+
+    @Override
+    public void read(final Object object, final Input in) throws KryoException
+    {
+      PhysicalPlan plan = (PhysicalPlan)object;
+
+      int containerId = in.readInt();
+      PTContainer container = null;
+      for (PTContainer c : plan.getContainers()) {
+        if (c.getId() == containerId) {
+          container = c;
+          break;
+        }
+      }
+      if (container == null) {
+        container = new PTContainer(plan, containerId);
+        plan.getContainers().add(container);
+      }
+      container.requiredMemoryMB = in.readInt();
+      container.requiredVCores = in.readInt();
+      for (int i = in.readInt(); i-- > 0;) {
+        PTOperator oper = plan.getAllOperators().get(in.readInt());
+        if (oper != null && oper.container != container) {
+          if (oper.container != null) {
+            oper.container.operators.remove(oper);
+          }
+          oper.container = container;
+          container.operators.add(oper);
+        }
+      }
+      for (int i = in.readInt(); i-- > 0;) {
+        int releasedId = in.readInt();
+        for (PTContainer c : plan.getContainers()) {
+          if (c.getId() == releasedId && c.operators.isEmpty()) {
+            plan.getContainers().remove(c);
+            break;
+          }
+        }
+      }
+    }
+
+    @Override
+    public Object readKey(final Input in) throws KryoException
+    {
+      in.readInt();
+      in.readInt();
+      in.readInt();
+      for (int i = in.readInt(); i-- > 0;) {
+        in.readInt();
+      }
+      for (int i = in.readInt(); i-- > 0;) {
+        in.readInt();
+      }
+      // operators move between containers, a later entry does not supersede this one
+      return null;
+    }
+
+    @Override
+    public void write(final Output out) throws KryoException
+    {
+      out.writeInt(container.getId());
+      out.writeInt(container.getRequiredMemoryMB());
+      out.writeInt(container.getRequiredVCores());
+      out.writeInt(container.operators.size());
+      for (PTOperator oper : container.operators) {
+        out.writeInt(oper.getId());
+      }
+      out.writeInt(released.size());
+      for (PTContainer c : released) {
+        out.writeInt(c.getId());
+      }
+    }
+  }
+
   private volatile PTContainer.State state = State.NEW;
   private int requiredMemoryMB;
   private int allocatedMemoryMB;
@@ -176,11 +296,33 @@ public class PTContainer implements java.io.Serializable
     this.seq = plan.containerSeq.incrementAndGet();
   }
 
+  /**
+   * Container with the given id, when restoring the plan from the journal.
+   */
+  private PTContainer(PhysicalPlan plan, int seq)
+  {
+    this.plan = plan;
+    this.seq = seq;
+    int current;
+    while ((current = plan.containerSeq.get()) < seq && !plan.containerSeq.compareAndSet(current, seq)) {
+      // retry
+    }
+  }
+
   public Recoverable getSetContainerState()
   {
     return new SetContainerState(this);
   }
 
+  /**
+   * @param released containers the operators of this container were taken from
+   * @return journal entry for the operators assigned to this container
+   */
+  public Recoverable getSetContainerOperators(Collection<PTContainer> released)
+  {
+    return new SetContainerOperators(this, released);
+  }
+
   public PhysicalPlan getPlan()
   {
     return plan;
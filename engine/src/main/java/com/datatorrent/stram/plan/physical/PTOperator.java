@@ -222,6 +222,14 @@ public class PTOperator implements java.io.Serializable
       plan.getAllOperators().get(operatorId).state = PTOperator.State.values()[stateOrd];
     }
 
+    @Override
+    public Object readKey(final Input in) throws KryoException
+    {
+      int operatorId = in.readInt();
+      in.readInt();
+      return operatorId;
+    }
+
     @Override
     public void write(final Output out) throws KryoException
     {
@@ -58,6 +58,7 @@ import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.Context.PortContext;
 import com.datatorrent.api.DAG.Locality;
 import com.datatorrent.api.DefaultPartition;
+import com.datatorrent.api.KeyGroups;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.Partitioner;
@@ -134,6 +135,7 @@ public class PhysicalPlan implements Serializable
   final Set<PTOperator> undeployOpers = Sets.newHashSet();
   final ConcurrentMap<Integer, PTOperator> allOperators = Maps.newConcurrentMap();
   private final ConcurrentMap<OperatorMeta, OperatorMeta> pendingRepartition = Maps.newConcurrentMap();
+  private final ConcurrentMap<StreamMapping, StreamMapping> pendingUnifierChanges = Maps.newConcurrentMap();
 
   private final AtomicInteger strCodecIdSequence = new AtomicInteger();
   private final Map<StreamCodec<?>, Integer> streamCodecIdentifiers = Maps.newHashMap();
@@ -188,6 +190,14 @@ public class PhysicalPlan implements Serializable
     void writeJournal(Recoverable operation);
 
     void addOperatorRequest(PTOperator oper, StramToNodeRequest request);
+
+    /**
+     * Request removal of an operator checkpoint that is no longer needed. May complete asynchronously.
+     * @param agent
+     * @param operatorId
+     * @param windowId
+     */
+    void purgeCheckpoint(StorageAgent agent, int operatorId, long windowId);
   }
 
   private static class StatsListenerProxy implements StatsListener, Serializable
@@ -469,6 +479,11 @@ public class PhysicalPlan implements Serializable
       container.setRequiredVCores(getVCores(container.getOperators()));
     }
 
+    ContainerPacking packing = newContainerPacking();
+    if (packing != null) {
+      packContainers(packing, operatorContainerMap);
+    }
+
     // Add anti-affinity restrictions in Containers
     if (affinityRuleSet != null && affinityRuleSet.getAffinityRules() != null) {
       setAntiAffinityForContainers(dag, affinityRuleSet.getAffinityRules(), operatorContainerMap);
@@ -501,6 +516,106 @@ public class PhysicalPlan implements Serializable
     this.undeployOpers.clear();
   }
 
+  private ContainerPacking newContainerPacking()
+  {
+    int memoryMB = dag.getValue(LogicalPlan.CONTAINER_PACKING_MEMORY_MB);
+    return memoryMB > 0 ? new ContainerPacking(this, memoryMB, dag.getValue(LogicalPlan.CONTAINER_PACKING_VCORES)) : null;
+  }
+
+  /**
+   * Combine containers prior to launch, based on traffic hints.
+   */
+  private void packContainers(ContainerPacking packing, Map<PTOperator, PTContainer> operatorContainerMap)
+  {
+    int containersBefore = containers.size();
+    long bytesBefore = ContainerPacking.getCrossContainerBytes(containers);
+    for (List<PTContainer> group : packing.pack(containers)) {
+      PTContainer target = group.get(0);
+      for (PTContainer c : group.subList(1, group.size())) {
+        for (PTOperator oper : c.operators) {
+          oper.container = target;
+          target.operators.add(oper);
+          operatorContainerMap.put(oper, target);
+        }
+        target.setRequiredMemoryMB(target.getRequiredMemoryMB() + c.getRequiredMemoryMB());
+        containers.remove(c);
+      }
+      target.setRequiredVCores(getVCores(target.getOperators()));
+    }
+    LOG.info("Traffic aware container packing: {}", new ContainerPacking.Result(containersBefore, containers.size(),
+        bytesBefore, ContainerPacking.getCrossContainerBytes(containers)));
+  }
+
+  /**
+   * Combine active containers connected by the highest traffic, based on measured stream rates or hints. The
+   * operators of combined containers are moved to a new container and redeployed along with their dependents,
+   * the previous containers are released. To be called from the plan change thread.
+   *
+   * @return the estimated effect, null when container packing is not enabled
+   */
+  public ContainerPacking.Result repackContainers()
+  {
+    ContainerPacking packing = newContainerPacking();
+    if (packing == null) {
+      return null;
+    }
+    int containersBefore = containers.size();
+    long bytesBefore = ContainerPacking.getCrossContainerBytes(containers);
+    List<PTContainer> candidates = Lists.newArrayList();
+    for (PTContainer c : containers) {
+      if (c.getState() == PTContainer.State.ACTIVE) {
+        candidates.add(c);
+      }
+    }
+
+    Set<PTContainer> newContainers = Sets.newHashSet();
+    Set<PTContainer> releaseContainers = Sets.newHashSet();
+    Set<PTOperator> movedOperators = Sets.newLinkedHashSet();
+    for (List<PTContainer> group : packing.pack(candidates)) {
+      PTContainer newContainer = new PTContainer(this);
+      int memoryMB = 0;
+      for (PTContainer c : group) {
+        for (PTOperator oper : c.operators) {
+          oper.container = newContainer;
+          newContainer.operators.add(oper);
+          movedOperators.add(oper);
+        }
+        memoryMB += c.getRequiredMemoryMB();
+        c.operators = new ArrayList<>();
+        containers.remove(c);
+        releaseContainers.add(c);
+      }
+      newContainer.setRequiredMemoryMB(memoryMB);
+      newContainer.setRequiredVCores(getVCores(newContainer.getOperators()));
+      containers.add(newContainer);
+      newContainers.add(newContainer);
+      // the state changes of the new container that follow are only replayed when the container is known
+      ctx.writeJournal(newContainer.getSetContainerOperators(group));
+    }
+
+    ContainerPacking.Result result = new ContainerPacking.Result(containersBefore, containers.size(), bytesBefore,
+        ContainerPacking.getCrossContainerBytes(containers));
+    LOG.info("Traffic aware container packing: {}", result);
+    if (!movedOperators.isEmpty()) {
+      AffinityRulesSet affinityRuleSet = dag.getAttributes().get(DAGContext.AFFINITY_RULES_SET);
+      if (affinityRuleSet != null && affinityRuleSet.getAffinityRules() != null) {
+        Map<PTOperator, PTContainer> operatorContainerMap = Maps.newHashMap();
+        for (PTContainer c : containers) {
+          for (PTOperator oper : c.operators) {
+            operatorContainerMap.put(oper, c);
+          }
+          c.getStrictAntiPrefs().clear();
+          c.getPreferredAntiPrefs().clear();
+        }
+        setAntiAffinityForContainers(dag, affinityRuleSet.getAffinityRules(), operatorContainerMap);
+      }
+      // moved operators restart from checkpoint, downstream operators need to be redeployed as well
+      Set<PTOperator> redeploy = getDependents(movedOperators);
+      ctx.deploy(releaseContainers, redeploy, newContainers, redeploy);
+    }
+    return result;
+  }
+
   public void setAntiAffinityForContainers(LogicalPlan dag, Collection<AffinityRule> affinityRules, Map<PTOperator, PTContainer> operatorContainerMap)
   {
     for (AffinityRule rule : affinityRules) {
@@ -670,7 +785,7 @@ public class PhysicalPlan implements Serializable
    * @param operators The container local operators
    * @return the number of vcores required for a container
    */
-  private int getVCores(Collection<PTOperator> operators)
+  int getVCores(Collection<PTOperator> operators)
   {
     // this forms the groups of thread local operators in the given container
     HashMap<PTOperator, Set<PTOperator>> groupMap = new HashMap<>();
@@ -785,6 +900,16 @@ public class PhysicalPlan implements Serializable
       operatorIdToPartition.put(p.getId(), partition);
     }
 
+    int keyGroupCount = m.logicalOperator.getValue(OperatorContext.KEY_GROUPS);
+    if (keyGroupCount > 0 && !m.partitions.get(0).isOperatorStateLess()) {
+      try {
+        getKeyGroups(partitions, keyGroupCount);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalStateException("Partitions of " + m.logicalOperator + " do not map onto key groups: " +
+            e.getMessage(), e);
+      }
+    }
+
     if (partitioner != null) {
       partitioner.partitioned(operatorIdToPartition);
     }
@@ -837,6 +962,98 @@ public class PhysicalPlan implements Serializable
 
   }
 
+  /**
+   * Key groups of a deprecated partition. The recovery checkpoint of the partition, which holds the key group state, is
+   * exempt from the purge on removal until the key groups were moved to the new partitions.
+   */
+  private class KeyGroupSource
+  {
+    final PTOperator oper;
+    final int[] keyGroups;
+    final Checkpoint checkpoint;
+    final boolean retained;
+
+    KeyGroupSource(PTOperator oper, int[] keyGroups)
+    {
+      this.oper = oper;
+      this.keyGroups = keyGroups;
+      this.checkpoint = oper.recoveryCheckpoint;
+      synchronized (oper.checkpoints) {
+        retained = oper.checkpoints.remove(checkpoint);
+      }
+    }
+
+    void release()
+    {
+      if (retained) {
+        ctx.purgeCheckpoint(oper.operatorMeta.getValue(OperatorContext.STORAGE_AGENT), oper.id, checkpoint.windowId);
+      }
+    }
+  }
+
+  private static int[] getKeyGroups(Map<InputPort<?>, PartitionKeys> partitionKeys, int keyGroupCount)
+  {
+    // partitioned input ports are expected to share the partition keys
+    return KeyGroups.getKeyGroups(partitionKeys == null || partitionKeys.isEmpty() ? null :
+        partitionKeys.values().iterator().next(), keyGroupCount);
+  }
+
+  /**
+   * Key groups owned by each of the partitions. A key group can only have one owner, which rules out partition masks
+   * beyond the key groups as well as multiple partitions without partition keys, which would each own all key groups.
+   *
+   * @throws IllegalArgumentException when the partitions do not map onto disjoint sets of key groups
+   */
+  private static Map<Partition<Operator>, int[]> getKeyGroups(Collection<Partition<Operator>> partitions,
+      int keyGroupCount)
+  {
+    Map<Partition<Operator>, int[]> keyGroups = new HashMap<>();
+    boolean[] owned = new boolean[keyGroupCount];
+    for (Partition<Operator> partition : partitions) {
+      int[] partitionKeyGroups = getKeyGroups(partition.getPartitionKeys(), keyGroupCount);
+      for (int keyGroup : partitionKeyGroups) {
+        if (owned[keyGroup]) {
+          throw new IllegalArgumentException("Key group " + keyGroup + " is owned by more than one partition");
+        }
+        owned[keyGroup] = true;
+      }
+      keyGroups.put(partition, partitionKeyGroups);
+    }
+    return keyGroups;
+  }
+
+  /**
+   * Reassign the key groups of the new partition from the deprecated partitions that owned them, without reading the
+   * state.
+   */
+  private static void moveKeyGroups(List<KeyGroupSource> sources, PTOperator oper, int[] keyGroups, long windowId)
+  {
+    StorageAgent.KeyGroupStorageAgent agent =
+        (StorageAgent.KeyGroupStorageAgent)oper.operatorMeta.getValue(OperatorContext.STORAGE_AGENT);
+    try {
+      for (KeyGroupSource source : sources) {
+        for (int keyGroup : source.keyGroups) {
+          if (Arrays.binarySearch(keyGroups, keyGroup) >= 0) {
+            agent.moveKeyGroup(keyGroup, source.oper.id, source.checkpoint.windowId, oper.id, windowId);
+          }
+        }
+      }
+    } catch (IOException e) {
+      // inconsistent state, no recovery option, requires shutdown
+      throw new IllegalStateException("Failed to move key groups after partition change " + oper, e);
+    }
+  }
+
+  /**
+   * Whether the partition returned by the partitioner is the current partition of the given operator with modified
+   * operator state or partition keys.
+   */
+  private static boolean isModified(RepartitionContext pc, PTOperator op, Partition<Operator> newPartition)
+  {
+    Partition<Operator> pi = pc.operatorIdToPartition.get(op.getId());
+    return pi == newPartition && ((DefaultPartition<Operator>)pi).isModified();
+  }
+
   private Partitioner<Operator> getPartitioner(PMapping currentMapping)
   {
     Operator operator = currentMapping.logicalOperator.getOperator();
@@ -887,6 +1104,18 @@ public class PhysicalPlan implements Serializable
       return;
     }
 
+    int keyGroupCount = mainPC.operators.get(0).isOperatorStateLess() ? 0 :
+        currentMapping.logicalOperator.getValue(OperatorContext.KEY_GROUPS);
+    Map<Partition<Operator>, int[]> newKeyGroups = null;
+    if (keyGroupCount > 0) {
+      try {
+        newKeyGroups = getKeyGroups(mainPC.newPartitions, keyGroupCount);
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Partitions of {} do not map onto key groups: {}", currentMapping.logicalOperator, e.getMessage());
+        return;
+      }
+    }
+
     List<Partition<Operator>> addedPartitions = new ArrayList<>();
     // determine modifications of partition set, identify affected operator instance(s)
     for (Partition<Operator> newPartition : mainPC.newPartitions) {
@@ -895,13 +1124,11 @@ public class PhysicalPlan implements Serializable
         addedPartitions.add(newPartition);
       } else {
         // check whether mapping was changed
-        for (DefaultPartition<Operator> pi : mainPC.currentPartitions) {
-          if (pi == newPartition && pi.isModified()) {
-            // existing partition changed (operator or partition keys)
-            // remove/add to update subscribers and state
-            mainPC.currentPartitionMap.put(newPartition, op);
-            addedPartitions.add(newPartition);
-          }
+        if (isModified(mainPC, op, newPartition)) {
+          // existing partition changed (operator or partition keys)
+          // remove/add to update subscribers and state
+          mainPC.currentPartitionMap.put(newPartition, op);
+          addedPartitions.add(newPartition);
         }
       }
     }
@@ -945,12 +1172,20 @@ public class PhysicalPlan implements Serializable
     }
 
     // plan updates start here, after all changes were identified
+    // key group state of deprecated partitions is retained until moved to the new partitions
+    List<KeyGroupSource> keyGroupSources = new ArrayList<>();
+    if (keyGroupCount > 0) {
+      for (PTOperator p : mainPC.currentPartitionMap.values()) {
+        keyGroupSources.add(new KeyGroupSource(p, getKeyGroups(p.getPartitionKeys(), keyGroupCount)));
+      }
+    }
+
     // remove obsolete operators first, any freed resources
     // can subsequently be used for new/modified partitions
     List<PTOperator> copyPartitions = Lists.newArrayList(currentMapping.partitions);
     // remove deprecated partitions from plan
+    copyPartitions.removeAll(Sets.newHashSet(mainPC.currentPartitionMap.values()));
     for (PTOperator p : mainPC.currentPartitionMap.values()) {
-      copyPartitions.remove(p);
       removePartition(p, currentMapping);
       mainPC.operatorIdToPartition.remove(p.getId());
     }
@@ -960,6 +1195,12 @@ public class PhysicalPlan implements Serializable
     for (Partition<Operator> newPartition : addedPartitions) {
       PTOperator p = addPTOperator(currentMapping, newPartition, mainPC.minCheckpoint);
       mainPC.operatorIdToPartition.put(p.getId(), newPartition);
+      if (keyGroupCount > 0) {
+        moveKeyGroups(keyGroupSources, p, newKeyGroups.get(newPartition), mainPC.minCheckpoint.windowId);
+      }
+    }
+    for (KeyGroupSource source : keyGroupSources) {
+      source.release();
     }
 
     // process parallel partition changes
@@ -996,13 +1237,11 @@ public class PhysicalPlan implements Serializable
             pc.addedPartitions.add(newPartition);
           } else {
             // check whether mapping was changed - based on DefaultPartition implementation
-            for (DefaultPartition<Operator> pi : pc.currentPartitions) {
-              if (pi == newPartition && pi.isModified()) {
-                // existing partition changed (operator or partition keys)
-                // remove/add to update subscribers and state
-                mainPC.currentPartitionMap.put(newPartition, op);
-                pc.addedPartitions.add(newPartition);
-              }
+            if (isModified(pc, op, newPartition)) {
+              // existing partition changed (operator or partition keys)
+              // remove/add to update subscribers and state
+              mainPC.currentPartitionMap.put(newPartition, op);
+              pc.addedPartitions.add(newPartition);
             }
           }
         }
@@ -1010,8 +1249,8 @@ public class PhysicalPlan implements Serializable
         if (!pc.currentPartitionMap.isEmpty()) {
           // remove obsolete partitions
           List<PTOperator> cowPartitions = Lists.newArrayList(e.getKey().partitions);
+          cowPartitions.removeAll(Sets.newHashSet(pc.currentPartitionMap.values()));
           for (PTOperator p : pc.currentPartitionMap.values()) {
-            cowPartitions.remove(p);
             removePartition(p, e.getKey());
             pc.operatorIdToPartition.remove(p.getId());
           }
@@ -1151,6 +1390,13 @@ public class PhysicalPlan implements Serializable
     Set<PTContainer> updatedContainers =  Sets.newHashSet();
 
     HashMap<PTOperator, PTContainer> operatorContainerMap = Maps.newHashMap();
+    // released containers that can be reused for new operators
+    List<PTContainer> emptyContainers = Lists.newArrayList();
+    for (PTContainer c : this.containers) {
+      if (c.operators.isEmpty() && c.getState() == PTContainer.State.ACTIVE) {
+        emptyContainers.add(c);
+      }
+    }
     for (Map.Entry<PTOperator, Operator> operEntry : this.newOpers.entrySet()) {
 
       PTOperator oper = operEntry.getKey();
@@ -1178,12 +1424,14 @@ public class PhysicalPlan implements Serializable
       if (newContainer == null) {
         int vCores = getVCores(oper.getGrouping(Locality.CONTAINER_LOCAL).getOperatorSet());
         // attempt to find empty container with required size
-        for (PTContainer c : this.containers) {
-          if (c.operators.isEmpty() && c.getState() == PTContainer.State.ACTIVE && c.getAllocatedMemoryMB() == memoryMB && c.getAllocatedVCores() == vCores) {
+        for (Iterator<PTContainer> it = emptyContainers.iterator(); it.hasNext(); ) {
+          PTContainer c = it.next();
+          if (c.operators.isEmpty() && c.getAllocatedMemoryMB() == memoryMB && c.getAllocatedVCores() == vCores) {
             LOG.debug("Reusing existing container {} for {}", c, oper);
             c.setRequiredMemoryMB(0);
             c.setRequiredVCores(0);
             newContainer = c;
+            it.remove();
             break;
           }
         }
@@ -1476,14 +1724,11 @@ public class PhysicalPlan implements Serializable
     }
 
     // remove checkpoint states
-    try {
-      synchronized (oper.checkpoints) {
-        for (Checkpoint checkpoint : oper.checkpoints) {
-          oper.operatorMeta.getValue(OperatorContext.STORAGE_AGENT).delete(oper.id, checkpoint.windowId);
-        }
+    synchronized (oper.checkpoints) {
+      StorageAgent agent = oper.operatorMeta.getValue(OperatorContext.STORAGE_AGENT);
+      for (Checkpoint checkpoint : oper.checkpoints) {
+        ctx.purgeCheckpoint(agent, oper.id, checkpoint.windowId);
       }
-    } catch (IOException e) {
-      LOG.warn("Failed to remove state for " + oper, e);
     }
 
     List<PTOperator> cowList = Lists.newArrayList(oper.container.operators);
@@ -1843,6 +2088,40 @@ public class PhysicalPlan implements Serializable
     }
   }
 
+  /**
+   * Rebuild the unifier tree of the stream with a different fan-in when the unifier load is outside the target range,
+   * see {@link LogicalPlan#UNIFIER_TARGET_LOAD_PERCENT}.
+   *
+   * @param unifier
+   */
+  public void onUnifierStatusUpdate(PTOperator unifier)
+  {
+    final PMapping m = logicalToPTOperator.get(unifier.unifiedOperatorMeta);
+    if (m == null || unifier.outputs.isEmpty()) {
+      return;
+    }
+    final StreamMapping ug = m.outputStreams.get(unifier.outputs.get(0).logicalStream.getSource());
+    if (ug == null) {
+      return;
+    }
+    final int limit = ug.computeUnifierLimit();
+    if (limit > 0 && this.pendingUnifierChanges.putIfAbsent(ug, ug) == null) {
+      LOG.info("Scheduling unifier fan-in {} for {}", limit, unifier.outputs.get(0).logicalStream);
+      Runnable r = new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          ug.setAdaptiveLimit(limit);
+          ug.setSources(m.partitions);
+          deployChanges();
+          pendingUnifierChanges.remove(ug);
+        }
+      };
+      ctx.dispatch(r);
+    }
+  }
+
   /**
    * Read available checkpoints from storage agent for all operators.
    * @param startTime
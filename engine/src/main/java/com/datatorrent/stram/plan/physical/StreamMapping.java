@@ -19,6 +19,7 @@
 package com.datatorrent.stram.plan.physical;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -63,9 +64,17 @@ public class StreamMapping implements java.io.Serializable
   private final StreamMeta streamMeta;
   private final PhysicalPlan plan;
   PTOperator finalUnifier;
-  final Set<PTOperator> cascadingUnifiers = Sets.newHashSet();
+  final Set<PTOperator> cascadingUnifiers = Sets.newLinkedHashSet();
   final Set<PTOperator> slidingUnifiers = Sets.newHashSet();
   private final List<PTOutput> upstream = Lists.newArrayList();
+  /**
+   * Cascading unifier fan-in chosen based on unifier load, 0 when not adjusted.
+   */
+  private int adaptiveLimit;
+  /**
+   * Load of the final unifier(s) when the fan-in was last reduced, 0 when not reduced.
+   */
+  private double reducedFinalLoad;
 
   public StreamMapping(StreamMeta streamMeta, PhysicalPlan plan)
   {
@@ -160,44 +169,194 @@ public class StreamMapping implements java.io.Serializable
     }
   }
 
-  @SuppressWarnings("AssignmentToForLoopParameter")
-  private List<PTOutput> setupCascadingUnifiers(List<PTOutput> upstream, List<PTOperator> pooledUnifiers, int limit, int level)
+  /**
+   * Build one or more levels of cascading unifiers for the given sources. Pooled unifiers that were connected to a
+   * set of sources that is still present and unchanged are kept with the same inputs, so that they don't need to be
+   * redeployed. Remaining sources are assigned in order to the other pooled or new unifiers.
+   *
+   * @param upstream sources for this level
+   * @param pooledUnifiers unifiers available for reuse
+   * @param previousSources sources of pooled unifiers prior to the mapping change
+   * @param changedUnifiers collects the unifiers with modified inputs
+   * @param limit
+   * @param level
+   * @return sources for the downstream unifier(s)
+   */
+  private List<PTOutput> setupCascadingUnifiers(List<PTOutput> upstream, Set<PTOperator> pooledUnifiers,
+      Map<PTOperator, List<PTOutput>> previousSources, Set<PTOperator> changedUnifiers, int limit, int level)
   {
     List<PTOutput> nextLevel = Lists.newArrayList();
-    PTOperator pu = null;
-    for (int i = 0; i < upstream.size(); i++) {
-      if (i % limit == 0) {
-        if (upstream.size() - i < limit) {
-          while (i < upstream.size()) {
-            nextLevel.add(upstream.get(i));
-            i++;
-          }
-          continue;
+    Set<PTOutput> remaining = Sets.newLinkedHashSet(upstream);
+
+    // keep unifiers whose inputs are not affected by the change
+    for (Iterator<PTOperator> it = pooledUnifiers.iterator(); it.hasNext(); ) {
+      PTOperator pu = it.next();
+      List<PTOutput> sources = previousSources.get(pu);
+      if (sources != null && sources.size() == limit && remaining.containsAll(sources) &&
+          !containsChanged(sources, changedUnifiers)) {
+        it.remove();
+        remaining.removeAll(sources);
+        for (PTOutput source : sources) {
+          addInput(pu, source, null);
         }
-        if (!pooledUnifiers.isEmpty()) {
-          pu = pooledUnifiers.remove(0);
-        } else {
-          pu = createUnifier(streamMeta, plan);
-        }
-        assert (pu.outputs.size() == 1) : "unifier has single output";
         nextLevel.addAll(pu.outputs);
         this.cascadingUnifiers.add(pu);
       }
+    }
 
-      PTOutput source = upstream.get(i);
-      addInput(pu, source, null);
+    List<PTOutput> unassigned = Lists.newArrayList(remaining);
+    for (int i = 0; i < unassigned.size(); i += limit) {
+      if (unassigned.size() - i < limit) {
+        nextLevel.addAll(unassigned.subList(i, unassigned.size()));
+        break;
+      }
+      PTOperator pu;
+      if (!pooledUnifiers.isEmpty()) {
+        Iterator<PTOperator> it = pooledUnifiers.iterator();
+        pu = it.next();
+        it.remove();
+      } else {
+        pu = createUnifier(streamMeta, plan);
+      }
+      assert (pu.outputs.size() == 1) : "unifier has single output";
+      nextLevel.addAll(pu.outputs);
+      this.cascadingUnifiers.add(pu);
+      changedUnifiers.add(pu);
+      for (PTOutput source : unassigned.subList(i, i + limit)) {
+        addInput(pu, source, null);
+      }
     }
 
     if (nextLevel.size() > limit) {
-      return setupCascadingUnifiers(nextLevel, pooledUnifiers, limit, level);
+      return setupCascadingUnifiers(nextLevel, pooledUnifiers, previousSources, changedUnifiers, limit, level);
     } else {
       return nextLevel;
     }
   }
 
+  private static boolean containsChanged(List<PTOutput> sources, Set<PTOperator> changedUnifiers)
+  {
+    for (PTOutput source : sources) {
+      if (changedUnifiers.contains(source.source)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  int getUnifierLimit()
+  {
+    int limit = streamMeta.getSource().getValue(PortContext.UNIFIER_LIMIT);
+    return adaptiveLimit > 0 ? Math.min(adaptiveLimit, limit) : limit;
+  }
+
+  void setAdaptiveLimit(int adaptiveLimit)
+  {
+    this.adaptiveLimit = adaptiveLimit;
+  }
+
+  /**
+   * Unifiers that merge the upstream partitions, excluding sliding window unifiers.
+   */
+  private Set<PTOperator> getUnifiers()
+  {
+    Set<PTOperator> unifiers = Sets.newLinkedHashSet(cascadingUnifiers);
+    List<PTOutput> outputs = Lists.newArrayList(upstream);
+    for (PTOperator unifier : cascadingUnifiers) {
+      outputs.addAll(unifier.outputs);
+    }
+    for (PTOutput out : outputs) {
+      for (PTInput sink : out.sinks) {
+        if (sink.target.isUnifier() && !slidingUnifiers.contains(sink.target)) {
+          unifiers.add(sink.target);
+        }
+      }
+    }
+    return unifiers;
+  }
+
+  /**
+   * Determine the unifier fan-in for the observed load of the unifiers when
+   * {@link LogicalPlan#UNIFIER_TARGET_LOAD_PERCENT} is set. The load of a unifier is the larger of cpu and input
+   * queue utilization. Evaluation is deferred until all unifiers are active and processing data.
+   * <p>
+   * The fan-in is not reduced below {@link LogicalPlan#UNIFIER_MIN_LIMIT}. Every unifier level still passes all tuples
+   * to the final unifier, so when the final unifier is the busiest and the previous reduction did not lower its load,
+   * the fan-in is kept.
+   *
+   * @return the new fan-in or 0 when no change is required
+   */
+  int computeUnifierLimit()
+  {
+    int targetPercent = streamMeta.getSource().getValue(LogicalPlan.UNIFIER_TARGET_LOAD_PERCENT);
+    if (targetPercent <= 0 || upstream.size() <= 2) {
+      return 0;
+    }
+    Set<PTOperator> unifiers = getUnifiers();
+    if (unifiers.isEmpty()) {
+      return 0;
+    }
+    int queueCapacity = streamMeta.getSource().getValue(PortContext.QUEUE_CAPACITY);
+    double maxLoad = 0;
+    double finalLoad = 0;
+    long tuples = 0;
+    for (PTOperator unifier : unifiers) {
+      if (unifier.getState() != PTOperator.State.ACTIVE) {
+        return 0;
+      }
+      tuples += unifier.stats.tuplesProcessedPSMA.get();
+      // cpu nanoseconds per millisecond, 1000000 is one fully utilized core
+      double load = unifier.stats.cpuNanosPMSMA.getAvg() / 1000000;
+      for (OperatorStatus.PortStatus ps : unifier.stats.inputPortStatusList.values()) {
+        load = Math.max(load, (double)ps.queueSizeMA.getAvg() / queueCapacity);
+      }
+      maxLoad = Math.max(maxLoad, load);
+      if (isFinal(unifier, unifiers)) {
+        finalLoad = Math.max(finalLoad, load);
+      }
+    }
+    if (tuples == 0) {
+      return 0;
+    }
+
+    int maxLimit = Math.min(streamMeta.getSource().getValue(PortContext.UNIFIER_LIMIT), upstream.size());
+    int minLimit = Math.max(2, streamMeta.getSource().getValue(LogicalPlan.UNIFIER_MIN_LIMIT));
+    int limit = Math.min(getUnifierLimit(), upstream.size());
+    double targetLoad = targetPercent / 100.0;
+    if (maxLoad > targetLoad && limit > minLimit) {
+      if (reducedFinalLoad > 0 && finalLoad >= maxLoad && finalLoad >= reducedFinalLoad) {
+        LOG.debug("Final unifier load {} of {} not reduced by fan-in {}, keeping it", finalLoad, streamMeta, limit);
+        return 0;
+      }
+      LOG.debug("Unifier load {} of {} above target, reducing fan-in {}", maxLoad, streamMeta, limit);
+      reducedFinalLoad = finalLoad;
+      return Math.max(minLimit, limit / 2);
+    } else if (maxLoad < targetLoad / 4 && limit < maxLimit) {
+      LOG.debug("Unifier load {} of {} below target, increasing fan-in {}", maxLoad, streamMeta, limit);
+      reducedFinalLoad = 0;
+      return Math.min(maxLimit, limit * 2);
+    }
+    return 0;
+  }
+
   /**
-   * rebuild the tree, which may cause more changes to execution layer than need be
-   * TODO: investigate incremental logic
+   * Whether the unifier feeds the downstream operators rather than another unifier of the stream.
+   */
+  private static boolean isFinal(PTOperator unifier, Set<PTOperator> unifiers)
+  {
+    for (PTOutput out : unifier.outputs) {
+      for (PTInput sink : out.sinks) {
+        if (unifiers.contains(sink.target)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Rebuild the unifier tree. Cascading unifiers with unchanged inputs are retained, only unifiers with modified
+   * inputs are undeployed.
    */
   private void redoMapping()
   {
@@ -218,19 +377,25 @@ public class StreamMapping implements java.io.Serializable
 
     if (!downstreamOpers.isEmpty()) {
       // unifiers are required
+      Map<PTOperator, List<PTOutput>> previousSources = Maps.newHashMapWithExpectedSize(this.cascadingUnifiers.size());
       for (PTOperator unifier : this.cascadingUnifiers) {
+        List<PTOutput> sources = Lists.newArrayListWithCapacity(unifier.inputs.size());
+        for (PTInput in : unifier.inputs) {
+          sources.add(in.source);
+        }
+        previousSources.put(unifier, sources);
         detachUnifier(unifier);
       }
       if (this.finalUnifier != null) {
         detachUnifier(finalUnifier);
       }
 
-      List<PTOperator> currentUnifiers = Lists.newArrayList(this.cascadingUnifiers);
+      Set<PTOperator> currentUnifiers = Sets.newLinkedHashSet(this.cascadingUnifiers);
+      Set<PTOperator> changedUnifiers = Sets.newHashSet();
       this.cascadingUnifiers.clear();
-      plan.undeployOpers.addAll(currentUnifiers);
       addSlidingUnifiers();
 
-      int limit = streamMeta.getSource().getValue(PortContext.UNIFIER_LIMIT);
+      int limit = getUnifierLimit();
 
       boolean separateUnifiers = false;
       Integer lastId = null;
@@ -251,18 +416,23 @@ public class StreamMapping implements java.io.Serializable
       if (limit > 1 && this.upstream.size() > limit) {
         // cascading unifier
         if (!separateUnifiers) {
-          unifierSources = setupCascadingUnifiers(this.upstream, currentUnifiers, limit, 0);
+          unifierSources = setupCascadingUnifiers(this.upstream, currentUnifiers, previousSources, changedUnifiers,
+              limit, 0);
         } else {
           for (InputPortMeta ipm : streamMeta.getSinks()) {
             StreamCodec<?> streamCodecInfo = StreamingContainerAgent.getStreamCodec(ipm);
             if (!cascadeUnifierSourcesMap.containsKey(streamCodecInfo)) {
-              unifierSources = setupCascadingUnifiers(this.upstream, currentUnifiers, limit, 0);
+              unifierSources = setupCascadingUnifiers(this.upstream, currentUnifiers, previousSources, changedUnifiers,
+                  limit, 0);
               cascadeUnifierSourcesMap.put(streamCodecInfo, unifierSources);
             }
           }
         }
       }
 
+      // existing unifiers with modified inputs need to be redeployed (new unifiers are excluded on deploy)
+      plan.undeployOpers.addAll(changedUnifiers);
+
       // remove remaining unifiers
       for (PTOperator oper : currentUnifiers) {
         plan.removePTOperator(oper);
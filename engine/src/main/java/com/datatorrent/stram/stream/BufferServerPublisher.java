@@ -19,11 +19,16 @@
 package com.datatorrent.stram.stream;
 
 import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.BatchSink;
+import com.datatorrent.api.PrimitiveSink;
+import com.datatorrent.api.PrimitiveStreamCodec;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.bufferserver.client.Publisher;
 import com.datatorrent.bufferserver.packet.BeginWindowTuple;
@@ -35,7 +40,9 @@ import com.datatorrent.bufferserver.packet.PayloadTuple;
 import com.datatorrent.bufferserver.packet.ResetWindowTuple;
 import com.datatorrent.bufferserver.packet.WindowIdTuple;
 import com.datatorrent.bufferserver.util.Codec;
+import com.datatorrent.bufferserver.util.VarInt;
 import com.datatorrent.netlet.EventLoop;
+import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.stram.codec.StatefulStreamCodec;
 import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
 import com.datatorrent.stram.engine.ByteCounterStream;
@@ -50,17 +57,25 @@ import static java.lang.Thread.sleep;
  * Extends SocketOutputStream as buffer server and node communicate via a socket<br>
  * This buffer server is a write instance of a stream and hence would take care of persistence and retaining tuples till they are consumed<br>
  * Partitioning is managed by this instance of the buffer server<br>
+ * Primitive values are serialized directly when the stream uses a {@link PrimitiveStreamCodec}<br>
  * <br>
  *
  * @since 0.3.2
  */
-public class BufferServerPublisher extends Publisher implements ByteCounterStream
+public class BufferServerPublisher extends Publisher
+    implements ByteCounterStream, BatchSink<Object>, PrimitiveSink.OfLong, PrimitiveSink.OfInt, PrimitiveSink.OfDouble
 {
   private StreamCodec<Object> serde;
   private final AtomicLong publishedByteCount;
   private EventLoop eventloop;
   private int count;
   private StatefulStreamCodec<Object> statefulSerde;
+  private PrimitiveStreamCodec<?> primitiveSerde;
+  /**
+   * Initial size of the buffer for a batch, the largest batch so far. The buffer is handed to the send queue, it
+   * cannot be reused.
+   */
+  private int batchBufferSize = 4096;
 
   public BufferServerPublisher(String sourceId, int queueCapacity)
   {
@@ -135,6 +150,12 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
       }
     }
 
+    publish(array);
+  }
+
+  @SuppressWarnings("SleepWhileInLoop")
+  private void publish(byte[] array)
+  {
     try {
       while (!write(array)) {
         sleep(5);
@@ -145,6 +166,120 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
     }
   }
 
+  /**
+   * Serialize the tuples in one pass into a single buffer of length prefixed messages, the same framing that
+   * {@link #write(byte[])} produces for each message, and queue the buffer with one send.
+   *
+   * @param tuples data tuples
+   */
+  @Override
+  @SuppressWarnings("SleepWhileInLoop")
+  public void putBatch(List<?> tuples)
+  {
+    final int size = tuples.size();
+    byte[] buffer = new byte[batchBufferSize];
+    int offset = 0;
+    long messageBytes = 0;
+    for (int i = 0; i < size; i++) {
+      Object payload = tuples.get(i);
+      int partition;
+      Slice data;
+      if (statefulSerde == null) {
+        partition = serde.getPartition(payload);
+        data = serde.toByteArray(payload);
+      } else {
+        DataStatePair dsp = statefulSerde.toDataStatePair(payload);
+        if (dsp.state != null) {
+          // the state precedes the data that depends on it
+          buffer = ensureCapacity(buffer, offset, 1 + dsp.state.length);
+          offset = VarInt.write(1 + dsp.state.length, buffer, offset);
+          buffer[offset++] = MessageType.CODEC_STATE_VALUE;
+          System.arraycopy(dsp.state.buffer, dsp.state.offset, buffer, offset, dsp.state.length);
+          offset += dsp.state.length;
+          messageBytes += 1 + dsp.state.length;
+        }
+        partition = statefulSerde.getPartition(payload);
+        data = dsp.data;
+      }
+      // same layout as PayloadTuple.getSerializedTuple
+      buffer = ensureCapacity(buffer, offset, 5 + data.length);
+      offset = VarInt.write(5 + data.length, buffer, offset);
+      buffer[offset++] = MessageType.PAYLOAD_VALUE;
+      buffer[offset++] = (byte)partition;
+      buffer[offset++] = (byte)(partition >> 8);
+      buffer[offset++] = (byte)(partition >> 16);
+      buffer[offset++] = (byte)(partition >> 24);
+      System.arraycopy(data.buffer, data.offset, buffer, offset, data.length);
+      offset += data.length;
+      messageBytes += 5 + data.length;
+    }
+    count += size;
+    batchBufferSize = Math.max(batchBufferSize, offset);
+
+    try {
+      while (!send(buffer, 0, offset)) {
+        sleep(5);
+      }
+      publishedByteCount.addAndGet(messageBytes);
+    } catch (InterruptedException ie) {
+      throw new RuntimeException(ie);
+    }
+  }
+
+  /**
+   * @return the buffer or a larger copy that can take a message of the given length and its length prefix
+   */
+  private static byte[] ensureCapacity(byte[] buffer, int offset, int messageLength)
+  {
+    int required = offset + 5 + messageLength;
+    if (required <= buffer.length) {
+      return buffer;
+    }
+    return Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+  }
+
+  @Override
+  public void putLong(long value)
+  {
+    if (primitiveSerde instanceof PrimitiveStreamCodec.OfLong) {
+      count++;
+      PrimitiveStreamCodec.OfLong codec = (PrimitiveStreamCodec.OfLong)primitiveSerde;
+      byte[] array = PayloadTuple.getSerializedTuple(codec.getPartition(value), codec.getSize());
+      codec.write(value, array, 5);
+      publish(array);
+    } else {
+      put(value);
+    }
+  }
+
+  @Override
+  public void putInt(int value)
+  {
+    if (primitiveSerde instanceof PrimitiveStreamCodec.OfInt) {
+      count++;
+      PrimitiveStreamCodec.OfInt codec = (PrimitiveStreamCodec.OfInt)primitiveSerde;
+      byte[] array = PayloadTuple.getSerializedTuple(codec.getPartition(value), codec.getSize());
+      codec.write(value, array, 5);
+      publish(array);
+    } else {
+      put(value);
+    }
+  }
+
+  @Override
+  public void putDouble(double value)
+  {
+    if (primitiveSerde instanceof PrimitiveStreamCodec.OfDouble) {
+      count++;
+      PrimitiveStreamCodec.OfDouble codec = (PrimitiveStreamCodec.OfDouble)primitiveSerde;
+      byte[] array = PayloadTuple.getSerializedTuple(codec.getPartition(value), codec.getSize());
+      codec.write(value, array, 5);
+      publish(array);
+    } else {
+      put(value);
+    }
+  }
+
   /**
    *
    * @param context
@@ -186,6 +321,9 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
       statefulSerde = ((StatefulStreamCodec<Object>)codec).newInstance();
     } else {
       serde = (StreamCodec<Object>)codec;
+      if (codec instanceof PrimitiveStreamCodec) {
+        primitiveSerde = (PrimitiveStreamCodec<?>)codec;
+      }
     }
   }
 
@@ -20,6 +20,7 @@ package com.datatorrent.stram.stream;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicLong;
@@ -27,6 +28,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.BatchSink;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.bufferserver.client.Subscriber;
@@ -235,6 +237,8 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
   {
     protected boolean skipObject = false;
     private Sink<Object> sink;
+    private BatchSink<Object> batchSink;
+    private final ArrayList<Object> batch = new ArrayList<>();
     int count;
 
     BufferReservoir(int capacity)
@@ -258,12 +262,14 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public Sink<Object> setSink(Sink<Object> sink)
     {
       try {
         return this.sink;
       } finally {
         this.sink = sink;
+        this.batchSink = sink instanceof BatchSink ? (BatchSink<Object>)sink : null;
       }
     }
 
@@ -271,7 +277,27 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
     public Tuple sweep()
     {
       final int size = size();
-      if (size > 0) {
+      if (size > 0 && batchSink != null) {
+        Tuple t = null;
+        for (int i = 0; i < size; i++) {
+          if (peekUnsafe() instanceof Tuple) {
+            t = (Tuple)peekUnsafe();
+            break;
+          }
+          batch.add(pollUnsafe());
+        }
+        if (!batch.isEmpty()) {
+          count += batch.size();
+          try {
+            batchSink.putBatch(batch);
+          } finally {
+            batch.clear();
+          }
+        }
+        if (t != null) {
+          return t;
+        }
+      } else if (size > 0) {
         for (int i = 0; i < size; i++) {
           if (peekUnsafe() instanceof Tuple) {
             count += i;
@@ -18,9 +18,13 @@
  */
 package com.datatorrent.stram.stream;
 
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.BatchSink;
+import com.datatorrent.api.PrimitiveSink;
 import com.datatorrent.stram.engine.AbstractReservoir;
 import com.datatorrent.stram.engine.Stream;
 import com.datatorrent.stram.engine.StreamContext;
@@ -31,10 +35,12 @@ import com.datatorrent.stram.tuple.Tuple;
  *
  * When data exchange is needed between 2 operators deployed in the same container, they are connected using a
  * blocking queue; The implementation of such a blocking queue is InlineStream.<br />
+ * Primitive values are queued without boxing, batches are queued as a single entry.<br />
  *
  * @since 0.3.2
  */
-public class InlineStream implements Stream
+public class InlineStream
+    implements Stream, BatchSink<Object>, PrimitiveSink.OfLong, PrimitiveSink.OfInt, PrimitiveSink.OfDouble
 {
   private int count;
   private AbstractReservoir reservoir;
@@ -98,6 +104,54 @@ public class InlineStream implements Stream
     }
   }
 
+  @Override
+  public void putBatch(List<?> tuples)
+  {
+    try {
+      reservoir.putBatch(tuples);
+      count += tuples.size();
+    } catch (InterruptedException ie) {
+      logger.debug("Interrupted", ie);
+      throw new RuntimeException(ie);
+    }
+  }
+
+  @Override
+  public void putLong(long value)
+  {
+    try {
+      reservoir.putLong(value);
+      count++;
+    } catch (InterruptedException ie) {
+      logger.debug("Interrupted", ie);
+      throw new RuntimeException(ie);
+    }
+  }
+
+  @Override
+  public void putInt(int value)
+  {
+    try {
+      reservoir.putInt(value);
+      count++;
+    } catch (InterruptedException ie) {
+      logger.debug("Interrupted", ie);
+      throw new RuntimeException(ie);
+    }
+  }
+
+  @Override
+  public void putDouble(double value)
+  {
+    try {
+      reservoir.putDouble(value);
+      count++;
+    } catch (InterruptedException ie) {
+      logger.debug("Interrupted", ie);
+      throw new RuntimeException(ie);
+    }
+  }
+
   @Override
   public int getCount(boolean reset)
   {
@@ -19,18 +19,29 @@
 package com.datatorrent.stram.stream;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.datatorrent.api.Sink;
+import com.datatorrent.api.StreamCodec;
 
 import com.datatorrent.stram.engine.Stream;
 import com.datatorrent.stram.engine.StreamContext;
+import com.datatorrent.stram.tuple.Tuple;
 
 /**
  * <p>MuxStream class.</p>
+ * Partition aware sinks that use equivalent codecs are served through a routing table: the partition of a data tuple
+ * is computed once and the tuple is passed to the sinks that accept the partition, instead of every sink computing
+ * the partition and looking it up in its partition keys.
  *
  * @since 0.3.2
  */
@@ -40,8 +51,56 @@ public class MuxStream implements Stream.MultiSinkCapableStream
   private HashMap<String, Sink<Object>> outputs = new HashMap<>();
   @SuppressWarnings("VolatileArrayField")
   private volatile Sink<Object>[] sinks = NO_SINKS;
+  private volatile Routing routing;
   private int count;
 
+  /**
+   * Partition aware sinks that share the codec, with the sinks that accept each partition.
+   */
+  private static class Route
+  {
+    final StreamCodec<Object> codec;
+    final int mask;
+    final PartitionAwareSink<Object>[][] table;
+
+    @SuppressWarnings("unchecked")
+    Route(List<PartitionAwareSink<Object>> group)
+    {
+      codec = group.get(0).getStreamCodec();
+      int mask = 0;
+      for (PartitionAwareSink<Object> pas : group) {
+        mask |= pas.getMask();
+      }
+      this.mask = mask;
+      table = new PartitionAwareSink[mask + 1][];
+      List<PartitionAwareSink<Object>> targets = new ArrayList<>(group.size());
+      for (int partition = 0; partition <= mask; partition++) {
+        targets.clear();
+        for (PartitionAwareSink<Object> pas : group) {
+          if (pas.accepts(partition)) {
+            targets.add(pas);
+          }
+        }
+        table[partition] = targets.toArray(new PartitionAwareSink[targets.size()]);
+      }
+    }
+  }
+
+  /**
+   * Data tuple dispatch, sinks that are not served by a route check the tuple themselves.
+   */
+  private static class Routing
+  {
+    final Sink<Object>[] direct;
+    final Route[] routes;
+
+    Routing(Sink<Object>[] direct, Route[] routes)
+    {
+      this.direct = direct;
+      this.routes = routes;
+    }
+  }
+
   /**
    *
    * @param context
@@ -74,15 +133,61 @@ public class MuxStream implements Stream.MultiSinkCapableStream
     for (final Sink<Object> s: outputs.values()) {
       newSinks[i++] = s;
     }
+    routing = createRouting(newSinks);
     sinks = newSinks;
   }
 
+  /**
+   * Group the routable partition aware sinks by codec.
+   *
+   * @param sinks
+   * @return the routing or null when no two sinks can share a route
+   */
+  @SuppressWarnings("unchecked")
+  private static Routing createRouting(Sink<Object>[] sinks)
+  {
+    Map<Object, List<PartitionAwareSink<Object>>> groups = new LinkedHashMap<>();
+    for (Sink<Object> s : sinks) {
+      if (s instanceof PartitionAwareSink) {
+        PartitionAwareSink<Object> pas = (PartitionAwareSink<Object>)s;
+        // sinks with masks too large for a routing table check the partition themselves
+        if (pas.isRoutable() && PartitionAwareSink.isDense(pas.getMask())) {
+          List<PartitionAwareSink<Object>> group = groups.get(pas.getCodecKey());
+          if (group == null) {
+            groups.put(pas.getCodecKey(), group = new ArrayList<>());
+          }
+          group.add(pas);
+        }
+      }
+    }
+
+    List<Route> routes = new ArrayList<>();
+    Set<Sink<Object>> routed = new HashSet<>();
+    for (List<PartitionAwareSink<Object>> group : groups.values()) {
+      if (group.size() > 1) {
+        routes.add(new Route(group));
+        routed.addAll(group);
+      }
+    }
+    if (routes.isEmpty()) {
+      return null;
+    }
+    List<Sink<Object>> direct = new ArrayList<>();
+    for (Sink<Object> s : sinks) {
+      if (!routed.contains(s)) {
+        direct.add(s);
+      }
+    }
+    return new Routing(direct.toArray(new Sink[direct.size()]), routes.toArray(new Route[routes.size()]));
+  }
+
   /**
    *
    */
   @Override
   public void deactivate()
   {
+    routing = null;
     sinks = NO_SINKS;
   }
 
@@ -97,6 +202,7 @@ public class MuxStream implements Stream.MultiSinkCapableStream
     if (sink == null) {
       outputs.remove(id);
       if (outputs.isEmpty()) {
+        routing = null;
         sinks = NO_SINKS;
       }
     } else {
@@ -115,8 +221,22 @@ public class MuxStream implements Stream.MultiSinkCapableStream
   public void put(Object payload)
   {
     count++;
-    for (int i = sinks.length; i-- > 0;) {
-      sinks[i].put(payload);
+    Routing r = routing;
+    if (r == null || payload instanceof Tuple) {
+      for (int i = sinks.length; i-- > 0;) {
+        sinks[i].put(payload);
+      }
+      return;
+    }
+
+    for (int i = r.direct.length; i-- > 0;) {
+      r.direct[i].put(payload);
+    }
+    for (Route route : r.routes) {
+      PartitionAwareSink<Object>[] targets = route.table[route.codec.getPartition(payload) & route.mask];
+      for (int i = targets.length; i-- > 0;) {
+        targets[i].route(payload);
+      }
     }
   }
 
@@ -18,6 +18,10 @@
  */
 package com.datatorrent.stram.stream;
 
+import java.util.List;
+
+import com.datatorrent.api.BatchSink;
+import com.datatorrent.api.PrimitiveSink;
 import com.datatorrent.api.Sink;
 import com.datatorrent.stram.engine.Stream;
 import com.datatorrent.stram.engine.StreamContext;
@@ -34,10 +38,13 @@ import com.datatorrent.stram.tuple.Tuple;
  * upstream operator puts n tuples into {@link OiOStream}, both {@link Sink#getCount(boolean) Sink.getCount(true)} and
  * {@link SweepableReservoir#getCount(boolean) SweepableReservoir.getCount(true)} should return n and reset count to 0.
  * If there is only one count, only one call (whichever comes first) would return n, the second one would return 0.
+ * <p>
+ * Primitive values and batches are passed on as such when the downstream sink accepts them.
  *
  * @since 0.3.5
  */
-public class OiOStream implements Stream
+public class OiOStream
+    implements Stream, BatchSink<Object>, PrimitiveSink.OfLong, PrimitiveSink.OfInt, PrimitiveSink.OfDouble
 {
   private Sink<Object> sink;
   private Sink<Tuple> control;
@@ -76,6 +83,58 @@ public class OiOStream implements Stream
     }
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public void putBatch(List<?> tuples)
+  {
+    final int size = tuples.size();
+    count += size;
+    reservoir.count += size;
+    if (sink instanceof BatchSink) {
+      ((BatchSink<Object>)sink).putBatch(tuples);
+    } else {
+      for (int i = 0; i < size; i++) {
+        sink.put(tuples.get(i));
+      }
+    }
+  }
+
+  @Override
+  public void putLong(long value)
+  {
+    count++;
+    reservoir.count++;
+    if (sink instanceof PrimitiveSink.OfLong) {
+      ((PrimitiveSink.OfLong)sink).putLong(value);
+    } else {
+      sink.put(value);
+    }
+  }
+
+  @Override
+  public void putInt(int value)
+  {
+    count++;
+    reservoir.count++;
+    if (sink instanceof PrimitiveSink.OfInt) {
+      ((PrimitiveSink.OfInt)sink).putInt(value);
+    } else {
+      sink.put(value);
+    }
+  }
+
+  @Override
+  public void putDouble(double value)
+  {
+    count++;
+    reservoir.count++;
+    if (sink instanceof PrimitiveSink.OfDouble) {
+      ((PrimitiveSink.OfDouble)sink).putDouble(value);
+    } else {
+      sink.put(value);
+    }
+  }
+
   @Override
   public int getCount(boolean reset)
   {
@@ -32,9 +32,18 @@ import com.datatorrent.stram.tuple.Tuple;
  */
 public class PartitionAwareSink<T> implements Sink<T>
 {
+  /**
+   * Masks beyond this size are not worth a dense table, the partitions are looked up in the set instead.
+   */
+  static final int MAX_ROUTING_MASK = (1 << 12) - 1;
   private final StreamCodec<T> serde;
   private final Set<Integer> partitions;
+  /**
+   * Whether the partition (code & mask) is accepted, indexed by partition. Null when the mask is too large.
+   */
+  private final boolean[] routes;
   private final int mask;
+  private final Integer codecIdentifier;
   private volatile Sink<T> output;
   private int count;
 
@@ -46,11 +55,33 @@ public class PartitionAwareSink<T> implements Sink<T>
    * @param output
    */
   public PartitionAwareSink(StreamCodec<T> serde, Set<Integer> partitions, int mask, Sink<T> output)
+  {
+    this(serde, partitions, mask, output, null);
+  }
+
+  /**
+   * @param serde
+   * @param partitions
+   * @param mask
+   * @param output
+   * @param codecIdentifier sinks with the same identifier use equivalent codecs, see {@link MuxStream}
+   */
+  public PartitionAwareSink(StreamCodec<T> serde, Set<Integer> partitions, int mask, Sink<T> output,
+      Integer codecIdentifier)
   {
     this.serde = serde;
     this.partitions = partitions;
+    if (isDense(mask)) {
+      routes = new boolean[mask + 1];
+      for (int partition : partitions) {
+        routes[partition & mask] = true;
+      }
+    } else {
+      routes = null;
+    }
     this.output = output;
     this.mask = mask;
+    this.codecIdentifier = codecIdentifier;
   }
 
   /**
@@ -71,7 +102,62 @@ public class PartitionAwareSink<T> implements Sink<T>
 
   protected boolean canSendToOutput(T payload)
   {
-    return partitions.contains(serde.getPartition(payload) & mask);
+    return accepts(serde.getPartition(payload));
+  }
+
+  /**
+   * Pass a data tuple of which the partition was already found to be accepted.
+   *
+   * @param payload
+   */
+  void route(T payload)
+  {
+    count++;
+    output.put(payload);
+  }
+
+  /**
+   * @param partition partition code of a tuple
+   * @return whether tuples with the partition code are accepted
+   */
+  boolean accepts(int partition)
+  {
+    return routes != null ? routes[partition & mask] : partitions.contains(partition & mask);
+  }
+
+  /**
+   * @param mask partition mask
+   * @return whether the partitions of the mask fit in a table indexed by partition
+   */
+  static boolean isDense(int mask)
+  {
+    return mask >= 0 && mask <= MAX_ROUTING_MASK;
+  }
+
+  /**
+   * @return whether tuples can be routed by the partition alone, without calling {@link #canSendToOutput}
+   */
+  protected boolean isRoutable()
+  {
+    return true;
+  }
+
+  StreamCodec<T> getStreamCodec()
+  {
+    return serde;
+  }
+
+  /**
+   * @return key of the codec, sinks with equal keys compute the same partition codes
+   */
+  Object getCodecKey()
+  {
+    return codecIdentifier == null ? serde : codecIdentifier;
+  }
+
+  int getMask()
+  {
+    return mask;
   }
 
   @Override
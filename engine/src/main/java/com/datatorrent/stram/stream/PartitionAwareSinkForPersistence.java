@@ -65,4 +65,10 @@ public class PartitionAwareSinkForPersistence extends PartitionAwareSink<Object>
 
     return super.canSendToOutput(payload);
   }
+
+  @Override
+  protected boolean isRoutable()
+  {
+    return false;
+  }
 }
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.util.Arrays;
+
+/**
+ * Percentiles over a fixed number of most recent samples.
+ *
+ * @since 3.5.0
+ */
+public class MovingPercentile implements java.io.Serializable
+{
+  private static final long serialVersionUID = 201610190000L;
+  private final long[] values;
+  private int index = 0;
+  private int count = 0;
+
+  public MovingPercentile(int periods)
+  {
+    this.values = new long[periods];
+  }
+
+  public synchronized void add(long val)
+  {
+    values[index++] = val;
+    if (index == values.length) {
+      index = 0;
+    }
+    if (count < values.length) {
+      count++;
+    }
+  }
+
+  public synchronized int getCount()
+  {
+    return count;
+  }
+
+  /**
+   * Nearest rank percentiles of the retained samples.
+   *
+   * @param percentiles percentiles in the range (0, 100]
+   * @return value for each of the given percentiles, 0 when there are no samples
+   */
+  public synchronized long[] getPercentiles(double... percentiles)
+  {
+    long[] result = new long[percentiles.length];
+    if (count == 0) {
+      return result;
+    }
+    long[] sorted = Arrays.copyOf(values, count);
+    Arrays.sort(sorted);
+    for (int i = 0; i < percentiles.length; i++) {
+      int rank = (int)Math.ceil(percentiles[i] / 100 * count);
+      result[i] = sorted[Math.min(Math.max(rank, 1), count) - 1];
+    }
+    return result;
+  }
+}
@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.common.util.NameableThreadFactory;
+
+/**
+ * Executes tasks on a fixed set of single threaded shards. Tasks submitted with the same key run on the same shard in
+ * submission order, tasks with different keys may run concurrently. The queue of each shard is bounded, a submitter
+ * waits for room when the shard falls behind.
+ *
+ * @since 3.5.0
+ */
+public class ShardedExecutor
+{
+  private static final Logger LOG = LoggerFactory.getLogger(ShardedExecutor.class);
+
+  private final ThreadPoolExecutor[] shards;
+  private final AtomicLong pending = new AtomicLong();
+
+  public ShardedExecutor(String name, int shardCount, int queueCapacity)
+  {
+    shards = new ThreadPoolExecutor[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<Runnable>(queueCapacity),
+          new NameableThreadFactory(name + "-" + i, true), new BlockingPolicy());
+    }
+  }
+
+  /**
+   * Waits for room in the queue of the shard. Running the task in the caller instead would break the ordering of the
+   * tasks of a key.
+   */
+  private static class BlockingPolicy implements RejectedExecutionHandler
+  {
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor)
+    {
+      if (executor.isShutdown()) {
+        throw new RejectedExecutionException("Shard is shut down");
+      }
+      try {
+        executor.getQueue().put(r);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RejectedExecutionException(e);
+      }
+    }
+  }
+
+  /**
+   * @param key determines the shard, tasks with equal keys are executed in order
+   * @param task
+   */
+  public void execute(int key, final Runnable task)
+  {
+    pending.incrementAndGet();
+    try {
+      shards[(key & Integer.MAX_VALUE) % shards.length].execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try {
+            task.run();
+          } catch (Throwable t) {
+            LOG.error("Task {} failed", task, t);
+          } finally {
+            pending.decrementAndGet();
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      pending.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /**
+   * @return number of submitted tasks that have not completed
+   */
+  public long getPendingCount()
+  {
+    return pending.get();
+  }
+
+  /**
+   * @return number of tasks waiting in the shard queues
+   */
+  public int getQueueDepth()
+  {
+    int depth = 0;
+    for (ThreadPoolExecutor shard : shards) {
+      depth += shard.getQueue().size();
+    }
+    return depth;
+  }
+
+  public int getShardCount()
+  {
+    return shards.length;
+  }
+
+  /**
+   * Wait until all tasks submitted so far have completed.
+   *
+   * @param timeoutMillis
+   * @return whether all tasks completed in time
+   * @throws InterruptedException
+   */
+  public boolean awaitIdle(long timeoutMillis) throws InterruptedException
+  {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while (pending.get() > 0) {
+      if (System.currentTimeMillis() >= deadline) {
+        return false;
+      }
+      Thread.sleep(1);
+    }
+    return true;
+  }
+
+  public void shutdown()
+  {
+    for (ThreadPoolExecutor shard : shards) {
+      shard.shutdown();
+    }
+  }
+
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+  {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (ThreadPoolExecutor shard : shards) {
+      if (!shard.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
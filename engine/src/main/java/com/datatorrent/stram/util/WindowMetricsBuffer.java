@@ -0,0 +1,264 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded ring buffer for the per window logical metrics of an operator. Metrics are stored column-wise, with a
+ * primitive array for each integral or floating point metric, so that retention does not depend on the number of
+ * boxed values. Readers visit the retained windows in place.
+ *
+ * @since 3.5.0
+ */
+public class WindowMetricsBuffer
+{
+  /**
+   * Receives the retained windows in order. The window view is only valid within the call.
+   */
+  public interface Visitor
+  {
+    void visit(long sequence, Window window);
+  }
+
+  private final int capacity;
+  private final long[] windowIds;
+  private final List<Column> columns = new ArrayList<>();
+  private final Map<String, Column> columnsByName = new HashMap<>();
+  private final Window window = new Window();
+  private long sequence;
+
+  public WindowMetricsBuffer(int capacity)
+  {
+    this.capacity = capacity;
+    this.windowIds = new long[capacity];
+  }
+
+  /**
+   * Append the metrics of a window, replacing the oldest window when the buffer is full.
+   *
+   * @param windowId
+   * @param metrics metric name to value, null values are skipped
+   */
+  public synchronized void add(long windowId, Map<String, Object> metrics)
+  {
+    int slot = (int)(sequence % capacity);
+    windowIds[slot] = windowId;
+    for (Column column : columns) {
+      column.present[slot] = false;
+    }
+    for (Map.Entry<String, Object> entry : metrics.entrySet()) {
+      if (entry.getValue() == null) {
+        continue;
+      }
+      Column column = columnsByName.get(entry.getKey());
+      if (column == null) {
+        column = new Column(entry.getKey(), capacity);
+        columns.add(column);
+        columnsByName.put(entry.getKey(), column);
+      }
+      column.set(slot, entry.getValue());
+    }
+    sequence++;
+  }
+
+  /**
+   * @return sequence number of the next window to be added
+   */
+  public synchronized long getSequence()
+  {
+    return sequence;
+  }
+
+  public synchronized int size()
+  {
+    return (int)Math.min(sequence, capacity);
+  }
+
+  /**
+   * Visit the retained windows starting at the given sequence number. Windows that were already replaced are skipped.
+   * Values are read from the buffer directly, the buffer is locked for the duration of the visit.
+   *
+   * @param fromSequence sequence number of the first window to visit
+   * @param visitor
+   * @return sequence number following the last visited window
+   */
+  public synchronized long visit(long fromSequence, Visitor visitor)
+  {
+    for (long s = Math.max(fromSequence, sequence - capacity); s < sequence; s++) {
+      window.slot = (int)(s % capacity);
+      visitor.visit(s, window);
+    }
+    return sequence;
+  }
+
+  /**
+   * View of a single window in the buffer. Metrics are addressed by index, which is stable for the life of the buffer.
+   */
+  public class Window
+  {
+    private int slot;
+
+    public long getWindowId()
+    {
+      return windowIds[slot];
+    }
+
+    public int getMetricCount()
+    {
+      return columns.size();
+    }
+
+    public String getName(int index)
+    {
+      return columns.get(index).name;
+    }
+
+    public boolean isPresent(int index)
+    {
+      return columns.get(index).present[slot];
+    }
+
+    public long getLong(int index)
+    {
+      Column column = columns.get(index);
+      if (column.longs != null) {
+        return column.longs[slot];
+      } else if (column.doubles != null) {
+        return (long)column.doubles[slot];
+      }
+      return ((Number)column.objects[slot]).longValue();
+    }
+
+    public double getDouble(int index)
+    {
+      Column column = columns.get(index);
+      if (column.doubles != null) {
+        return column.doubles[slot];
+      } else if (column.longs != null) {
+        return column.longs[slot];
+      }
+      return ((Number)column.objects[slot]).doubleValue();
+    }
+
+    /**
+     * @return the value boxed to its original type, or null when the metric was not reported for the window
+     */
+    public Object getValue(int index)
+    {
+      Column column = columns.get(index);
+      return column.present[slot] ? column.get(slot) : null;
+    }
+
+    /**
+     * @return copy of the metrics of the window
+     */
+    public Map<String, Object> toMap()
+    {
+      Map<String, Object> map = new LinkedHashMap<>();
+      for (Column column : columns) {
+        if (column.present[slot]) {
+          map.put(column.name, column.get(slot));
+        }
+      }
+      return map;
+    }
+  }
+
+  /**
+   * Values of one metric. Integral values are kept in a long array and floating point values in a double array, other
+   * values or values that change their type are kept as objects.
+   */
+  private static class Column
+  {
+    private final String name;
+    private final boolean[] present;
+    private Class<?> type;
+    private long[] longs;
+    private double[] doubles;
+    private Object[] objects;
+
+    private Column(String name, int capacity)
+    {
+      this.name = name;
+      this.present = new boolean[capacity];
+    }
+
+    private void set(int slot, Object value)
+    {
+      Class<?> valueType = value.getClass();
+      if (type == null) {
+        type = valueType;
+        if (valueType == Long.class || valueType == Integer.class || valueType == Short.class ||
+            valueType == Byte.class) {
+          longs = new long[present.length];
+        } else if (valueType == Double.class || valueType == Float.class) {
+          doubles = new double[present.length];
+        } else {
+          objects = new Object[present.length];
+        }
+      } else if (valueType != type && objects == null) {
+        Object[] values = new Object[present.length];
+        for (int i = 0; i < values.length; i++) {
+          if (present[i]) {
+            values[i] = get(i);
+          }
+        }
+        objects = values;
+        longs = null;
+        doubles = null;
+      }
+
+      if (objects != null) {
+        objects[slot] = value;
+      } else if (longs != null) {
+        longs[slot] = ((Number)value).longValue();
+      } else {
+        doubles[slot] = ((Number)value).doubleValue();
+      }
+      present[slot] = true;
+    }
+
+    private Object get(int slot)
+    {
+      if (objects != null) {
+        return objects[slot];
+      } else if (longs != null) {
+        long value = longs[slot];
+        if (type == Integer.class) {
+          return (int)value;
+        } else if (type == Short.class) {
+          return (short)value;
+        } else if (type == Byte.class) {
+          return (byte)value;
+        }
+        return value;
+      }
+      double value = doubles[slot];
+      if (type == Float.class) {
+        return (float)value;
+      }
+      return value;
+    }
+  }
+}
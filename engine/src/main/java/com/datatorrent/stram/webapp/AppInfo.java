@@ -33,6 +33,7 @@ import com.datatorrent.api.Attribute.AttributeMap;
 import com.datatorrent.api.AutoMetric;
 import com.datatorrent.api.Context.DAGContext;
 import com.datatorrent.stram.StramAppContext;
+import com.datatorrent.stram.StreamingContainerManager;
 import com.datatorrent.stram.api.AppDataSource;
 import com.datatorrent.stram.util.VersionInfo;
 
@@ -130,6 +131,12 @@ public class AppInfo
       return null;
     }
 
+    @javax.xml.bind.annotation.XmlElement
+    public Map<String, StreamingContainerManager.PathLatencyInfo> getPathLatencies()
+    {
+      return null;
+    }
+
     @javax.xml.bind.annotation.XmlElement
     public long getCurrentWindowId()
     {
@@ -211,6 +218,41 @@ public class AppInfo
     {
       return 0;
     }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getPendingCheckpointPurges()
+    {
+      return 0;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getPurgedCheckpoints()
+    {
+      return 0;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getQueuedHeartbeatStats()
+    {
+      return 0;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public int getJournalBatchSize()
+    {
+      return 0;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getJournalFlushMillis()
+    {
+      return 0;
+    }
   }
 
   /**
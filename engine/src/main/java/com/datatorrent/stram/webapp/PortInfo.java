@@ -23,6 +23,8 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import com.datatorrent.api.Histogram;
+
 /**
  * <p>PortInfo class.</p>
  *
@@ -39,4 +41,6 @@ public class PortInfo
   public long bufferServerBytesPSMA;
   public long queueSizeMA;
   public String recordingId;
+  public Histogram queueSizeHistogram;
+  public Histogram processingTimeHistogram;
 }
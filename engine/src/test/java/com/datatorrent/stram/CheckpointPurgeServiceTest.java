@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import com.datatorrent.api.StorageAgent;
+
+public class CheckpointPurgeServiceTest
+{
+  private static class BlockingStorageAgent implements StorageAgent
+  {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<Long> deletes = Lists.newArrayList();
+
+    @Override
+    public void save(Object object, int operatorId, long windowId) throws IOException
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object load(int operatorId, long windowId) throws IOException
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(int operatorId, long windowId) throws IOException
+    {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      synchronized (deletes) {
+        deletes.add(windowId);
+      }
+      if (windowId < 0) {
+        throw new IOException("failed delete " + windowId);
+      }
+    }
+
+    @Override
+    public long[] getWindowIds(int operatorId) throws IOException
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Test
+  public void testBatching() throws Exception
+  {
+    CheckpointPurgeService service = new CheckpointPurgeService(1, 0);
+    BlockingStorageAgent agent = new BlockingStorageAgent();
+    // first request occupies the thread, the following ones are collected into one batch
+    service.purge(agent, 1, 1);
+    Assert.assertTrue("first batch started", agent.entered.await(10, TimeUnit.SECONDS));
+    service.purge(agent, 1, 3);
+    service.purge(agent, 1, 2);
+    service.purge(agent, 1, 2);
+    service.purge(agent, 1, -1);
+    Assert.assertEquals("pending", 4, service.getPendingCount());
+
+    agent.release.countDown();
+    service.shutdown();
+    Assert.assertTrue("terminated", service.awaitTermination(10, TimeUnit.SECONDS));
+    Assert.assertEquals("deletes", Lists.newArrayList(1L, -1L, 2L, 3L), agent.deletes);
+    Assert.assertEquals("pending", 0, service.getPendingCount());
+    Assert.assertEquals("purged", 3, service.getPurgedCount());
+    Assert.assertEquals("failed", 1, service.getFailedCount());
+    Assert.assertEquals("batches", 2, service.getBatchCount());
+  }
+
+  @Test
+  public void testRateLimit() throws Exception
+  {
+    CheckpointPurgeService service = new CheckpointPurgeService(4, 100);
+    BlockingStorageAgent agent = new BlockingStorageAgent();
+    agent.release.countDown();
+    long start = System.nanoTime();
+    for (int i = 0; i < 20; i++) {
+      service.purge(agent, i, 1);
+    }
+    service.shutdown();
+    Assert.assertTrue("terminated", service.awaitTermination(10, TimeUnit.SECONDS));
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    Assert.assertEquals("purged", 20, service.getPurgedCount());
+    Assert.assertTrue("rate limited " + elapsedMillis, elapsedMillis >= 150);
+  }
+
+  private static class BatchStorageAgent extends BlockingStorageAgent implements StorageAgent.BatchDeleteStorageAgent
+  {
+    final List<List<Long>> batches = Lists.newArrayList();
+
+    @Override
+    public void delete(int operatorId, Collection<Long> windowIds) throws IOException
+    {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      synchronized (batches) {
+        batches.add(Lists.newArrayList(windowIds));
+      }
+    }
+  }
+
+  @Test
+  public void testBatchDelete() throws Exception
+  {
+    CheckpointPurgeService service = new CheckpointPurgeService(1, 0);
+    BatchStorageAgent agent = new BatchStorageAgent();
+    service.purge(agent, 1, 1);
+    Assert.assertTrue("first batch started", agent.entered.await(10, TimeUnit.SECONDS));
+    service.purge(agent, 1, 3);
+    service.purge(agent, 1, 2);
+
+    agent.release.countDown();
+    service.shutdown();
+    Assert.assertTrue("terminated", service.awaitTermination(10, TimeUnit.SECONDS));
+    Assert.assertTrue("no single deletes", agent.deletes.isEmpty());
+    Assert.assertEquals("batches", Lists.newArrayList(Lists.newArrayList(1L), Lists.newArrayList(2L, 3L)),
+        agent.batches);
+    Assert.assertEquals("pending", 0, service.getPendingCount());
+    Assert.assertEquals("purged", 3, service.getPurgedCount());
+    Assert.assertEquals("batches", 2, service.getBatchCount());
+  }
+}
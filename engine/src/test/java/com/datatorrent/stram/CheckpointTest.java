@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.Assert;
@@ -39,6 +40,7 @@ import org.apache.hadoop.yarn.util.SystemClock;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+import com.datatorrent.api.Context.PortContext;
 import com.datatorrent.api.DAG;
 import com.datatorrent.api.DAG.Locality;
 import com.datatorrent.api.DefaultOutputPort;
@@ -46,6 +48,7 @@ import com.datatorrent.api.InputOperator;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 import com.datatorrent.api.annotation.Stateless;
+import com.datatorrent.common.partitioner.StatelessPartitioner;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.common.util.BaseOperator;
 import com.datatorrent.common.util.FSStorageAgent;
@@ -484,6 +487,80 @@ public class CheckpointTest
 
   }
 
+  private StreamingContainerManager createPartitionedManager(MockClock clock)
+  {
+    LogicalPlan lp = StramTestSupport.createDAG(testMeta);
+    lp.setAttribute(com.datatorrent.api.Context.OperatorContext.STORAGE_AGENT, new MemoryStorageAgent());
+
+    GenericTestOperator o1 = lp.addOperator("o1", GenericTestOperator.class);
+    GenericTestOperator o2 = lp.addOperator("o2", GenericTestOperator.class);
+    GenericTestOperator o3 = lp.addOperator("o3", GenericTestOperator.class);
+    GenericTestOperator o4 = lp.addOperator("o4", StatelessOperator.class);
+    GenericTestOperator o5 = lp.addOperator("o5", GenericTestOperator.class);
+
+    lp.addStream("o1.outport1", o1.outport1, o2.inport1);
+    lp.addStream("o2.outport1", o2.outport1, o3.inport1);
+    lp.addStream("o1.outport2", o1.outport2, o4.inport1);
+    lp.addStream("o4.outport1", o4.outport1, o3.inport2);
+    lp.addStream("o5.outport1", o5.outport1, o4.inport2);
+
+    lp.setOperatorAttribute(o1, com.datatorrent.api.Context.OperatorContext.PARTITIONER,
+        new StatelessPartitioner<GenericTestOperator>(3));
+    lp.setInputPortAttribute(o2.inport1, PortContext.PARTITION_PARALLEL, true);
+    lp.setOperatorAttribute(o4, com.datatorrent.api.Context.OperatorContext.PARTITIONER,
+        new StatelessPartitioner<GenericTestOperator>(2));
+
+    return new StreamingContainerManager(lp, clock);
+  }
+
+  /**
+   * Compare the incremental checkpoint update with the full traversal for random checkpoint and state changes.
+   */
+  @Test
+  public void testIncrementalUpdateCheckpoints()
+  {
+    for (long seed = 0; seed < 10; seed++) {
+      MockClock clock = new MockClock();
+      StreamingContainerManager incremental = createPartitionedManager(clock);
+      StreamingContainerManager full = createPartitionedManager(clock);
+      Map<Integer, PTOperator> incrementalOperators = incremental.getPhysicalPlan().getAllOperators();
+      Map<Integer, PTOperator> fullOperators = full.getPhysicalPlan().getAllOperators();
+      Assert.assertEquals("operators", fullOperators.keySet(), incrementalOperators.keySet());
+      List<Integer> operatorIds = new ArrayList<>(fullOperators.keySet());
+      Map<Integer, Long> windowIds = Maps.newHashMap();
+
+      Random random = new Random(seed);
+      for (int step = 0; step < 200; step++) {
+        int changes = random.nextInt(4);
+        for (int i = 0; i < changes; i++) {
+          Integer id = operatorIds.get(random.nextInt(operatorIds.size()));
+          if (random.nextInt(10) == 0) {
+            PTOperator.State state = random.nextInt(4) == 0 ? PTOperator.State.PENDING_DEPLOY : PTOperator.State.ACTIVE;
+            incrementalOperators.get(id).setState(state);
+            fullOperators.get(id).setState(state);
+          } else {
+            Long windowId = windowIds.get(id);
+            windowId = (windowId == null ? 0 : windowId) + 1 + random.nextInt(3);
+            windowIds.put(id, windowId);
+            incremental.addCheckpoint(incrementalOperators.get(id), new Checkpoint(windowId, 0, 0));
+            full.addCheckpoint(fullOperators.get(id), new Checkpoint(windowId, 0, 0));
+          }
+        }
+
+        String message = "seed " + seed + " step " + step;
+        Assert.assertEquals("committed " + message, full.updateAllCheckpoints(false),
+            incremental.updateCheckpoints(false));
+        for (Integer id : operatorIds) {
+          PTOperator expected = fullOperators.get(id);
+          PTOperator actual = incrementalOperators.get(id);
+          Assert.assertEquals("recovery checkpoint " + expected + " " + message, expected.getRecoveryCheckpoint(),
+              actual.getRecoveryCheckpoint());
+          Assert.assertEquals("checkpoints " + expected + " " + message, expected.checkpoints, actual.checkpoints);
+        }
+      }
+    }
+  }
+
   @Test
   public void testBeforeCheckpointNotification() throws IOException, ClassNotFoundException
   {
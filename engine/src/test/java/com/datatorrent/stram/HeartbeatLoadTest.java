@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.Context.PortContext;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+import com.datatorrent.common.partitioner.StatelessPartitioner;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeat;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.OperatorHeartbeat;
+import com.datatorrent.stram.engine.GenericTestOperator;
+import com.datatorrent.stram.engine.TestGeneratorInputOperator;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.physical.PTContainer;
+import com.datatorrent.stram.plan.physical.PTOperator;
+import com.datatorrent.stram.support.StramTestSupport;
+import com.datatorrent.stram.support.StramTestSupport.TestMeta;
+
+/**
+ * Drives the heartbeat processing of the container manager with simulated containers.
+ */
+public class HeartbeatLoadTest
+{
+  private static final Logger LOG = LoggerFactory.getLogger(HeartbeatLoadTest.class);
+
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  private static class Result
+  {
+    long heartbeats;
+    long elapsedNanos;
+    long maxNanos;
+  }
+
+  /**
+   * Create a plan with the given number of partitions of a two operator pipeline, every partition in its own
+   * container, and deploy all containers.
+   */
+  private List<MockContainer> deploy(StreamingContainerManager scm)
+  {
+    List<MockContainer> containers = new ArrayList<>();
+    for (PTContainer c : scm.getPhysicalPlan().getContainers()) {
+      containers.add(new MockContainer(scm, c));
+    }
+    for (MockContainer mc : containers) {
+      mc.deploy();
+    }
+    return containers;
+  }
+
+  private StreamingContainerManager createManager(int partitions, int statsThreads)
+  {
+    LogicalPlan dag = StramTestSupport.createDAG(testMeta);
+    TestGeneratorInputOperator o1 = dag.addOperator("o1", TestGeneratorInputOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    dag.addStream("o1.outport", o1.outport, o2.inport1);
+    dag.setOperatorAttribute(o1, OperatorContext.PARTITIONER,
+        new StatelessPartitioner<TestGeneratorInputOperator>(partitions));
+    dag.setInputPortAttribute(o2.inport1, PortContext.PARTITION_PARALLEL, true);
+    dag.setAttribute(LogicalPlan.HEARTBEAT_STATS_THREADS, statsThreads);
+    return new StreamingContainerManager(dag);
+  }
+
+  private static ContainerHeartbeat newHeartbeat(MockContainer mc, long windowId)
+  {
+    ContainerStats cstats = new ContainerStats(mc.sca.container.getExternalId());
+    for (PTOperator oper : mc.container.getOperators()) {
+      OperatorHeartbeat ohb = new OperatorHeartbeat();
+      ohb.setNodeId(oper.getId());
+      ohb.setState(OperatorHeartbeat.DeployState.ACTIVE);
+      ohb.windowStats = Lists.newArrayList();
+      // two windows per heartbeat, as with a 500ms streaming window and 1s heartbeat interval
+      for (long w = windowId - 1; w <= windowId; w++) {
+        OperatorStats stats = new OperatorStats();
+        stats.windowId = w;
+        stats.inputPorts = Lists.newArrayList();
+        stats.outputPorts = Lists.newArrayList();
+        PortStats ps = new PortStats(oper.getInputs().isEmpty() ? TestGeneratorInputOperator.OUTPUT_PORT : "inport1");
+        ps.tupleCount = 1000;
+        ps.endWindowTimestamp = w;
+        if (oper.getInputs().isEmpty()) {
+          stats.outputPorts.add(ps);
+        } else {
+          stats.inputPorts.add(ps);
+        }
+        ohb.windowStats.add(stats);
+      }
+      cstats.operators.add(ohb);
+    }
+    ContainerHeartbeat hb = new ContainerHeartbeat();
+    hb.setContainerStats(cstats);
+    return hb;
+  }
+
+  /**
+   * Send heartbeats for all containers from the given number of client threads.
+   */
+  private Result run(final StreamingContainerManager scm, final List<MockContainer> containers, int clientThreads,
+      final int rounds) throws Exception
+  {
+    final Result result = new Result();
+    final AtomicLong maxNanos = new AtomicLong();
+    ExecutorService clients = Executors.newFixedThreadPool(clientThreads);
+    List<Future<?>> futures = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int t = 0; t < clientThreads; t++) {
+      final int offset = t;
+      final int step = clientThreads;
+      futures.add(clients.submit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          for (int round = 0; round < rounds; round++) {
+            for (int i = offset; i < containers.size(); i += step) {
+              ContainerHeartbeat hb = newHeartbeat(containers.get(i), 2 * round + 1);
+              long callStart = System.nanoTime();
+              scm.processHeartbeat(hb);
+              long nanos = System.nanoTime() - callStart;
+              long max = maxNanos.get();
+              while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+              }
+            }
+          }
+        }
+      }));
+    }
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    clients.shutdown();
+    if (scm.getStatsAggregator() != null) {
+      Assert.assertTrue("stats aggregated", scm.getStatsAggregator().awaitIdle(60000));
+    }
+    result.elapsedNanos = System.nanoTime() - start;
+    result.heartbeats = (long)containers.size() * rounds;
+    result.maxNanos = maxNanos.get();
+    return result;
+  }
+
+  @Test
+  public void testShardedAggregation() throws Exception
+  {
+    StreamingContainerManager scm = createManager(10, 2);
+    List<MockContainer> containers = deploy(scm);
+    Assert.assertNotNull("stats executor", scm.getStatsAggregator());
+    int rounds = 5;
+    run(scm, containers, 4, rounds);
+
+    for (PTOperator oper : scm.getPhysicalPlan().getAllOperators().values()) {
+      Assert.assertEquals("state " + oper, PTOperator.State.ACTIVE, oper.getState());
+      Assert.assertEquals("window " + oper, 2 * rounds - 1, oper.stats.currentWindowId.get());
+      Assert.assertEquals("tuples " + oper, 2 * rounds * 1000,
+          oper.getInputs().isEmpty() ? oper.stats.totalTuplesEmitted.get() : oper.stats.totalTuplesProcessed.get());
+    }
+    Assert.assertEquals("logical tuples", 10 * 2 * rounds * 1000,
+        scm.getLogicalPlan().getOperatorMeta("o2").getStatus().totalTuplesProcessed);
+    scm.teardown();
+  }
+
+  @Test
+  @Ignore
+  public void testLoad() throws Exception
+  {
+    int partitions = 2000;
+    int clientThreads = 16;
+    int rounds = 20;
+    for (int statsThreads : new int[]{0, 4, 8}) {
+      StreamingContainerManager scm = createManager(partitions, statsThreads);
+      List<MockContainer> containers = deploy(scm);
+      // warm up
+      run(scm, containers, clientThreads, 2);
+      Result r = run(scm, containers, clientThreads, rounds);
+      LOG.info("stats threads {} containers {}: {} heartbeats/s, max call {}ms", statsThreads, containers.size(),
+          r.heartbeats * TimeUnit.SECONDS.toNanos(1) / r.elapsedNanos, TimeUnit.NANOSECONDS.toMillis(r.maxNanos));
+      scm.teardown();
+    }
+  }
+}
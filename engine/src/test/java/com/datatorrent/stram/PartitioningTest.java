@@ -49,6 +49,7 @@ import com.datatorrent.api.InputOperator;
 import com.datatorrent.api.Partitioner;
 import com.datatorrent.api.StatsListener;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
+import com.datatorrent.common.partitioner.AutoScalingPartitioner;
 import com.datatorrent.common.partitioner.StatelessPartitioner;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.common.util.BaseOperator;
@@ -379,6 +380,110 @@ public class PartitioningTest
 
   }
 
+  /**
+   * Emits the configured number of tuples per window.
+   */
+  public static class RampInputOperator extends BaseOperator implements InputOperator
+  {
+    static volatile int tuplesPerWindow;
+    public final transient DefaultOutputPort<Integer> output = new DefaultOutputPort<>();
+    private transient int emitted;
+    private int value;
+
+    @Override
+    public void beginWindow(long windowId)
+    {
+      emitted = 0;
+    }
+
+    @Override
+    public void emitTuples()
+    {
+      while (emitted < tuplesPerWindow) {
+        output.emit(value++);
+        emitted++;
+      }
+    }
+  }
+
+  public static class DiscardOperator extends BaseOperator
+  {
+    public final transient DefaultInputPort<Object> input = new DefaultInputPort<Object>()
+    {
+      @Override
+      public void process(Object tuple)
+      {
+      }
+    };
+  }
+
+  private static List<PTOperator> awaitPartitions(final int count, final StramLocalCluster lc,
+      final LogicalPlan.OperatorMeta om) throws Exception
+  {
+    long endMillis = System.currentTimeMillis() + StramTestSupport.DEFAULT_TIMEOUT_MILLIS;
+    List<PTOperator> partitions = lc.getPlanOperators(om);
+    while (partitions.size() != count && System.currentTimeMillis() < endMillis) {
+      sleep(20);
+      lc.dnmgr.processEvents();
+      partitions = lc.getPlanOperators(om);
+    }
+    Assert.assertEquals("partitions " + partitions, count, partitions.size());
+    return partitions;
+  }
+
+  @Test
+  public void testAutoScalingLoadRamp() throws Exception
+  {
+    LogicalPlan dag = new LogicalPlan();
+    File checkpointDir = new File(TEST_OUTPUT_DIR, "testAutoScalingLoadRamp");
+    dag.setAttribute(Context.OperatorContext.STORAGE_AGENT, new AsyncFSStorageAgent(checkpointDir.getPath(), null));
+
+    RampInputOperator.tuplesPerWindow = 0;
+    RampInputOperator input = dag.addOperator("input", new RampInputOperator());
+    DiscardOperator worker = dag.addOperator("worker", new DiscardOperator());
+    dag.addStream("fromInput", input.output, worker.input);
+
+    AutoScalingPartitioner<DiscardOperator> partitioner = new AutoScalingPartitioner<>(1, 4);
+    partitioner.setTargetTuplesPerSecond(1000);
+    partitioner.setStabilizationMillis(0);
+    partitioner.setCooldownMillis(0);
+    dag.setOperatorAttribute(worker, OperatorContext.PARTITIONER, partitioner);
+    dag.setOperatorAttribute(worker, OperatorContext.STATS_LISTENERS, Arrays.asList(new StatsListener[]{partitioner}));
+
+    StramLocalCluster lc = new StramLocalCluster(dag);
+    lc.setHeartbeatMonitoringEnabled(false);
+    lc.runAsync();
+
+    LogicalPlan.OperatorMeta om = dag.getMeta(worker);
+    for (PTOperator p : awaitPartitions(1, lc, om)) {
+      StramTestSupport.waitForActivation(lc, p);
+    }
+
+    // 2800 tuples per second with 500ms streaming windows require 3 partitions
+    RampInputOperator.tuplesPerWindow = 1400;
+    for (PTOperator p : awaitPartitions(3, lc, om)) {
+      StramTestSupport.waitForActivation(lc, p);
+    }
+    Set<Integer> keys = new HashSet<>();
+    int mask = 0;
+    for (PTOperator p : lc.getPlanOperators(om)) {
+      mask = Math.max(mask, p.getPartitionKeys().values().iterator().next().mask);
+    }
+    for (PTOperator p : lc.getPlanOperators(om)) {
+      Partitioner.PartitionKeys pks = p.getPartitionKeys().values().iterator().next();
+      for (int key = 0; key <= mask; key++) {
+        if (pks.partitions.contains(key & pks.mask)) {
+          Assert.assertTrue("key assigned once " + key, keys.add(key));
+        }
+      }
+    }
+    Assert.assertEquals("all keys assigned", mask + 1, keys.size());
+
+    RampInputOperator.tuplesPerWindow = 0;
+    awaitPartitions(1, lc, om);
+    lc.shutdown();
+  }
+
   public static class PartitionableInputOperator extends BaseOperator implements InputOperator, Partitioner<PartitionableInputOperator>
   {
     String partitionProperty = "partition";
@@ -31,10 +31,12 @@ import java.net.InetSocketAddress;
 import java.net.URI;
 import java.util.List;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -52,10 +54,13 @@ import org.apache.hadoop.net.NetUtils;
 import org.apache.hadoop.test.MockitoUtil;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.Context.PortContext;
 import com.datatorrent.api.StatsListener;
 import com.datatorrent.api.StorageAgent;
+import com.datatorrent.common.partitioner.StatelessPartitioner;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.common.util.FSStorageAgent;
 import com.datatorrent.stram.api.Checkpoint;
@@ -396,6 +401,133 @@ public class StramRecoveryTest
     scm.setPhysicalOperatorProperty(o1p1.getId(), "maxTuples", "50");
   }
 
+  @Test
+  public void testWriteAheadLogGroupCommit() throws Exception
+  {
+    final MutableInt flushCount = new MutableInt();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new FSStorageAgent(testMeta.getPath(), null));
+    dag.setAttribute(LogicalPlan.JOURNAL_GROUP_COMMIT_MILLIS, 500);
+
+    TestGeneratorInputOperator o1 = dag.addOperator("o1", TestGeneratorInputOperator.class);
+    StreamingContainerManager scm = new StreamingContainerManager(dag);
+    PhysicalPlan plan = scm.getPhysicalPlan();
+    Journal j = scm.getJournal();
+    assertEquals("group commit", 500, j.getGroupCommitMillis());
+    ByteArrayOutputStream bos = new ByteArrayOutputStream()
+    {
+      @Override
+      public void flush() throws IOException
+      {
+        super.flush();
+        flushCount.increment();
+      }
+    };
+    j.setOutputStream(new DataOutputStream(bos));
+
+    PTOperator o1p1 = plan.getOperators(dag.getMeta(o1)).get(0);
+    for (int i = 0; i < 10; i++) {
+      o1p1.setState(PTOperator.State.ACTIVE);
+      o1p1.setState(PTOperator.State.INACTIVE);
+    }
+    ListenableFuture<Void> synced = j.sync();
+    Assert.assertFalse("flushed later", synced.isDone());
+    assertEquals("flush count", 0, flushCount.intValue());
+    synced.get(10, TimeUnit.SECONDS);
+    assertEquals("flush count", 1, flushCount.intValue());
+    assertEquals("batch size", 20, j.getLastBatchSize());
+    assertEquals("write count", 20, j.getWriteCount());
+
+    // property changes wait for the flush
+    scm.setOperatorProperty("o1", "maxTuples", "100");
+    assertEquals("flush count", 2, flushCount.intValue());
+    o1.setMaxTuples(10);
+
+    // operations buffered when the output is replaced are written to the previous stream
+    o1p1.setState(PTOperator.State.PENDING_DEPLOY);
+    j.setOutputStream(null);
+
+    o1p1.setState(PTOperator.State.INACTIVE);
+    ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
+    j.replay(new DataInputStream(bis));
+    assertEquals(PTOperator.State.PENDING_DEPLOY, o1p1.getState());
+    assertEquals(100, o1.getMaxTuples());
+    scm.teardown();
+  }
+
+  @Test
+  public void testJournalSnapshotBySize() throws Exception
+  {
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new FSStorageAgent(testMeta.getPath(), null));
+    dag.setAttribute(LogicalPlan.JOURNAL_SNAPSHOT_BYTES, 100L);
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+
+    FSRecoveryHandler recoveryHandler = new FSRecoveryHandler(dag.assertAppPath(), new Configuration(false));
+    StreamingContainerManager scm = StreamingContainerManager.getInstance(recoveryHandler, dag, false);
+    PTOperator o1p1 = scm.getPhysicalPlan().getOperators(dag.getMeta(o1)).get(0);
+    for (int i = 0; i < 10; i++) {
+      o1p1.setState(PTOperator.State.ACTIVE);
+      o1p1.setState(PTOperator.State.INACTIVE);
+    }
+    Assert.assertTrue("journal size " + scm.getJournal().getLogSize(), scm.getJournal().getLogSize() >= 100);
+    scm.processEvents();
+    assertEquals("journal truncated by snapshot", 0, scm.getJournal().getLogSize());
+
+    o1p1.setState(PTOperator.State.ACTIVE);
+    scm.setOperatorProperty("o1", "myStringProperty", "v1");
+    scm.setOperatorProperty("o1", "myStringProperty", "v2");
+
+    dag = StramTestSupport.createDAG(testMeta);
+    scm = StreamingContainerManager.getInstance(new FSRecoveryHandler(dag.assertAppPath(), new Configuration(false)), dag, false);
+    dag = scm.getLogicalPlan();
+    o1p1 = scm.getPhysicalPlan().getOperators(dag.getOperatorMeta("o1")).get(0);
+    assertEquals("state after restore", PTOperator.State.ACTIVE, o1p1.getState());
+    assertEquals("property after restore", "v2",
+        ((GenericTestOperator)dag.getOperatorMeta("o1").getOperator()).getMyStringProperty());
+  }
+
+  /**
+   * Time the restore of a large plan from snapshot and journal.
+   */
+  @Test
+  @Ignore
+  public void testRestartPerformance() throws Exception
+  {
+    int partitions = 2500;
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new FSStorageAgent(testMeta.getPath(), null));
+    dag.setAttribute(LogicalPlan.JOURNAL_SNAPSHOT_BYTES, 0L);
+    TestGeneratorInputOperator o1 = dag.addOperator("o1", TestGeneratorInputOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    dag.addStream("o1.outport", o1.outport, o2.inport1);
+    dag.setOperatorAttribute(o1, OperatorContext.PARTITIONER,
+        new StatelessPartitioner<TestGeneratorInputOperator>(partitions));
+    dag.setInputPortAttribute(o2.inport1, PortContext.PARTITION_PARALLEL, true);
+
+    FSRecoveryHandler recoveryHandler = new FSRecoveryHandler(dag.assertAppPath(), new Configuration(false));
+    long start = System.currentTimeMillis();
+    StreamingContainerManager scm = StreamingContainerManager.getInstance(recoveryHandler, dag, false);
+    LOG.info("{} operators, initial snapshot {}ms", scm.getPhysicalPlan().getAllOperators().size(),
+        System.currentTimeMillis() - start);
+
+    // operators cycle through their states as during a redeploy of the application
+    for (int round = 0; round < 10; round++) {
+      for (PTOperator oper : scm.getPhysicalPlan().getAllOperators().values()) {
+        oper.setState(PTOperator.State.PENDING_DEPLOY);
+        oper.setState(PTOperator.State.ACTIVE);
+      }
+    }
+    LOG.info("journal size {} bytes", scm.getJournal().getLogSize());
+    scm.teardown();
+
+    for (int i = 0; i < 3; i++) {
+      LogicalPlan restoreDag = StramTestSupport.createDAG(testMeta);
+      start = System.currentTimeMillis();
+      scm = StreamingContainerManager.getInstance(
+          new FSRecoveryHandler(restoreDag.assertAppPath(), new Configuration(false)), restoreDag, false);
+      LOG.info("restore {}: {}ms", i, System.currentTimeMillis() - start);
+      scm.teardown();
+    }
+  }
+
   private void testRestartApp(StorageAgent agent, String appPath1) throws Exception
   {
     String appId1 = "app1";
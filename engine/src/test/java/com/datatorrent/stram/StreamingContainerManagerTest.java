@@ -776,9 +776,9 @@ public class StreamingContainerManagerTest
 
     o1p1mos.currentWindowId(2).deployState(DeployState.SHUTDOWN);
     mc1.sendHeartbeat();
+    scm.monitorHeartbeat(); // committedWindowId updated in the same cycle
+    Assert.assertEquals("committedWindowId", 1, scm.getCommittedWindowId());
     scm.monitorHeartbeat();
-    Assert.assertEquals("committedWindowId", -1, scm.getCommittedWindowId());
-    scm.monitorHeartbeat(); // committedWindowId updated in next cycle
     Assert.assertEquals("committedWindowId", 1, scm.getCommittedWindowId());
     scm.processEvents();
     Assert.assertEquals("containers at committedWindowId=1", 5, physicalPlan.getContainers().size());
@@ -1115,6 +1115,10 @@ public class StreamingContainerManagerTest
         criticalPathInfo.path.toArray());
     Assert.assertTrue("Whole DAG latency must be greater than the artificially introduced latency",
         criticalPathInfo.latency > latency);
+    StreamingContainerManager.PathLatencyInfo pathLatency = dnmgr.getPathLatencies().get("o1 -> o3 -> o4");
+    Assert.assertNotNull("latency of the critical path " + dnmgr.getPathLatencies(), pathLatency);
+    Assert.assertTrue("samples", pathLatency.getSamples() > 0);
+    Assert.assertTrue("p99 >= p50", pathLatency.getP99() >= pathLatency.getP50());
     lc.shutdown();
   }
 
@@ -0,0 +1,191 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Histogram;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.OperatorHeartbeat;
+
+public class HeartbeatStatsCodecTest
+{
+  private static List<OperatorHeartbeat> newHeartbeats(int operators, long windowId)
+  {
+    List<OperatorHeartbeat> heartbeats = new ArrayList<>();
+    for (int i = 1; i <= operators; i++) {
+      OperatorHeartbeat ohb = new OperatorHeartbeat();
+      ohb.nodeId = i;
+      ohb.state = OperatorHeartbeat.DeployState.ACTIVE;
+      ohb.generatedTms = 1000 * windowId;
+      ohb.intervalMs = 1000;
+      for (long w = windowId; w < windowId + 2; w++) {
+        OperatorStats stats = new OperatorStats();
+        stats.windowId = w;
+        stats.cpuTimeUsed = 10 * i;
+        if (w % 4 == 0) {
+          stats.checkpoint = new Checkpoint(w, 1, 4);
+        }
+        stats.inputPorts = new ArrayList<>();
+        stats.outputPorts = new ArrayList<>();
+        PortStats ps = new PortStats("input");
+        ps.tupleCount = 100 * i;
+        ps.endWindowTimestamp = 1000 * w;
+        ps.bufferServerBytes = 1000;
+        if (i % 2 == 0) {
+          ps.queueSizeHistogram = new Histogram();
+          ps.queueSizeHistogram.recordValue(i);
+          ps.processingTimeHistogram = new Histogram();
+          ps.processingTimeHistogram.recordValueWithCount(1000 * i, 100);
+        }
+        stats.inputPorts.add(ps);
+        ps = new PortStats("output");
+        ps.tupleCount = 100 * i;
+        ps.endWindowTimestamp = 1000 * w + 5;
+        stats.outputPorts.add(ps);
+        stats.metrics = new HashMap<>();
+        stats.metrics.put("constant", 42L);
+        stats.metrics.put("window", w);
+        stats.metrics.put("ratio", 0.5);
+        stats.metrics.put("name", "operator" + i);
+        Histogram latency = new Histogram();
+        latency.recordValue(w);
+        stats.metrics.put("latency", latency);
+        ohb.windowStats.add(stats);
+      }
+      heartbeats.add(ohb);
+    }
+    return heartbeats;
+  }
+
+  private static int serializedSize(Object o) throws Exception
+  {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(o);
+    }
+    return bos.size();
+  }
+
+  private static void assertEquals(List<OperatorHeartbeat> expected, List<OperatorHeartbeat> actual)
+  {
+    Assert.assertEquals("operators", expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      OperatorHeartbeat e = expected.get(i);
+      OperatorHeartbeat a = actual.get(i);
+      Assert.assertEquals("node", e.nodeId, a.nodeId);
+      Assert.assertEquals("state", e.state, a.state);
+      Assert.assertEquals("generated", e.generatedTms, a.generatedTms);
+      Assert.assertEquals("windows", e.windowStats.size(), a.windowStats.size());
+      for (int w = 0; w < e.windowStats.size(); w++) {
+        OperatorStats es = e.windowStats.get(w);
+        OperatorStats as = a.windowStats.get(w);
+        Assert.assertEquals("window", es.windowId, as.windowId);
+        Assert.assertEquals("checkpoint", es.checkpoint, as.checkpoint);
+        Assert.assertEquals("cpu", es.cpuTimeUsed, as.cpuTimeUsed);
+        Assert.assertEquals("metrics", es.metrics, as.metrics);
+        Assert.assertEquals("input ports", es.inputPorts.size(), as.inputPorts.size());
+        Assert.assertEquals("output ports", es.outputPorts.size(), as.outputPorts.size());
+        for (int p = 0; p < es.inputPorts.size(); p++) {
+          PortStats eps = es.inputPorts.get(p);
+          PortStats aps = as.inputPorts.get(p);
+          Assert.assertEquals("queue size histogram", eps.queueSizeHistogram, aps.queueSizeHistogram);
+          Assert.assertEquals("processing time histogram", eps.processingTimeHistogram, aps.processingTimeHistogram);
+        }
+        for (int p = 0; p < es.outputPorts.size(); p++) {
+          PortStats eps = es.outputPorts.get(p);
+          PortStats aps = as.outputPorts.get(p);
+          Assert.assertEquals("port", eps.id, aps.id);
+          Assert.assertEquals("tuples", eps.tupleCount, aps.tupleCount);
+          Assert.assertEquals("timestamp", eps.endWindowTimestamp, aps.endWindowTimestamp);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception
+  {
+    HeartbeatStatsCodec.Encoder encoder = new HeartbeatStatsCodec.Encoder();
+    HeartbeatStatsCodec.Decoder decoder = new HeartbeatStatsCodec.Decoder();
+    int baselineSize = 0;
+    for (long windowId = 10; windowId < 20; windowId += 2) {
+      List<OperatorHeartbeat> heartbeats = newHeartbeats(20, windowId);
+      long sequence = encoder.getSequence();
+      byte[] data = encoder.encode(heartbeats);
+      if (sequence == 0) {
+        baselineSize = data.length;
+        Assert.assertTrue("smaller than serialized", data.length < serializedSize(new ArrayList<>(heartbeats)));
+      } else {
+        Assert.assertTrue("delta smaller than baseline", data.length < baselineSize);
+      }
+      ContainerStats stats = new ContainerStats("container");
+      Assert.assertTrue("in sync", decoder.decode(sequence, data, stats));
+      assertEquals(heartbeats, stats.operators);
+    }
+  }
+
+  @Test
+  public void testRetry() throws Exception
+  {
+    HeartbeatStatsCodec.Encoder encoder = new HeartbeatStatsCodec.Encoder();
+    HeartbeatStatsCodec.Decoder decoder = new HeartbeatStatsCodec.Decoder();
+    Assert.assertTrue(decoder.decode(0, encoder.encode(newHeartbeats(2, 10)), new ContainerStats("c")));
+    List<OperatorHeartbeat> heartbeats = newHeartbeats(3, 12);
+    byte[] data = encoder.encode(heartbeats);
+    Assert.assertTrue(decoder.decode(1, data, new ContainerStats("c")));
+    ContainerStats stats = new ContainerStats("c");
+    Assert.assertTrue("repeated message", decoder.decode(1, data, stats));
+    assertEquals(heartbeats, stats.operators);
+
+    heartbeats = newHeartbeats(3, 14);
+    stats = new ContainerStats("c");
+    Assert.assertTrue(decoder.decode(2, encoder.encode(heartbeats), stats));
+    assertEquals(heartbeats, stats.operators);
+  }
+
+  @Test
+  public void testResync() throws Exception
+  {
+    HeartbeatStatsCodec.Encoder encoder = new HeartbeatStatsCodec.Encoder();
+    HeartbeatStatsCodec.Decoder decoder = new HeartbeatStatsCodec.Decoder();
+    Assert.assertTrue(decoder.decode(0, encoder.encode(newHeartbeats(2, 10)), new ContainerStats("c")));
+    // message with sequence 1 is lost
+    encoder.encode(newHeartbeats(2, 12));
+    ContainerStats stats = new ContainerStats("c");
+    Assert.assertFalse("gap detected", decoder.decode(2, encoder.encode(newHeartbeats(2, 14)), stats));
+    Assert.assertEquals("operators still reported", 2, stats.operators.size());
+
+    encoder.reset();
+    Assert.assertEquals("baseline", 0, encoder.getSequence());
+    List<OperatorHeartbeat> heartbeats = newHeartbeats(2, 16);
+    stats = new ContainerStats("c");
+    Assert.assertTrue("in sync after baseline", decoder.decode(0, encoder.encode(heartbeats), stats));
+    assertEquals(heartbeats, stats.operators);
+  }
+}
@@ -18,6 +18,9 @@
  */
 package com.datatorrent.stram.engine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.locks.Condition;
@@ -34,6 +37,8 @@ import org.junit.runner.RunWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.BatchSink;
+import com.datatorrent.api.PrimitiveSink;
 import com.datatorrent.api.Sink;
 import com.datatorrent.netlet.util.CircularBuffer;
 import com.datatorrent.stram.tuple.Tuple;
@@ -76,6 +81,70 @@ public class AbstractReservoirTest
     return reservoir;
   }
 
+  private static class PrimitiveCollector implements Sink<Object>, PrimitiveSink.OfLong, PrimitiveSink.OfInt,
+      PrimitiveSink.OfDouble
+  {
+    private final List<Object> tuples = new ArrayList<>();
+
+    @Override
+    public void put(Object tuple)
+    {
+      tuples.add(tuple);
+    }
+
+    @Override
+    public void putLong(long value)
+    {
+      tuples.add("long " + value);
+    }
+
+    @Override
+    public void putInt(int value)
+    {
+      tuples.add("int " + value);
+    }
+
+    @Override
+    public void putDouble(double value)
+    {
+      tuples.add("double " + value);
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      return tuples.size();
+    }
+  }
+
+  private static class BatchCollector implements Sink<Object>, BatchSink<Object>
+  {
+    private final List<List<Object>> batches;
+
+    private BatchCollector(List<List<Object>> batches)
+    {
+      this.batches = batches;
+    }
+
+    @Override
+    public void putBatch(List<?> tuples)
+    {
+      batches.add(new ArrayList<Object>(tuples));
+    }
+
+    @Override
+    public void put(Object tuple)
+    {
+      throw new AssertionError("expected batch, received " + tuple);
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      return batches.size();
+    }
+  }
+
   private static void setSink(final AbstractReservoir reservoir, final Sink<Object> sink)
   {
     assertNull(reservoir.setSink(sink));
@@ -212,6 +281,109 @@ public class AbstractReservoirTest
     reservoir.remove();
   }
 
+  @Test
+  @Parameters(method = "defaultTestParameters")
+  public void testPutAndSweepPrimitives(final AbstractReservoir reservoir, final Class<? extends Throwable> type)
+      throws InterruptedException
+  {
+    final PrimitiveCollector collector = new PrimitiveCollector();
+    reservoir.setSink(collector);
+    final List<Object> expected = new ArrayList<>();
+    // more values than the reservoir capacity to wrap around
+    for (int i = 0; i < 10; i++) {
+      reservoir.putLong(Long.MAX_VALUE - i);
+      reservoir.putInt(-i);
+      assertNull(reservoir.sweep());
+      reservoir.putDouble(i + 0.5);
+      reservoir.add(i);
+      assertNull(reservoir.sweep());
+      expected.addAll(Arrays.asList("long " + (Long.MAX_VALUE - i), "int " + -i, "double " + (i + 0.5), i));
+    }
+    assertEquals(expected, collector.tuples);
+    assertEquals(40, reservoir.getCount(false));
+
+    final Tuple t = new Tuple(BEGIN_WINDOW, 0L);
+    reservoir.putLong(1);
+    assertTrue(reservoir.add(t));
+    assertEquals(t, reservoir.sweep());
+    assertEquals("long 1", collector.tuples.get(collector.tuples.size() - 1));
+    assertEquals(t, reservoir.remove());
+
+    final List<Object> boxed = new ArrayList<>();
+    reservoir.setSink(new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        boxed.add(tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return boxed.size();
+      }
+    });
+    reservoir.putDouble(1.5);
+    reservoir.putInt(2);
+    assertNull(reservoir.sweep());
+    assertEquals(Arrays.<Object>asList(1.5, 2), boxed);
+    assertTrue(reservoir.isEmpty());
+  }
+
+  @Test
+  @Parameters(method = "defaultTestParameters")
+  public void testSweepBatch(final AbstractReservoir reservoir, final Class<? extends Throwable> type)
+      throws InterruptedException
+  {
+    final List<List<Object>> batches = new ArrayList<>();
+    final Sink<Object> sink = reservoir.getSink();
+    reservoir.setSink(new BatchCollector(batches));
+
+    final Tuple t = new Tuple(BEGIN_WINDOW, 0L);
+    reservoir.put(1);
+    reservoir.putLong(2);
+    assertNull(reservoir.sweep());
+    reservoir.put(3);
+    reservoir.put(t);
+    assertEquals(t, reservoir.sweep());
+    assertEquals(t, reservoir.sweep());
+    assertEquals(t, reservoir.remove());
+    assertNull(reservoir.sweep());
+    assertEquals(Arrays.asList(Arrays.<Object>asList(1, 2L), Arrays.<Object>asList(3)), batches);
+    assertEquals(3, reservoir.getCount(false));
+
+    reservoir.setSink(sink);
+    reservoir.put(4);
+    assertNull(reservoir.sweep());
+    assertEquals("not batched", 2, batches.size());
+    assertEquals(1, sink.getCount(false));
+  }
+
+  @Test
+  @Parameters(method = "defaultTestParameters")
+  public void testPutBatch(final AbstractReservoir reservoir, final Class<? extends Throwable> type)
+      throws InterruptedException
+  {
+    final Sink<Object> sink = reservoir.getSink();
+    final List<Object> tuples = new ArrayList<>(Arrays.<Object>asList(1, 2, 3));
+    reservoir.putBatch(tuples);
+    tuples.clear();
+    assertEquals("single entry", 1, reservoir.size(false));
+    assertNull(reservoir.sweep());
+    assertEquals(3, reservoir.getCount(false));
+    assertEquals(3, sink.getCount(false));
+
+    final List<List<Object>> batches = new ArrayList<>();
+    reservoir.setSink(new BatchCollector(batches));
+    reservoir.putBatch(Arrays.<Object>asList(4, 5));
+    reservoir.put(6);
+    assertNull(reservoir.sweep());
+    assertEquals(Arrays.asList(Arrays.<Object>asList(4, 5, 6)), batches);
+    assertEquals(6, reservoir.getCount(false));
+    reservoir.setSink(sink);
+  }
+
   @Test
   @Parameters(method = "defaultTestParameters")
   public void testFullReservoir(final AbstractReservoir reservoir, final Class<? extends Throwable> type)
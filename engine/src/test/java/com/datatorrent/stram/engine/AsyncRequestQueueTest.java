@@ -0,0 +1,360 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.AsyncRequests;
+import com.datatorrent.api.AsyncRequests.Callback;
+import com.datatorrent.api.AsyncRequests.Completion;
+import com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap;
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.Operator.AsyncRequester;
+import com.datatorrent.api.Sink;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.common.util.BaseOperator;
+import com.datatorrent.stram.tuple.EndStreamTuple;
+import com.datatorrent.stram.tuple.EndWindowTuple;
+import com.datatorrent.stram.tuple.Tuple;
+
+public class AsyncRequestQueueTest
+{
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncRequestQueueTest.class);
+
+  /**
+   * Stand-in for the non-blocking client of an external store, completes lookups after a fixed latency.
+   */
+  private static ScheduledExecutorService store;
+
+  private static void lookup(final int key, final Completion<Integer> completion, long latencyMillis)
+  {
+    store.schedule(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        completion.complete(key * 10);
+      }
+    }, latencyMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Before
+  public void setup()
+  {
+    store = Executors.newScheduledThreadPool(4);
+  }
+
+  @After
+  public void teardown()
+  {
+    store.shutdownNow();
+  }
+
+  public static class LookupOperator extends BaseOperator implements AsyncRequester
+  {
+    private transient AsyncRequests requests;
+    long latencyMillis = 5;
+
+    public final transient DefaultOutputPort<Object> output = new DefaultOutputPort<>();
+
+    public final transient DefaultInputPort<Integer> input = new DefaultInputPort<Integer>()
+    {
+      @Override
+      public void process(Integer tuple)
+      {
+        lookup(tuple, requests.begin(new Callback<Integer>()
+        {
+          @Override
+          public void completed(Integer result)
+          {
+            output.emit(result);
+          }
+
+          @Override
+          public void failed(Throwable cause)
+          {
+            output.emit(cause);
+          }
+        }), latencyMillis);
+      }
+    };
+
+    @Override
+    public void setAsyncRequests(AsyncRequests requests)
+    {
+      this.requests = requests;
+    }
+  }
+
+  @Test
+  public void testCallbacksOnOperatorThread()
+  {
+    final Thread operatorThread = Thread.currentThread();
+    final AtomicInteger completed = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    Callback<Integer> callback = new Callback<Integer>()
+    {
+      @Override
+      public void completed(Integer result)
+      {
+        Assert.assertSame("operator thread", operatorThread, Thread.currentThread());
+        completed.incrementAndGet();
+      }
+
+      @Override
+      public void failed(Throwable cause)
+      {
+        Assert.assertSame("operator thread", operatorThread, Thread.currentThread());
+        failed.incrementAndGet();
+      }
+    };
+
+    AsyncRequestQueue queue = new AsyncRequestQueue("test", 4);
+    int maxInFlight = 0;
+    for (int i = 0; i < 20; i++) {
+      lookup(i, queue.begin(callback), 2);
+      maxInFlight = Math.max(maxInFlight, queue.getInFlightCount());
+    }
+    queue.submit(new Callable<Integer>()
+    {
+      @Override
+      public Integer call() throws Exception
+      {
+        throw new Exception("lookup failed");
+      }
+    }, callback);
+    queue.awaitAll();
+
+    Assert.assertEquals("in flight limit", 4, maxInFlight);
+    Assert.assertEquals("in flight", 0, queue.getInFlightCount());
+    Assert.assertEquals("completed", 20, completed.get());
+    Assert.assertEquals("failed", 1, failed.get());
+    queue.teardown();
+  }
+
+  @Test
+  public void testCompleteOnce()
+  {
+    final List<Integer> results = new ArrayList<>();
+    AsyncRequestQueue queue = new AsyncRequestQueue("test", 1);
+    Completion<Integer> completion = queue.begin(new Callback<Integer>()
+    {
+      @Override
+      public void completed(Integer result)
+      {
+        results.add(result);
+      }
+
+      @Override
+      public void failed(Throwable cause)
+      {
+        Assert.fail("completed before");
+      }
+    });
+    Assert.assertEquals("nothing completed", 0, queue.processCompletions());
+    completion.complete(1);
+    completion.complete(2);
+    completion.fail(new Exception());
+    Assert.assertEquals("completed", 1, queue.processCompletions());
+    Assert.assertEquals("results", Collections.singletonList(1), results);
+    Assert.assertEquals("in flight", 0, queue.getInFlightCount());
+  }
+
+  @Test
+  public void testBeginDefersCallbacks()
+  {
+    final List<Integer> results = new ArrayList<>();
+    Callback<Integer> callback = new Callback<Integer>()
+    {
+      @Override
+      public void completed(Integer result)
+      {
+        results.add(result);
+      }
+
+      @Override
+      public void failed(Throwable cause)
+      {
+        Assert.fail("failed " + cause);
+      }
+    };
+    AsyncRequestQueue queue = new AsyncRequestQueue("test", 1);
+    lookup(1, queue.begin(callback), 5);
+    // waits for the slot of the first request without running its callback
+    Completion<Integer> second = queue.begin(callback);
+    Assert.assertTrue("callback deferred", results.isEmpty());
+    Assert.assertEquals("in flight", 1, queue.getInFlightCount());
+    second.complete(20);
+    Assert.assertEquals("completed", 2, queue.processCompletions());
+    Assert.assertEquals("results", Arrays.asList(10, 20), results);
+    Assert.assertEquals("in flight", 0, queue.getInFlightCount());
+  }
+
+  @Test
+  public void testTimeout()
+  {
+    final List<Throwable> failures = new ArrayList<>();
+    Callback<Integer> callback = new Callback<Integer>()
+    {
+      @Override
+      public void completed(Integer result)
+      {
+        Assert.fail("completed " + result);
+      }
+
+      @Override
+      public void failed(Throwable cause)
+      {
+        failures.add(cause);
+      }
+    };
+    AsyncRequestQueue queue = new AsyncRequestQueue("test", 1, 20);
+    Completion<Integer> lost = queue.begin(callback);
+    // the lost request times out instead of blocking the next one forever
+    queue.begin(callback).fail(new Exception("failed"));
+    lost.complete(1);
+    queue.awaitAll();
+    Assert.assertEquals("failures", 2, failures.size());
+    Assert.assertTrue("timeout " + failures.get(0), failures.get(0) instanceof TimeoutException);
+    Assert.assertEquals("in flight", 0, queue.getInFlightCount());
+  }
+
+  @Test
+  public void testEndWindowAwaitsRequests() throws Exception
+  {
+    DefaultAttributeMap attributes = new DefaultAttributeMap();
+    attributes.put(OperatorContext.ASYNC_MAX_IN_FLIGHT, 3);
+    final GenericNode gn = new GenericNode(new LookupOperator(),
+        new com.datatorrent.stram.engine.OperatorContext(1, attributes, null));
+    final List<Object> output = Collections.synchronizedList(new ArrayList<>());
+    AbstractReservoir reservoir = AbstractReservoir.newReservoir("input", 1024);
+    gn.connectInputPort("input", reservoir);
+    gn.connectOutputPort("output", new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        output.add(tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+    });
+    gn.firstWindowMillis = 0;
+    gn.windowWidthMillis = 100;
+    gn.setup(gn.context);
+
+    Thread t = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        gn.activate();
+        gn.run();
+        gn.deactivate();
+      }
+    };
+    t.start();
+
+    reservoir.add(new Tuple(MessageType.BEGIN_WINDOW, 1L));
+    for (int i = 0; i < 10; i++) {
+      reservoir.add(i);
+    }
+    reservoir.add(new EndWindowTuple(1L));
+    reservoir.add(new EndStreamTuple(1L));
+    t.join(10000);
+    Assert.assertEquals("terminated", Thread.State.TERMINATED, t.getState());
+    gn.teardown();
+
+    Assert.assertEquals("output " + output, 13, output.size());
+    Assert.assertEquals("begin window", MessageType.BEGIN_WINDOW, ((Tuple)output.get(0)).getType());
+    List<Integer> results = new ArrayList<>();
+    for (Object o : output.subList(1, 11)) {
+      results.add((Integer)o);
+    }
+    Collections.sort(results);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("result", i * 10, (int)results.get(i));
+    }
+    Assert.assertEquals("end window", MessageType.END_WINDOW, ((Tuple)output.get(11)).getType());
+  }
+
+  @Test
+  @Ignore
+  public void testThroughput() throws Exception
+  {
+    final long latencyMillis = 1;
+    int count = 2000;
+    Callback<Integer> callback = new Callback<Integer>()
+    {
+      @Override
+      public void completed(Integer result)
+      {
+      }
+
+      @Override
+      public void failed(Throwable cause)
+      {
+      }
+    };
+
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      Thread.sleep(latencyMillis);
+    }
+    long blockingNanos = System.nanoTime() - start;
+
+    for (int maxInFlight : new int[]{8, 64}) {
+      AsyncRequestQueue queue = new AsyncRequestQueue("test", maxInFlight);
+      start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        lookup(i, queue.begin(callback), latencyMillis);
+        queue.processCompletions();
+      }
+      queue.awaitAll();
+      long asyncNanos = System.nanoTime() - start;
+      LOG.info("{} lookups with {}ms latency: blocking {} lookups/s, async with {} in flight {} lookups/s", count,
+          latencyMillis, count * TimeUnit.SECONDS.toNanos(1) / blockingNanos, maxInFlight,
+          count * TimeUnit.SECONDS.toNanos(1) / asyncNanos);
+      queue.teardown();
+    }
+  }
+}
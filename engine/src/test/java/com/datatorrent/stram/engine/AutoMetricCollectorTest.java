@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.AutoMetric;
+import com.datatorrent.common.util.BaseOperator;
+
+public class AutoMetricCollectorTest
+{
+  public static class MetricsOperator extends BaseOperator
+  {
+    @AutoMetric
+    private long count = 5;
+    @AutoMetric
+    int ints = 7;
+    @AutoMetric
+    short shorts = 3;
+    @AutoMetric
+    protected double average = 0.25;
+    @AutoMetric
+    float ratio = 1.5f;
+    @AutoMetric
+    String name = "test";
+    @AutoMetric
+    boolean flag = true;
+    long notAMetric = 9;
+
+    @AutoMetric
+    public byte getBytes()
+    {
+      return (byte)count;
+    }
+  }
+
+  @Test
+  public void testCollect() throws Exception
+  {
+    MetricsOperator oper = new MetricsOperator();
+    AutoMetricCollector collector = new AutoMetricCollector(oper);
+    Assert.assertEquals("metrics", 8, collector.getMetricCount());
+
+    Map<String, Object> expected = new HashMap<>();
+    expected.put("count", 5L);
+    expected.put("ints", 7);
+    expected.put("shorts", (short)3);
+    expected.put("average", 0.25);
+    expected.put("ratio", 1.5f);
+    expected.put("name", "test");
+    expected.put("flag", true);
+    expected.put("bytes", (byte)5);
+    Map<String, Object> metrics = collector.collect(null);
+    Assert.assertEquals("values", expected, metrics);
+    Assert.assertEquals("boxed type", Integer.class, metrics.get("ints").getClass());
+
+    oper.count = 6;
+    oper.name = null;
+    Map<String, Object> next = collector.collect(null);
+    Assert.assertEquals("count", 6L, next.get("count"));
+    Assert.assertEquals("bytes", (byte)6, next.get("bytes"));
+    Assert.assertTrue("null value", next.containsKey("name"));
+    Assert.assertNull("null value", next.get("name"));
+    Assert.assertEquals("previous window unchanged", 5L, metrics.get("count"));
+  }
+
+  @Test
+  public void testSelection() throws Exception
+  {
+    AutoMetricCollector collector = new AutoMetricCollector(new MetricsOperator());
+    List<String> selection = Arrays.asList("count", "ratio", "unknown");
+    Map<String, Object> metrics = collector.collect(selection);
+    Assert.assertEquals("size", 2, metrics.size());
+    Assert.assertEquals("count", 5L, metrics.get("count"));
+    Assert.assertEquals("ratio", 1.5f, metrics.get("ratio"));
+    Assert.assertFalse("not selected", metrics.containsKey("ints"));
+
+    Assert.assertEquals("all", 8, collector.collect(null).size());
+    Assert.assertEquals("none", 0, collector.collect(Collections.<String>emptyList()).size());
+  }
+
+  @Test
+  public void testSerialization() throws Exception
+  {
+    Map<String, Object> metrics = new AutoMetricCollector(new MetricsOperator()).collect(null);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(metrics);
+    }
+    Object copy;
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+      copy = ois.readObject();
+    }
+    Assert.assertEquals("serialized as map", HashMap.class, copy.getClass());
+    Assert.assertEquals("values", metrics, copy);
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.common.metric.MetricsAggregator;
+import com.datatorrent.common.metric.SingleMetricAggregator;
+import com.datatorrent.common.metric.sum.LongSumAggregator;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.OperatorHeartbeat;
+
+public class ContainerMetricsAggregatorTest
+{
+  private static OperatorHeartbeat heartbeat(ContainerStats stats, int operatorId, long... windowIds)
+  {
+    OperatorHeartbeat ohb = new OperatorHeartbeat();
+    ohb.setNodeId(operatorId);
+    for (long windowId : windowIds) {
+      ContainerStats.OperatorStats os = new ContainerStats.OperatorStats();
+      os.windowId = windowId;
+      os.metrics = new HashMap<>();
+      os.metrics.put("count", 10L * operatorId);
+      ohb.windowStats.add(os);
+    }
+    stats.addNodeStats(ohb);
+    return ohb;
+  }
+
+  private static MetricsAggregator sumAggregator()
+  {
+    MetricsAggregator aggregator = new MetricsAggregator();
+    aggregator.addAggregators("count", new SingleMetricAggregator[]{new LongSumAggregator()});
+    return aggregator;
+  }
+
+  @Test
+  public void testPreAggregation()
+  {
+    ContainerMetricsAggregator cma = new ContainerMetricsAggregator();
+    cma.add(1, "o", sumAggregator());
+    cma.add(2, "o", sumAggregator());
+
+    ContainerStats stats = new ContainerStats("c");
+    OperatorHeartbeat o1 = heartbeat(stats, 1, 1, 2);
+    OperatorHeartbeat o2 = heartbeat(stats, 2, 1);
+    OperatorHeartbeat other = heartbeat(stats, 5, 1);
+    cma.process(stats);
+
+    Assert.assertNull("window 1 of partition 1", o1.windowStats.get(0).metrics);
+    Assert.assertNull("window 2 pending", o1.windowStats.get(1).metrics);
+    Map<String, Object> partial = Collections.<String, Object>singletonMap("count", 30L);
+    Assert.assertEquals("window 1 partial", partial, o2.windowStats.get(0).metrics);
+    Assert.assertEquals("not pre-aggregated", Collections.<String, Object>singletonMap("count", 50L),
+        other.windowStats.get(0).metrics);
+
+    stats = new ContainerStats("c");
+    o1 = heartbeat(stats, 1, 3);
+    o2 = heartbeat(stats, 2, 2, 3);
+    cma.process(stats);
+    Assert.assertEquals("window 2 partial", partial, o2.windowStats.get(0).metrics);
+    Assert.assertNull("window 3 of partition 1", o1.windowStats.get(0).metrics);
+    Assert.assertEquals("window 3 partial", partial, o2.windowStats.get(1).metrics);
+
+    cma.remove(2);
+    stats = new ContainerStats("c");
+    o1 = heartbeat(stats, 1, 4);
+    cma.process(stats);
+    Assert.assertEquals("single partition", Collections.<String, Object>singletonMap("count", 10L),
+        o1.windowStats.get(0).metrics);
+  }
+
+  @Test
+  public void testAssociative()
+  {
+    Assert.assertTrue("sum", sumAggregator().isAssociative());
+    MetricsAggregator renamed = new MetricsAggregator();
+    renamed.addAggregators("count", new SingleMetricAggregator[]{new LongSumAggregator()}, new String[]{"total"});
+    Assert.assertFalse("renamed", renamed.isAssociative());
+    MetricsAggregator multiple = new MetricsAggregator();
+    multiple.addAggregators("count", new SingleMetricAggregator[]{new LongSumAggregator(), new LongSumAggregator()});
+    Assert.assertFalse("multiple", multiple.isAssociative());
+  }
+}
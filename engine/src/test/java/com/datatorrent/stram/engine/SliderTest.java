@@ -19,15 +19,22 @@
 package com.datatorrent.stram.engine;
 
 import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+
+import com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap;
 import com.datatorrent.api.Context;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.api.InputOperator;
 import com.datatorrent.api.Operator;
+import com.datatorrent.api.Sink;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.common.util.BaseOperator;
 import com.datatorrent.stram.StramLocalCluster;
@@ -85,10 +92,15 @@ public class SliderTest
       @Override
       public Unifier<Integer> getUnifier()
       {
-        return new Sum();
+        return newUnifier();
       }
     };
 
+    protected Sum newUnifier()
+    {
+      return new Sum();
+    }
+
     @Override
     public void process(Integer tuple)
     {
@@ -104,6 +116,60 @@ public class SliderTest
     }
   }
 
+  public static class SlidingSum extends Sum implements Operator.SlidingUnifier<Integer, Integer>
+  {
+    int merges;
+
+    @Override
+    protected Sum newUnifier()
+    {
+      return new SlidingSum();
+    }
+
+    @Override
+    public Integer createAggregate()
+    {
+      return 0;
+    }
+
+    @Override
+    public Integer accumulate(Integer aggregate, Integer tuple)
+    {
+      return aggregate + tuple;
+    }
+
+    @Override
+    public Integer merge(Integer a1, Integer a2)
+    {
+      merges++;
+      return a1 + a2;
+    }
+
+    @Override
+    public void emitAggregate(Integer aggregate)
+    {
+      if (aggregate > 0) {
+        outputPort.emit(aggregate);
+      }
+    }
+  }
+
+  public static class InvertibleSum extends SlidingSum implements Operator.InvertibleUnifier<Integer, Integer>
+  {
+    @Override
+    protected Sum newUnifier()
+    {
+      return new InvertibleSum();
+    }
+
+    @Override
+    public Integer subtract(Integer aggregate, Integer evicted)
+    {
+      merges++;
+      return aggregate - evicted;
+    }
+  }
+
   public static class Validator extends BaseOperator
   {
     public static int numbersValidated;
@@ -140,13 +206,18 @@ public class SliderTest
   }
 
   private void test(int applicationWindowCount, int slideByWindowCount) throws Exception
+  {
+    test(new Sum(), applicationWindowCount, slideByWindowCount);
+  }
+
+  private void test(Sum sum, int applicationWindowCount, int slideByWindowCount) throws Exception
   {
     LogicalPlan dag = new LogicalPlan();
     String workingDir = new File("target/sliderTest").getAbsolutePath();
     dag.setAttribute(Context.OperatorContext.STORAGE_AGENT, new AsyncFSStorageAgent(workingDir, null));
     dag.getAttributes().put(LogicalPlan.STREAMING_WINDOW_SIZE_MILLIS, 100);
     Input input = dag.addOperator("Input", new Input());
-    Sum sum = dag.addOperator("Sum", new Sum());
+    dag.addOperator("Sum", sum);
     dag.setOperatorAttribute(sum, OperatorContext.APPLICATION_WINDOW_COUNT, applicationWindowCount);
     dag.setOperatorAttribute(sum, OperatorContext.SLIDE_BY_WINDOW_COUNT, slideByWindowCount);
     Validator validate = dag.addOperator("validator", new Validator());
@@ -186,4 +257,98 @@ public class SliderTest
   {
     test(4, 2);
   }
+
+  @Test
+  public void testSlidingUnifier() throws Exception
+  {
+    test(new SlidingSum(), 5, 1);
+    test(new SlidingSum(), 5, 2);
+  }
+
+  @Test
+  public void testInvertibleUnifier() throws Exception
+  {
+    test(new InvertibleSum(), 5, 1);
+    test(new InvertibleSum(), 4, 2);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void testIncremental(SlidingSum unifier, int windows, int slide)
+  {
+    Slider slider = new Slider((Operator.Unifier)unifier, windows, slide);
+    final List<Integer> results = new ArrayList<>();
+    slider.outputPort.setSink(new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        results.add((Integer)tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+    });
+    slider.setup(new OperatorContext(1, new DefaultAttributeMap(), null));
+    int count = 1000;
+    for (int i = 1; i <= count; i++) {
+      slider.beginWindow(i);
+      slider.process(i);
+      slider.endWindow();
+    }
+    slider.teardown();
+
+    Assert.assertEquals("results", (count - windows) / slide + 1, results.size());
+    for (int r = 0; r < results.size(); r++) {
+      int first = 1 + r * slide;
+      int last = first + windows - 1;
+      Assert.assertEquals("sum " + r, (first + last) * windows / 2, results.get(r).intValue());
+    }
+    Assert.assertTrue("merges per window " + unifier.merges, unifier.merges < 4 * count);
+  }
+
+  @Test
+  public void testIncrementalSlide()
+  {
+    testIncremental(new SlidingSum(), 60, 1);
+    testIncremental(new SlidingSum(), 60, 7);
+    testIncremental(new InvertibleSum(), 60, 1);
+    testIncremental(new InvertibleSum(), 60, 7);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testSetupWithoutPanes() throws Exception
+  {
+    Slider slider = new Slider((Operator.Unifier)new SlidingSum(), 3, 1);
+    // checkpoint taken before the slider retained panes
+    Field panes = Slider.class.getDeclaredField("panes");
+    panes.setAccessible(true);
+    panes.set(slider, null);
+    final List<Integer> results = new ArrayList<>();
+    slider.outputPort.setSink(new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        results.add((Integer)tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+    });
+    slider.setup(new OperatorContext(1, new DefaultAttributeMap(), null));
+    for (int i = 1; i <= 4; i++) {
+      slider.beginWindow(i);
+      slider.process(i);
+      slider.endWindow();
+    }
+    slider.teardown();
+    Assert.assertEquals("results", Lists.newArrayList(6, 9), results);
+  }
 }
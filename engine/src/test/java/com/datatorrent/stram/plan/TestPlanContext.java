@@ -43,7 +43,7 @@ import com.datatorrent.stram.plan.physical.PTContainer;
 import com.datatorrent.stram.plan.physical.PTOperator;
 import com.datatorrent.stram.plan.physical.PhysicalPlan.PlanContext;
 
-public class TestPlanContext implements PlanContext, StorageAgent
+public class TestPlanContext implements PlanContext, StorageAgent.KeyGroupStorageAgent
 {
   public List<Runnable> events = new ArrayList<Runnable>();
   public Collection<PTOperator> undeploy;
@@ -52,6 +52,8 @@ public class TestPlanContext implements PlanContext, StorageAgent
   public List<Integer> checkpointDeletes = Lists.newArrayList();
   public Map<Integer, Map<Long, byte[]>> checkpoints = Maps.newHashMap();
   public int backupRequests;
+  public List<String> keyGroupMoves = Lists.newArrayList();
+  public List<Recoverable> journal = Lists.newArrayList();
 
   @Override
   public void deploy(Set<PTContainer> releaseContainers, Collection<PTOperator> undeploy, Set<PTContainer> startContainers, Collection<PTOperator> deploy)
@@ -106,6 +108,24 @@ public class TestPlanContext implements PlanContext, StorageAgent
     checkpointDeletes.add(operatorId);
   }
 
+  @Override
+  public void saveKeyGroup(Object state, int operatorId, int keyGroup, long windowId) throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Object loadKeyGroup(int operatorId, int keyGroup, long windowId) throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void moveKeyGroup(int keyGroup, int fromOperatorId, long fromWindowId, int toOperatorId, long toWindowId)
+  {
+    keyGroupMoves.add(keyGroup + ":" + fromOperatorId + "@" + fromWindowId + "->" + toOperatorId + "@" + toWindowId);
+  }
+
   @Override
   public long[] getWindowIds(int operatorId) throws IOException
   {
@@ -120,6 +140,7 @@ public class TestPlanContext implements PlanContext, StorageAgent
   @Override
   public void writeJournal(Recoverable operation)
   {
+    journal.add(operation);
   }
 
   @Override
@@ -127,6 +148,16 @@ public class TestPlanContext implements PlanContext, StorageAgent
   {
   }
 
+  @Override
+  public void purgeCheckpoint(StorageAgent agent, int operatorId, long windowId)
+  {
+    try {
+      agent.delete(operatorId, windowId);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   public static class MockOperatorStatus implements StatsListener.BatchedOperatorStats
   {
     final PTOperator oper;
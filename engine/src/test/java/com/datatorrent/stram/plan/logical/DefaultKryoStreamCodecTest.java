@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.plan.logical;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.commons.lang.SerializationUtils;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.netlet.util.Slice;
+
+public class DefaultKryoStreamCodecTest
+{
+  private static final Logger logger = LoggerFactory.getLogger(DefaultKryoStreamCodecTest.class);
+
+  public static class TestTuple
+  {
+    int id;
+    String name;
+    long[] values;
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (!(o instanceof TestTuple)) {
+        return false;
+      }
+      TestTuple that = (TestTuple)o;
+      return id == that.id && name.equals(that.name) && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return id;
+    }
+  }
+
+  /**
+   * The implementation prior to buffer reuse, kept for comparison.
+   */
+  private static class StreamingKryoCodec implements StreamCodec<Object>
+  {
+    final Kryo kryo = new Kryo();
+
+    @Override
+    public Object fromByteArray(Slice fragment)
+    {
+      ByteArrayInputStream is = new ByteArrayInputStream(fragment.buffer, fragment.offset, fragment.length);
+      return kryo.readClassAndObject(new Input(is));
+    }
+
+    @Override
+    public Slice toByteArray(Object o)
+    {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      Output output = new Output(os);
+      kryo.writeClassAndObject(output, o);
+      output.flush();
+      return new Slice(os.toByteArray(), 0, os.toByteArray().length);
+    }
+
+    @Override
+    public int getPartition(Object o)
+    {
+      return o.hashCode();
+    }
+  }
+
+  private static TestTuple newTuple(int id, int size)
+  {
+    TestTuple t = new TestTuple();
+    t.id = id;
+    t.name = "tuple" + id;
+    t.values = new long[size];
+    for (int i = 0; i < size; i++) {
+      t.values[i] = i * id;
+    }
+    return t;
+  }
+
+  private static void assertRoundTrip(StreamCodec<Object> codec)
+  {
+    // larger than the initial buffer to exercise growth
+    for (int size : new int[]{0, 10, 5000, 3}) {
+      TestTuple t = newTuple(size, size);
+      Slice slice = codec.toByteArray(t);
+      // decode from within a larger buffer
+      byte[] buffer = new byte[slice.length + 10];
+      System.arraycopy(slice.buffer, slice.offset, buffer, 5, slice.length);
+      Assert.assertEquals("tuple " + size, t, codec.fromByteArray(new Slice(buffer, 5, slice.length)));
+    }
+  }
+
+  @Test
+  public void testRoundTrip()
+  {
+    assertRoundTrip(new DefaultKryoStreamCodec<>());
+  }
+
+  @Test
+  public void testRegistration()
+  {
+    DefaultKryoStreamCodec<Object> codec = new DefaultKryoStreamCodec<>(TestTuple.class, long[].class);
+    assertRoundTrip(codec);
+    int registeredLength = codec.toByteArray(newTuple(1, 1)).length;
+    int defaultLength = new DefaultKryoStreamCodec<>().toByteArray(newTuple(1, 1)).length;
+    Assert.assertTrue("class name omitted " + registeredLength, registeredLength < defaultLength);
+    try {
+      codec.register(String.class);
+      Assert.fail("registration after use");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testUnsafe()
+  {
+    DefaultKryoStreamCodec<Object> codec = new DefaultKryoStreamCodec<>();
+    codec.setUseUnsafe(true);
+    assertRoundTrip(codec);
+  }
+
+  @Test
+  public void testSerialization()
+  {
+    DefaultKryoStreamCodec<Object> codec = new DefaultKryoStreamCodec<>(TestTuple.class);
+    codec.setUseUnsafe(true);
+    @SuppressWarnings("unchecked")
+    DefaultKryoStreamCodec<Object> clone = (DefaultKryoStreamCodec<Object>)SerializationUtils.clone(codec);
+    Assert.assertEquals("registered classes", codec.getRegisteredClasses(), clone.getRegisteredClasses());
+    Assert.assertTrue("unsafe", clone.isUseUnsafe());
+    TestTuple t = newTuple(1, 10);
+    Assert.assertEquals("decoded by clone", t, clone.fromByteArray(codec.toByteArray(t)));
+  }
+
+  private static long measure(StreamCodec<Object> codec, Object tuple, int count)
+  {
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      codec.fromByteArray(codec.toByteArray(tuple));
+    }
+    return System.nanoTime() - start;
+  }
+
+  @Test
+  @Ignore
+  public void testPerformance()
+  {
+    final int count = 1000000;
+    TestTuple tuple = newTuple(1, 16);
+    DefaultKryoStreamCodec<Object> registered = new DefaultKryoStreamCodec<>(TestTuple.class, long[].class);
+    DefaultKryoStreamCodec<Object> unsafe = new DefaultKryoStreamCodec<>(TestTuple.class, long[].class);
+    unsafe.setUseUnsafe(true);
+    StreamCodec<?>[] codecs = new StreamCodec<?>[]{new StreamingKryoCodec(), new DefaultKryoStreamCodec<>(),
+        registered, unsafe};
+    String[] names = new String[]{"stream", "reuse", "registered", "unsafe"};
+
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < codecs.length; i++) {
+        @SuppressWarnings("unchecked")
+        long nanos = measure((StreamCodec<Object>)codecs[i], tuple, count);
+        logger.info("round {} {}: {} ns/tuple", round, names[i], nanos / count);
+      }
+    }
+  }
+}
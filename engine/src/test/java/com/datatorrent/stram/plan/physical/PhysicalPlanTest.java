@@ -30,16 +30,20 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.validation.constraints.Min;
 
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.commons.lang3.mutable.MutableInt;
 
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -49,6 +53,7 @@ import com.datatorrent.api.Context.PortContext;
 import com.datatorrent.api.DAG.Locality;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultPartition;
+import com.datatorrent.api.KeyGroups;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.Partitioner;
@@ -75,6 +80,8 @@ import com.datatorrent.stram.support.StramTestSupport.RegexMatcher;
 
 public class PhysicalPlanTest
 {
+  private static final Logger LOG = LoggerFactory.getLogger(PhysicalPlanTest.class);
+
     /**
    * Stats listener for throughput based partitioning.
    * Used when thresholds are configured on operator through attributes.
@@ -824,6 +831,121 @@ public class PhysicalPlanTest
     return new PartitionKeys(Integer.parseInt(mask, 2), Sets.newHashSet(Integer.parseInt(key, 2)));
   }
 
+  public static class KeyGroupTestOperator extends GenericTestOperator implements Operator.KeyGroupedState
+  {
+    @Override
+    public Object getKeyGroupState(int keyGroup)
+    {
+      return null;
+    }
+
+    @Override
+    public void setKeyGroupState(int keyGroup, Object state)
+    {
+    }
+  }
+
+  @Test
+  public void testKeyGroupRepartitioning()
+  {
+    LogicalPlan dag = new LogicalPlan();
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    KeyGroupTestOperator o2 = dag.addOperator("o2", KeyGroupTestOperator.class);
+    dag.addStream("o1.outport1", o1.outport1, o2.inport1);
+
+    OperatorMeta o2Meta = dag.getMeta(o2);
+    dag.setOperatorAttribute(o2, OperatorContext.KEY_GROUPS, 8);
+    dag.setOperatorAttribute(o2, OperatorContext.STATS_LISTENERS,
+        Lists.newArrayList((StatsListener)new PartitionLoadWatch(0, 5)));
+    dag.setOperatorAttribute(o2, OperatorContext.PARTITIONER, new StatelessPartitioner<KeyGroupTestOperator>(2));
+
+    TestPlanContext ctx = new TestPlanContext();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, ctx);
+    PhysicalPlan plan = new PhysicalPlan(dag, ctx);
+
+    List<PTOperator> o2Partitions = plan.getOperators(o2Meta);
+    Assert.assertEquals("partitions " + o2Meta, 2, o2Partitions.size());
+    Checkpoint checkpoint = new Checkpoint(3, 0, 0);
+    for (PTOperator p : plan.getAllOperators().values()) {
+      p.checkpoints.add(checkpoint);
+      p.setRecoveryCheckpoint(checkpoint);
+    }
+
+    PTOperator split = o2Partitions.get(0);
+    int[] splitKeyGroups = KeyGroups.getKeyGroups(split.getPartitionKeys().values().iterator().next(), 8);
+    Assert.assertEquals("key groups " + split, 4, splitKeyGroups.length);
+    ((PartitionLoadWatch)split.statsListeners.get(0)).evalIntervalMillis = -1;
+    setThroughput(split, 10);
+    plan.onStatusUpdate(split);
+    Assert.assertEquals("load exceeds max", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+
+    o2Partitions = plan.getOperators(o2Meta);
+    Assert.assertEquals("partitions after split " + o2Meta, 3, o2Partitions.size());
+    Assert.assertFalse("split partition removed", o2Partitions.contains(split));
+
+    Set<String> expectedMoves = Sets.newHashSet();
+    Set<Integer> movedKeyGroups = Sets.newHashSet();
+    for (PTOperator p : o2Partitions) {
+      PartitionKeys pks = p.getPartitionKeys().values().iterator().next();
+      if (pks.mask == 1) {
+        continue;
+      }
+      Assert.assertEquals("activation checkpoint " + p, checkpoint, p.recoveryCheckpoint);
+      for (int keyGroup : KeyGroups.getKeyGroups(pks, 8)) {
+        expectedMoves.add(keyGroup + ":" + split.getId() + "@3->" + p.getId() + "@3");
+        movedKeyGroups.add(keyGroup);
+      }
+    }
+    Assert.assertEquals("moved key groups", 4, movedKeyGroups.size());
+    for (int keyGroup : splitKeyGroups) {
+      Assert.assertTrue("key group " + keyGroup + " moved", movedKeyGroups.contains(keyGroup));
+    }
+    Assert.assertEquals("key group moves", expectedMoves, Sets.newHashSet(ctx.keyGroupMoves));
+    Assert.assertTrue("checkpoint of split partition purged after move", ctx.checkpointDeletes.contains(split.getId()));
+  }
+
+  @Test
+  public void testKeyGroupInitialPartitioning()
+  {
+    LogicalPlan dag = new LogicalPlan();
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    KeyGroupTestOperator o2 = dag.addOperator("o2", KeyGroupTestOperator.class);
+    dag.addStream("o1.outport1", o1.outport1, o2.inport1);
+    dag.setOperatorAttribute(o2, OperatorContext.KEY_GROUPS, 4);
+    dag.setOperatorAttribute(o2, OperatorContext.PARTITIONER, new StatelessPartitioner<KeyGroupTestOperator>(8));
+
+    TestPlanContext ctx = new TestPlanContext();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, ctx);
+    try {
+      new PhysicalPlan(dag, ctx);
+      Assert.fail("partition mask exceeds key groups");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    dag.setOperatorAttribute(o2, OperatorContext.KEY_GROUPS, 8);
+    PhysicalPlan plan = new PhysicalPlan(dag, ctx);
+    Assert.assertEquals("partitions", 8, plan.getOperators(dag.getMeta(o2)).size());
+
+    // partitions without partition keys would each own all key groups
+    dag = new LogicalPlan();
+    o2 = dag.addOperator("o2", KeyGroupTestOperator.class);
+    dag.setOperatorAttribute(o2, OperatorContext.KEY_GROUPS, 8);
+    dag.setOperatorAttribute(o2, OperatorContext.PARTITIONER, new StatelessPartitioner<KeyGroupTestOperator>(2));
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, ctx);
+    try {
+      new PhysicalPlan(dag, ctx);
+      Assert.fail("unkeyed partitions share key groups");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    dag.setOperatorAttribute(o2, OperatorContext.PARTITIONER, new StatelessPartitioner<KeyGroupTestOperator>(1));
+    plan = new PhysicalPlan(dag, ctx);
+    Assert.assertEquals("partitions", 1, plan.getOperators(dag.getMeta(o2)).size());
+  }
+
   private void setThroughput(PTOperator oper, long tps)
   {
     oper.stats.statsRevs.checkout();
@@ -1820,6 +1942,194 @@ public class PhysicalPlanTest
 
   }
 
+  private static PhysicalPlan createCascadingPlan(TestPlanContext ctx, int partitions, int unifierLimit)
+  {
+    LogicalPlan dag = new LogicalPlan();
+    TestGeneratorInputOperator o1 = dag.addOperator("o1", TestGeneratorInputOperator.class);
+    dag.setOperatorAttribute(o1, OperatorContext.PARTITIONER,
+        new StatelessPartitioner<TestGeneratorInputOperator>(partitions));
+    dag.setOperatorAttribute(o1, OperatorContext.STATS_LISTENERS,
+        Arrays.asList(new StatsListener[]{new PartitioningTest.PartitionLoadWatch()}));
+    dag.setOutputPortAttribute(o1.outport, PortContext.UNIFIER_LIMIT, unifierLimit);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    dag.addStream("o1.outport", o1.outport, o2.inport1);
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, ctx);
+    return new PhysicalPlan(dag, ctx);
+  }
+
+  @Test
+  public void testCascadingUnifierRepartitioning()
+  {
+    TestPlanContext ctx = new TestPlanContext();
+    PhysicalPlan plan = createCascadingPlan(ctx, 16, 4);
+    OperatorMeta o1Meta = plan.getLogicalPlan().getOperatorMeta("o1");
+    OperatorMeta o2Meta = plan.getLogicalPlan().getOperatorMeta("o2");
+
+    List<PTOperator> o1Partitions = plan.getOperators(o1Meta);
+    Assert.assertEquals("partitions " + o1Meta, 16, o1Partitions.size());
+    Assert.assertEquals("unifiers " + o1Meta, 5, plan.getMergeOperators(o1Meta).size()); // 4(l1)x1(l2)
+
+    PTOperator p1 = o1Partitions.get(0);
+    PTOperator p1Unifier = p1.getOutputs().get(0).sinks.get(0).target;
+    Set<PTOperator> unaffectedUnifiers = Sets.newHashSet();
+    for (PTOperator u : plan.getMergeOperators(o1Meta)) {
+      if (u != p1Unifier && u.getInputs().get(0).source.source.operatorMeta == o1Meta) {
+        unaffectedUnifiers.add(u);
+      }
+    }
+    Assert.assertEquals("unifiers not consuming " + p1, 3, unaffectedUnifiers.size());
+
+    PartitioningTest.PartitionLoadWatch.put(p1, 1);
+    plan.onStatusUpdate(p1);
+    Assert.assertEquals("partition scaling triggered", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+
+    Assert.assertEquals("partitions " + o1Meta, 17, plan.getOperators(o1Meta).size());
+    Assert.assertTrue("undeploy " + p1, ctx.undeploy.contains(p1));
+    Assert.assertTrue("undeploy " + p1Unifier, ctx.undeploy.contains(p1Unifier));
+    Assert.assertTrue("redeploy downstream", ctx.deploy.containsAll(plan.getOperators(o2Meta)));
+    for (PTOperator u : unaffectedUnifiers) {
+      Assert.assertSame("retained " + u, u, plan.getAllOperators().get(u.getId()));
+      Assert.assertEquals("inputs " + u, 4, u.getInputs().size());
+      Assert.assertFalse("undeploy " + u, ctx.undeploy.contains(u));
+      Assert.assertFalse("deploy " + u, ctx.deploy.contains(u));
+    }
+    for (PTOperator u : plan.getMergeOperators(o1Meta)) {
+      Assert.assertNotNull("container " + u, u.getContainer());
+    }
+  }
+
+  private static void setUnifierLoad(Collection<PTOperator> unifiers, double cores)
+  {
+    for (PTOperator u : unifiers) {
+      u.setState(PTOperator.State.ACTIVE);
+      u.stats.statsRevs.checkout();
+      u.stats.tuplesProcessedPSMA.set(1000);
+      u.stats.statsRevs.commit();
+      // sample covering the full throughput calculation interval
+      u.stats.cpuNanosPMSMA.add(Math.round(cores * 1000000) * 10000, 10000);
+    }
+  }
+
+  @Test
+  public void testAdaptiveUnifierLimit()
+  {
+    TestPlanContext ctx = new TestPlanContext();
+    LogicalPlan dag = new LogicalPlan();
+    TestGeneratorInputOperator o1 = dag.addOperator("o1", TestGeneratorInputOperator.class);
+    dag.setOperatorAttribute(o1, OperatorContext.PARTITIONER, new StatelessPartitioner<TestGeneratorInputOperator>(8));
+    dag.setOutputPortAttribute(o1.outport, LogicalPlan.UNIFIER_TARGET_LOAD_PERCENT, 50);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    dag.addStream("o1.outport", o1.outport, o2.inport1);
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, ctx);
+    PhysicalPlan plan = new PhysicalPlan(dag, ctx);
+    OperatorMeta o1Meta = dag.getMeta(o1);
+
+    List<PTOperator> unifiers = plan.getMergeOperators(o1Meta);
+    Assert.assertEquals("single unifier", 1, unifiers.size());
+    PTOperator finalUnifier = unifiers.get(0);
+    Assert.assertEquals("inputs " + finalUnifier, 8, finalUnifier.getInputs().size());
+
+    // unifier is the bottleneck
+    setUnifierLoad(unifiers, 0.9);
+    plan.onUnifierStatusUpdate(finalUnifier);
+    Assert.assertEquals("unifier change scheduled", 1, ctx.events.size());
+    plan.onUnifierStatusUpdate(finalUnifier);
+    Assert.assertEquals("single pending change", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+
+    unifiers = plan.getMergeOperators(o1Meta);
+    Assert.assertEquals("4(l1)x1(l2)", 3, unifiers.size());
+    for (PTOperator u : unifiers) {
+      Assert.assertNotNull("container " + u, u.getContainer());
+      if (u.getInputs().get(0).source.source.getOperatorMeta() == o1Meta) {
+        Assert.assertEquals("cascading unifier inputs " + u, 4, u.getInputs().size());
+      }
+    }
+
+    // load within range
+    setUnifierLoad(unifiers, 0.3);
+    plan.onUnifierStatusUpdate(unifiers.get(0));
+    Assert.assertEquals("no change", 0, ctx.events.size());
+
+    // underutilized unifiers are combined again
+    setUnifierLoad(unifiers, 0.05);
+    plan.onUnifierStatusUpdate(unifiers.get(0));
+    Assert.assertEquals("unifier change scheduled", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+    unifiers = plan.getMergeOperators(o1Meta);
+    Assert.assertEquals("single unifier", 1, unifiers.size());
+    Assert.assertEquals("inputs", 8, unifiers.get(0).getInputs().size());
+  }
+
+  @Test
+  public void testAdaptiveUnifierLimitBounds()
+  {
+    for (int minLimit : new int[]{2, 8}) {
+      TestPlanContext ctx = new TestPlanContext();
+      LogicalPlan dag = new LogicalPlan();
+      TestGeneratorInputOperator o1 = dag.addOperator("o1", TestGeneratorInputOperator.class);
+      dag.setOperatorAttribute(o1, OperatorContext.PARTITIONER,
+          new StatelessPartitioner<TestGeneratorInputOperator>(16));
+      dag.setOutputPortAttribute(o1.outport, LogicalPlan.UNIFIER_TARGET_LOAD_PERCENT, 50);
+      dag.setOutputPortAttribute(o1.outport, LogicalPlan.UNIFIER_MIN_LIMIT, minLimit);
+      GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+      dag.addStream("o1.outport", o1.outport, o2.inport1);
+      dag.setAttribute(OperatorContext.STORAGE_AGENT, ctx);
+      PhysicalPlan plan = new PhysicalPlan(dag, ctx);
+      OperatorMeta o1Meta = dag.getMeta(o1);
+
+      List<PTOperator> unifiers = plan.getMergeOperators(o1Meta);
+      setUnifierLoad(unifiers, 0.9);
+      plan.onUnifierStatusUpdate(unifiers.get(0));
+      Assert.assertEquals("unifier change scheduled", 1, ctx.events.size());
+      ctx.events.remove(0).run();
+
+      unifiers = plan.getMergeOperators(o1Meta);
+      Assert.assertEquals("2(l1)x1(l2)", 3, unifiers.size());
+      List<PTOperator> cascading = Lists.newArrayList();
+      PTOperator finalUnifier = null;
+      for (PTOperator u : unifiers) {
+        if (u.getInputs().get(0).source.source.getOperatorMeta() == o1Meta) {
+          cascading.add(u);
+        } else {
+          finalUnifier = u;
+        }
+      }
+      Assert.assertNotNull("final unifier", finalUnifier);
+
+      // final unifier remains the bottleneck, the additional level did not reduce its load
+      setUnifierLoad(unifiers, 0.9);
+      plan.onUnifierStatusUpdate(finalUnifier);
+      Assert.assertEquals("no change for final unifier " + minLimit, 0, ctx.events.size());
+
+      // cascading unifiers are the bottleneck, fan-in is reduced down to the minimum
+      setUnifierLoad(cascading, 1.0);
+      plan.onUnifierStatusUpdate(cascading.get(0));
+      Assert.assertEquals("cascading unifiers over target " + minLimit, minLimit < 8 ? 1 : 0, ctx.events.size());
+    }
+  }
+
+  @Test
+  @Ignore
+  public void testRepartitioningPerformance()
+  {
+    for (int partitions : new int[]{100, 1000, 5000}) {
+      TestPlanContext ctx = new TestPlanContext();
+      PhysicalPlan plan = createCascadingPlan(ctx, partitions, 16);
+      OperatorMeta o1Meta = plan.getLogicalPlan().getOperatorMeta("o1");
+      PTOperator p1 = plan.getOperators(o1Meta).get(0);
+      PartitioningTest.PartitionLoadWatch.put(p1, 1);
+      plan.onStatusUpdate(p1);
+      long start = System.nanoTime();
+      ctx.events.remove(0).run();
+      long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      LOG.info("partitions {}: scale up in {}ms, undeployed {} deployed {} of {} unifiers", partitions, millis,
+          ctx.undeploy.size(), ctx.deploy.size(), plan.getMergeOperators(o1Meta).size());
+      PartitioningTest.PartitionLoadWatch.remove(p1);
+    }
+  }
+
   @Test
   public void testSingleFinalUnifierInputOverride()
   {
@@ -1997,6 +2307,89 @@ public class PhysicalPlanTest
     Assert.assertEquals("vcores container 1 is 12", 12, plan.getContainers().get(0).getRequiredVCores());
   }
 
+  private static LogicalPlan createPackingDAG()
+  {
+    LogicalPlan dag = new LogicalPlan();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new StramTestSupport.MemoryStorageAgent());
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    GenericTestOperator o3 = dag.addOperator("o3", GenericTestOperator.class);
+    dag.setOperatorAttribute(o1, OperatorContext.MEMORY_MB, 256);
+    dag.setOperatorAttribute(o2, OperatorContext.MEMORY_MB, 256);
+    dag.setOperatorAttribute(o3, OperatorContext.MEMORY_MB, 256);
+    dag.addStream("o1.outport1", o1.outport1, o2.inport1);
+    dag.addStream("o2.outport1", o2.outport1, o3.inport1);
+    // each container with upstream operator requires 256m + 512m buffer server memory
+    dag.setAttribute(LogicalPlan.CONTAINER_PACKING_MEMORY_MB, 1600);
+    return dag;
+  }
+
+  @Test
+  public void testContainerPacking()
+  {
+    LogicalPlan dag = createPackingDAG();
+    GenericTestOperator o1 = (GenericTestOperator)dag.getOperatorMeta("o1").getOperator();
+    GenericTestOperator o2 = (GenericTestOperator)dag.getOperatorMeta("o2").getOperator();
+    dag.setOutputPortAttribute(o1.outport1, LogicalPlan.TRAFFIC_BYTES_HINT, 1000000L);
+    dag.setOutputPortAttribute(o2.outport1, LogicalPlan.TRAFFIC_BYTES_HINT, 1000L);
+
+    PhysicalPlan plan = new PhysicalPlan(dag, new TestPlanContext());
+    Assert.assertEquals("number of containers", 2, plan.getContainers().size());
+    PTOperator p1 = plan.getOperators(dag.getOperatorMeta("o1")).get(0);
+    PTOperator p2 = plan.getOperators(dag.getOperatorMeta("o2")).get(0);
+    PTOperator p3 = plan.getOperators(dag.getOperatorMeta("o3")).get(0);
+    Assert.assertSame("o1 and o2 combined", p1.getContainer(), p2.getContainer());
+    Assert.assertNotSame("o3 exceeds memory limit", p2.getContainer(), p3.getContainer());
+    Assert.assertEquals("memory", 1536, p1.getContainer().getRequiredMemoryMB());
+    Assert.assertEquals("cross container bytes", 1000, ContainerPacking.getCrossContainerBytes(plan.getContainers()));
+  }
+
+  @Test
+  public void testContainerRepacking()
+  {
+    LogicalPlan dag = createPackingDAG();
+    TestPlanContext ctx = new TestPlanContext();
+    PhysicalPlan plan = new PhysicalPlan(dag, ctx);
+    Assert.assertEquals("no traffic information at launch", 3, plan.getContainers().size());
+    for (PTContainer c : plan.getContainers()) {
+      c.setState(PTContainer.State.ACTIVE);
+    }
+
+    PTOperator p1 = plan.getOperators(dag.getOperatorMeta("o1")).get(0);
+    PTOperator p2 = plan.getOperators(dag.getOperatorMeta("o2")).get(0);
+    PTOperator p3 = plan.getOperators(dag.getOperatorMeta("o3")).get(0);
+    PTContainer c3 = p3.getContainer();
+    OperatorStatus.PortStatus ps = p1.stats.new PortStatus();
+    ps.portName = "outport1";
+    ps.bufferServerBytesPMSMA.add(1000000, 1000);
+    p1.stats.outputPortStatusList.put(ps.portName, ps);
+
+    ContainerPacking.Result result = plan.repackContainers();
+    Assert.assertEquals("containers before", 3, result.getContainersBefore());
+    Assert.assertEquals("containers after", 2, result.getContainersAfter());
+    Assert.assertEquals("cross container bytes before", 1000000, result.getCrossContainerBytesBefore());
+    Assert.assertEquals("cross container bytes after", 0, result.getCrossContainerBytesAfter());
+
+    Assert.assertSame("o1 and o2 combined", p1.getContainer(), p2.getContainer());
+    Assert.assertEquals("new container", PTContainer.State.NEW, p1.getContainer().getState());
+    Assert.assertSame("o3 container", c3, p3.getContainer());
+    Assert.assertEquals("redeploy", Sets.newHashSet(p1, p2, p3), Sets.newHashSet(ctx.deploy));
+
+    // replay the journaled reassignment on the plan as it was before
+    Assert.assertEquals("journal " + ctx.journal, 1, ctx.journal.size());
+    Output out = new Output(4096, -1);
+    ctx.journal.get(0).write(out);
+    PhysicalPlan restored = new PhysicalPlan(dag, new TestPlanContext());
+    PTContainer.SET_CONTAINER_OPERATORS.read(restored, new Input(out.toBytes()));
+    Assert.assertEquals("restored containers", 2, restored.getContainers().size());
+    PTOperator r1 = restored.getOperators(dag.getOperatorMeta("o1")).get(0);
+    PTOperator r2 = restored.getOperators(dag.getOperatorMeta("o2")).get(0);
+    Assert.assertSame("restored o1 and o2 combined", r1.getContainer(), r2.getContainer());
+    Assert.assertEquals("restored container id", p1.getContainer().getId(), r1.getContainer().getId());
+    Assert.assertEquals("restored memory", p1.getContainer().getRequiredMemoryMB(),
+        r1.getContainer().getRequiredMemoryMB());
+  }
+
   @Test
   public void testContainerSizeWithPartitioning()
   {
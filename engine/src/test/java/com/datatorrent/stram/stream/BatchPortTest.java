@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.DefaultBatchInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.Sink;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.stram.engine.StreamContext;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Tests for batch emission and processing with thread local and container local streams.
+ */
+public class BatchPortTest
+{
+  private static class BatchCollector extends DefaultBatchInputPort<Integer>
+  {
+    final List<List<Integer>> batches = new ArrayList<>();
+
+    BatchCollector(int maxBatchSize)
+    {
+      super(maxBatchSize);
+    }
+
+    @Override
+    public void processBatch(List<Integer> tuples)
+    {
+      batches.add(new ArrayList<>(tuples));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Sink<Object> asSink(Sink<?> sink)
+  {
+    return (Sink<Object>)sink;
+  }
+
+  @Test
+  public void testThreadLocal()
+  {
+    OiOStream stream = new OiOStream();
+    BatchCollector input = new BatchCollector(3);
+    stream.getReservoir().setSink(asSink(input));
+    DefaultOutputPort<Integer> output = new DefaultOutputPort<>();
+    output.setSink(stream);
+
+    output.emitBatch(Arrays.asList(1, 2, 3, 4));
+    output.emit(5);
+    Assert.assertEquals("batches", Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4), Arrays.asList(5)),
+        input.batches);
+    Assert.assertEquals("port count", 5, input.getCount(false));
+    Assert.assertEquals("stream count", 5, stream.getCount(false));
+  }
+
+  @Test
+  public void testContainerLocal()
+  {
+    InlineStream stream = new InlineStream(16);
+    stream.setup(new StreamContext("output->input"));
+    BatchCollector input = new BatchCollector(DefaultBatchInputPort.DEFAULT_MAX_BATCH_SIZE);
+    stream.getReservoir().setSink(asSink(input));
+    DefaultOutputPort<Integer> output = new DefaultOutputPort<>();
+    output.setSink(stream);
+
+    Tuple endWindow = new Tuple(MessageType.END_WINDOW, 1);
+    output.emitBatch(Arrays.asList(1, 2));
+    output.emit(3);
+    stream.put(endWindow);
+    output.emitBatch(Arrays.asList(4, 5));
+
+    Assert.assertEquals("control tuple", endWindow, stream.getReservoir().sweep());
+    Assert.assertEquals("batch before control tuple", Arrays.asList(Arrays.asList(1, 2, 3)), input.batches);
+    Assert.assertEquals(endWindow, stream.getReservoir().remove());
+    Assert.assertNull(stream.getReservoir().sweep());
+    Assert.assertEquals("batches", Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5)), input.batches);
+    Assert.assertEquals("port count", 5, input.getCount(false));
+    Assert.assertEquals("stream count", 5, stream.getCount(false));
+  }
+
+  @Test
+  public void testUnbatchedSink()
+  {
+    final List<Object> tuples = new ArrayList<>();
+    DefaultOutputPort<Integer> output = new DefaultOutputPort<>();
+    output.setSink(new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        tuples.add(tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return tuples.size();
+      }
+    });
+    output.emitBatch(Arrays.asList(1, 2));
+    Assert.assertEquals(Arrays.<Object>asList(1, 2), tuples);
+  }
+}
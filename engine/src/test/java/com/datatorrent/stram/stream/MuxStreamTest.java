@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Sink;
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.stram.tuple.Tuple;
+
+public class MuxStreamTest
+{
+  private static class CountingCodec implements StreamCodec<Object>
+  {
+    int partitionCalls;
+
+    @Override
+    public Object fromByteArray(Slice fragment)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Slice toByteArray(Object o)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getPartition(Object o)
+    {
+      partitionCalls++;
+      return o.hashCode();
+    }
+  }
+
+  private static class CollectingSink implements Sink<Object>
+  {
+    final List<Object> tuples = new ArrayList<>();
+
+    @Override
+    public void put(Object tuple)
+    {
+      tuples.add(tuple);
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      return tuples.size();
+    }
+  }
+
+  @Test
+  public void testPartitionRouting()
+  {
+    int partitions = 8;
+    MuxStream mux = new MuxStream();
+    List<CountingCodec> codecs = new ArrayList<>();
+    List<CollectingSink> outputs = new ArrayList<>();
+    for (int i = 0; i < partitions; i++) {
+      // each sink has its own codec instance, equivalent codecs share the identifier
+      CountingCodec codec = new CountingCodec();
+      codecs.add(codec);
+      CollectingSink output = new CollectingSink();
+      outputs.add(output);
+      mux.setSink("sink" + i, new PartitionAwareSink<>(codec, Collections.singleton(i), partitions - 1, output, 1));
+    }
+    CollectingSink all = new CollectingSink();
+    mux.setSink("all", all);
+    CountingCodec otherCodec = new CountingCodec();
+    CollectingSink odd = new CollectingSink();
+    mux.setSink("odd", new PartitionAwareSink<>(otherCodec, Collections.singleton(1), 1, odd, 2));
+    mux.activate(null);
+
+    int count = 100;
+    mux.put(new Tuple(MessageType.BEGIN_WINDOW, 1));
+    for (int i = 0; i < count; i++) {
+      mux.put(i);
+    }
+    mux.put(new Tuple(MessageType.END_WINDOW, 1));
+
+    Assert.assertEquals("all tuples", count + 2, all.tuples.size());
+    Assert.assertEquals("odd tuples", count / 2 + 2, odd.tuples.size());
+    Assert.assertEquals("partition computed by single sink", count, otherCodec.partitionCalls);
+    int partitionCalls = 0;
+    for (int i = 0; i < partitions; i++) {
+      List<Object> tuples = outputs.get(i).tuples;
+      Assert.assertEquals("tuples " + i, count / partitions + (i < count % partitions ? 1 : 0) + 2, tuples.size());
+      Assert.assertTrue("begin window " + i, tuples.get(0) instanceof Tuple);
+      Assert.assertTrue("end window " + i, tuples.get(tuples.size() - 1) instanceof Tuple);
+      for (Object tuple : tuples.subList(1, tuples.size() - 1)) {
+        Assert.assertEquals("partition", i, ((Integer)tuple) & (partitions - 1));
+      }
+      partitionCalls += codecs.get(i).partitionCalls;
+    }
+    Assert.assertEquals("partition computed once per tuple", count, partitionCalls);
+    mux.deactivate();
+  }
+
+  @Test
+  public void testLargeMask()
+  {
+    MuxStream mux = new MuxStream();
+    CollectingSink large = new CollectingSink();
+    CollectingSink largeOther = new CollectingSink();
+    // masks beyond the routing table size, including all bits set, are served by the partition set
+    mux.setSink("large", new PartitionAwareSink<>(new CountingCodec(), Collections.singleton(5), Integer.MAX_VALUE,
+        large, 1));
+    mux.setSink("largeOther", new PartitionAwareSink<>(new CountingCodec(), new HashSet<>(Collections.singleton(6)),
+        Integer.MAX_VALUE, largeOther, 1));
+    CollectingSink negative = new CollectingSink();
+    mux.setSink("negative", new PartitionAwareSink<>(new CountingCodec(), Collections.singleton(-3), -1, negative));
+    mux.activate(null);
+
+    for (int i = -10; i < 10; i++) {
+      mux.put(i);
+    }
+
+    Assert.assertEquals("large", Collections.<Object>singletonList(5), large.tuples);
+    Assert.assertEquals("large other", Collections.<Object>singletonList(6), largeOther.tuples);
+    Assert.assertEquals("negative", Collections.<Object>singletonList(-3), negative.tuples);
+    mux.deactivate();
+  }
+}
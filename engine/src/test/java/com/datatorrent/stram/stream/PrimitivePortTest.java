@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap;
+import com.datatorrent.api.DefaultDoubleInputPort;
+import com.datatorrent.api.DefaultDoubleOutputPort;
+import com.datatorrent.api.DefaultIntInputPort;
+import com.datatorrent.api.DefaultIntOutputPort;
+import com.datatorrent.api.DefaultLongInputPort;
+import com.datatorrent.api.DefaultLongOutputPort;
+import com.datatorrent.api.PrimitiveStreamCodec;
+import com.datatorrent.api.Sink;
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.stram.codec.DefaultStatefulStreamCodec;
+import com.datatorrent.stram.engine.PortContext;
+import com.datatorrent.stram.engine.StreamContext;
+
+/**
+ * Tests for the primitive ports with thread local and container local streams.
+ */
+public class PrimitivePortTest
+{
+  private static class LongCollector extends DefaultLongInputPort
+  {
+    final List<Long> values = new ArrayList<>();
+    int boxed;
+
+    @Override
+    public void process(Long tuple)
+    {
+      boxed++;
+      super.process(tuple);
+    }
+
+    @Override
+    public void process(long value)
+    {
+      values.add(value);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Sink<Object> asSink(Sink<?> sink)
+  {
+    return (Sink<Object>)sink;
+  }
+
+  @Test
+  public void testThreadLocal()
+  {
+    OiOStream stream = new OiOStream();
+    LongCollector input = new LongCollector();
+    stream.getReservoir().setSink(asSink(input));
+    DefaultLongOutputPort output = new DefaultLongOutputPort();
+    output.setSink(stream);
+
+    output.emit(1L);
+    output.emit(Long.MIN_VALUE);
+    Assert.assertEquals("values", Arrays.asList(1L, Long.MIN_VALUE), input.values);
+    Assert.assertEquals("not boxed", 0, input.boxed);
+    Assert.assertEquals("port count", 2, input.getCount(false));
+    Assert.assertEquals("stream count", 2, stream.getCount(false));
+    Assert.assertEquals("reservoir count", 2, stream.getReservoir().getCount(false));
+
+    output.emit(Long.valueOf(3));
+    Assert.assertEquals("boxed value", 1, input.boxed);
+    Assert.assertEquals("values", Arrays.asList(1L, Long.MIN_VALUE, 3L), input.values);
+  }
+
+  @Test
+  public void testContainerLocal()
+  {
+    InlineStream stream = new InlineStream(4);
+    stream.setup(new StreamContext("output->input"));
+    final List<Object> values = new ArrayList<>();
+    DefaultIntInputPort intInput = new DefaultIntInputPort()
+    {
+      @Override
+      public void process(Integer tuple)
+      {
+        throw new AssertionError("boxed " + tuple);
+      }
+
+      @Override
+      public void process(int value)
+      {
+        values.add(value);
+      }
+    };
+    DefaultIntOutputPort output = new DefaultIntOutputPort();
+    output.setSink(stream);
+    stream.getReservoir().setSink(asSink(intInput));
+
+    for (int i = 0; i < 10; i++) {
+      output.emit(i);
+      output.emit(-i);
+      Assert.assertNull(stream.getReservoir().sweep());
+    }
+    Assert.assertEquals("values", 20, values.size());
+    Assert.assertEquals("last value", -9, values.get(19));
+    Assert.assertEquals("port count", 20, intInput.getCount(false));
+    Assert.assertEquals("stream count", 20, stream.getCount(false));
+
+    DefaultDoubleInputPort doubleInput = new DefaultDoubleInputPort()
+    {
+      @Override
+      public void process(double value)
+      {
+        values.add(value);
+      }
+    };
+    DefaultDoubleOutputPort doubleOutput = new DefaultDoubleOutputPort();
+    doubleOutput.setSink(stream);
+    stream.getReservoir().setSink(asSink(doubleInput));
+    doubleOutput.emit(Math.PI);
+    Assert.assertNull(stream.getReservoir().sweep());
+    Assert.assertEquals("double value", Math.PI, values.get(20));
+  }
+
+  @Test
+  public void testCodec()
+  {
+    PrimitiveStreamCodec.OfLong longCodec = new PrimitiveStreamCodec.OfLong();
+    for (long value : new long[]{0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE, 0x123456789abcdefL}) {
+      Slice slice = longCodec.toByteArray(value);
+      Assert.assertEquals("size", longCodec.getSize(), slice.length);
+      Assert.assertEquals("value", value, longCodec.fromByteArray(slice));
+      Assert.assertEquals("partition", Long.valueOf(value).hashCode(), longCodec.getPartition(value));
+      byte[] buffer = new byte[longCodec.getSize() + 5];
+      longCodec.write(value, buffer, 5);
+      Assert.assertEquals("written value", value, longCodec.fromByteArray(new Slice(buffer, 5, 8)));
+    }
+
+    PrimitiveStreamCodec.OfInt intCodec = new PrimitiveStreamCodec.OfInt();
+    for (int value : new int[]{0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0x12345678}) {
+      Assert.assertEquals("value", value, intCodec.fromByteArray(intCodec.toByteArray(value)));
+      Assert.assertEquals("partition", Integer.valueOf(value).hashCode(), intCodec.getPartition(value));
+    }
+
+    PrimitiveStreamCodec.OfDouble doubleCodec = new PrimitiveStreamCodec.OfDouble();
+    for (double value : new double[]{0, -0.0, 1.5, Double.NaN, Double.MAX_VALUE, Double.NEGATIVE_INFINITY}) {
+      Assert.assertEquals("value", value, doubleCodec.fromByteArray(doubleCodec.toByteArray(value)));
+      Assert.assertEquals("partition", Double.valueOf(value).hashCode(), doubleCodec.getPartition(value));
+    }
+
+    Assert.assertEquals("same codec", new PrimitiveStreamCodec.OfLong(), new LongCollector().getStreamCodec());
+    Assert.assertNotEquals("different codec", longCodec, doubleCodec);
+  }
+
+  @Test
+  public void testConfiguredCodec()
+  {
+    LongCollector port = new LongCollector();
+    port.setup(new PortContext(new DefaultAttributeMap(), null));
+    Assert.assertEquals("default codec", new PrimitiveStreamCodec.OfLong(), port.getStreamCodec());
+
+    DefaultStatefulStreamCodec<Object> codec = new DefaultStatefulStreamCodec<>();
+    DefaultAttributeMap attributes = new DefaultAttributeMap();
+    attributes.put(PortContext.STREAM_CODEC, codec);
+    port.setup(new PortContext(attributes, null));
+    Assert.assertSame("configured codec", codec, port.getStreamCodec());
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MovingPercentileTest
+{
+  @Test
+  public void testPercentiles()
+  {
+    MovingPercentile mp = new MovingPercentile(100);
+    Assert.assertArrayEquals("no samples", new long[]{0, 0}, mp.getPercentiles(50, 99));
+    for (int i = 100; i > 0; i--) {
+      mp.add(i);
+    }
+    Assert.assertEquals("count", 100, mp.getCount());
+    Assert.assertArrayEquals("percentiles", new long[]{1, 50, 99, 100}, mp.getPercentiles(1, 50, 99, 100));
+
+    // replace the oldest samples 100..51
+    for (int i = 0; i < 50; i++) {
+      mp.add(1000);
+    }
+    Assert.assertEquals("count", 100, mp.getCount());
+    Assert.assertArrayEquals("percentiles", new long[]{50, 1000}, mp.getPercentiles(50, 99));
+  }
+
+  @Test
+  public void testPartiallyFilled()
+  {
+    MovingPercentile mp = new MovingPercentile(10);
+    mp.add(5);
+    mp.add(3);
+    mp.add(9);
+    Assert.assertEquals("count", 3, mp.getCount());
+    Assert.assertArrayEquals("percentiles", new long[]{3, 5, 9}, mp.getPercentiles(10, 50, 99));
+  }
+}
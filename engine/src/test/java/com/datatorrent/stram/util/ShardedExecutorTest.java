@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ShardedExecutorTest
+{
+  @Test
+  public void testBoundedQueue() throws Exception
+  {
+    final ShardedExecutor executor = new ShardedExecutor("test", 1, 2);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<Integer> executed = Lists.newArrayList();
+    executor.execute(0, new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    final CountDownLatch submitted = new CountDownLatch(1);
+    Thread submitter = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        for (int i = 0; i < 4; i++) {
+          final int task = i;
+          executor.execute(0, new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              synchronized (executed) {
+                executed.add(task);
+              }
+            }
+          });
+        }
+        submitted.countDown();
+      }
+    };
+    submitter.start();
+    // the queue holds two tasks, the submitter waits for the shard to catch up
+    Assert.assertFalse("submitter blocked", submitted.await(200, TimeUnit.MILLISECONDS));
+    Assert.assertEquals("queue depth", 2, executor.getQueueDepth());
+
+    release.countDown();
+    Assert.assertTrue("submitted", submitted.await(10, TimeUnit.SECONDS));
+    Assert.assertTrue("idle", executor.awaitIdle(10000));
+    Assert.assertEquals("order", Lists.newArrayList(0, 1, 2, 3), executed);
+    Assert.assertEquals("queue depth", 0, executor.getQueueDepth());
+    executor.shutdown();
+    Assert.assertTrue("terminated", executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+}
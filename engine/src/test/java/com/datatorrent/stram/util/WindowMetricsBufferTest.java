@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WindowMetricsBufferTest
+{
+  private static Map<String, Object> newMetrics(long windowId)
+  {
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("count", windowId * 10);
+    metrics.put("partitions", (int)windowId);
+    metrics.put("rate", windowId / 2.0);
+    metrics.put("name", "w" + windowId);
+    return metrics;
+  }
+
+  private static List<Map<String, Object>> collect(WindowMetricsBuffer buffer, long fromSequence)
+  {
+    final List<Map<String, Object>> result = new ArrayList<>();
+    buffer.visit(fromSequence, new WindowMetricsBuffer.Visitor()
+    {
+      @Override
+      public void visit(long sequence, WindowMetricsBuffer.Window window)
+      {
+        Map<String, Object> metrics = window.toMap();
+        metrics.put("_windowId", window.getWindowId());
+        result.add(metrics);
+      }
+    });
+    return result;
+  }
+
+  @Test
+  public void testRetention()
+  {
+    WindowMetricsBuffer buffer = new WindowMetricsBuffer(4);
+    for (long windowId = 1; windowId <= 3; windowId++) {
+      buffer.add(windowId, newMetrics(windowId));
+    }
+    List<Map<String, Object>> windows = collect(buffer, 0);
+    Assert.assertEquals("windows", 3, windows.size());
+    Map<String, Object> expected = newMetrics(1);
+    expected.put("_windowId", 1L);
+    Assert.assertEquals("values with original types", expected, windows.get(0));
+
+    for (long windowId = 4; windowId <= 10; windowId++) {
+      buffer.add(windowId, newMetrics(windowId));
+    }
+    Assert.assertEquals("sequence", 10, buffer.getSequence());
+    Assert.assertEquals("size", 4, buffer.size());
+    windows = collect(buffer, 2);
+    Assert.assertEquals("replaced windows skipped", 4, windows.size());
+    Assert.assertEquals("oldest retained", 7L, windows.get(0).get("_windowId"));
+    Assert.assertEquals("latest", 10L, windows.get(3).get("_windowId"));
+    Assert.assertEquals("from sequence", 1, collect(buffer, 9).size());
+    Assert.assertEquals("nothing new", 0, collect(buffer, 10).size());
+  }
+
+  @Test
+  public void testColumns()
+  {
+    WindowMetricsBuffer buffer = new WindowMetricsBuffer(4);
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("value", 1L);
+    metrics.put("ratio", 0.5f);
+    buffer.add(1, metrics);
+    metrics.remove("ratio");
+    metrics.put("value", 2.5);
+    buffer.add(2, metrics);
+
+    List<Map<String, Object>> windows = collect(buffer, 0);
+    Assert.assertEquals("value retained after type change", 1L, windows.get(0).get("value"));
+    Assert.assertEquals("float", 0.5f, windows.get(0).get("ratio"));
+    Assert.assertEquals("changed type", 2.5, windows.get(1).get("value"));
+    Assert.assertFalse("missing metric", windows.get(1).containsKey("ratio"));
+
+    buffer.visit(1, new WindowMetricsBuffer.Visitor()
+    {
+      @Override
+      public void visit(long sequence, WindowMetricsBuffer.Window window)
+      {
+        Assert.assertEquals("metrics", 2, window.getMetricCount());
+        for (int i = 0; i < window.getMetricCount(); i++) {
+          if (window.getName(i).equals("value")) {
+            Assert.assertEquals("long", 2, window.getLong(i));
+            Assert.assertEquals("double", 2.5, window.getDouble(i), 0);
+          } else {
+            Assert.assertFalse("not present", window.isPresent(i));
+            Assert.assertNull("not present", window.getValue(i));
+          }
+        }
+      }
+    });
+  }
+}